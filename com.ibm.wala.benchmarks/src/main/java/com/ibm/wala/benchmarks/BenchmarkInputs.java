@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+/**
+ * The fixed inputs of the benchmarks: the test data jar of the core tests, analyzed against the
+ * standard library of the running JVM.
+ */
+final class BenchmarkInputs {
+
+  /** the test data jar, as a resource */
+  static final String TEST_DATA_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  private BenchmarkInputs() {}
+
+  /** @return the scope of the core regression tests */
+  static AnalysisScope makeScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(
+        TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  /** @return the contents of every class file in the test data jar */
+  static List<byte[]> readTestDataClasses() throws IOException {
+    List<byte[]> result = new ArrayList<>();
+    InputStream s = BenchmarkInputs.class.getClassLoader().getResourceAsStream(TEST_DATA_JAR);
+    if (s == null) {
+      throw new IOException("could not find " + TEST_DATA_JAR);
+    }
+    try (JarInputStream jar = new JarInputStream(s)) {
+      for (JarEntry e = jar.getNextJarEntry(); e != null; e = jar.getNextJarEntry()) {
+        if (e.getName().endsWith(".class")) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          byte[] buffer = new byte[8192];
+          for (int n; (n = jar.read(buffer)) != -1; ) {
+            bytes.write(buffer, 0, n);
+          }
+          result.add(bytes.toByteArray());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the bytecode methods of the application classes, except those that cannot be parsed;
+   *     some test data classes are broken on purpose
+   */
+  static List<IMethod> applicationMethods(IClassHierarchy cha) {
+    List<IMethod> result = new ArrayList<>();
+    for (IClass klass :
+        Iterator2Iterable.make(
+            cha.getLoader(ClassLoaderReference.Application).iterateAllClasses())) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (m instanceof IBytecodeMethod && !m.isAbstract() && !m.isNative()) {
+          try {
+            ((IBytecodeMethod<?>) m).getInstructions();
+            result.add(m);
+          } catch (InvalidClassFileException e) {
+            // skip it
+          }
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 0-CFA and 0-1-CFA call graph construction for a small and a larger program. Each build starts
+ * from an empty IR cache, so it includes SSA construction for every reachable method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2, time = 30)
+@Measurement(iterations = 3, time = 30)
+public class CallGraphBenchmark {
+
+  @Param({"0-CFA", "0-1-CFA"})
+  public String builder;
+
+  /** a small program from the test data, or JLex */
+  @Param({"recurse", "JLex"})
+  public String program;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private AnalysisOptions options;
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    String mainClass;
+    switch (program) {
+      case "recurse":
+        scope = BenchmarkInputs.makeScope();
+        mainClass = TestConstants.RECURSE_MAIN;
+        break;
+      case "JLex":
+        scope =
+            CallGraphTestUtil.makeJ2SEAnalysisScope(
+                TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+        mainClass = TestConstants.JLEX_MAIN;
+        break;
+      default:
+        throw new IllegalArgumentException("unknown program " + program);
+    }
+    cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+  }
+
+  @Benchmark
+  public CallGraph build() throws CancelException {
+    AnalysisCacheImpl cache = new AnalysisCacheImpl();
+    CallGraphBuilder<InstanceKey> b;
+    switch (builder) {
+      case "0-CFA":
+        b = Util.makeZeroCFABuilder(Language.JAVA, options, cache, cha, scope);
+        break;
+      case "0-1-CFA":
+        b = Util.makeZeroOneCFABuilder(Language.JAVA, options, cache, cha, scope);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown builder " + builder);
+    }
+    return b.makeCallGraph(options, null);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.shrike.shrikeBT.Decoder.InvalidBytecodeException;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.CodeReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of the class files in the test data jar with Shrike: the {@link ClassReader} alone, and
+ * together with decoding the bytecode of every method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassReaderBenchmark {
+
+  private List<byte[]> classes;
+
+  @Setup
+  public void setup() throws IOException {
+    classes = BenchmarkInputs.readTestDataClasses();
+  }
+
+  @Benchmark
+  public void read(Blackhole bh) throws InvalidClassFileException {
+    ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    for (byte[] bytes : classes) {
+      ClassReader reader = new ClassReader(bytes);
+      bh.consume(reader.getName());
+      for (int m = 0; m < reader.getMethodCount(); m++) {
+        bh.consume(reader.getMethodName(m));
+        bh.consume(reader.getMethodType(m));
+        reader.initMethodAttributeIterator(m, iter);
+        for (; iter.isValid(); iter.advance()) {
+          bh.consume(iter.getName());
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void decode(Blackhole bh) throws InvalidClassFileException, InvalidBytecodeException {
+    ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+    for (byte[] bytes : classes) {
+      ClassReader reader = new ClassReader(bytes);
+      for (int m = 0; m < reader.getMethodCount(); m++) {
+        reader.initMethodAttributeIterator(m, iter);
+        for (; iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            CTDecoder decoder = new CTDecoder(new CodeReader(iter));
+            decoder.decode();
+            bh.consume(decoder.getInstructions());
+            bh.consume(decoder.getHandlers());
+          }
+        }
+      }
+    }
+  }
+}
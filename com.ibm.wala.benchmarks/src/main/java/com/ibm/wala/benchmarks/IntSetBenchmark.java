@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The basic operations of the {@link MutableIntSet} implementations that points-to sets and
+ * dataflow facts are made of, on sets of random elements drawn from a small or a large range.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IntSetBenchmark {
+
+  @Param({"sparse", "bitVector", "sharedBitVector", "semiSparse"})
+  public String implementation;
+
+  /** elements are drawn from [0, range) */
+  @Param({"4096", "1048576"})
+  public int range;
+
+  @Param({"1000"})
+  public int size;
+
+  private MutableIntSetFactory<?> factory;
+
+  private int[] elements;
+
+  private int[] probes;
+
+  private MutableIntSet set;
+
+  private MutableIntSet other;
+
+  @Setup
+  public void setup() {
+    switch (implementation) {
+      case "sparse":
+        factory = new MutableSparseIntSetFactory();
+        break;
+      case "bitVector":
+        factory = new BitVectorIntSetFactory();
+        break;
+      case "sharedBitVector":
+        factory = new MutableSharedBitVectorIntSetFactory();
+        break;
+      case "semiSparse":
+        factory = new SemiSparseMutableIntSetFactory();
+        break;
+      default:
+        throw new IllegalArgumentException("unknown implementation " + implementation);
+    }
+    Random random = new Random(size * 31L + range);
+    elements = random.ints(size, 0, range).toArray();
+    probes = random.ints(size, 0, range).toArray();
+    set = makeSet(elements);
+    other = makeSet(probes);
+  }
+
+  private MutableIntSet makeSet(int[] values) {
+    MutableIntSet result = factory.make();
+    for (int i : values) {
+      result.add(i);
+    }
+    return result;
+  }
+
+  /** insertion of elements in random order */
+  @Benchmark
+  public MutableIntSet add() {
+    return makeSet(elements);
+  }
+
+  @Benchmark
+  public void contains(Blackhole bh) {
+    for (int i : probes) {
+      bh.consume(set.contains(i));
+    }
+  }
+
+  @Benchmark
+  public int iterate() {
+    int sum = 0;
+    for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+      sum += it.next();
+    }
+    return sum;
+  }
+
+  /** the union of two sets into a copy of the first, as in points-to set propagation */
+  @Benchmark
+  public MutableIntSet addAll() {
+    MutableIntSet result = factory.makeCopy(set);
+    result.addAll(other);
+    return result;
+  }
+
+  @Benchmark
+  public MutableIntSet intersect() {
+    MutableIntSet result = factory.makeCopy(set);
+    result.intersectWith(other);
+    return result;
+  }
+}
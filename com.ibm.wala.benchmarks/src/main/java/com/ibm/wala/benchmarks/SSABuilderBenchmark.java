@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.SSABuilder;
+import com.ibm.wala.ssa.SSAOptions;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Construction of the IRs of all methods of the test data, i.e. {@link SSABuilder} along with the
+ * CFG construction it depends on. No IR cache is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SSABuilderBenchmark {
+
+  private List<IMethod> methods;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  @Setup
+  public void setup() throws IOException, ClassHierarchyException {
+    methods =
+        BenchmarkInputs.applicationMethods(ClassHierarchyFactory.make(BenchmarkInputs.makeScope()));
+  }
+
+  @Benchmark
+  public void makeIRs(Blackhole bh) {
+    DefaultIRFactory factory = new DefaultIRFactory();
+    for (IMethod m : methods) {
+      bh.consume(factory.makeIR(m, Everywhere.EVERYWHERE, options));
+    }
+  }
+}
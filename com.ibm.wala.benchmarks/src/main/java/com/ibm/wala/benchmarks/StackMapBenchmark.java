@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyProvider;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Instrumentation of the class files in the test data jar with Shrike, which must compute new stack
+ * maps for every method it changes: with the type hierarchy of the jar alone, and with one {@link
+ * ClassHierarchyCache} of it shared by all the classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StackMapBenchmark {
+
+  private List<ClassReader> classes;
+
+  private ClassHierarchyStore store;
+
+  @Setup
+  public void setup() throws IOException, InvalidClassFileException {
+    classes = new ArrayList<>();
+    store = new ClassHierarchyStore();
+    for (byte[] bytes : BenchmarkInputs.readTestDataClasses()) {
+      ClassReader reader = new ClassReader(bytes);
+      classes.add(reader);
+      CTUtils.addClassToHierarchy(store, reader);
+    }
+  }
+
+  /** Add a useless push and pop to the start of every method of every class, and write them. */
+  private void instrument(ClassHierarchyProvider hierarchy, Blackhole bh)
+      throws InvalidClassFileException {
+    for (ClassReader reader : classes) {
+      ClassInstrumenter ci = new ClassInstrumenter(reader.getName(), reader, hierarchy);
+      for (int m = 0; m < reader.getMethodCount(); m++) {
+        MethodData d = ci.visitMethod(m);
+        if (d != null) {
+          MethodEditor me = new MethodEditor(d);
+          me.beginPass();
+          me.insertAtStart(
+              new MethodEditor.Patch() {
+                @Override
+                public void emitTo(MethodEditor.Output w) {
+                  w.emit(ConstantInstruction.make(0));
+                  w.emit(PopInstruction.make(1));
+                }
+              });
+          me.applyPatches();
+          me.endPass();
+        }
+      }
+      bh.consume(ci.emitClass().makeBytes());
+    }
+  }
+
+  @Benchmark
+  public void uncached(Blackhole bh) throws InvalidClassFileException {
+    instrument(store, bh);
+  }
+
+  @Benchmark
+  public void cached(Blackhole bh) throws InvalidClassFileException {
+    instrument(new ClassHierarchyCache(store), bh);
+  }
+}
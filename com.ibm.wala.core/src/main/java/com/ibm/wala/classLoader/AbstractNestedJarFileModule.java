@@ -49,7 +49,7 @@ public abstract class AbstractNestedJarFileModule implements Module {
     return new ByteArrayInputStream(b);
   }
 
-  private void populateCache() {
+  private synchronized void populateCache() {
     if (cache != null) {
       return;
     }
@@ -100,6 +100,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   /** hash code; cached here for efficiency */
   protected int hashCode;
 
+  /** fields found by {@link #getField(Atom)}, which guards it */
   private final HashMap<Atom, IField> fieldMap = HashMapFactory.make(5);
 
   /** A warning for when we get a class not found exception */
@@ -176,8 +177,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     return getReference().isReferenceType();
   }
 
+  /**
+   * Synchronized since clients such as {@link com.ibm.wala.ipa.modref.ModRef} resolve fields from
+   * several threads; it locks only this class and its supertypes, so it cannot deadlock.
+   */
   @Override
-  public IField getField(Atom name) {
+  public synchronized IField getField(Atom name) {
     if (fieldMap.containsKey(name)) {
       return fieldMap.get(name);
     } else {
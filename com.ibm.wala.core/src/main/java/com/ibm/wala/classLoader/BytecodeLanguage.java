@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.classLoader;
 
+import com.ibm.wala.shrike.shrikeBT.BytecodeScanner;
 import com.ibm.wala.shrike.shrikeBT.IInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
@@ -21,6 +22,13 @@ public interface BytecodeLanguage extends Language {
 
   Collection<TypeReference> getImplicitExceptionTypes(IInstruction pei);
 
+  /**
+   * @param opcode the opcode of a PEI, as reported by {@link BytecodeScanner.Visitor#visitPEI(int,
+   *     int)}
+   * @return the exception types the PEI may throw implicitly
+   */
+  Collection<TypeReference> getImplicitExceptionTypes(int opcode);
+
   MethodReference getInvokeMethodReference(
       ClassLoaderReference loader, IInvokeInstruction instruction);
 }
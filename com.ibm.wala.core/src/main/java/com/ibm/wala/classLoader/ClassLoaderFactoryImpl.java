@@ -17,6 +17,7 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.config.SetOfClasses;
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
@@ -33,9 +34,37 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
   /** A Mapping from ClassLoaderReference to IClassLoader */
   private final HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /** Directory holding {@link ModuleSnapshot}s of jar files, or null if none should be used */
+  private final File snapshotDirectory;
+
+  /** How many threads each {@link ClassLoaderImpl} may use to parse class files */
+  private int numberOfThreads = 1;
+
   /** @param exclusions A set of classes that class loaders should pretend don't exist. */
   public ClassLoaderFactoryImpl(SetOfClasses exclusions) {
+    this(exclusions, null);
+  }
+
+  /**
+   * @param exclusions A set of classes that class loaders should pretend don't exist.
+   * @param snapshotDirectory directory in which {@link ClassLoaderImpl}s find and store {@link
+   *     ModuleSnapshot}s of the jar files they load, or null to always read all class files
+   */
+  public ClassLoaderFactoryImpl(SetOfClasses exclusions, File snapshotDirectory) {
     this.exclusions = exclusions;
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  /**
+   * @param n how many threads each {@link ClassLoaderImpl} may use to parse class files
+   * @throws IllegalArgumentException if n &lt; 1
+   * @see ClassLoaderImpl#setNumberOfThreads(int)
+   */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
   }
 
   /**
@@ -128,6 +157,10 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
                   classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setSnapshotDirectory(snapshotDirectory);
+      ((ClassLoaderImpl) cl).setNumberOfThreads(numberOfThreads);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
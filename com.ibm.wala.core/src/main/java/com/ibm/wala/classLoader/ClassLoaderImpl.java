@@ -34,13 +34,20 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
@@ -72,6 +79,12 @@ public class ClassLoaderImpl implements IClassLoader {
   /** an object to delegate to for loading of array classes */
   private final ArrayClassLoader arrayClassLoader;
 
+  /** where to find and store {@link ModuleSnapshot}s of jar files; null if none should be used */
+  private File snapshotDirectory;
+
+  /** how many threads may parse the class files of a module */
+  private int numberOfThreads = 1;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -100,6 +113,31 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Use {@link ModuleSnapshot}s in the given directory to avoid reading the class files of jar
+   * files that were seen before. Must be called before {@link #init(List)}.
+   *
+   * @param snapshotDirectory the directory, or null to read all class files
+   */
+  public void setSnapshotDirectory(File snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  /**
+   * Parse the class files of each module on the given number of threads. Classes are still added to
+   * this loader in the same order as by a single thread, so the result does not depend on the
+   * number of threads. Must be called before {@link #init(List)}.
+   *
+   * @param n the number of threads; 1 (the default) parses sequentially
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    numberOfThreads = n;
+  }
+
   /**
    * Return the Set of (ModuleEntry) source files found in a module.
    *
@@ -205,33 +243,27 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
-  /** Set up the set of classes loaded by this object. */
+  /**
+   * Set up the set of classes loaded by this object.
+   *
+   * @param snapshot summaries of the top-level classes of the module, or null to read them all
+   * @param recorder if non-null, records summaries of the top-level classes that are read
+   */
   @SuppressWarnings("unused")
   private void loadAllClasses(
-      Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, boolean isJMODType) {
+      Collection<ModuleEntry> moduleEntries,
+      Map<String, Object> fileContents,
+      boolean isJMODType,
+      ModuleSnapshot snapshot,
+      ModuleSnapshot recorder)
+      throws IOException {
+    Map<ModuleEntry, Object> parsed =
+        numberOfThreads > 1
+            ? parseInParallel(moduleEntries, fileContents, isJMODType, snapshot)
+            : Collections.emptyMap();
     for (ModuleEntry entry : moduleEntries) {
-      // java11 support for jmod files
-      if (!entry.isClassFile()
-          || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
-        continue;
-      }
-
-      @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
-      String className = entry.getClassName().replace('.', '/');
-
-      // java11 support for jmod files
-      if (isJMODType && className.startsWith("classes/")) {
-        className = className.replace("classes/", "");
-      }
-
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("Consider " + className);
-      }
-
-      if (exclusions != null && exclusions.contains(className)) {
-        if (DEBUG_LEVEL > 0) {
-          System.err.println("Excluding " + className);
-        }
+      String className = getClassName(entry, isJMODType);
+      if (className == null) {
         continue;
       }
 
@@ -247,26 +279,37 @@ public class ClassLoaderImpl implements IClassLoader {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
+        } else if (snapshot != null
+            && entry instanceof JarFileEntry
+            && snapshot.getSummary(entry.getName()) != null) {
+          ModuleSnapshot.ClassSummary summary = snapshot.getSummary(entry.getName());
+          if (summary.isInvalid()) {
+            Warnings.add(InvalidClassFile.create(className));
+          } else {
+            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha, summary));
+          }
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
+          Object p = parsed.get(entry);
+          if (p instanceof InvalidClassFileException) {
+            throw (InvalidClassFileException) p;
           }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+          ShrikeClass tmpKlass = p != null ? (ShrikeClass) p : parse(entry, fileContents);
           if (tmpKlass.getReference().getName().equals(T)) {
+            if (recorder != null && entry instanceof JarFileEntry) {
+              recorder.record(entry.getName(), summarize(tmpKlass));
+            }
             // always used the reader based on the entry after this point,
             // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+            loadedClasses.put(
+                T, fileContents == null ? tmpKlass : new ShrikeClass(entryReader, this, cha));
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + ' ');
             }
           } else {
             Warnings.add(InvalidClassFile.create(className));
+            if (recorder != null && entry instanceof JarFileEntry) {
+              recorder.record(entry.getName(), ModuleSnapshot.ClassSummary.INVALID_CLASS);
+            }
           }
         }
       } catch (InvalidClassFileException e) {
@@ -274,10 +317,149 @@ public class ClassLoaderImpl implements IClassLoader {
           System.err.println("Ignoring class " + className + " due to InvalidClassFileException");
         }
         Warnings.add(InvalidClassFile.create(className));
+        if (recorder != null && entry instanceof JarFileEntry) {
+          recorder.record(entry.getName(), ModuleSnapshot.ClassSummary.INVALID_CLASS);
+        }
       }
     }
   }
 
+  /**
+   * @return the summary of a loaded class for a snapshot, or null if the class cannot be summarized
+   *     and must be read from its class file next time
+   */
+  private static ModuleSnapshot.ClassSummary summarize(ShrikeClass klass) {
+    try {
+      return klass.summarize();
+    } catch (InvalidClassFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the internal name of the class defined by a module entry, or null if the entry does not
+   *     define a class this loader should load
+   */
+  private String getClassName(ModuleEntry entry, boolean isJMODType) {
+    // java11 support for jmod files
+    if (!entry.isClassFile()
+        || (isJMODType && entry.getClassName().startsWith("classes/module-info"))) {
+      return null;
+    }
+
+    @SuppressWarnings("NonConstantStringShouldBeStringBuffer")
+    String className = entry.getClassName().replace('.', '/');
+
+    // java11 support for jmod files
+    if (isJMODType && className.startsWith("classes/")) {
+      className = className.replace("classes/", "");
+    }
+
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("Consider " + className);
+    }
+
+    if (exclusions != null && exclusions.contains(className)) {
+      if (DEBUG_LEVEL > 0) {
+        System.err.println("Excluding " + className);
+      }
+      return null;
+    }
+    return className;
+  }
+
+  /** Read a class from a module entry, using its in-memory contents if we have them. */
+  private ShrikeClass parse(ModuleEntry entry, Map<String, Object> fileContents)
+      throws InvalidClassFileException {
+    ShrikeClassReaderHandle reader = new ShrikeClassReaderHandle(entry);
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+      }
+    }
+    return new ShrikeClass(reader, this, cha);
+  }
+
+  /**
+   * Parse, on {@link #numberOfThreads} threads, the class files that {@link #loadAllClasses} would
+   * otherwise parse one at a time. Parsing only interns names and types, which is thread safe; all
+   * changes to this loader are left to the caller.
+   *
+   * @return a map from module entry to the {@link ShrikeClass} read from it, or to the {@link
+   *     InvalidClassFileException} raised when reading it
+   */
+  private Map<ModuleEntry, Object> parseInParallel(
+      Collection<ModuleEntry> moduleEntries,
+      Map<String, Object> fileContents,
+      boolean isJMODType,
+      ModuleSnapshot snapshot)
+      throws IOException {
+    List<ModuleEntry> entries = new ArrayList<>();
+    for (ModuleEntry entry : moduleEntries) {
+      String className = getClassName(entry, isJMODType);
+      if (className == null) {
+        continue;
+      }
+      TypeName T = TypeName.string2TypeName('L' + className);
+      if (loadedClasses.get(T) != null || (parent != null && parent.lookupClass(T) != null)) {
+        continue;
+      }
+      if (snapshot != null
+          && entry instanceof JarFileEntry
+          && snapshot.getSummary(entry.getName()) != null) {
+        continue;
+      }
+      entries.add(entry);
+    }
+
+    final Object[] result = new Object[entries.size()];
+    int nChunks = numberOfThreads * 4;
+    int chunkSize = (result.length + nChunks - 1) / nChunks;
+    List<Callable<Void>> tasks = new ArrayList<>(nChunks);
+    for (int start = 0; start < result.length; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, result.length);
+      tasks.add(
+          () -> {
+            for (int i = from; i < to; i++) {
+              try {
+                result[i] = parse(entries.get(i), fileContents);
+              } catch (InvalidClassFileException e) {
+                result[i] = e;
+              }
+            }
+            return null;
+          });
+    }
+    ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+    try {
+      for (Future<Void> f : pool.invokeAll(tasks)) {
+        f.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while loading classes");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      } else {
+        throw new IOException(e.getCause());
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    Map<ModuleEntry, Object> parsed = HashMapFactory.make(result.length);
+    for (int i = 0; i < result.length; i++) {
+      parsed.put(entries.get(i), result[i]);
+    }
+    return parsed;
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(
       byte[] jarFileContents, String fileName, Map<String, Map<String, Long>> entrySizes) {
@@ -467,8 +649,17 @@ public class ClassLoaderImpl implements IClassLoader {
       if (DEBUG_LEVEL > 0) {
         System.err.println("add archive: " + archive);
       }
+      ModuleSnapshot snapshot = null;
+      ModuleSnapshot recorder = null;
+      if (snapshotDirectory != null && archive instanceof JarFileModule) {
+        String key = ModuleSnapshot.computeKey((JarFileModule) archive);
+        snapshot = ModuleSnapshot.read(snapshotDirectory, key);
+        if (snapshot == null) {
+          recorder = ModuleSnapshot.make(key);
+        }
+      }
       // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
+      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule && snapshot == null) {
         // if we have a jar file, we read the whole thing into memory and operate on that; enables
         // more
         // efficient sequential I/O
@@ -502,7 +693,10 @@ public class ClassLoaderImpl implements IClassLoader {
         // }
         // jarFileContents = null;
       }
-      loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType);
+      loadAllClasses(classFiles, allClassAndSourceFileContents, isJMODType, snapshot, recorder);
+      if (recorder != null) {
+        recorder.write(snapshotDirectory);
+      }
       loadAllSources(sourceFiles);
       classModuleEntries.addAll(classFiles);
       sourceModuleEntries.addAll(sourceFiles);
@@ -675,7 +675,22 @@ public class JavaLanguage extends LanguageImpl implements BytecodeLanguage, Cons
     if (pei == null) {
       throw new IllegalArgumentException("pei is null");
     }
-    switch (((Instruction) pei).getOpcode()) {
+    int opcode = ((Instruction) pei).getOpcode();
+    if (opcode == OP_ldc_w && !((ConstantInstruction) pei).getType().equals(TYPE_Class)) {
+      return null;
+    }
+    return getImplicitExceptionTypes(opcode);
+  }
+
+  /**
+   * @param opcode the opcode of a PEI, as {@link Instruction#getOpcode()} gives it; ldc_w stands
+   *     for a load of a class constant
+   * @return the exception types the PEI may throw, as for {@link
+   *     #getImplicitExceptionTypes(IInstruction)}
+   */
+  @Override
+  public Collection<TypeReference> getImplicitExceptionTypes(int opcode) {
+    switch (opcode) {
       case OP_iaload:
       case OP_laload:
       case OP_faload:
@@ -722,9 +737,7 @@ public class JavaLanguage extends LanguageImpl implements BytecodeLanguage, Cons
       case OP_checkcast:
         return getClassCastException();
       case OP_ldc_w:
-        if (((ConstantInstruction) pei).getType().equals(TYPE_Class))
-          return getClassNotFoundException();
-        else return null;
+        return getClassNotFoundException();
       case OP_getstatic:
       case OP_putstatic:
         return getExceptionInInitializerError();
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.FileSuffixes;
+import com.ibm.wala.util.debug.Assertions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/** A file in a {@link MappedJarFileModule}. */
+public class MappedJarFileEntry implements ModuleEntry {
+
+  private final MappedJarFileModule module;
+
+  private final String entryName;
+
+  /** {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED} */
+  private final int method;
+
+  private final int localHeader;
+
+  private final int compressedSize;
+
+  private final int size;
+
+  MappedJarFileEntry(
+      MappedJarFileModule module,
+      String entryName,
+      int method,
+      int localHeader,
+      int compressedSize,
+      int size) {
+    this.module = module;
+    this.entryName = entryName;
+    this.method = method;
+    this.localHeader = localHeader;
+    this.compressedSize = compressedSize;
+    this.size = size;
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#getName()
+   */
+  @Override
+  public String getName() {
+    return entryName;
+  }
+
+  /** @return the uncompressed size of the file */
+  public int getSize() {
+    return size;
+  }
+
+  /** @return true if the file is stored without compression, so reading it copies nothing */
+  public boolean isStored() {
+    return method == ZipEntry.STORED;
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#isClassFile()
+   */
+  @Override
+  public boolean isClassFile() {
+    return FileSuffixes.isClassFile(getName()) && !module.isModuleInfo(getName());
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#isSourceFile()
+   */
+  @Override
+  public boolean isSourceFile() {
+    return FileSuffixes.isSourceFile(getName());
+  }
+
+  /**
+   * @return the contents of the file; a view of the mapped archive if the file is stored, and a
+   *     freshly inflated buffer otherwise
+   */
+  public ByteBuffer getByteBuffer() throws IOException {
+    if (isStored()) {
+      return module.slice(module.getDataPosition(localHeader), size);
+    }
+    return ByteBuffer.wrap(getContents());
+  }
+
+  /** @return the contents of the file, in an array of exactly its size */
+  public byte[] getContents() throws IOException {
+    int position = module.getDataPosition(localHeader);
+    byte[] result = new byte[size];
+    switch (method) {
+      case ZipEntry.STORED:
+        module.read(position, result, 0, size);
+        return result;
+      case ZipEntry.DEFLATED:
+        // one extra byte, since an inflater without zlib header may need it to see the end
+        byte[] compressed = new byte[compressedSize + 1];
+        module.read(position, compressed, 0, compressedSize);
+        Inflater inflater = new Inflater(true);
+        try {
+          inflater.setInput(compressed);
+          int n = 0;
+          while (n < size) {
+            int k = inflater.inflate(result, n, size - n);
+            if (k == 0 && (inflater.finished() || inflater.needsInput())) {
+              break;
+            }
+            n += k;
+          }
+          if (n != size) {
+            throw new ZipException("truncated entry " + this);
+          }
+        } catch (DataFormatException e) {
+          throw new ZipException("invalid entry " + this + ": " + e.getMessage());
+        } finally {
+          inflater.end();
+        }
+        return result;
+      default:
+        throw new ZipException("unsupported compression method " + method + " for " + this);
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#getInputStream()
+   */
+  @Override
+  public InputStream getInputStream() {
+    try {
+      return new ByteArrayInputStream(getContents());
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#isModuleFile()
+   */
+  @Override
+  public boolean isModuleFile() {
+    return FileSuffixes.isJarFile(getName()) || FileSuffixes.isWarFile(getName());
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#asModule()
+   */
+  @Override
+  public Module asModule() {
+    try {
+      return new MappedJarFileModule(entryName, getByteBuffer(), module);
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.ModuleEntry#getClassName()
+   */
+  @Override
+  public String getClassName() {
+    return module.getClassName(getName());
+  }
+
+  @Override
+  public MappedJarFileModule getContainer() {
+    return module;
+  }
+
+  @Override
+  public String toString() {
+    return module.getName() + ':' + getName();
+  }
+
+  @Override
+  public int hashCode() {
+    return entryName.hashCode() * 5059 + module.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return this == obj;
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.FileSuffixes;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * A jar, war or JMOD file read through a memory mapping instead of {@link java.util.jar.JarFile}.
+ *
+ * <p>The central directory is indexed once, when the module is created. The contents of stored
+ * entries are then read straight from the mapping, and deflated entries are inflated into an array
+ * of exactly their size, only when asked for. Nested archives that are stored rather than deflated,
+ * as in Spring Boot fat jars, are views of the enclosing mapping, so they are never copied.
+ *
+ * <p>In JMOD files, classes live under {@code classes/}; in fat jars and wars, under {@code
+ * BOOT-INF/classes/} and {@code WEB-INF/classes/}. {@link ModuleEntry#getClassName()} strips these
+ * prefixes, so such modules can be added to an {@link com.ibm.wala.ipa.callgraph.AnalysisScope}
+ * like any other jar.
+ */
+public class MappedJarFileModule implements Module {
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+
+  private static final int CENTRAL_HEADER = 0x02014b50;
+
+  private static final int END_HEADER = 0x06054b50;
+
+  private static final int ZIP64_END_HEADER = 0x06064b50;
+
+  private static final int ZIP64_END_LOCATOR = 0x07064b50;
+
+  private static final int END_HEADER_SIZE = 22;
+
+  /** the first bytes of a JMOD file, "JM" followed by the major and minor version */
+  private static final int JMOD_MAGIC = 0x00014d4a;
+
+  private static final String[] CLASS_PREFIXES = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+
+  private final String name;
+
+  /** the archive this one is nested in, or null */
+  private final MappedJarFileModule container;
+
+  /** the bytes of the archive, in little-endian order; only ever read with absolute gets */
+  private final ByteBuffer buffer;
+
+  private final List<MappedJarFileEntry> entries;
+
+  /** the prefix of class file names in this layout, or null */
+  private final String classPrefix;
+
+  /** Map the given archive. */
+  public MappedJarFileModule(File file) throws IOException {
+    this(file.getPath(), map(file), null);
+  }
+
+  /**
+   * @param name the name of the archive
+   * @param bytes the contents of the archive
+   * @param container the archive the new one is nested in, or null
+   */
+  MappedJarFileModule(String name, ByteBuffer bytes, MappedJarFileModule container)
+      throws IOException {
+    if (name == null) {
+      throw new IllegalArgumentException("null name");
+    }
+    this.name = name;
+    this.container = container;
+    this.buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.entries = readCentralDirectory();
+    this.classPrefix = findClassPrefix();
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("archive too large to map: " + file);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private List<MappedJarFileEntry> readCentralDirectory() throws IOException {
+    int end = findEndHeader();
+    long count = buffer.getShort(end + 10) & 0xffff;
+    long size = buffer.getInt(end + 12) & 0xffffffffL;
+    long offset = buffer.getInt(end + 16) & 0xffffffffL;
+    int directoryEnd = end;
+    if (end >= 20 && buffer.getInt(end - 20) == ZIP64_END_LOCATOR) {
+      int zip64 = findZip64EndHeader(end - 20, buffer.getLong(end - 12));
+      count = buffer.getLong(zip64 + 32);
+      size = buffer.getLong(zip64 + 40);
+      offset = buffer.getLong(zip64 + 48);
+      directoryEnd = zip64;
+    }
+    // entry offsets are relative to the start of the zip data, which may follow a prefix, e.g. the
+    // header of a JMOD file
+    long base = directoryEnd - size - offset;
+    if (base < 0 || count > Integer.MAX_VALUE) {
+      throw new ZipException("invalid central directory in " + name);
+    }
+
+    List<MappedJarFileEntry> result = new ArrayList<>((int) count);
+    int p = (int) (base + offset);
+    for (long i = 0; i < count; i++) {
+      if (p + 46 > directoryEnd || buffer.getInt(p) != CENTRAL_HEADER) {
+        throw new ZipException("invalid central directory entry in " + name);
+      }
+      int flags = buffer.getShort(p + 8) & 0xffff;
+      int method = buffer.getShort(p + 10) & 0xffff;
+      long compressedSize = buffer.getInt(p + 20) & 0xffffffffL;
+      long uncompressedSize = buffer.getInt(p + 24) & 0xffffffffL;
+      int nameLength = buffer.getShort(p + 28) & 0xffff;
+      int extraLength = buffer.getShort(p + 30) & 0xffff;
+      int commentLength = buffer.getShort(p + 32) & 0xffff;
+      long localHeader = base + (buffer.getInt(p + 42) & 0xffffffffL);
+      String entryName = readString(p + 46, nameLength);
+      p += 46 + nameLength + extraLength + commentLength;
+
+      if (entryName.endsWith("/")) {
+        continue;
+      }
+      if ((flags & 1) != 0) {
+        throw new ZipException("encrypted entry " + entryName + " in " + name);
+      }
+      if (compressedSize > Integer.MAX_VALUE
+          || uncompressedSize > Integer.MAX_VALUE
+          || localHeader > Integer.MAX_VALUE) {
+        throw new ZipException("entry " + entryName + " too large in " + name);
+      }
+      result.add(
+          new MappedJarFileEntry(
+              this,
+              entryName,
+              method,
+              (int) localHeader,
+              (int) compressedSize,
+              (int) uncompressedSize));
+    }
+    return result;
+  }
+
+  /** @return the position of the end of central directory record */
+  private int findEndHeader() throws ZipException {
+    int last = buffer.limit() - END_HEADER_SIZE;
+    int first = Math.max(0, last - 0xffff);
+    for (int p = last; p >= first; p--) {
+      if (buffer.getInt(p) == END_HEADER
+          && p + END_HEADER_SIZE + (buffer.getShort(p + 20) & 0xffff) == buffer.limit()) {
+        return p;
+      }
+    }
+    throw new ZipException("not a zip file: " + name);
+  }
+
+  private int findZip64EndHeader(int locator, long recorded) throws ZipException {
+    // usually, the record directly precedes its locator; otherwise, trust the recorded position
+    if (locator >= 56 && buffer.getInt(locator - 56) == ZIP64_END_HEADER) {
+      return locator - 56;
+    }
+    if (recorded >= 0 && recorded < locator && buffer.getInt((int) recorded) == ZIP64_END_HEADER) {
+      return (int) recorded;
+    }
+    throw new ZipException("invalid zip64 end of central directory in " + name);
+  }
+
+  private String findClassPrefix() {
+    if (buffer.limit() >= 4 && buffer.getInt(0) == JMOD_MAGIC) {
+      return "classes/";
+    }
+    for (String prefix : CLASS_PREFIXES) {
+      for (MappedJarFileEntry e : entries) {
+        if (e.getName().startsWith(prefix)) {
+          return prefix;
+        }
+      }
+    }
+    return null;
+  }
+
+  private String readString(int position, int length) {
+    byte[] b = new byte[length];
+    read(position, b, 0, length);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  /** Copy bytes out of the archive; safe to call from several threads. */
+  void read(int position, byte[] b, int offset, int length) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    view.get(b, offset, length);
+  }
+
+  /** @return a read-only view of length bytes of the archive, starting at position */
+  ByteBuffer slice(int position, int length) {
+    ByteBuffer view = buffer.asReadOnlyBuffer();
+    view.position(position);
+    view.limit(position + length);
+    return view.slice();
+  }
+
+  /** @return the position of the data of an entry, given the position of its local header */
+  int getDataPosition(int localHeader) throws ZipException {
+    if (localHeader + 30 > buffer.limit() || buffer.getInt(localHeader) != LOCAL_HEADER) {
+      throw new ZipException("invalid local header in " + name);
+    }
+    int nameLength = buffer.getShort(localHeader + 26) & 0xffff;
+    int extraLength = buffer.getShort(localHeader + 28) & 0xffff;
+    return localHeader + 30 + nameLength + extraLength;
+  }
+
+  /** @return the class name of a class file entry, without any layout prefix or suffix */
+  String getClassName(String entryName) {
+    String result = entryName;
+    if (classPrefix != null && result.startsWith(classPrefix)) {
+      result = result.substring(classPrefix.length());
+    }
+    return FileSuffixes.stripSuffix(result);
+  }
+
+  /** @return true if a class file entry is a module descriptor rather than a class */
+  boolean isModuleInfo(String entryName) {
+    return getClassName(entryName).equals("module-info");
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** @return the archive this one is nested in, or null */
+  public MappedJarFileModule getContainer() {
+    return container;
+  }
+
+  /** @return the number of files in the archive */
+  public int getNumberOfEntries() {
+    return entries.size();
+  }
+
+  /*
+   * @see com.ibm.wala.classLoader.Module#getEntries()
+   */
+  @Override
+  public Iterator<ModuleEntry> getEntries() {
+    return Collections.<ModuleEntry>unmodifiableList(entries).iterator();
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + (container == null ? "" : container.getName() + '!') + name;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode() * 31 + (container == null ? 0 : container.hashCode());
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    final MappedJarFileModule other = (MappedJarFileModule) obj;
+    if (!name.equals(other.name)) return false;
+    if (container == null) return other.container == null;
+    return container.equals(other.container);
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.jar.JarEntry;
+
+/**
+ * A persistent summary of the class files in a {@link JarFileModule}: for each class, its name,
+ * modifiers, superclass and interface names, and declared fields.
+ *
+ * <p>Snapshots live in a directory chosen by the client, one file per module, named after a hash of
+ * the module's contents. A {@link ClassLoaderImpl} with a snapshot directory uses the summary to
+ * create {@link ShrikeClass}es without reading their class files; class bytes are then only read if
+ * an analysis asks for method bodies or annotations. A module whose contents changed hashes to a
+ * new name, so it is simply read again and a fresh snapshot written.
+ *
+ * <p>Only class files at the top level of the module are summarized; classes in nested jars are
+ * always read. A class whose fields carry annotations or generic signatures is not summarized
+ * either, since the summary would lose that information.
+ *
+ * @see ClassLoaderFactoryImpl#ClassLoaderFactoryImpl(com.ibm.wala.util.config.SetOfClasses, File)
+ */
+public final class ModuleSnapshot {
+
+  private static final int MAGIC = 0x57434853;
+
+  /** bump this whenever the file format changes */
+  private static final int VERSION = 2;
+
+  private static final String SUFFIX = ".wcs";
+
+  private static final byte NO_SUMMARY = 0;
+
+  private static final byte SUMMARY = 1;
+
+  private static final byte INVALID = 2;
+
+  /** What we know about one class file, as recorded when it was last parsed. */
+  public static final class ClassSummary {
+
+    /** a summary for a class file that failed to parse, or whose name does not match its path */
+    static final ClassSummary INVALID_CLASS =
+        new ClassSummary(null, 0, null, new String[0], null, null, null);
+
+    private final String name;
+
+    private final int modifiers;
+
+    private final String superName;
+
+    private final String[] interfaceNames;
+
+    private final String[] fieldNames;
+
+    private final String[] fieldTypes;
+
+    private final int[] fieldModifiers;
+
+    ClassSummary(
+        String name,
+        int modifiers,
+        String superName,
+        String[] interfaceNames,
+        String[] fieldNames,
+        String[] fieldTypes,
+        int[] fieldModifiers) {
+      this.name = name;
+      this.modifiers = modifiers;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+      this.fieldNames = fieldNames;
+      this.fieldTypes = fieldTypes;
+      this.fieldModifiers = fieldModifiers;
+    }
+
+    public boolean isInvalid() {
+      return this == INVALID_CLASS;
+    }
+
+    /** @return the class name in internal form, e.g. java/lang/Object */
+    public String getName() {
+      return name;
+    }
+
+    public int getModifiers() {
+      return modifiers;
+    }
+
+    /** @return the superclass name in internal form, or null for java/lang/Object */
+    public String getSuperName() {
+      return superName;
+    }
+
+    public String[] getInterfaceNames() {
+      return interfaceNames.clone();
+    }
+
+    public int getFieldCount() {
+      return fieldNames.length;
+    }
+
+    public String getFieldName(int i) {
+      return fieldNames[i];
+    }
+
+    /** @return the type descriptor of the ith field */
+    public String getFieldType(int i) {
+      return fieldTypes[i];
+    }
+
+    public int getFieldModifiers(int i) {
+      return fieldModifiers[i];
+    }
+  }
+
+  /** module entry name -&gt; summary; a null value means the entry must be read */
+  private final Map<String, ClassSummary> summaries;
+
+  private final String key;
+
+  private ModuleSnapshot(String key, Map<String, ClassSummary> summaries) {
+    this.key = key;
+    this.summaries = summaries;
+  }
+
+  /** @return an empty snapshot, to be filled while a module with the given key is read */
+  static ModuleSnapshot make(String key) {
+    return new ModuleSnapshot(key, HashMapFactory.make());
+  }
+
+  /** @return the summary recorded for a module entry, or null if the entry must be read */
+  public ClassSummary getSummary(String entryName) {
+    return summaries.get(entryName);
+  }
+
+  void record(String entryName, ClassSummary summary) {
+    summaries.put(entryName, summary);
+  }
+
+  /**
+   * Compute a key for the contents of a jar file. The key hashes the name, CRC and size of each
+   * entry, as found in the central directory, so the entries themselves need not be read.
+   */
+  public static String computeKey(JarFileModule module) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    ByteBuffer longs = ByteBuffer.allocate(16);
+    for (Enumeration<JarEntry> e = module.getJarFile().entries(); e.hasMoreElements(); ) {
+      JarEntry entry = e.nextElement();
+      digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+      longs.clear();
+      longs.putLong(entry.getCrc()).putLong(entry.getSize());
+      digest.update(longs.array());
+    }
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+
+  /**
+   * Read the snapshot for a module key by memory-mapping its file.
+   *
+   * @return the snapshot, or null if there is none, or it is unreadable or from another version
+   */
+  public static ModuleSnapshot read(File directory, String key) {
+    File file = new File(directory, key + SUFFIX);
+    if (!file.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (b.getInt() != MAGIC || b.getInt() != VERSION) {
+        return null;
+      }
+      int n = b.getInt();
+      Map<String, ClassSummary> summaries = HashMapFactory.make(n);
+      for (int i = 0; i < n; i++) {
+        String entryName = readString(b);
+        byte kind = b.get();
+        if (kind == INVALID) {
+          summaries.put(entryName, ClassSummary.INVALID_CLASS);
+        } else if (kind == SUMMARY) {
+          summaries.put(entryName, readSummary(b));
+        }
+      }
+      return new ModuleSnapshot(key, summaries);
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      // a damaged snapshot just means we read the module again
+      return null;
+    }
+  }
+
+  private static ClassSummary readSummary(ByteBuffer b) {
+    String name = readString(b);
+    int modifiers = b.getInt();
+    String superName = b.get() == 0 ? null : readString(b);
+    String[] interfaceNames = readStrings(b);
+    int nFields = b.getInt();
+    String[] fieldNames = new String[nFields];
+    String[] fieldTypes = new String[nFields];
+    int[] fieldModifiers = new int[nFields];
+    for (int i = 0; i < nFields; i++) {
+      fieldNames[i] = readString(b);
+      fieldTypes[i] = readString(b);
+      fieldModifiers[i] = b.getInt();
+    }
+    return new ClassSummary(
+        name, modifiers, superName, interfaceNames, fieldNames, fieldTypes, fieldModifiers);
+  }
+
+  private static String readString(ByteBuffer b) {
+    byte[] bytes = new byte[b.getInt()];
+    b.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String[] readStrings(ByteBuffer b) {
+    String[] result = new String[b.getInt()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = readString(b);
+    }
+    return result;
+  }
+
+  /**
+   * Write this snapshot to the given directory. The file is first written under a temporary name
+   * and then moved into place, so concurrent readers never see a partial snapshot; if writing
+   * fails, the temporary file is deleted.
+   */
+  public void write(File directory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("could not create snapshot directory " + directory);
+    }
+    File tmp = File.createTempFile(key, ".tmp", directory);
+    boolean moved = false;
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(summaries.size());
+        for (Map.Entry<String, ClassSummary> e : summaries.entrySet()) {
+          writeString(out, e.getKey());
+          ClassSummary s = e.getValue();
+          if (s == null) {
+            out.writeByte(NO_SUMMARY);
+          } else if (s.isInvalid()) {
+            out.writeByte(INVALID);
+          } else {
+            out.writeByte(SUMMARY);
+            writeSummary(out, s);
+          }
+        }
+      }
+      Files.move(
+          tmp.toPath(),
+          new File(directory, key + SUFFIX).toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } finally {
+      // do not leave partial snapshots behind; a failure to delete must not hide the original one
+      if (!moved) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private static void writeSummary(DataOutputStream out, ClassSummary s) throws IOException {
+    writeString(out, s.name);
+    out.writeInt(s.modifiers);
+    if (s.superName == null) {
+      out.writeByte(0);
+    } else {
+      out.writeByte(1);
+      writeString(out, s.superName);
+    }
+    writeStrings(out, s.interfaceNames);
+    out.writeInt(s.fieldNames.length);
+    for (int i = 0; i < s.fieldNames.length; i++) {
+      writeString(out, s.fieldNames[i]);
+      writeString(out, s.fieldTypes[i]);
+      out.writeInt(s.fieldModifiers[i]);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeStrings(DataOutputStream out, String[] s) throws IOException {
+    out.writeInt(s.length);
+    for (String x : s) {
+      writeString(out, x);
+    }
+  }
+}
@@ -15,18 +15,14 @@ import com.ibm.wala.core.util.shrike.ShrikeUtil;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.shrike.shrikeBT.BytecodeConstants;
+import com.ibm.wala.shrike.shrikeBT.BytecodeScanner;
+import com.ibm.wala.shrike.shrikeBT.ConstantPoolReader;
 import com.ibm.wala.shrike.shrikeBT.Constants;
 import com.ibm.wala.shrike.shrikeBT.Decoder;
 import com.ibm.wala.shrike.shrikeBT.ExceptionHandler;
-import com.ibm.wala.shrike.shrikeBT.IArrayLoadInstruction;
-import com.ibm.wala.shrike.shrikeBT.IArrayStoreInstruction;
-import com.ibm.wala.shrike.shrikeBT.IGetInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
-import com.ibm.wala.shrike.shrikeBT.IPutInstruction;
-import com.ibm.wala.shrike.shrikeBT.ITypeTestInstruction;
-import com.ibm.wala.shrike.shrikeBT.MonitorInstruction;
-import com.ibm.wala.shrike.shrikeBT.NewInstruction;
+import com.ibm.wala.shrike.shrikeBT.InvokeDynamicInstruction;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
@@ -63,6 +59,7 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
   // break these out to save some space; they're computed lazily.
   protected static class BytecodeInfo {
+    /** the decoded instructions, computed on demand, since most methods are only scanned */
     Decoder decoder;
 
     CallSiteReference[] callSites;
@@ -82,9 +79,6 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     TypeReference[] castTypes;
 
     boolean hasMonitorOp;
-
-    /** Mapping from instruction index to program counter. */
-    private int[] pcMap;
     /* BEGIN Custom change: precise positions */
 
     /** Cached map representing position information for bytecode instruction at given index */
@@ -132,9 +126,18 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
     return result;
   }
 
+  /** @return the decoder for this method, decoding it if needed, or null if it has no code */
+  private synchronized Decoder getDecoder() throws InvalidClassFileException {
+    BytecodeInfo info = getBCInfo();
+    if (info.decoder == null) {
+      info.decoder = makeDecoder();
+    }
+    return info.decoder;
+  }
+
   /** Return the program counter (bytecode index) for a particular Shrike instruction index. */
   public int getBytecodeIndex(int instructionIndex) throws InvalidClassFileException {
-    return getBCInfo().pcMap[instructionIndex];
+    return getDecoder().getInstructionsToBytecodes()[instructionIndex];
   }
 
   /**
@@ -149,10 +152,10 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
           "getInstructionIndex(int bcIndex) is only supported for non-native bytecode");
     }
 
-    final BytecodeInfo info = getBCInfo();
-    if (info.decoder.containsSubroutines()) return -1;
+    final Decoder decoder = getDecoder();
+    if (decoder.containsSubroutines()) return -1;
 
-    final int[] pcMap = info.pcMap;
+    final int[] pcMap = decoder.getInstructionsToBytecodes();
     assert isSorted(pcMap);
 
     int iindex = Arrays.binarySearch(pcMap, bcIndex);
@@ -174,7 +177,7 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
   /** Return the number of Shrike instructions for this method. */
   public int getNumShrikeInstructions() throws InvalidClassFileException {
-    return getBCInfo().pcMap.length;
+    return getDecoder().getInstructionsToBytecodes().length;
   }
 
   public Collection<CallSiteReference> getCallSites() throws InvalidClassFileException {
@@ -220,7 +223,7 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
       }
     }
 
-    processBytecodesWithShrikeBT(result);
+    processBytecodes(result);
     return result;
   }
 
@@ -425,35 +428,29 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
    */
   protected abstract Decoder makeDecoder();
 
+  /** @return a scanner for the code of this method, or null if the method has no code. */
+  protected abstract BytecodeScanner makeScanner();
+
   /** Walk through the bytecodes and collect trivial information. */
   protected abstract void processDebugInfo(BytecodeInfo bcInfo) throws InvalidClassFileException;
 
-  private void processBytecodesWithShrikeBT(BytecodeInfo info) throws InvalidClassFileException {
-    info.decoder = makeDecoder();
-    if (!isAbstract() && info.decoder == null) {
+  private void processBytecodes(BytecodeInfo info) throws InvalidClassFileException {
+    BytecodeScanner scanner = makeScanner();
+    if (!isAbstract() && scanner == null) {
       throw new InvalidClassFileException(
           -1, "non-abstract method " + getReference() + " has no bytecodes");
     }
-    if (info.decoder == null) {
+    if (scanner == null) {
       return;
     }
-    info.pcMap = info.decoder.getInstructionsToBytecodes();
 
     processDebugInfo(info);
 
-    SimpleVisitor simpleVisitor = new SimpleVisitor(info);
-
-    BytecodeLanguage lang = (BytecodeLanguage) getDeclaringClass().getClassLoader().getLanguage();
-    IInstruction[] instructions = info.decoder.getInstructions();
-    for (int i = 0; i < instructions.length; i++) {
-      simpleVisitor.setInstructionIndex(i);
-      instructions[i].visit(simpleVisitor);
-      if (instructions[i].isPEI()) {
-        Collection<TypeReference> t = lang.getImplicitExceptionTypes(instructions[i]);
-        if (t != null) {
-          simpleVisitor.implicitExceptions.addAll(t);
-        }
-      }
+    SimpleVisitor simpleVisitor = new SimpleVisitor(scanner.getConstantPool());
+    try {
+      scanner.scan(simpleVisitor);
+    } catch (Decoder.InvalidBytecodeException e) {
+      throw new InvalidClassFileException(e.getIndex(), e.getMessage());
     }
 
     // copy the Set results into arrays; will use less
@@ -561,12 +558,16 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
   }
 
   /** A visitor used to process bytecodes */
-  private class SimpleVisitor extends IInstruction.Visitor {
+  private class SimpleVisitor extends BytecodeScanner.Visitor {
+
+    private final ConstantPoolReader cp;
+
+    private final IClassLoader loader = getDeclaringClass().getClassLoader();
 
-    private final BytecodeInfo info;
+    private final BytecodeLanguage lang = (BytecodeLanguage) loader.getLanguage();
 
-    public SimpleVisitor(BytecodeInfo info) {
-      this.info = info;
+    public SimpleVisitor(ConstantPoolReader cp) {
+      this.cp = cp;
     }
 
     // TODO: make a better Set implementation for these.
@@ -588,112 +589,121 @@ public abstract class ShrikeBTMethod implements IMethod, BytecodeConstants {
 
     boolean hasMonitorOp;
 
-    private int instructionIndex;
-
-    public void setInstructionIndex(int i) {
-      instructionIndex = i;
+    @Override
+    public void visitInstruction(int pc, int opcode) {
+      if (opcode == Constants.OP_monitorenter || opcode == Constants.OP_monitorexit) {
+        hasMonitorOp = true;
+      }
     }
 
-    public int getProgramCounter() {
-      return info.pcMap[instructionIndex];
+    @Override
+    public void visitPEI(int pc, int opcode) {
+      Collection<TypeReference> t = lang.getImplicitExceptionTypes(opcode);
+      if (t != null) {
+        implicitExceptions.addAll(t);
+      }
     }
 
     @Override
-    public void visitMonitor(MonitorInstruction instruction) {
-      hasMonitorOp = true;
+    public void visitNew(int pc, String type, int dimensions) {
+      TypeReference t = ShrikeUtil.makeTypeReference(loader.getReference(), type);
+      newSites.add(NewSiteReference.make(pc, t));
     }
 
-    @Override
-    public void visitNew(NewInstruction instruction) {
-      ClassLoaderReference loader = getReference().getDeclaringClass().getClassLoader();
-      TypeReference t = ShrikeUtil.makeTypeReference(loader, instruction.getType());
-      newSites.add(NewSiteReference.make(getProgramCounter(), t));
+    private FieldReference field(int cpIndex) {
+      return FieldReference.findOrCreate(
+          loader.getReference(),
+          cp.getConstantPoolMemberClassType(cpIndex),
+          cp.getConstantPoolMemberName(cpIndex),
+          cp.getConstantPoolMemberType(cpIndex));
     }
 
     @Override
-    public void visitGet(IGetInstruction instruction) {
-      ClassLoaderReference loader = getReference().getDeclaringClass().getClassLoader();
-      FieldReference f =
-          FieldReference.findOrCreate(
-              loader,
-              instruction.getClassType(),
-              instruction.getFieldName(),
-              instruction.getFieldType());
-      fieldsRead.add(f);
+    public void visitGet(int pc, int cpIndex, boolean isStatic) {
+      fieldsRead.add(field(cpIndex));
     }
 
     @Override
-    public void visitPut(IPutInstruction instruction) {
-      ClassLoaderReference loader = getReference().getDeclaringClass().getClassLoader();
-      FieldReference f =
-          FieldReference.findOrCreate(
-              loader,
-              instruction.getClassType(),
-              instruction.getFieldName(),
-              instruction.getFieldType());
-      fieldsWritten.add(f);
+    public void visitPut(int pc, int cpIndex, boolean isStatic) {
+      fieldsWritten.add(field(cpIndex));
     }
 
     @Override
-    public void visitInvoke(IInvokeInstruction instruction) {
-      IClassLoader loader = getDeclaringClass().getClassLoader();
+    public void visitInvoke(int pc, int opcode, int cpIndex) {
+      IInvokeInstruction.Dispatch dispatch;
+      String classType;
+      String methodName;
+      String methodSignature;
+      if (opcode == Constants.OP_invokedynamic) {
+        IInvokeInstruction instruction =
+            new InvokeDynamicInstruction(
+                (short) opcode,
+                cp.getConstantPoolDynamicBootstrap(cpIndex),
+                cp.getConstantPoolDynamicName(cpIndex),
+                cp.getConstantPoolDynamicType(cpIndex));
+        dispatch = (IInvokeInstruction.Dispatch) instruction.getInvocationCode();
+        classType = instruction.getClassType();
+        methodName = instruction.getMethodName();
+        methodSignature = instruction.getMethodSignature();
+      } else {
+        dispatch = dispatch(opcode);
+        classType = cp.getConstantPoolMemberClassType(cpIndex);
+        methodName = cp.getConstantPoolMemberName(cpIndex);
+        methodSignature = cp.getConstantPoolMemberType(cpIndex);
+      }
       MethodReference m =
           MethodReference.findOrCreate(
-              loader.getLanguage(),
-              loader.getReference(),
-              instruction.getClassType(),
-              instruction.getMethodName(),
-              instruction.getMethodSignature());
-      int programCounter = 0;
-      programCounter = getProgramCounter();
-      CallSiteReference site = null;
-      site = CallSiteReference.make(programCounter, m, instruction.getInvocationCode());
-      callSites.add(site);
-    }
-
-    /*
-     * @see com.ibm.wala.shrikeBT.Instruction.Visitor#visitArrayLoad(com.ibm.wala.shrikeBT.ArrayLoadInstruction)
-     */
+              lang, loader.getReference(), classType, methodName, methodSignature);
+      callSites.add(CallSiteReference.make(pc, m, dispatch));
+    }
+
     @Override
-    public void visitArrayLoad(IArrayLoadInstruction instruction) {
-      arraysRead.add(
-          ShrikeUtil.makeTypeReference(
-              getDeclaringClass().getClassLoader().getReference(), instruction.getType()));
+    public void visitArrayLoad(int pc, String type) {
+      arraysRead.add(ShrikeUtil.makeTypeReference(loader.getReference(), type));
     }
 
-    /*
-     * @see com.ibm.wala.shrikeBT.Instruction.Visitor#visitArrayStore(com.ibm.wala.shrikeBT.ArrayStoreInstruction)
-     */
     @Override
-    public void visitArrayStore(IArrayStoreInstruction instruction) {
-      arraysWritten.add(
-          ShrikeUtil.makeTypeReference(
-              getDeclaringClass().getClassLoader().getReference(), instruction.getType()));
+    public void visitArrayStore(int pc, String type) {
+      arraysWritten.add(ShrikeUtil.makeTypeReference(loader.getReference(), type));
     }
 
     @Override
-    public void visitCheckCast(ITypeTestInstruction instruction) {
-      for (String t : instruction.getTypes()) {
-        castTypes.add(
-            ShrikeUtil.makeTypeReference(getDeclaringClass().getClassLoader().getReference(), t));
-      }
+    public void visitCheckCast(int pc, int cpIndex) {
+      castTypes.add(
+          ShrikeUtil.makeTypeReference(
+              loader.getReference(), cp.getConstantPoolClassType(cpIndex)));
+    }
+  }
+
+  private static IInvokeInstruction.Dispatch dispatch(int opcode) {
+    switch (opcode) {
+      case Constants.OP_invokestatic:
+        return IInvokeInstruction.Dispatch.STATIC;
+      case Constants.OP_invokeinterface:
+        return IInvokeInstruction.Dispatch.INTERFACE;
+      case Constants.OP_invokespecial:
+        return IInvokeInstruction.Dispatch.SPECIAL;
+      default:
+        return IInvokeInstruction.Dispatch.VIRTUAL;
     }
   }
 
   /** */
   public IInstruction[] getInstructions() throws InvalidClassFileException {
-    if (getBCInfo().decoder == null) {
+    Decoder decoder = getDecoder();
+    if (decoder == null) {
       return null;
     } else {
-      return getBCInfo().decoder.getInstructions();
+      return decoder.getInstructions();
     }
   }
 
   public ExceptionHandler[][] getHandlers() throws InvalidClassFileException {
-    if (getBCInfo().decoder == null) {
+    Decoder decoder = getDecoder();
+    if (decoder == null) {
       return null;
     } else {
-      return getBCInfo().decoder.getHandlers();
+      return decoder.getHandlers();
     }
   }
 
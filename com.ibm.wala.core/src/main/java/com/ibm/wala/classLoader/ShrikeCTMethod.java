@@ -12,6 +12,7 @@ package com.ibm.wala.classLoader;
 
 import com.ibm.wala.classLoader.ShrikeClass.GetReader;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.BytecodeScanner;
 import com.ibm.wala.shrike.shrikeBT.Decoder;
 import com.ibm.wala.shrike.shrikeBT.IInstruction;
 import com.ibm.wala.shrike.shrikeBT.IndirectionData;
@@ -72,6 +73,19 @@ public final class ShrikeCTMethod extends ShrikeBTMethod implements IBytecodeMet
     }
   }
 
+  /**
+   * @return the exception table as it appears in the class file, a flattened sequence of (startPC,
+   *     endPC, catchClassIndex, catchPC) tuples, or null if there is no code
+   */
+  public int[] getRawHandlers() {
+    CodeReader code = getCodeReader();
+    if (code == null) {
+      return null;
+    } else {
+      return code.getRawHandlers();
+    }
+  }
+
   @Override
   protected String getMethodName() throws InvalidClassFileException {
     ClassReader reader = getClassReader();
@@ -107,6 +121,18 @@ public final class ShrikeCTMethod extends ShrikeBTMethod implements IBytecodeMet
     return d;
   }
 
+  @Override
+  protected BytecodeScanner makeScanner() {
+    CodeReader reader = getCodeReader();
+    if (reader == null) {
+      return null;
+    }
+    return new BytecodeScanner(
+        reader.getBytecode(),
+        reader.getRawHandlers(),
+        CTDecoder.makeConstantPoolReader(reader.getClassReader()));
+  }
+
   @Override
   public int getMaxLocals() {
     CodeReader reader = getCodeReader();
@@ -65,6 +65,89 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeFields();
   }
 
+  /**
+   * Create a class from a summary recorded in a {@link ModuleSnapshot}, without reading the class
+   * file. The reader is only used later, if method bodies or annotations are requested.
+   */
+  ShrikeClass(
+      ShrikeClassReaderHandle reader,
+      IClassLoader loader,
+      IClassHierarchy cha,
+      ModuleSnapshot.ClassSummary summary) {
+    super(loader, cha);
+    this.reader = reader;
+    typeReference =
+        TypeReference.findOrCreate(
+            loader.getReference(),
+            TypeName.findOrCreate(ImmutableByteArray.make('L' + summary.getName())));
+    this.hashCode = 2161 * getReference().hashCode();
+    if (summary.getSuperName() != null) {
+      superName = ImmutableByteArray.make('L' + summary.getSuperName());
+    }
+    modifiers = summary.getModifiers();
+    String[] s = summary.getInterfaceNames();
+    interfaceNames = new ImmutableByteArray[s.length];
+    Arrays.setAll(interfaceNames, i -> ImmutableByteArray.make('L' + s[i]));
+    int fieldCount = summary.getFieldCount();
+    List<FieldImpl> instanceList = new ArrayList<>(fieldCount);
+    List<FieldImpl> staticList = new ArrayList<>(fieldCount);
+    for (int i = 0; i < fieldCount; i++) {
+      int accessFlags = summary.getFieldModifiers(i);
+      Atom name = Atom.findOrCreateUnicodeAtom(summary.getFieldName(i));
+      ImmutableByteArray b = ImmutableByteArray.make(summary.getFieldType(i));
+      if ((accessFlags & ClassConstants.ACC_STATIC) == 0) {
+        addFieldToList(instanceList, name, b, accessFlags, null, null, null);
+      } else {
+        addFieldToList(staticList, name, b, accessFlags, null, null, null);
+      }
+    }
+    instanceFields = instanceList.toArray(new IField[0]);
+    staticFields = staticList.toArray(new IField[0]);
+  }
+
+  /**
+   * Summarize this class for a {@link ModuleSnapshot}.
+   *
+   * @return the summary, or null if this class cannot be faithfully summarized because some field
+   *     carries annotations or a generic signature
+   */
+  ModuleSnapshot.ClassSummary summarize() throws InvalidClassFileException {
+    for (IField f : getDeclaredInstanceFields()) {
+      if (!isSummarizable((FieldImpl) f)) {
+        return null;
+      }
+    }
+    for (IField f : getDeclaredStaticFields()) {
+      if (!isSummarizable((FieldImpl) f)) {
+        return null;
+      }
+    }
+    ClassReader cr = reader.get();
+    int fieldCount = cr.getFieldCount();
+    String[] fieldNames = new String[fieldCount];
+    String[] fieldTypes = new String[fieldCount];
+    int[] fieldModifiers = new int[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      fieldNames[i] = cr.getFieldName(i);
+      fieldTypes[i] = cr.getFieldType(i);
+      fieldModifiers[i] = cr.getFieldAccessFlags(i);
+    }
+    return new ModuleSnapshot.ClassSummary(
+        cr.getName(),
+        cr.getAccessFlags(),
+        cr.getSuperName(),
+        cr.getInterfaceNames(),
+        fieldNames,
+        fieldTypes,
+        fieldModifiers);
+  }
+
+  private static boolean isSummarizable(FieldImpl f) {
+    return f.getAnnotations() == null
+        && f.getTypeAnnotations() == null
+        && f.getGenericSignature() == null;
+  }
+
   /**
    * Compute the fields declared by this class
    *
@@ -189,6 +272,11 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     }
   }
 
+  /** @return the handle through which the class file is read, without reading it */
+  public ShrikeClassReaderHandle getReaderHandle() {
+    return reader;
+  }
+
   public ClassReader getReader() {
     try {
       return reader.get();
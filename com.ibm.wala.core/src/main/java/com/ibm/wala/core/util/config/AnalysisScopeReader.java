@@ -12,6 +12,7 @@ package com.ibm.wala.core.util.config;
 
 import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
 import com.ibm.wala.classLoader.ClassFileURLModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.SourceDirectoryTreeModule;
 import com.ibm.wala.core.util.io.FileProvider;
@@ -216,6 +217,9 @@ public class AnalysisScopeReader {
     } else if ("jarFile".equals(entryType)) {
       Module M = fp.getJarFileModule(entryPathname, javaLoader);
       scope.addToScope(walaLoader, M);
+    } else if ("mappedJarFile".equals(entryType)) {
+      File jf = fp.getFile(entryPathname, javaLoader);
+      scope.addToScope(walaLoader, new MappedJarFileModule(jf));
     } else if ("loaderImpl".equals(entryType)) {
       scope.setLoaderImpl(walaLoader, entryPathname);
     } else if ("stdlib".equals(entryType)) {
@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.core.util.shrike;
 
+import com.ibm.wala.classLoader.MappedJarFileEntry;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
@@ -61,21 +62,30 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
-      }
-      result = new ClassReader(S.toByteArray());
+      result = new ClassReader(readContents());
       reader = CacheReference.make(result);
     }
     return result;
   }
 
+  private byte[] readContents() {
+    try {
+      if (entry instanceof MappedJarFileEntry) {
+        // already sized exactly, so skip the copying through a stream
+        return ((MappedJarFileEntry) entry).getContents();
+      }
+      ByteArrayOutputStream S = new ByteArrayOutputStream();
+      InputStream s = entry.getInputStream();
+      readBytes(s, S);
+      s.close();
+      return S.toByteArray();
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
   /** Read is into bytes */
   private static void readBytes(InputStream is, ByteArrayOutputStream bytes) throws IOException {
     int n = 0;
@@ -88,6 +98,11 @@ public class ShrikeClassReaderHandle {
     }
   }
 
+  /** @return the number of times the class file has been read */
+  public int getHydrateCount() {
+    return hydrateCount;
+  }
+
   public String getFileName() {
     return entry.getName();
   }
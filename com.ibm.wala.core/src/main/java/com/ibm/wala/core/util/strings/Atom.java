@@ -10,10 +10,9 @@
  */
 package com.ibm.wala.core.util.strings;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * An utf8-encoded byte string.
@@ -29,11 +28,8 @@ public final class Atom implements Serializable {
   /* Serial version */
   private static final long serialVersionUID = -3256390509887654329L;
 
-  /**
-   * Used to canonicalize Atoms, a mapping from AtomKey -&gt; Atom. AtomKeys are not canonical, but
-   * Atoms are.
-   */
-  private static final HashMap<AtomKey, Atom> dictionary = HashMapFactory.make();
+  /** Used to canonicalize Atoms, a mapping from utf8 byte sequences to Atoms. */
+  private static final Dictionary dictionary = new Dictionary();
 
   /** The utf8 value this atom represents */
   private final byte val[];
@@ -105,35 +101,28 @@ public final class Atom implements Serializable {
     if (off + len < 0) {
       throw new IllegalArgumentException("off + len is too big: " + off + " + " + len);
     }
-    byte val[] = new byte[len];
-    for (int i = 0; i < len; ++i) {
-      val[i] = utf8[off++];
-    }
-    return findOrCreate(val);
+    return dictionary.findOrCreate(utf8, off, len, true);
   }
 
-  public static synchronized Atom findOrCreate(byte[] bytes) {
+  /**
+   * Find or create an atom. If no atom for these bytes exists yet, the new one keeps the array
+   * itself, so it must not be modified afterwards.
+   */
+  public static Atom findOrCreate(byte[] bytes) {
     if (bytes == null) {
       throw new IllegalArgumentException("bytes is null");
     }
-    AtomKey key = new AtomKey(bytes);
-    Atom val = dictionary.get(key);
-    if (val != null) {
-      return val;
-    }
-    val = new Atom(key);
-    dictionary.put(key, val);
-    return val;
+    return dictionary.findOrCreate(bytes, 0, bytes.length, false);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b) {
+  public static Atom findOrCreate(ImmutableByteArray b) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
     return findOrCreate(b.b);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b, int start, int length) {
+  public static Atom findOrCreate(ImmutableByteArray b, int start, int length) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
@@ -228,9 +217,9 @@ public final class Atom implements Serializable {
   }
 
   /** Create atom from given utf8 sequence. */
-  private Atom(AtomKey key) {
-    this.val = key.val;
-    this.hash = key.hash;
+  private Atom(byte[] val, int hash) {
+    this.val = val;
+    this.hash = hash;
   }
 
   /**
@@ -288,53 +277,116 @@ public final class Atom implements Serializable {
     }
   }
 
-  /** key for the dictionary. */
-  private static final class AtomKey {
-    /** The utf8 value this atom key represents */
-    private final byte val[];
+  /** Hash code of utf8[off] of length len, as cached in an atom. */
+  private static int hash(byte[] utf8, int off, int len) {
+    int tmp = 99989;
+    for (int i = off + len; --i >= off; ) {
+      tmp = 99991 * tmp + utf8[i];
+    }
+    return tmp;
+  }
+
+  /**
+   * The canonical mapping from utf8 byte sequences to Atoms.
+   *
+   * <p>The table is split into segments by hash code. Lookups read a segment without locking, and
+   * only the insertion of a new atom locks its segment, so threads interning names in parallel,
+   * e.g. while parsing class files, rarely wait for each other. Lookups work directly on a slice of
+   * a byte array; the bytes are only copied when a new atom is created.
+   */
+  private static final class Dictionary {
 
-    /** Cached hash code for this atom key. */
-    private final int hash;
+    private static final int SEGMENT_BITS = 6;
 
-    /** Create atom from given utf8 sequence. */
-    private AtomKey(byte utf8[]) {
-      int tmp = 99989;
-      for (int i = utf8.length; --i >= 0; ) {
-        tmp = 99991 * tmp + utf8[i];
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    Dictionary() {
+      for (int i = 0; i < segments.length; i++) {
+        segments[i] = new Segment();
       }
-      this.val = utf8;
-      this.hash = tmp;
     }
 
-    @Override
-    public final boolean equals(Object other) {
+    /** @param copy should the bytes be copied if a new atom is created? */
+    Atom findOrCreate(byte[] utf8, int off, int len, boolean copy) {
+      int hash = hash(utf8, off, len);
+      // the low bits pick the bucket within a segment, so use the high ones here
+      return segments[(hash ^ (hash >>> 16)) >>> (32 - SEGMENT_BITS)].findOrCreate(
+          utf8, off, len, hash, copy);
+    }
+  }
+
+  /** A chain of atoms in a bucket of a {@link Segment}; entries are never modified. */
+  private static final class Entry {
+    final Atom atom;
 
-      assert (other != null && this.getClass().equals(other.getClass()));
-      if (this == other) {
-        return true;
-      }
+    final Entry next;
 
-      AtomKey that = (AtomKey) other;
-      if (hash != that.hash) return false;
-      if (val.length != that.val.length) return false;
-      for (int i = 0; i < val.length; i++) {
-        if (val[i] != that.val[i]) return false;
+    Entry(Atom atom, Entry next) {
+      this.atom = atom;
+      this.next = next;
+    }
+  }
+
+  /** One independently locked part of the {@link Dictionary}. */
+  private static final class Segment {
+
+    private volatile AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(64);
+
+    /** number of atoms in this segment; only accessed while holding the lock */
+    private int size;
+
+    Atom findOrCreate(byte[] utf8, int off, int len, int hash, boolean copy) {
+      Atom result = find(table, utf8, off, len, hash);
+      if (result != null) {
+        return result;
       }
+      synchronized (this) {
+        AtomicReferenceArray<Entry> t = table;
+        result = find(t, utf8, off, len, hash);
+        if (result != null) {
+          return result;
+        }
+        result = new Atom(copy ? Arrays.copyOfRange(utf8, off, off + len) : utf8, hash);
+        if (++size > t.length() - (t.length() >>> 2)) {
+          t = grow(t);
+        }
+        int i = hash & (t.length() - 1);
+        t.set(i, new Entry(result, t.get(i)));
+        return result;
+      }
+    }
 
-      return true;
+    private static Atom find(
+        AtomicReferenceArray<Entry> t, byte[] utf8, int off, int len, int hash) {
+      for (Entry e = t.get(hash & (t.length() - 1)); e != null; e = e.next) {
+        Atom a = e.atom;
+        if (a.hash == hash && a.val.length == len && matches(a.val, utf8, off)) {
+          return a;
+        }
+      }
+      return null;
     }
 
-    /**
-     * Return printable representation of "this" atom. Does not correctly handle UTF8 translation.
-     */
-    @Override
-    public final String toString() {
-      return new String(val);
+    private static boolean matches(byte[] val, byte[] utf8, int off) {
+      for (int i = 0; i < val.length; i++) {
+        if (val[i] != utf8[off + i]) {
+          return false;
+        }
+      }
+      return true;
     }
 
-    @Override
-    public final int hashCode() {
-      return hash;
+    /** Rehash into a table twice as big, and publish it to readers; requires the lock. */
+    private AtomicReferenceArray<Entry> grow(AtomicReferenceArray<Entry> old) {
+      AtomicReferenceArray<Entry> t = new AtomicReferenceArray<>(old.length() << 1);
+      for (int i = 0; i < old.length(); i++) {
+        for (Entry e = old.get(i); e != null; e = e.next) {
+          int j = e.atom.hash & (t.length() - 1);
+          t.set(j, new Entry(e.atom, t.get(j)));
+        }
+      }
+      table = t;
+      return t;
     }
   }
 
@@ -417,6 +417,78 @@ public class StringStuff {
     return parseForClass(name, 0, name.length());
   }
 
+  /**
+   * Like {@link #parseForPackage(ImmutableByteArray, int, int)}, but returns the interned package
+   * name, without copying the bytes unless the {@link Atom} is new.
+   *
+   * @return the package, or null if it's the unnamed package
+   * @throws IllegalArgumentException if name is null or malformed
+   */
+  public static Atom parseForPackageAtom(ImmutableByteArray name, int start, int length)
+      throws IllegalArgumentException {
+    if (name == null) {
+      throw new IllegalArgumentException("name == null");
+    }
+    try {
+      int lastSlash = lastSlash(name, start, length);
+      if (lastSlash == -1) {
+        return null;
+      }
+      int dim = 0;
+      while (isTypeCodeChar(name, start + dim)) {
+        dim++;
+      }
+      return Atom.findOrCreate(name.b, start + 1 + dim, lastSlash - start - 1 - dim);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException(
+          "invalid name " + name + " start: " + start + " length: " + length, e);
+    }
+  }
+
+  /**
+   * Like {@link #parseForClass(ImmutableByteArray, int, int)}, but returns the interned class name,
+   * without copying the bytes unless the {@link Atom} is new.
+   *
+   * @throws IllegalArgumentException if name is null or malformed
+   */
+  public static Atom parseForClassAtom(ImmutableByteArray name, int start, int length)
+      throws IllegalArgumentException {
+    if (name == null) {
+      throw new IllegalArgumentException("name is null");
+    }
+    if (name.length() == 0) {
+      throw new IllegalArgumentException("invalid class name: zero length");
+    }
+    try {
+      int lastSlash = lastSlash(name, start, length);
+      if (lastSlash == -1) {
+        while (isTypeCodeChar(name, start)) {
+          start++;
+          length--;
+        }
+        if (name.b[start] == 'L') {
+          start++;
+          length--;
+        }
+        return Atom.findOrCreate(name.b, start, length);
+      } else {
+        return Atom.findOrCreate(name.b, lastSlash + 1, length - (lastSlash - start + 1));
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Malformed name: " + name + ' ' + start + ' ' + length, e);
+    }
+  }
+
+  private static int lastSlash(ImmutableByteArray name, int start, int length) {
+    int lastSlash = -1;
+    for (int i = start; i < start + length; i++) {
+      if (name.b[i] == '/') {
+        lastSlash = i;
+      }
+    }
+    return lastSlash;
+  }
+
   /**
    * Parse an array descriptor to obtain number of dimensions in corresponding array type. b:
    * descriptor - something like "[Ljava/lang/String;" or "[[I"
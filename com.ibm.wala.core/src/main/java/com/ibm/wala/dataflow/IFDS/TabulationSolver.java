@@ -16,6 +16,7 @@ import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.ParallelUtil;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
@@ -29,15 +30,18 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A precise interprocedural tabulation solver.
@@ -94,6 +98,9 @@ public class TabulationSolver<T, P, F> {
   /** Counter for wiping soft caches */
   private static int wipeCount = WIPE_SOFT_CACHE_INTERVAL;
 
+  /** Below this many normal path edges in a round, flow functions are evaluated sequentially */
+  private static final int MIN_PARALLEL_BATCH = 64;
+
   /** The supergraph which induces this dataflow problem */
   protected final ISupergraph<T, P> supergraph;
 
@@ -152,6 +159,9 @@ public class TabulationSolver<T, P, F> {
    */
   private PathEdge<T> curSummaryEdge;
 
+  /** the number of threads used to evaluate flow functions */
+  private int numberOfThreads = 1;
+
   /**
    * @param p a description of the dataflow problem to solve
    * @throws IllegalArgumentException if p is null
@@ -213,13 +223,37 @@ public class TabulationSolver<T, P, F> {
     propagate(seed.entry, seed.d1, seed.target, seed.d2);
   }
 
+  /** @return the number of threads used to evaluate flow functions */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * With more than one thread, the normal flow functions of each round of path edges are evaluated
+   * concurrently, so the flow functions of the problem must then be safe to call from several
+   * threads.
+   *
+   * @param n the number of threads used to evaluate flow functions; 1 means solve sequentially
+   */
+  public void setNumberOfThreads(int n) {
+    numberOfThreads = ParallelUtil.checkNumberOfThreads(n);
+  }
+
   /** See POPL 95 paper for this algorithm, Figure 3 */
-  @SuppressWarnings("unused")
   private void forwardTabulateSLRPs() throws CancelException {
     assert curPathEdge == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
+    if (numberOfThreads > 1) {
+      ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+      try {
+        forwardTabulateSLRPsInParallel(pool);
+      } finally {
+        pool.shutdown();
+      }
+      return;
+    }
     while (worklist.size() > 0) {
       MonitorUtil.throwExceptionIfCanceled(progressMonitor);
       if (verbose) {
@@ -229,39 +263,113 @@ public class TabulationSolver<T, P, F> {
         tendToSoftCaches();
       }
 
-      final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
+      processPathEdge(popFromWorkList(), null);
+    }
+    curPathEdge = null;
+  }
+
+  /**
+   * Tabulate, evaluating normal flow functions on several threads.
+   *
+   * <p>Each round drains the worklist. For every drained path edge ending at a normal node, the
+   * pool applies the flow functions to the successors of the node. The calling thread then
+   * processes the path edges in worklist order, so path edges, summary edges, call flow edges and
+   * the callbacks of subclasses are never updated concurrently. The tabulated path edges are the
+   * same as those computed by the sequential solver.
+   */
+  private void forwardTabulateSLRPsInParallel(ForkJoinPool pool) throws CancelException {
+    while (worklist.size() > 0) {
+      MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+
+      List<PathEdge<T>> batch = new ArrayList<>(worklist.size());
+      while (worklist.size() > 0) {
+        batch.add(popFromWorkList());
       }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
+      List<NormalFlow> flows = computeNormalFlows(pool, batch);
+
+      for (int i = 0; i < batch.size(); i++) {
+        MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+        if (PERIODIC_WIPE_SOFT_CACHES) {
+          tendToSoftCaches();
+        }
+        processPathEdge(batch.get(i), flows.get(i));
       }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+    }
+    curPathEdge = null;
+  }
+
+  /**
+   * @return a list parallel to batch, holding for each path edge that ends at a normal node the
+   *     facts it reaches at the successors of that node, and null for all other path edges
+   */
+  private List<NormalFlow> computeNormalFlows(ForkJoinPool pool, List<PathEdge<T>> batch)
+      throws CancelException {
+    final List<NormalFlow> flows = new ArrayList<>(batch.size());
+    final List<NormalFlow> normal = new ArrayList<>();
+    for (PathEdge<T> edge : batch) {
+      if (supergraph.isCall(edge.target) || supergraph.isExit(edge.target)) {
+        flows.add(null);
+      } else {
+        // collect the flow functions here, since supergraphs and flow function maps may be
+        // populated lazily
+        NormalFlow flow = new NormalFlow(edge);
+        flows.add(flow);
+        normal.add(flow);
+      }
+    }
+    if (normal.size() < MIN_PARALLEL_BATCH) {
+      for (NormalFlow flow : normal) {
+        flow.computeTargets();
+      }
+      return flows;
+    }
+
+    ParallelUtil.forEach(pool, normal.size(), i -> normal.get(i).computeTargets());
+    return flows;
+  }
+
+  /**
+   * Process a path edge taken from the worklist.
+   *
+   * @param flow the facts the edge reaches at the normal successors of its target, or null if they
+   *     should be computed here
+   */
+  @SuppressWarnings("unused")
+  private void processPathEdge(final PathEdge<T> edge, NormalFlow flow) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    curPathEdge = edge;
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
+          // [33]
+          if (flow == null) {
+            flow = new NormalFlow(edge);
+            flow.computeTargets();
           }
+          processNormal(flow);
         }
       }
     }
-    curPathEdge = null;
   }
 
   /**
@@ -295,16 +403,17 @@ public class TabulationSolver<T, P, F> {
 
   /** Handle lines [33-37] of the algorithm */
   @SuppressWarnings("unused")
-  private void processNormal(final PathEdge<T> edge) {
+  private void processNormal(final NormalFlow flow) {
+    final PathEdge<T> edge = flow.edge;
     if (DEBUG_LEVEL > 0) {
       System.err.println("process normal: " + edge);
     }
-    for (T m : Iterator2Iterable.make(supergraph.getSuccNodes(edge.target))) {
+    for (int i = 0; i < flow.successors.size(); i++) {
+      final T m = flow.successors.get(i);
       if (DEBUG_LEVEL > 0) {
         System.err.println("normal successor: " + m);
       }
-      IUnaryFlowFunction f = flowFunctionMap.getNormalFlowFunction(edge.target, m);
-      IntSet D3 = computeFlow(edge.d2, f);
+      IntSet D3 = flow.targets[i];
       if (DEBUG_LEVEL > 0) {
         System.err.println(" reached: " + D3);
       }
@@ -974,6 +1083,36 @@ public class TabulationSolver<T, P, F> {
     return supergraph;
   }
 
+  /** The normal successors of the target of a path edge, and the facts the edge reaches there. */
+  private final class NormalFlow {
+
+    final PathEdge<T> edge;
+
+    final List<T> successors = new ArrayList<>();
+
+    final List<IUnaryFlowFunction> functions = new ArrayList<>();
+
+    /** the facts reached at each successor, once computed */
+    IntSet[] targets;
+
+    NormalFlow(PathEdge<T> edge) {
+      this.edge = edge;
+      for (T m : Iterator2Iterable.make(supergraph.getSuccNodes(edge.target))) {
+        successors.add(m);
+        functions.add(flowFunctionMap.getNormalFlowFunction(edge.target, m));
+      }
+    }
+
+    /** Apply the flow functions; only reads solver state, so several may run concurrently. */
+    void computeTargets() {
+      IntSet[] result = new IntSet[functions.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = computeFlow(edge.d2, functions.get(i));
+      }
+      targets = result;
+    }
+  }
+
   protected class Worklist extends Heap<PathEdge<T>> implements ITabulationWorklist<T> {
 
     Worklist() {
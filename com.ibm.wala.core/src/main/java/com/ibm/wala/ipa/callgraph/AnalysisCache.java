@@ -13,6 +13,7 @@ package com.ibm.wala.ipa.callgraph;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ssa.CacheStatistics;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
@@ -94,4 +95,14 @@ public class AnalysisCache implements IAnalysisCacheView {
   public void clear() {
     ssaCache.wipe();
   }
+
+  @Override
+  public CacheStatistics getIRCacheStatistics() {
+    return ssaCache.getIRCacheStatistics();
+  }
+
+  @Override
+  public CacheStatistics getDefUseCacheStatistics() {
+    return ssaCache.getDefUseCacheStatistics();
+  }
 }
@@ -13,8 +13,10 @@ package com.ibm.wala.ipa.callgraph;
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.ParallelUtil;
 
 /**
  * Basic interface for options that control call graph generation.
@@ -54,6 +56,40 @@ public class AnalysisOptions {
    */
   private int maxEvalBetweenTopo = 1000000000;
 
+  /**
+   * How many threads may the pointer analysis solver use to evaluate assignment constraints? A
+   * value of 1 (the default) selects the purely sequential solver.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * A tuning parameter: how many assignments must a round of the parallel pointer analysis solver
+   * hold before they are evaluated on several threads?
+   */
+  private int minParallelBatch = PropagationSystem.DEFAULT_MIN_PARALLEL_BATCH;
+
+  /**
+   * How many threads build the IRs of likely-reachable methods before call graph construction
+   * starts? A value of 0 (the default) skips this pre-pass, so IRs are built as the call graph
+   * builder reaches their methods.
+   */
+  private int numberOfIRWarmUpThreads = 0;
+
+  /**
+   * Should the pointer analysis keep the edges of its propagation graph outside the Java heap? This
+   * shrinks the heap needed for large programs, at some cost in speed. Points-to sets can be kept
+   * outside the heap too, by passing an {@code OffHeapIntSetFactory} to {@code
+   * PointsToSetVariable.setPointsToSetFactory}.
+   */
+  private boolean useOffHeapStorage = false;
+
+  /**
+   * Should the pointer analysis merge the variables of each cycle of assignments it finds while
+   * solving? Such variables must end up with the same points-to set, so keeping one set for all of
+   * them saves both propagation and memory without changing the result.
+   */
+  private boolean useCycleElimination = false;
+
   /** options for handling reflection during call graph construction */
   public static enum ReflectionOptions {
     FULL("full", Integer.MAX_VALUE, false, false, false),
@@ -293,6 +329,78 @@ public class AnalysisOptions {
     topologicalGrowthFactor = d;
   }
 
+  /** @return the number of threads the pointer analysis solver may use */
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * @param n the number of threads the pointer analysis solver may use; 1 selects the sequential
+   *     solver
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setNumberOfSolverThreads(int n) {
+    numberOfSolverThreads = ParallelUtil.checkNumberOfThreads(n);
+  }
+
+  /**
+   * @return the minimum number of assignments in a round of the parallel pointer analysis solver
+   *     before they are evaluated on several threads
+   */
+  public int getMinParallelBatch() {
+    return minParallelBatch;
+  }
+
+  /**
+   * @param n the minimum number of assignments in a round of the parallel pointer analysis solver
+   *     before they are evaluated on several threads
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setMinParallelBatch(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid minimum parallel batch: " + n);
+    }
+    minParallelBatch = n;
+  }
+
+  /** @return the number of threads that build IRs before call graph construction */
+  public int getNumberOfIRWarmUpThreads() {
+    return numberOfIRWarmUpThreads;
+  }
+
+  /**
+   * @param n the number of threads that build IRs before call graph construction; 0 skips this
+   *     pre-pass
+   * @throws IllegalArgumentException if n &lt; 0
+   * @see com.ibm.wala.ipa.callgraph.impl.IRWarmUp
+   */
+  public void setNumberOfIRWarmUpThreads(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("invalid number of IR warm-up threads: " + n);
+    }
+    numberOfIRWarmUpThreads = n;
+  }
+
+  /** Keep the edges of the pointer analysis propagation graph outside the Java heap? */
+  public boolean getUseOffHeapStorage() {
+    return useOffHeapStorage;
+  }
+
+  /** Keep the edges of the pointer analysis propagation graph outside the Java heap? */
+  public void setUseOffHeapStorage(boolean useOffHeapStorage) {
+    this.useOffHeapStorage = useOffHeapStorage;
+  }
+
+  /** Merge the variables of cycles of assignments while solving the pointer analysis? */
+  public boolean getUseCycleElimination() {
+    return useCycleElimination;
+  }
+
+  /** Merge the variables of cycles of assignments while solving the pointer analysis? */
+  public void setUseCycleElimination(boolean useCycleElimination) {
+    this.useCycleElimination = useCycleElimination;
+  }
+
   /** @return options governing SSA construction */
   public SSAOptions getSSAOptions() {
     return ssaOptions;
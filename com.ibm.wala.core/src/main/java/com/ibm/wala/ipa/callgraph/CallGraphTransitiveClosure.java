@@ -15,12 +15,25 @@ import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.ParallelUtil;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * Utility class for computing an analysis result for call graph nodes and their transitive callees,
@@ -62,4 +75,115 @@ public class CallGraphTransitiveClosure {
     }
     return result;
   }
+
+  /**
+   * Compute the transitive closure of an analysis result over all callees, on a pool of threads.
+   *
+   * <p>The nodes of each strongly connected component of the call graph share one result. The
+   * components are processed bottom-up, level by level, where a component's level is one more than
+   * the highest level among its callees, so the components of one level are processed concurrently.
+   *
+   * @param cg the call graph
+   * @param nodeResults analysis result for each individual node
+   * @return a map from each node to the analysis result for the node and its transitive callees, as
+   *     bit sets over one numbering of the elements shared by all nodes
+   */
+  public static <T> Map<CGNode, OrdinalSet<T>> transitiveClosure(
+      CallGraph cg, Map<CGNode, Collection<T>> nodeResults, ForkJoinPool pool) {
+    // SCCIterator yields components callers first; process callees first
+    List<Set<CGNode>> components = new ArrayList<>();
+    new SCCIterator<>(cg).forEachRemaining(components::add);
+    Collections.reverse(components);
+
+    int[] componentOf = new int[cg.getMaxNumber() + 1];
+    for (int c = 0; c < components.size(); c++) {
+      for (CGNode n : components.get(c)) {
+        componentOf[cg.getNumber(n)] = c;
+      }
+    }
+
+    // number the elements, and group the components by level
+    MutableMapping<T> elements = MutableMapping.make();
+    final IntSet[] gen = new IntSet[components.size()];
+    final IntSet[] callees = new IntSet[components.size()];
+    int[] level = new int[components.size()];
+    List<List<Integer>> levels = new ArrayList<>();
+    for (int c = 0; c < components.size(); c++) {
+      MutableSparseIntSet g = MutableSparseIntSet.makeEmpty();
+      MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+      for (CGNode n : components.get(c)) {
+        Collection<T> r = nodeResults.get(n);
+        if (r != null) {
+          for (T t : r) {
+            g.add(elements.add(t));
+          }
+        }
+        for (IntIterator it = cg.getSuccNodeNumbers(n).intIterator(); it.hasNext(); ) {
+          int d = componentOf[it.next()];
+          if (d != c) {
+            s.add(d);
+            level[c] = Math.max(level[c], level[d] + 1);
+          }
+        }
+      }
+      gen[c] = g;
+      callees[c] = s;
+      if (levels.size() == level[c]) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(level[c]).add(c);
+    }
+
+    final BitVectorIntSet[] closure = new BitVectorIntSet[components.size()];
+    for (List<Integer> l : levels) {
+      forEachInParallel(
+          pool,
+          l.size(),
+          i -> {
+            int c = l.get(i);
+            BitVectorIntSet result = new BitVectorIntSet(gen[c]);
+            callees[c].foreach(d -> result.addAll(closure[d]));
+            closure[c] = result;
+          });
+    }
+
+    Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
+    for (CGNode n : cg) {
+      result.put(n, new OrdinalSet<>(closure[componentOf[cg.getNumber(n)]], elements));
+    }
+    return result;
+  }
+
+  /** Collect analysis result for each {@link CGNode} in a {@link Map}, on a pool of threads. */
+  public static <T> Map<CGNode, Collection<T>> collectNodeResults(
+      CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer, ForkJoinPool pool) {
+    final List<CGNode> nodes = new ArrayList<>(cg.getNumberOfNodes());
+    cg.forEach(nodes::add);
+    final List<Collection<T>> results = new ArrayList<>(Collections.nCopies(nodes.size(), null));
+    forEachInParallel(
+        pool, nodes.size(), i -> results.set(i, nodeResultComputer.apply(nodes.get(i))));
+    Map<CGNode, Collection<T>> result = HashMapFactory.make();
+    for (int i = 0; i < nodes.size(); i++) {
+      result.put(nodes.get(i), results.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Run action for 0 .. n-1 on the pool, and wait for all of them. Small ranges are not worth
+   * handing to the pool, and are run on the calling thread.
+   */
+  private static void forEachInParallel(ForkJoinPool pool, int n, IntConsumer action) {
+    if (n < pool.getParallelism() * 4) {
+      for (int i = 0; i < n; i++) {
+        action.accept(i);
+      }
+      return;
+    }
+    try {
+      ParallelUtil.forEach(pool, n, action::accept);
+    } catch (CancelException e) {
+      throw new CancelRuntimeException(e);
+    }
+  }
 }
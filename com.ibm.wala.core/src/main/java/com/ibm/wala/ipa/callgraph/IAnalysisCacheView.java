@@ -12,6 +12,7 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ssa.CacheStatistics;
 import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRFactory;
@@ -35,4 +36,14 @@ public interface IAnalysisCacheView {
   IR getIR(IMethod method, Context context);
 
   void clear();
+
+  /** @return counters of the IR cache, or null if this view does not keep any */
+  default CacheStatistics getIRCacheStatistics() {
+    return null;
+  }
+
+  /** @return counters of the {@link DefUse} cache, or null if this view does not keep any */
+  default CacheStatistics getDefUseCacheStatistics() {
+    return null;
+  }
 }
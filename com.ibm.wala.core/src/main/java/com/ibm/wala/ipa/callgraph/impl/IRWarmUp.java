@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.impl;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds the IRs and {@link com.ibm.wala.ssa.DefUse}s of the methods a call graph builder is likely
+ * to reach, on several threads, before the builder starts. The builder then finds them in the
+ * {@link IAnalysisCacheView} instead of building them one at a time between constraint solving
+ * steps.
+ *
+ * <p>The likely-reachable methods are found by class hierarchy analysis from the entrypoints, one
+ * level of calls at a time: the IRs of a level are built in parallel, and their call sites are then
+ * resolved on the calling thread. Call sites with more possible targets than {@link
+ * #getMaxTargetsPerCall()} are not followed, since pointer analysis usually narrows them down to
+ * far fewer. Static calls and allocations also reach the class initializers of their classes.
+ *
+ * <p>Warming up is best effort: a method whose IR cannot be built is left for the call graph
+ * builder, which reports the problem if it really reaches the method.
+ */
+public class IRWarmUp {
+
+  private final IClassHierarchy cha;
+
+  private final IAnalysisCacheView cache;
+
+  private final int numberOfThreads;
+
+  /** the most methods whose IRs are built */
+  private int maxNumberOfMethods = Integer.MAX_VALUE;
+
+  /** virtual call sites with more possible targets than this are not followed */
+  private int maxTargetsPerCall = 8;
+
+  /**
+   * @param cha the class hierarchy used to resolve calls
+   * @param cache the cache the IRs are built into; it must be the one the call graph builder uses
+   * @param numberOfThreads the number of threads that build IRs
+   */
+  public IRWarmUp(IClassHierarchy cha, IAnalysisCacheView cache, int numberOfThreads) {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("null cache");
+    }
+    this.cha = cha;
+    this.cache = cache;
+    this.numberOfThreads = ParallelUtil.checkNumberOfThreads(numberOfThreads);
+  }
+
+  public int getMaxNumberOfMethods() {
+    return maxNumberOfMethods;
+  }
+
+  /** @param n the most methods whose IRs are built */
+  public void setMaxNumberOfMethods(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("invalid number of methods: " + n);
+    }
+    maxNumberOfMethods = n;
+  }
+
+  public int getMaxTargetsPerCall() {
+    return maxTargetsPerCall;
+  }
+
+  /** @param n virtual call sites with more possible targets than this are not followed */
+  public void setMaxTargetsPerCall(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("invalid number of targets: " + n);
+    }
+    maxTargetsPerCall = n;
+  }
+
+  /**
+   * Build the IRs and {@link com.ibm.wala.ssa.DefUse}s of the methods likely reachable from the
+   * given entrypoints.
+   *
+   * @return the number of IRs built
+   */
+  public int warmUp(Iterable<? extends Entrypoint> entrypoints, IProgressMonitor monitor)
+      throws CancelException {
+    if (entrypoints == null) {
+      throw new IllegalArgumentException("null entrypoints");
+    }
+    Set<IMethod> visited = HashSetFactory.make();
+    List<IMethod> frontier = new ArrayList<>();
+    for (Entrypoint e : entrypoints) {
+      visit(e.getMethod(), visited, frontier);
+    }
+
+    int result = 0;
+    ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+    try {
+      while (!frontier.isEmpty()) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        IR[] irs = buildIRs(frontier, pool);
+        frontier = new ArrayList<>();
+        for (IR ir : irs) {
+          if (ir != null) {
+            result++;
+            addCallees(ir, visited, frontier);
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return result;
+  }
+
+  private IR[] buildIRs(final List<IMethod> methods, ForkJoinPool pool) throws CancelException {
+    final IR[] result = new IR[methods.size()];
+    ParallelUtil.forEach(pool, methods.size(), i -> result[i] = buildIR(methods.get(i)));
+    return result;
+  }
+
+  /** @return the IR of m, or null if it has none or it cannot be built */
+  private IR buildIR(IMethod m) {
+    try {
+      IR ir = cache.getIR(m);
+      if (ir != null) {
+        cache.getDefUse(ir);
+      }
+      return ir;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /** Add the methods called from ir to the frontier; the class hierarchy is not thread-safe. */
+  private void addCallees(IR ir, Set<IMethod> visited, List<IMethod> frontier) {
+    for (Iterator<CallSiteReference> it = ir.iterateCallSites(); it.hasNext(); ) {
+      CallSiteReference site = it.next();
+      MethodReference target = site.getDeclaredTarget();
+      if (site.isDispatch()) {
+        Set<IMethod> targets = cha.getPossibleTargets(target);
+        if (targets.size() <= maxTargetsPerCall) {
+          for (IMethod t : targets) {
+            visit(t, visited, frontier);
+          }
+        }
+      } else {
+        visit(cha.resolveMethod(target), visited, frontier);
+      }
+      if (site.isStatic()) {
+        visitClassInitializer(target.getDeclaringClass(), visited, frontier);
+      }
+    }
+    for (Iterator<NewSiteReference> it = ir.iterateNewSites(); it.hasNext(); ) {
+      visitClassInitializer(it.next().getDeclaredType(), visited, frontier);
+    }
+  }
+
+  private void visitClassInitializer(
+      TypeReference type, Set<IMethod> visited, List<IMethod> frontier) {
+    IClass klass = cha.lookupClass(type);
+    if (klass != null) {
+      visit(klass.getClassInitializer(), visited, frontier);
+    }
+  }
+
+  private void visit(IMethod m, Set<IMethod> visited, List<IMethod> frontier) {
+    if (m == null
+        || m.isAbstract()
+        || m.isNative()
+        || m.isWalaSynthetic()
+        || visited.size() >= maxNumberOfMethods) {
+      return;
+    }
+    if (visited.add(m)) {
+      frontier.add(m);
+    }
+  }
+}
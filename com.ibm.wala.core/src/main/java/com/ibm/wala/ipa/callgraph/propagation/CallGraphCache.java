@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.ssa.SSAArrayReferenceInstruction;
+import com.ibm.wala.ssa.SSACFG.ExceptionHandlerBasicBlock;
+import com.ibm.wala.ssa.SSACheckCastInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
+import com.ibm.wala.ssa.SSAInstanceofInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSALoadMetadataInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the call graph of a program that changes, e.g. in an IDE, and hands it out again for as
+ * long as the changes cannot affect it.
+ *
+ * <p>After each build, this records which classes the result depends on: the classes of all call
+ * graph nodes and instance keys, every type referenced from the IR of a node, and all of their
+ * supertypes. A change to the classes of a mutable class hierarchy, e.g. classes added with {@link
+ * IClassHierarchy#addClass(IClass)}, keeps the previous call graph as long as none of them is such
+ * a dependency, and could not have been enumerated as the subtype of an entrypoint parameter or of
+ * a type whose subtypes the analysis instantiated wholesale. In that case, checking the update
+ * takes time proportional to the number of changed classes.
+ *
+ * <p>This is a cache, not an incremental builder: any other change builds the call graph again from
+ * scratch, so the result is always the one a fresh build would produce. That includes every update
+ * with a different class hierarchy object, since the nodes, methods and IRs of a kept call graph
+ * would still belong to the old one. {@link #isAffected(IClassHierarchy, Collection)} still tells
+ * whether such a change could matter.
+ */
+public class CallGraphCache {
+
+  /** Makes a builder for each version of the program. */
+  public interface BuilderFactory {
+
+    /** @return a fresh builder, with its options and entrypoints, for the program in cha */
+    PropagationCallGraphBuilder make(IClassHierarchy cha);
+  }
+
+  private final BuilderFactory factory;
+
+  private PropagationCallGraphBuilder builder;
+
+  private CallGraph callGraph;
+
+  private Dependencies dependencies;
+
+  private int builds = 0;
+
+  private int updates = 0;
+
+  public CallGraphCache(BuilderFactory factory) {
+    if (factory == null) {
+      throw new IllegalArgumentException("null factory");
+    }
+    this.factory = factory;
+  }
+
+  /** Build the call graph of the program in cha from scratch. */
+  public CallGraph makeCallGraph(IClassHierarchy cha, IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    builder = factory.make(cha);
+    callGraph = null;
+    dependencies = null;
+    callGraph = builder.makeCallGraph(builder.getOptions(), monitor);
+    dependencies = new Dependencies(builder, callGraph);
+    builds++;
+    return callGraph;
+  }
+
+  /**
+   * Bring the call graph up to date after some classes changed. The previous call graph is only
+   * kept if cha is the class hierarchy it was built with, and the change cannot affect it.
+   *
+   * @param cha the class hierarchy of the changed program
+   * @param changedClasses the classes that were changed, added or removed, from either the old or
+   *     the new class hierarchy
+   * @return the call graph of the changed program
+   */
+  public CallGraph update(
+      IClassHierarchy cha, Collection<? extends IClass> changedClasses, IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (changedClasses == null) {
+      throw new IllegalArgumentException("null changedClasses");
+    }
+    if (cha != getClassHierarchy() || isAffected(cha, changedClasses)) {
+      return makeCallGraph(cha, monitor);
+    }
+    updates++;
+    return callGraph;
+  }
+
+  /** @return true if changing the given classes might change the current call graph */
+  public boolean isAffected(IClassHierarchy cha, Collection<? extends IClass> changedClasses) {
+    if (dependencies == null) {
+      return true;
+    }
+    for (IClass klass : changedClasses) {
+      if (dependencies.isAffectedBy(klass.getReference(), cha)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the current call graph, or null if none was built yet */
+  public CallGraph getCallGraph() {
+    return callGraph;
+  }
+
+  /** @return the class hierarchy the current call graph was built with */
+  public IClassHierarchy getClassHierarchy() {
+    return builder == null ? null : builder.getClassHierarchy();
+  }
+
+  /** @return the builder that made the current call graph */
+  public PropagationCallGraphBuilder getBuilder() {
+    return builder;
+  }
+
+  public PointerAnalysis<InstanceKey> getPointerAnalysis() {
+    return builder == null ? null : builder.getPointerAnalysis();
+  }
+
+  /** @return the number of times the call graph was built from scratch */
+  public int getNumberOfBuilds() {
+    return builds;
+  }
+
+  /** @return the number of updates that kept the previous call graph */
+  public int getNumberOfKeptUpdates() {
+    return updates;
+  }
+
+  /** The classes a call graph depends on. */
+  private static class Dependencies {
+
+    private final IClassHierarchy cha;
+
+    /** names of all types the result depends on, and of their supertypes */
+    private final Set<TypeName> names = HashSetFactory.make();
+
+    /** names of the concrete types of all instance keys */
+    private final Set<TypeName> instantiated = HashSetFactory.make();
+
+    /** names of the parameter types of the entrypoints, whose subtypes entrypoints may allocate */
+    private final Set<TypeName> parameterTypes = HashSetFactory.make();
+
+    /** cached results of {@link #allSubtypesInstantiated(IClass)} */
+    private final Map<IClass, Boolean> saturated = HashMapFactory.make();
+
+    Dependencies(PropagationCallGraphBuilder builder, CallGraph cg) {
+      this.cha = builder.getClassHierarchy();
+      Set<TypeReference> types = HashSetFactory.make();
+      for (CGNode n : cg) {
+        IMethod m = n.getMethod();
+        types.add(m.getDeclaringClass().getReference());
+        addTypes(types, m.getReference());
+        IR ir = n.getIR();
+        if (ir != null) {
+          addTypes(types, ir);
+        }
+      }
+      for (InstanceKey ik : builder.getPointerAnalysis().getInstanceKeyMapping()) {
+        IClass type = ik.getConcreteType();
+        if (type != null) {
+          types.add(type.getReference());
+          instantiated.add(type.getReference().getName());
+        }
+      }
+      for (Entrypoint e : builder.getOptions().getEntrypoints()) {
+        for (int i = 0; i < e.getNumberOfParameters(); i++) {
+          for (TypeReference t : e.getParameterTypes(i)) {
+            if (t.isArrayType()) {
+              t = t.getInnermostElementType();
+            }
+            parameterTypes.add(t.getName());
+          }
+        }
+      }
+      for (TypeReference t : types) {
+        if (t.isArrayType()) {
+          t = t.getInnermostElementType();
+        }
+        names.add(t.getName());
+        IClass klass = cha.lookupClass(t);
+        if (klass != null) {
+          addSupertypes(klass);
+        }
+      }
+    }
+
+    private static void addTypes(Set<TypeReference> types, MethodReference m) {
+      types.add(m.getDeclaringClass());
+      types.add(m.getReturnType());
+      for (int i = 0; i < m.getNumberOfParameters(); i++) {
+        types.add(m.getParameterType(i));
+      }
+    }
+
+    private static void addTypes(Set<TypeReference> types, IR ir) {
+      for (SSAInstruction s : ir.getInstructions()) {
+        if (s instanceof SSAAbstractInvokeInstruction) {
+          addTypes(types, ((SSAAbstractInvokeInstruction) s).getDeclaredTarget());
+        } else if (s instanceof SSAFieldAccessInstruction) {
+          FieldReference f = ((SSAFieldAccessInstruction) s).getDeclaredField();
+          types.add(f.getDeclaringClass());
+          types.add(f.getFieldType());
+        } else if (s instanceof SSANewInstruction) {
+          types.add(((SSANewInstruction) s).getConcreteType());
+        } else if (s instanceof SSACheckCastInstruction) {
+          for (TypeReference t : ((SSACheckCastInstruction) s).getDeclaredResultTypes()) {
+            types.add(t);
+          }
+        } else if (s instanceof SSAInstanceofInstruction) {
+          types.add(((SSAInstanceofInstruction) s).getCheckedType());
+        } else if (s instanceof SSAArrayReferenceInstruction) {
+          types.add(((SSAArrayReferenceInstruction) s).getElementType());
+        } else if (s instanceof SSALoadMetadataInstruction) {
+          SSALoadMetadataInstruction l = (SSALoadMetadataInstruction) s;
+          types.add(l.getType());
+          if (l.getToken() instanceof TypeReference) {
+            types.add((TypeReference) l.getToken());
+          }
+        }
+      }
+      for (ISSABasicBlock bb : ir.getControlFlowGraph()) {
+        if (bb instanceof ExceptionHandlerBasicBlock) {
+          for (Iterator<TypeReference> it =
+                  ((ExceptionHandlerBasicBlock) bb).getCaughtExceptionTypes();
+              it.hasNext(); ) {
+            types.add(it.next());
+          }
+        }
+      }
+      // string constants may name classes looked up by reflection
+      SymbolTable symbols = ir.getSymbolTable();
+      for (int v = 1; v <= symbols.getMaxValueNumber(); v++) {
+        if (symbols.isStringConstant(v)) {
+          String s = symbols.getStringValue(v);
+          if (isClassName(s)) {
+            types.add(
+                TypeReference.findOrCreate(
+                    ir.getMethod().getDeclaringClass().getClassLoader().getReference(),
+                    'L' + s.replace('.', '/')));
+          }
+        }
+      }
+    }
+
+    /** @return true if s is a class name as {@link Class#forName(String)} takes it */
+    private static boolean isClassName(String s) {
+      int start = 0;
+      for (int i = 0; i <= s.length(); i++) {
+        if (i == s.length() || s.charAt(i) == '.') {
+          if (i == start) {
+            return false;
+          }
+          start = i + 1;
+        } else if (i == start
+            ? !Character.isJavaIdentifierStart(s.charAt(i))
+            : !Character.isJavaIdentifierPart(s.charAt(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void addSupertypes(IClass klass) {
+      for (IClass c = klass; c != null; c = c.getSuperclass()) {
+        names.add(c.getReference().getName());
+      }
+      for (IClass i : klass.getAllImplementedInterfaces()) {
+        names.add(i.getReference().getName());
+      }
+    }
+
+    /**
+     * Could changing, adding or removing the class t change the call graph?
+     *
+     * @param newCha the class hierarchy after the change
+     */
+    boolean isAffectedBy(TypeReference t, IClassHierarchy newCha) {
+      if (names.contains(t.getName())) {
+        return true;
+      }
+      // the class is not used, but an added or removed subtype still matters if it can be
+      // allocated because the analysis enumerated the subtypes of one of its supertypes
+      IClass before = cha.lookupClass(t);
+      IClass after = newCha.lookupClass(t);
+      return (before != null && mayBeEnumerated(before))
+          || (after != null && mayBeEnumerated(after));
+    }
+
+    private boolean mayBeEnumerated(IClass klass) {
+      Set<IClass> supertypes = HashSetFactory.make();
+      for (IClass c = klass.getSuperclass(); c != null; c = c.getSuperclass()) {
+        supertypes.add(c);
+      }
+      supertypes.addAll(klass.getAllImplementedInterfaces());
+      for (IClass s : supertypes) {
+        if (parameterTypes.contains(s.getReference().getName())) {
+          return true;
+        }
+        IClass old = cha.lookupClass(s.getReference());
+        if (old != null && allSubtypesInstantiated(old)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Were all concrete subtypes of s instantiated? This is what enumerating the subtypes of s, as
+     * e.g. {@link com.ibm.wala.analysis.reflection.FactoryBypassInterpreter} does, leaves behind.
+     */
+    private boolean allSubtypesInstantiated(IClass s) {
+      Boolean result = saturated.get(s);
+      if (result == null) {
+        result = Boolean.TRUE;
+        if (s.equals(cha.getRootClass())) {
+          // avoid enumerating the whole class hierarchy
+          result = instantiated.size() >= cha.getNumberOfClasses();
+        } else {
+          Collection<IClass> subtypes =
+              s.isInterface()
+                  ? cha.getImplementors(s.getReference())
+                  : cha.computeSubClasses(s.getReference());
+          for (IClass c : subtypes) {
+            if (!c.isAbstract()
+                && !c.isInterface()
+                && !instantiated.contains(c.getReference().getName())) {
+              result = Boolean.FALSE;
+              break;
+            }
+          }
+        }
+        saturated.put(s, result);
+      }
+      return result;
+    }
+  }
+}
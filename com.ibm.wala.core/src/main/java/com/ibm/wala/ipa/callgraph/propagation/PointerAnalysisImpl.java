@@ -104,7 +104,10 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
   @SuppressWarnings("unchecked")
   public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
     if (pointsToMap.isImplicit(key)) {
-      return computeImplicitPointsToSet(key);
+      // this may create instance keys, so callers on several threads take turns
+      synchronized (this) {
+        return computeImplicitPointsToSet(key);
+      }
     }
 
     // special logic to handle contents of char[] from string constants.
@@ -115,10 +118,12 @@ public class PointerAnalysisImpl extends AbstractPointerAnalysis {
         if (i.getValue() instanceof String
             && i.getConcreteType().getClassLoader().getLanguage().equals(Language.JAVA)) {
           StringConstantCharArray contents = StringConstantCharArray.make((ConstantKey<String>) i);
-          instanceKeys.add(contents);
-          Collection<InstanceKey> singleton = HashSetFactory.make();
-          singleton.add(contents);
-          return OrdinalSet.toOrdinalSet(singleton, instanceKeys);
+          synchronized (this) {
+            instanceKeys.add(contents);
+            Collection<InstanceKey> singleton = HashSetFactory.make();
+            singleton.add(contents);
+            return OrdinalSet.toOrdinalSet(singleton, instanceKeys);
+          }
         }
       }
     }
@@ -117,11 +117,7 @@ public class PointsToMap {
   }
 
   private int findOrCreateIndex(PointerKey key) {
-    int result = pointerKeys.getMappedIndex(key);
-    if (result == -1) {
-      result = pointerKeys.add(key);
-    }
-    return result;
+    return pointerKeys.add(key);
   }
 
   /** record that a particular points-to-set has been unioned with another */
@@ -19,6 +19,8 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -44,6 +46,28 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
    */
   public static MutableMapping<InstanceKey> instanceKeys = null;
 
+  /**
+   * the factory for points-to sets, or null for {@link IntSetUtil#getDefaultIntSetFactory()}; a
+   * {@link com.ibm.wala.util.intset.RoaringIntSetFactory} suits large programs, whose points-to
+   * sets are spread over many instance keys, and a {@link
+   * com.ibm.wala.util.intset.HashConsedIntSetFactory} stores each distinct points-to set once.
+   */
+  private static MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /**
+   * Choose the representation of the points-to sets made from now on.
+   *
+   * @param factory the factory for points-to sets, or null for {@link
+   *     IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public static void setPointsToSetFactory(MutableIntSetFactory<?> factory) {
+    pointsToSetFactory = factory;
+  }
+
+  public static MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory == null ? IntSetUtil.getDefaultIntSetFactory() : pointsToSetFactory;
+  }
+
   private PointerKey pointerKey;
 
   public PointsToSetVariable(PointerKey key) {
@@ -54,6 +78,11 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     this.pointerKey = key;
   }
 
+  @Override
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return getPointsToSetFactory();
+  }
+
   public PointerKey getPointerKey() {
     return pointerKey;
   }
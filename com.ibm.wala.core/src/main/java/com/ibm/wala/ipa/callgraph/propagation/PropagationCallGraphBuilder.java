@@ -33,6 +33,7 @@ import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.IRWarmUp;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -45,6 +46,7 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.OffHeapIntStore;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -213,6 +215,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setNumberOfSolverThreads(options.getNumberOfSolverThreads());
+    system.setMinParallelBatch(options.getMinParallelBatch());
+    system.setUseCycleElimination(options.getUseCycleElimination());
+    if (options.getUseOffHeapStorage()) {
+      system.useOffHeapStorage(new OffHeapIntStore());
+    }
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -248,6 +256,10 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
 
     solver = makeSolver();
     try {
+      if (options.getNumberOfIRWarmUpThreads() > 0) {
+        new IRWarmUp(cha, getAnalysisCache(), options.getNumberOfIRWarmUpThreads())
+            .warmUp(options.getEntrypoints(), monitor);
+      }
       solver.solve(monitor);
     } catch (CancelException | CancelRuntimeException e) {
       CallGraphBuilderCancelException c =
@@ -36,12 +36,15 @@ import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OffHeapIntStore;
+import com.ibm.wala.util.intset.OffHeapNaturalRelation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /** A dataflow graph implementation specialized for propagation-based pointer analysis */
 public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable> {
@@ -55,9 +58,12 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
       new DelegatingNumberedNodeManager<>();
 
   /** Track edges (equations) that are not represented implicitly */
-  private final NumberedEdgeManager<INodeWithNumber> edgeManager =
+  private NumberedEdgeManager<INodeWithNumber> edgeManager =
       new SparseNumberedEdgeManager<>(nodeManager, 2, BasicNaturalRelation.SIMPLE);
 
+  /** if not null, the store holding the edges and the implicitly represented equations */
+  private OffHeapIntStore offHeapStore = null;
+
   private final DelegateGraph delegateGraph = new DelegateGraph();
 
   private final HashSet<IFixedPointStatement<PointsToSetVariable>> delegateStatements =
@@ -85,8 +91,35 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   /** Number of implicit unary equations registered */
   private int implicitUnaryCount = 0;
 
+  /**
+   * Keep the edges of this graph and the implicitly represented equations outside the Java heap, in
+   * the given store, rather than in {@link BasicNaturalRelation}s.
+   *
+   * @throws IllegalArgumentException if store is null
+   * @throws IllegalStateException if the graph already has statements
+   */
+  public void useOffHeapStorage(OffHeapIntStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("store is null");
+    }
+    if (implicitUnaryCount > 0 || delegateGraph.getEquationCount() > 0) {
+      throw new IllegalStateException("graph already has statements");
+    }
+    offHeapStore = store;
+    edgeManager =
+        new SparseNumberedEdgeManager<>(
+            nodeManager, new OffHeapNaturalRelation(store), new OffHeapNaturalRelation(store));
+    implicitUnaryMap.clear();
+    invImplicitUnaryMap.clear();
+  }
+
+  /** @return the store holding the edges of this graph, or null if they are on the Java heap */
+  public OffHeapIntStore getOffHeapStore() {
+    return offHeapStore;
+  }
+
   /** @return a relation in map m corresponding to a key */
-  private static IBinaryNaturalRelation findOrCreateRelation(
+  private IBinaryNaturalRelation findOrCreateRelation(
       Map<UnaryOperator<PointsToSetVariable>, IBinaryNaturalRelation> m,
       UnaryOperator<PointsToSetVariable> key) {
     IBinaryNaturalRelation result = m.get(key);
@@ -98,7 +131,10 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   }
 
   /** @return a Relation object to track implicit equations using the operator */
-  private static IBinaryNaturalRelation makeRelation(AbstractOperator<PointsToSetVariable> op) {
+  private IBinaryNaturalRelation makeRelation(AbstractOperator<PointsToSetVariable> op) {
+    if (offHeapStore != null) {
+      return new OffHeapNaturalRelation(offHeapStore);
+    }
     byte[] implementation = null;
     if (op instanceof AssignOperator) {
       // lots of assignments.
@@ -619,17 +655,15 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
      * @see com.ibm.wala.util.graph.AbstractGraph#getNodeManager()
      */
     @Override
-    @SuppressWarnings("unchecked")
-    protected NumberedNodeManager getNodeManager() {
-      return nodeManager;
+    protected NumberedNodeManager<PointsToSetVariable> getNodeManager() {
+      return variableNodeManager();
     }
 
     /*
      * @see com.ibm.wala.util.graph.AbstractGraph#getEdgeManager()
      */
     @Override
-    @SuppressWarnings("unchecked")
-    protected NumberedEdgeManager getEdgeManager() {
+    protected NumberedEdgeManager<PointsToSetVariable> getEdgeManager() {
       return this;
     }
   }
@@ -829,6 +863,74 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     };
   }
 
+  /**
+   * A graph of the variables accepted by a filter. v1 -&gt; v2 iff there exists an assignment
+   * equation e s.t. e uses v1 and e defs v2. Unlike {@link #getAssignmentGraph()}, this view reads
+   * the edges straight from the implicit representation of assignments, without creating equations,
+   * so a traversal of a large graph stays cheap.
+   */
+  public NumberedGraph<PointsToSetVariable> getAssignmentGraph(
+      final Predicate<PointsToSetVariable> filter) {
+    final List<IBinaryNaturalRelation> defs = new ArrayList<>();
+    for (int i = 0; i < implicitUnaryMap.size(); i++) {
+      if (implicitUnaryMap.getKey(i) instanceof AssignOperator) {
+        defs.add(implicitUnaryMap.getValue(i));
+      }
+    }
+    final List<IBinaryNaturalRelation> uses = new ArrayList<>();
+    for (int i = 0; i < invImplicitUnaryMap.size(); i++) {
+      if (invImplicitUnaryMap.getKey(i) instanceof AssignOperator) {
+        uses.add(invImplicitUnaryMap.getValue(i));
+      }
+    }
+    return new FilteredConstraintGraphView() {
+
+      @Override
+      boolean isInteresting(AbstractStatement<?, ?> eq) {
+        return eq instanceof AssignEquation
+            && filter.test(((AssignEquation) eq).getLHS())
+            && filter.test(((AssignEquation) eq).getRightHandSide());
+      }
+
+      @Override
+      public Iterator<PointsToSetVariable> iterator() {
+        return new FilterIterator<>(getVariables(), filter);
+      }
+
+      @Override
+      public int getNumberOfNodes() {
+        return IteratorUtil.count(iterator());
+      }
+
+      @Override
+      public Iterator<PointsToSetVariable> getPredNodes(PointsToSetVariable v) {
+        return related(defs, v);
+      }
+
+      @Override
+      public Iterator<PointsToSetVariable> getSuccNodes(PointsToSetVariable v) {
+        return related(uses, v);
+      }
+
+      private Iterator<PointsToSetVariable> related(
+          List<IBinaryNaturalRelation> relations, PointsToSetVariable v) {
+        List<PointsToSetVariable> result = new ArrayList<>();
+        for (IBinaryNaturalRelation R : relations) {
+          IntSet s = R.getRelated(v.getGraphNodeId());
+          if (s != null) {
+            for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+              PointsToSetVariable w = (PointsToSetVariable) delegateGraph.getNode(it.next());
+              if (filter.test(w)) {
+                result.add(w);
+              }
+            }
+          }
+        }
+        return result.iterator();
+      }
+    };
+  }
+
   /**
    * A graph of just the variables in the system. v1 -&gt; v2 iff there exists an Assingnment or
    * Filter equation e s.t. e uses v1 and e defs v2.
@@ -1043,9 +1145,8 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
      * @see com.ibm.wala.util.graph.AbstractGraph#getNodeManager()
      */
     @Override
-    @SuppressWarnings("unchecked")
-    protected NumberedNodeManager getNodeManager() {
-      return nodeManager;
+    protected NumberedNodeManager<PointsToSetVariable> getNodeManager() {
+      return variableNodeManager();
     }
 
     /*
@@ -1058,12 +1159,22 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     }
   }
 
+  /**
+   * The views of just the variables reuse the node manager of the delegate graph. They only ask it
+   * about variables, so it may stand for a node manager of variables.
+   */
+  @SuppressWarnings("unchecked")
+  private NumberedNodeManager<PointsToSetVariable> variableNodeManager() {
+    return (NumberedNodeManager<PointsToSetVariable>) (NumberedNodeManager<?>) nodeManager;
+  }
+
   public String spaceReport() {
     // for (Iterator it = implicitUnaryMap.values().iterator(); it.hasNext(); )
     // {
     // result.append(it.next() + "\n");
     // }
-    return "PropagationGraph\nImplicitEdges:" + countImplicitEdges() + '\n';
+    String result = "PropagationGraph\nImplicitEdges:" + countImplicitEdges() + '\n';
+    return offHeapStore == null ? result : result + offHeapStore + '\n';
   }
 
   private int countImplicitEdges() {
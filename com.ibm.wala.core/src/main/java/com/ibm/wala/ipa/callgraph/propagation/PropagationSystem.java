@@ -14,6 +14,7 @@ import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.core.util.ref.ReferenceCleanser;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.NullaryStatement;
 import com.ibm.wala.fixedpoint.impl.Worklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
@@ -24,20 +25,29 @@ import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.ParallelUtil;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OffHeapIntStore;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,6 +57,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /** System of constraints that define propagation for call graph construction */
 public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariable> {
@@ -98,6 +109,35 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /** number of threads used to evaluate assignments; 1 means solve sequentially */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * By default, below this many pending assignments, the parallel solver evaluates them on the
+   * calling thread, since handing them to the pool would cost more than it saves.
+   */
+  public static final int DEFAULT_MIN_PARALLEL_BATCH = 512;
+
+  /** A tuning parameter: the fewest pending assignments the parallel solver hands to the pool */
+  private int minParallelBatch = DEFAULT_MIN_PARALLEL_BATCH;
+
+  /** number of rounds in which the parallel solver handed assignments to the pool */
+  private int numberOfParallelRounds = 0;
+
+  /** merge the variables of cycles of assignments while solving? */
+  private boolean useCycleElimination = false;
+
+  /** number of evaluations after which the solver next looks for cycles of assignments */
+  private int nextCycleSearch = MIN_EVALUATIONS_BETWEEN_CYCLE_SEARCHES;
+
+  /**
+   * A tuning parameter: the solver first looks for cycles of assignments after this many
+   * evaluations. Each search takes time linear in the size of the assignment graph, so the solver
+   * then waits until the number of evaluations has doubled, and at least until there have been as
+   * many more evaluations as there are pointer keys.
+   */
+  private static final int MIN_EVALUATIONS_BETWEEN_CYCLE_SEARCHES = 10000;
+
   public PropagationSystem(
       CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
     if (cg == null) {
@@ -145,7 +185,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet result = class2InstanceKey.get(klass);
     if (result == null) {
-      result = IntSetUtil.getDefaultIntSetFactory().make();
+      result = PointsToSetVariable.getPointsToSetFactory().make();
       class2InstanceKey.put(klass, result);
     }
     return result;
@@ -159,10 +199,10 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     assert klass.getReference() != TypeReference.JavaLangObject;
     MutableIntSet set = class2InstanceKey.get(klass);
     if (set == null) {
-      return IntSetUtil.getDefaultIntSetFactory().make();
+      return PointsToSetVariable.getPointsToSetFactory().make();
     } else {
-      // return a copy.
-      return IntSetUtil.getDefaultIntSetFactory().makeCopy(set);
+      // return a copy, which need not live where points-to sets do
+      return IntSetUtil.makeMutableCopy(set);
     }
   }
 
@@ -350,8 +390,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs);
+    assert isUnificationSafe(lhs);
+    assert isUnificationSafe(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R = findOrCreatePointsToSet(rhs);
     return newStatement(L, op, new PointsToSetVariable[] {R}, true, true);
@@ -374,9 +414,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs1 + ", " + rhs2);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs1);
-    assert !pointsToMap.isUnified(rhs2);
+    assert isUnificationSafe(lhs);
+    assert isUnificationSafe(rhs1);
+    assert isUnificationSafe(rhs2);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R1 = findOrCreatePointsToSet(rhs1);
     PointsToSetVariable R2 = findOrCreatePointsToSet(rhs2);
@@ -538,7 +578,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
+    assert isUnificationSafe(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
   }
@@ -552,7 +592,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[arg0.length];
     for (int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
+      assert isUnificationSafe(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     newStatement(null, op, vs, true, true);
@@ -563,13 +603,328 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
+    assert isUnificationSafe(arg0);
+    assert isUnificationSafe(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     newStatement(null, op, v1, v2, true, true);
   }
 
+  /** @return the number of threads used to evaluate assignments */
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /** @param n the number of threads used to evaluate assignments; 1 means solve sequentially */
+  public void setNumberOfSolverThreads(int n) {
+    numberOfSolverThreads = ParallelUtil.checkNumberOfThreads(n);
+  }
+
+  /** @return the fewest pending assignments the parallel solver hands to the pool */
+  public int getMinParallelBatch() {
+    return minParallelBatch;
+  }
+
+  /**
+   * @param n the fewest pending assignments the parallel solver hands to the pool
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public void setMinParallelBatch(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid minimum parallel batch: " + n);
+    }
+    minParallelBatch = n;
+  }
+
+  /**
+   * @return the number of rounds in which the parallel solver evaluated assignments on the pool
+   *     rather than on the calling thread
+   */
+  public int getNumberOfParallelRounds() {
+    return numberOfParallelRounds;
+  }
+
+  /**
+   * Keep the edges of the propagation graph outside the Java heap, in the given store. This must be
+   * called before any constraint is added.
+   *
+   * @throws IllegalArgumentException if store is null
+   * @throws IllegalStateException if the system already has constraints
+   */
+  public void useOffHeapStorage(OffHeapIntStore store) {
+    flowGraph.useOffHeapStorage(store);
+  }
+
+  /** @return true if the solver merges the variables of cycles of assignments */
+  public boolean getUseCycleElimination() {
+    return useCycleElimination;
+  }
+
+  /**
+   * Should the solver merge the variables of cycles of assignments? Once merged, the pointer keys
+   * of a cycle are unified, and queries on any of them return the set of the representative.
+   */
+  public void setUseCycleElimination(boolean useCycleElimination) {
+    this.useCycleElimination = useCycleElimination;
+  }
+
+  @Override
+  public void orderStatements() {
+    if (useCycleElimination && getNumberOfEvaluations() >= nextCycleSearch) {
+      collapseCycles();
+      int evaluations = getNumberOfEvaluations();
+      int interval =
+          Math.max(MIN_EVALUATIONS_BETWEEN_CYCLE_SEARCHES, pointsToMap.getNumberOfPointerKeys());
+      nextCycleSearch = evaluations + Math.max(evaluations, interval);
+    }
+    super.orderStatements();
+  }
+
+  /**
+   * Unify the variables of each strongly connected component of the assignment graph. Variables in
+   * such a cycle reach the same fixed point, so one variable can stand for all of them.
+   *
+   * <p>Variables with a type filter, and parameters, which may get one when a new call edge is
+   * added, are left alone: unification would lose or spread the filter.
+   *
+   * @return the number of cycles collapsed
+   */
+  @SuppressWarnings("unchecked")
+  public int collapseCycles() {
+    NumberedGraph<PointsToSetVariable> assignments =
+        flowGraph.getAssignmentGraph(PropagationSystem::mayUnify);
+    List<IntSet> cycles = new ArrayList<>();
+    Set<PointsToSetVariable> merged = HashSetFactory.make();
+    for (Set<PointsToSetVariable> scc : Iterator2Iterable.make(new SCCIterator<>(assignments))) {
+      if (scc.size() > 1) {
+        MutableIntSet cycle = MutableSparseIntSet.makeEmpty();
+        for (PointsToSetVariable v : scc) {
+          cycle.add(pointsToMap.getIndex(v.getPointerKey()));
+        }
+        cycles.add(cycle);
+        merged.addAll(scc);
+      }
+    }
+    if (cycles.isEmpty()) {
+      return 0;
+    }
+
+    List<AbstractStatement<PointsToSetVariable, ?>> pending = new ArrayList<>(workList.size());
+    while (!workList.isEmpty()) {
+      pending.add(workList.takeStatement());
+    }
+    List<PointsToSetVariable> reps = new ArrayList<>(cycles.size());
+    for (IntSet cycle : cycles) {
+      unify(cycle);
+      PointsToSetVariable rep = pointsToMap.getPointsToSet(cycle.intIterator().next());
+      merged.remove(rep);
+      reps.add(rep);
+    }
+    // unification replaced the pending statements that mention a merged variable
+    for (AbstractStatement<PointsToSetVariable, ?> s : pending) {
+      if (!mentionsAny(s, merged)) {
+        workList.insertStatement(s);
+      }
+    }
+    // the representatives hold the union of their cycles, and their defs and uses include the
+    // replacements
+    for (PointsToSetVariable rep : reps) {
+      changedVariable(rep);
+      for (AbstractStatement<PointsToSetVariable, ?> s :
+          Iterator2Iterable.make(getStatementsThatDef(rep))) {
+        addToWorkList(s);
+      }
+    }
+    return cycles.size();
+  }
+
+  private static boolean mentionsAny(AbstractStatement<?, ?> s, Set<PointsToSetVariable> vars) {
+    if (vars.contains(s.getLHS())) {
+      return true;
+    }
+    if (s instanceof UnaryStatement) {
+      return vars.contains(((UnaryStatement<?>) s).getRightHandSide());
+    }
+    if (s instanceof NullaryStatement) {
+      return false;
+    }
+    for (IVariable<?> v : s.getRHS()) {
+      if (vars.contains(v)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean mayUnify(PointsToSetVariable v) {
+    return mayUnify(v.getPointerKey());
+  }
+
+  private static boolean mayUnify(PointerKey key) {
+    return !(key instanceof FilteredPointerKey)
+        && !(key instanceof LocalPointerKey && ((LocalPointerKey) key).isParameter());
+  }
+
+  /**
+   * New constraints must not mention unified keys, except those merged by {@link
+   * #collapseCycles()}: such a key and its representative have no type filter, so a constraint on
+   * the representative, which {@link #findOrCreatePointsToSet(PointerKey)} returns for the key, is
+   * the same as one on the key.
+   *
+   * @return true if a new constraint may mention key
+   */
+  boolean isUnificationSafe(PointerKey key) {
+    return !pointsToMap.isUnified(key) || (useCycleElimination && mayUnify(key));
+  }
+
+  @Override
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    if (numberOfSolverThreads == 1) {
+      return super.solve(monitor);
+    }
+    ForkJoinPool pool = new ForkJoinPool(numberOfSolverThreads);
+    try {
+      return solveInParallel(pool, monitor);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Solve the system, evaluating {@link AssignEquation}s on several threads.
+   *
+   * <p>Each round drains the work list. For every drained assignment, the pool computes the
+   * instance keys the right-hand side would add to the left-hand side; this phase only reads
+   * points-to sets, so it needs no locking. The calling thread then applies those deltas and
+   * evaluates all other statements in work list order, so side effects such as new call graph nodes
+   * or new constraints are never concurrent. Since every operator is monotone, the fixed point is
+   * the same as the one computed by the sequential solver.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean solveInParallel(ForkJoinPool pool, IProgressMonitor monitor)
+      throws CancelException {
+    if (isFirstSolve()) {
+      initForFirstSolve();
+    }
+
+    boolean globalChange = false;
+    while (!workList.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      orderStatements();
+
+      List<AbstractStatement<PointsToSetVariable, ?>> batch = new ArrayList<>(workList.size());
+      while (!workList.isEmpty()) {
+        batch.add(workList.takeStatement());
+      }
+      IntSet[] deltas = computeAssignmentDeltas(pool, batch);
+      if (deltas == null) {
+        deltas = computeAssignmentDeltas(batch);
+      } else {
+        numberOfParallelRounds++;
+      }
+
+      for (int i = 0; i < batch.size(); i++) {
+        AbstractStatement<PointsToSetVariable, ?> s = batch.get(i);
+        byte code;
+        if (s instanceof AssignEquation) {
+          code =
+              (deltas[i] != null && ((AssignEquation) s).getLHS().addAll(deltas[i]))
+                  ? CHANGED
+                  : NOT_CHANGED;
+        } else {
+          code = s.evaluate();
+        }
+        incNumberOfEvaluations();
+        if (verbose) {
+          if (getNumberOfEvaluations() % getVerboseInterval() == 0) {
+            performVerboseAction();
+          }
+          if (getNumberOfEvaluations() % getPeriodicMaintainInterval() == 0) {
+            periodicMaintenance();
+          }
+        }
+        if (isChanged(code)) {
+          globalChange = true;
+          PointsToSetVariable lhs = s.getLHS();
+          if (lhs != null) {
+            changedVariable(lhs);
+          }
+        }
+        if (isFixed(code)) {
+          removeStatement(s);
+        }
+      }
+    }
+    return globalChange;
+  }
+
+  /**
+   * Compute the deltas of the assignments in batch on the calling thread.
+   *
+   * @return an array parallel to batch, holding for each {@link AssignEquation} the values its
+   *     right-hand side does not yet share with its left-hand side, or null if there are none
+   */
+  private static IntSet[] computeAssignmentDeltas(
+      List<AbstractStatement<PointsToSetVariable, ?>> batch) {
+    IntSet[] deltas = new IntSet[batch.size()];
+    for (int i = 0; i < deltas.length; i++) {
+      if (batch.get(i) instanceof AssignEquation) {
+        deltas[i] = computeDelta((AssignEquation) batch.get(i));
+      }
+    }
+    return deltas;
+  }
+
+  /**
+   * Compute the deltas of the assignments in batch on the pool.
+   *
+   * @return an array parallel to batch, as for {@link #computeAssignmentDeltas(List)}, or null if
+   *     the batch holds too few assignments to be worth handing to the pool
+   */
+  private IntSet[] computeAssignmentDeltas(
+      ForkJoinPool pool, List<AbstractStatement<PointsToSetVariable, ?>> batch)
+      throws CancelException {
+    int nAssigns = 0;
+    for (AbstractStatement<PointsToSetVariable, ?> s : batch) {
+      if (s instanceof AssignEquation) {
+        nAssigns++;
+      }
+    }
+    if (nAssigns < minParallelBatch) {
+      return null;
+    }
+
+    final IntSet[] deltas = new IntSet[batch.size()];
+    ParallelUtil.forEach(
+        pool,
+        deltas.length,
+        i -> {
+          if (batch.get(i) instanceof AssignEquation) {
+            deltas[i] = computeDelta((AssignEquation) batch.get(i));
+          }
+        });
+    return deltas;
+  }
+
+  /**
+   * Read-only; safe to call concurrently as long as no thread updates a points-to set.
+   *
+   * @return the values in the rhs of eq that are not in its lhs, or null if there are none
+   */
+  private static IntSet computeDelta(AssignEquation eq) {
+    IntSet rhs = eq.getRightHandSide().getValue();
+    if (rhs == null || rhs.isEmpty()) {
+      return null;
+    }
+    IntSet lhs = eq.getLHS().getValue();
+    if (lhs == null) {
+      return rhs;
+    }
+    MutableSparseIntSet delta = MutableSparseIntSet.makeEmpty();
+    rhs.foreachExcluding(lhs, delta::add);
+    return delta.isEmpty() ? null : delta;
+  }
+
   @Override
   protected void initializeWorkList() {
     addAllStatementsToWorkList();
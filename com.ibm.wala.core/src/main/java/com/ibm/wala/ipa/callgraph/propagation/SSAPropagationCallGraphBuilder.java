@@ -757,8 +757,8 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
             }
           }
         } else {
-          assert !system.isUnified(result);
-          assert !system.isUnified(arrayRefPtrKey);
+          assert system.isUnificationSafe(result);
+          assert system.isUnificationSafe(arrayRefPtrKey);
           system.newSideEffect(
               getBuilder().new ArrayLoadOperator(system.findOrCreatePointsToSet(result)),
               arrayRefPtrKey);
@@ -814,7 +814,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           InstanceKey[] ik = getInvariantContents(value);
           for (InstanceKey element : ik) {
             system.findOrCreateIndexForInstanceKey(element);
-            assert !system.isUnified(arrayRefPtrKey);
+            assert system.isUnificationSafe(arrayRefPtrKey);
             system.newSideEffect(
                 getBuilder().new InstanceArrayStoreOperator(element), arrayRefPtrKey);
           }
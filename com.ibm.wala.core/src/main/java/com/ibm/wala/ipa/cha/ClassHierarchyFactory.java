@@ -15,6 +15,7 @@ import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import java.io.File;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -28,6 +29,24 @@ public class ClassHierarchyFactory {
     return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * Like {@link #make(AnalysisScope)}, but summaries of the jar files in the scope are kept in the
+   * given directory, so that later class hierarchies over the same jar files can be built without
+   * reading every class file.
+   *
+   * @see com.ibm.wala.classLoader.ModuleSnapshot
+   */
+  public static ClassHierarchy makeWithSnapshots(AnalysisScope scope, File snapshotDirectory)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (snapshotDirectory == null) {
+      throw new IllegalArgumentException("null snapshotDirectory");
+    }
+    return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), snapshotDirectory));
+  }
+
   /**
    * NOTE: phantom classes are a work-in-progress and this functionality has known bugs; see
    * https://github.com/wala/WALA/pull/335. At this point, we recommend using {@link
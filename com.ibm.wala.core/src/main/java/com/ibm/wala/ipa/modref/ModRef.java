@@ -28,12 +28,15 @@ import com.ibm.wala.ssa.SSAGetInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSANewInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.util.ParallelUtil;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.intset.OrdinalSet;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * Mod-ref analysis for heap locations.
@@ -47,8 +50,30 @@ public class ModRef<T extends InstanceKey> {
     return new ModRef<>();
   }
 
+  /** the number of threads used to scan call graph nodes and to compute transitive closures */
+  private int numberOfThreads = 1;
+
   public ModRef() {}
 
+  /** @return the number of threads used to compute mod and ref sets */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * With more than one thread, call graph nodes are scanned concurrently, so the visitors made by
+   * this object and the pointer analysis must then answer queries from several threads, as {@link
+   * com.ibm.wala.ipa.callgraph.propagation.PointerAnalysisImpl} does, and so must the class
+   * hierarchy when it resolves fields, as {@link com.ibm.wala.classLoader.BytecodeClass} does. The
+   * transitive closure is computed bottom-up over the strongly connected components of the call
+   * graph.
+   *
+   * @param n the number of threads used to compute mod and ref sets; 1 means compute sequentially
+   */
+  public void setNumberOfThreads(int n) {
+    numberOfThreads = ParallelUtil.checkNumberOfThreads(n);
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write,
    * including its callees transitively
@@ -60,6 +85,9 @@ public class ModRef<T extends InstanceKey> {
     if (cg == null) {
       throw new IllegalArgumentException("cg is null");
     }
+    if (numberOfThreads > 1) {
+      return computeInParallel(cg, n -> scanNodeForMod(n, pa, heapExclude));
+    }
     Map<CGNode, Collection<PointerKey>> scan = scanForMod(cg, pa, heapExclude);
     return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
   }
@@ -75,10 +103,29 @@ public class ModRef<T extends InstanceKey> {
     if (cg == null) {
       throw new IllegalArgumentException("cg is null");
     }
+    if (numberOfThreads > 1) {
+      return computeInParallel(cg, n -> scanNodeForRef(n, pa, heapExclude));
+    }
     Map<CGNode, Collection<PointerKey>> scan = scanForRef(cg, pa, heapExclude);
     return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
   }
 
+  /**
+   * Scan all nodes and compute the transitive closure on a pool of {@link #getNumberOfThreads()}
+   * threads. The results of all nodes are bit sets over one shared numbering of pointer keys.
+   */
+  private Map<CGNode, OrdinalSet<PointerKey>> computeInParallel(
+      CallGraph cg, Function<CGNode, Collection<PointerKey>> scanNode) {
+    ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+    try {
+      Map<CGNode, Collection<PointerKey>> scan =
+          CallGraphTransitiveClosure.collectNodeResults(cg, scanNode, pool);
+      return CallGraphTransitiveClosure.transitiveClosure(cg, scan, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write,
    * including its callees transitively
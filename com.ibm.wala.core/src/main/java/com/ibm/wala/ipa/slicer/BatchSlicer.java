@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.slicer;
+
+import com.ibm.wala.dataflow.IFDS.IBinaryReturnFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.ipa.slicer.Slicer.SliceProblem;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.ParallelUtil;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.BitVector;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Computes the slices of many statements at once, giving for each the same statements as {@link
+ * Slicer}.
+ *
+ * <p>A {@link Slicer} query tabulates from scratch, so the effect of each callee on its callers is
+ * recomputed for every query. Instead, this slicer keeps one tabulation without seeds, whose {@link
+ * com.ibm.wala.dataflow.IFDS.LocalSummaryEdges summary edges} describe each callee entered so far,
+ * and an index of the dependences of each statement visited, with calls bridged by those summaries.
+ * Both grow as needed and are reused by all later queries. Each slice is then a walk over the index
+ * that, as in the two phases of Horwitz, Reps and Binkley, returns to callers only from statements
+ * not reached through a call. As the index is not modified by these walks, they may run on several
+ * threads.
+ *
+ * <p>Slices are {@link OrdinalSet}s over one shared numbering of statements, so each takes a bit
+ * per statement in the index.
+ */
+public class BatchSlicer {
+
+  /** the smallest number of seeds worth slicing on several threads */
+  private static final int MIN_PARALLEL_SEEDS = 8;
+
+  private final ISupergraph<Statement, PDG<?>> supergraph;
+
+  private final IPartiallyBalancedFlowFunctions<Statement> functions;
+
+  private final SliceProblem problem;
+
+  /** a tabulation without seeds of its own, computing the summary edges of callees on demand */
+  private final TabulationSolver<Statement, PDG<?>, Object> summarySolver;
+
+  private TabulationResult<Statement, PDG<?>, Object> summaries;
+
+  /** the numbering of statements in the index, and in slices */
+  private final MutableMapping<Statement> statements = MutableMapping.make();
+
+  /** which statements have their dependences in the index */
+  private final BitVector expanded = new BitVector();
+
+  /** for each statement, the statements it reaches in the same procedure, across calls */
+  private int[][] local = new int[0][];
+
+  /** for each statement, the entries of the callees it reaches */
+  private int[][] calls = new int[0][];
+
+  /** for each exit statement, the return sites it reaches when returning to any caller */
+  private int[][] returns = new int[0][];
+
+  /** for each statement, the entry the tabulation uses for seeds in its procedure */
+  private int[] fakeEntry = new int[0];
+
+  private int numberOfThreads = 1;
+
+  /**
+   * @param sdg the dependence graph to slice
+   * @param backward compute backward slices? Otherwise, compute forward slices.
+   * @throws IllegalArgumentException if sdg is null
+   */
+  public BatchSlicer(ISDG sdg, boolean backward) {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    this.problem = new SliceProblem(Collections.<Statement>emptySet(), sdg, backward);
+    this.supergraph = problem.getSupergraph();
+    this.functions = problem.getFunctionMap();
+    this.summarySolver = TabulationSolver.make(problem);
+  }
+
+  /** @return the number of threads used to walk the slices of a batch */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * With more than one thread, the slices of the seeds of a batch are walked concurrently, once the
+   * dependences they need are in the index. Building the index is sequential.
+   *
+   * @param n the number of threads; 1 means slice sequentially
+   */
+  public void setNumberOfThreads(int n) {
+    numberOfThreads = ParallelUtil.checkNumberOfThreads(n);
+  }
+
+  /** @return the number of statements in the index, i.e., the size of the bit sets of slices */
+  public int getNumberOfStatements() {
+    return statements.getSize();
+  }
+
+  /**
+   * @param seeds the statements to slice from
+   * @return for each seed, the statements in its slice, in the order of seeds
+   */
+  public Map<Statement, OrdinalSet<Statement>> slice(
+      Collection<Statement> seeds, IProgressMonitor monitor) throws CancelException {
+    if (seeds == null) {
+      throw new IllegalArgumentException("seeds cannot be null");
+    }
+    List<Statement> distinct = new ArrayList<>(new LinkedHashSet<>(seeds));
+    if (distinct.contains(null)) {
+      throw new IllegalArgumentException("null seed");
+    }
+    final int[] roots = new int[distinct.size()];
+    for (int i = 0; i < roots.length; i++) {
+      roots[i] = statements.add(distinct.get(i));
+    }
+
+    // visit everything any seed can reach, filling in the index
+    walk(roots, true, monitor);
+
+    final BitVectorIntSet[] slices = new BitVectorIntSet[roots.length];
+    if (numberOfThreads > 1 && roots.length >= MIN_PARALLEL_SEEDS) {
+      ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+      try {
+        ParallelUtil.forEach(
+            pool, roots.length, i -> slices[i] = walk(new int[] {roots[i]}, false, monitor));
+      } finally {
+        pool.shutdown();
+      }
+    } else {
+      for (int i = 0; i < roots.length; i++) {
+        slices[i] = walk(new int[] {roots[i]}, false, monitor);
+      }
+    }
+
+    Map<Statement, OrdinalSet<Statement>> result = new LinkedHashMap<>();
+    for (int i = 0; i < roots.length; i++) {
+      result.put(distinct.get(i), new OrdinalSet<>(slices[i], statements));
+    }
+    return result;
+  }
+
+  /**
+   * Walk the slice of some seeds. Statements are visited in two modes: <em>unbalanced</em> ones
+   * were reached without entering a callee, so the walk may return from their procedure to any
+   * caller; <em>balanced</em> ones were reached in a callee, so returns are covered by summary
+   * edges at the call. As in the tabulation, a procedure the walk has returned from or started in
+   * treats its seed entry as unbalanced, even when it is reached by a call.
+   *
+   * @param expand fill in the index for the statements visited? Otherwise, only read the index, so
+   *     that several walks may run at once.
+   * @return the statements visited
+   */
+  private BitVectorIntSet walk(int[] roots, boolean expand, IProgressMonitor monitor)
+      throws CancelException {
+    BitVector unbalanced = new BitVector();
+    BitVector balanced = new BitVector();
+    // the seed entries of procedures the walk has returned from or started in
+    BitVector unbalancedEntries = new BitVector();
+    // pending visits; a statement n in the unbalanced mode is pushed as 2n + 1
+    int[] stack = new int[16];
+    int size = 0;
+
+    for (int root : roots) {
+      if (expand) {
+        expand(root);
+      }
+      unbalancedEntries.set(fakeEntry[root]);
+      if (!unbalanced.get(root)) {
+        unbalanced.set(root);
+        stack = push(stack, size++, 2 * root + 1);
+      }
+    }
+
+    int visits = 0;
+    while (size > 0) {
+      if (++visits % 4096 == 0) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+      }
+      int item = stack[--size];
+      int n = item >> 1;
+      boolean isUnbalanced = (item & 1) == 1;
+      if (expand) {
+        expand(n);
+      }
+      for (int m : local[n]) {
+        if (expand) {
+          expand(m);
+        }
+        if (isUnbalanced ? !unbalanced.get(m) : !balanced.get(m) && !unbalanced.get(m)) {
+          (isUnbalanced ? unbalanced : balanced).set(m);
+          stack = push(stack, size++, isUnbalanced ? 2 * m + 1 : 2 * m);
+        }
+      }
+      for (int e : calls[n]) {
+        if (expand) {
+          expand(e);
+        }
+        if (fakeEntry[e] == e && unbalancedEntries.get(e)) {
+          if (!unbalanced.get(e)) {
+            unbalanced.set(e);
+            stack = push(stack, size++, 2 * e + 1);
+          }
+        } else if (!balanced.get(e) && !unbalanced.get(e)) {
+          balanced.set(e);
+          stack = push(stack, size++, 2 * e);
+        }
+      }
+      if (isUnbalanced) {
+        for (int r : returns[n]) {
+          if (expand) {
+            expand(r);
+          }
+          int entry = fakeEntry[r];
+          if (!unbalancedEntries.get(entry)) {
+            unbalancedEntries.set(entry);
+            // the seed entry may already have been entered by a call; it is unbalanced now
+            if (balanced.get(entry) && !unbalanced.get(entry)) {
+              unbalanced.set(entry);
+              stack = push(stack, size++, 2 * entry + 1);
+            }
+          }
+          if (!unbalanced.get(r)) {
+            unbalanced.set(r);
+            stack = push(stack, size++, 2 * r + 1);
+          }
+        }
+      }
+    }
+
+    unbalanced.or(balanced);
+    return new BitVectorIntSet(unbalanced);
+  }
+
+  private static int[] push(int[] stack, int size, int item) {
+    if (size == stack.length) {
+      stack = Arrays.copyOf(stack, 2 * size);
+    }
+    stack[size] = item;
+    return stack;
+  }
+
+  /** Fill in the index for statement n, if it is not there yet. */
+  private void expand(int n) throws CancelException {
+    if (expanded.get(n)) {
+      return;
+    }
+    Statement s = statements.getMappedObject(n);
+    ensureCapacity(n);
+    fakeEntry[n] = statements.add(problem.getFakeEntry(s));
+
+    MutableIntSet localSuccs = MutableSparseIntSet.makeEmpty();
+    MutableIntSet callees = MutableSparseIntSet.makeEmpty();
+    MutableIntSet returnSites = MutableSparseIntSet.makeEmpty();
+    if (supergraph.isCall(s)) {
+      expandCall(s, localSuccs, callees);
+    } else if (!supergraph.isExit(s)) {
+      for (Statement m : Iterator2Iterable.make(supergraph.getSuccNodes(s))) {
+        if (reaches(functions.getNormalFlowFunction(s, m))) {
+          localSuccs.add(statements.add(m));
+        }
+      }
+    }
+    if (supergraph.isExit(s)) {
+      for (Statement r : Iterator2Iterable.make(supergraph.getSuccNodes(s))) {
+        if (reaches(functions.getUnbalancedReturnFlowFunction(s, r))) {
+          returnSites.add(statements.add(r));
+        }
+      }
+    }
+    // the mapping may have grown past n
+    ensureCapacity(statements.getMaximumIndex());
+    local[n] = toArray(localSuccs);
+    calls[n] = toArray(callees);
+    returns[n] = toArray(returnSites);
+    // only now, since computing summaries may be canceled
+    expanded.set(n);
+  }
+
+  /** Record the dependences of a call, as {@link TabulationSolver} follows them. */
+  private void expandCall(Statement c, MutableIntSet localSuccs, MutableIntSet callees)
+      throws CancelException {
+    Collection<Statement> allReturnSites =
+        Iterator2Collection.toSet(supergraph.getReturnSites(c, null));
+    List<Statement> entries = new ArrayList<>();
+    List<Collection<Statement>> entryReturnSites = new ArrayList<>();
+    boolean hasCallee = false;
+    for (Statement e : Iterator2Iterable.make(supergraph.getCalledNodes(c))) {
+      hasCallee = true;
+      Collection<Statement> returnSites =
+          Iterator2Collection.toSet(supergraph.getReturnSites(c, supergraph.getProcOf(e)));
+      allReturnSites.addAll(returnSites);
+      boolean reached = reaches(functions.getCallFlowFunction(c, e, null));
+      for (Statement r : returnSites) {
+        reached |= reaches(functions.getCallFlowFunction(c, e, r));
+      }
+      if (reached) {
+        entries.add(e);
+        entryReturnSites.add(returnSites);
+        callees.add(statements.add(e));
+      }
+    }
+
+    // flow across the call, as computed by the summaries of the callees
+    TabulationResult<Statement, PDG<?>, Object> summaries = getSummaries(entries);
+    for (int i = 0; i < entries.size(); i++) {
+      Statement e = entries.get(i);
+      for (Statement x : supergraph.getExitsForProcedure(supergraph.getProcOf(e))) {
+        IntSet reachedBySummary = summaries.getSummaryTargets(e, 0, x);
+        if (reachedBySummary == null || !reachedBySummary.contains(0)) {
+          continue;
+        }
+        for (Statement r : entryReturnSites.get(i)) {
+          if (supergraph.hasEdge(x, r) && reaches(functions.getReturnFlowFunction(c, x, r))) {
+            localSuccs.add(statements.add(r));
+          }
+        }
+      }
+    }
+
+    // in backward problems, a call node may have normal successors as well
+    for (Statement m : Iterator2Iterable.make(supergraph.getNormalSuccessors(c))) {
+      if (reaches(functions.getNormalFlowFunction(c, m))) {
+        localSuccs.add(statements.add(m));
+      }
+    }
+    for (Statement r : allReturnSites) {
+      IUnaryFlowFunction f =
+          hasCallee
+              ? functions.getCallToReturnFlowFunction(c, r)
+              : functions.getCallNoneToReturnFlowFunction(c, r);
+      if (reaches(f)) {
+        localSuccs.add(statements.add(r));
+      }
+    }
+  }
+
+  /** @return the summaries of the summary solver, after it has entered all the given callees */
+  private TabulationResult<Statement, PDG<?>, Object> getSummaries(List<Statement> entries)
+      throws CancelException {
+    boolean added = false;
+    for (Statement e : entries) {
+      if (summarySolver.getLocalPathEdges(e) == null) {
+        summarySolver.addSeed(PathEdge.createPathEdge(e, 0, e, 0));
+        added = true;
+      }
+    }
+    if (added || summaries == null) {
+      summaries = summarySolver.solve();
+    }
+    return summaries;
+  }
+
+  /** @return true if the slicing fact flows through f */
+  private static boolean reaches(IFlowFunction f) {
+    IntSet targets =
+        f instanceof IBinaryReturnFlowFunction
+            ? ((IBinaryReturnFlowFunction) f).getTargets(0, 0)
+            : ((IUnaryFlowFunction) f).getTargets(0);
+    return targets != null && targets.contains(0);
+  }
+
+  private void ensureCapacity(int n) {
+    if (n >= fakeEntry.length) {
+      int length = Math.max(2 * fakeEntry.length, n + 1);
+      local = Arrays.copyOf(local, length);
+      calls = Arrays.copyOf(calls, length);
+      returns = Arrays.copyOf(returns, length);
+      fakeEntry = Arrays.copyOf(fakeEntry, length);
+    }
+  }
+
+  private static int[] toArray(IntSet s) {
+    int[] result = new int[s.size()];
+    int i = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      result[i++] = it.next();
+    }
+    return result;
+  }
+}
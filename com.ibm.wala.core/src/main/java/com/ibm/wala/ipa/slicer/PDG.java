@@ -69,13 +69,14 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /** Program dependence graph for a single call graph node */
 public class PDG<T extends InstanceKey> implements NumberedLabeledGraph<Statement, Dependency> {
 
-  private final SlowSparseNumberedLabeledGraph<Statement, Dependency> delegate =
+  private SlowSparseNumberedLabeledGraph<Statement, Dependency> delegate =
       new SlowSparseNumberedLabeledGraph<>();
   /* END Custom change: control deps */
   private static final boolean VERBOSE = false;
@@ -87,17 +88,15 @@ public class PDG<T extends InstanceKey> implements NumberedLabeledGraph<Statemen
   private Statement[] returnStatements;
 
   /** TODO: using CallSiteReference is sloppy. clean it up. */
-  private final Map<CallSiteReference, Statement> callSite2Statement = HashMapFactory.make();
+  private Map<CallSiteReference, Statement> callSite2Statement = HashMapFactory.make();
 
-  private final Map<CallSiteReference, Set<Statement>> callerParamStatements =
-      HashMapFactory.make();
+  private Map<CallSiteReference, Set<Statement>> callerParamStatements = HashMapFactory.make();
 
-  private final Map<CallSiteReference, Set<Statement>> callerReturnStatements =
-      HashMapFactory.make();
+  private Map<CallSiteReference, Set<Statement>> callerReturnStatements = HashMapFactory.make();
 
   private final HeapExclusions exclusions;
 
-  private final Collection<PointerKey> locationsHandled = HashSetFactory.make();
+  private Collection<PointerKey> locationsHandled = HashSetFactory.make();
 
   private final PointerAnalysis<T> pa;
 
@@ -119,6 +118,9 @@ public class PDG<T extends InstanceKey> implements NumberedLabeledGraph<Statemen
 
   private boolean isPopulated = false;
 
+  /** told each time this PDG computes its statements, whoever asked for them */
+  private Consumer<PDG<T>> populateListener;
+
   /**
    * @param mod the set of heap locations which may be written (transitively) by this node. These
    *     are logically return values in the SDG.
@@ -191,9 +193,45 @@ public class PDG<T extends InstanceKey> implements NumberedLabeledGraph<Statemen
       Map<SSAInstruction, Integer> instructionIndices = computeInstructionIndices(ir);
       createNodes(ref, ir);
       createScalarEdges(cOptions, ir, instructionIndices);
+      if (populateListener != null) {
+        populateListener.accept(this);
+      }
+    }
+  }
+
+  /** let an SDG that caches this PDG know when it is populated, perhaps again after a release */
+  void setPopulateListener(Consumer<PDG<T>> listener) {
+    this.populateListener = listener;
+  }
+
+  /**
+   * Drop all statements and dependences computed so far, to save space. They are computed again,
+   * with the same numbering, the next time this PDG is queried; iterators handed out before stay
+   * valid.
+   */
+  void release() {
+    if (isPopulated) {
+      isPopulated = false;
+      delegate = new SlowSparseNumberedLabeledGraph<>();
+      paramCalleeStatements = null;
+      returnStatements = null;
+      callSite2Statement = HashMapFactory.make();
+      callerParamStatements = HashMapFactory.make();
+      callerReturnStatements = HashMapFactory.make();
+      locationsHandled = HashSetFactory.make();
     }
   }
 
+  /** @return the number of statements computed so far, without computing any more */
+  int getNumberOfStatementsComputed() {
+    return delegate.getNumberOfNodes();
+  }
+
+  /** @return the statements computed so far, without computing any more */
+  Iterator<Statement> iterateStatementsComputed() {
+    return delegate.iterator();
+  }
+
   private void createScalarEdges(
       ControlDependenceOptions cOptions, IR ir, Map<SSAInstruction, Integer> instructionIndices) {
     createScalarDataDependenceEdges(ir, instructionIndices);
@@ -891,13 +929,15 @@ public class PDG<T extends InstanceKey> implements NumberedLabeledGraph<Statemen
 
   /** Create all nodes in this PDG. Each node is a Statement. */
   private void createNodes(Map<CGNode, OrdinalSet<PointerKey>> ref, IR ir) {
+    // callee params come first, since getParamCalleeStatements() may create them before the rest;
+    // this way, statements are numbered the same whenever the PDG is populated
+    createCalleeParams();
 
     if (ir != null) {
       createNormalStatements(ir, ref);
       createSpecialStatements(ir);
     }
 
-    createCalleeParams();
     createReturnStatements();
 
     delegate.addNode(new MethodEntryStatement(node));
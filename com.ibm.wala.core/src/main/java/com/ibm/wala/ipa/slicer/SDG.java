@@ -21,6 +21,7 @@ import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
 import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
 import com.ibm.wala.ipa.slicer.Statement.Kind;
+import com.ibm.wala.ssa.CacheStatistics;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
 import com.ibm.wala.types.MethodReference;
@@ -45,13 +46,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * System dependence graph.
  *
- * <p>An SDG comprises a set of PDGs, one for each method. We compute these lazily.
+ * <p>An SDG comprises a set of PDGs, one for each method. We compute these lazily, and within each
+ * PDG, compute heap data dependences only for the locations queried. By default, PDGs are kept once
+ * computed; {@link #setPDGCacheSize(int)} bounds the number kept, so that slicing in a large call
+ * graph touches only as much memory as the cache allows. Released PDGs are recomputed on demand.
  *
  * <p>Prototype implementation. Not efficient.
  */
@@ -75,6 +80,18 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
   /** keeps track of PDG for each call graph node */
   private final Map<CGNode, PDG<T>> pdgMap = HashMapFactory.make();
 
+  /** PDGs that may hold computed statements, from least to most recently used */
+  private final LinkedHashMap<CGNode, PDG<T>> cachedPDGs = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** the maximum number of PDGs in {@link #cachedPDGs} */
+  private int pdgCacheSize = Integer.MAX_VALUE;
+
+  private long pdgCacheHits = 0;
+
+  private long pdgCacheMisses = 0;
+
+  private long pdgCacheEvictions = 0;
+
   /** governs data dependence edges in the graph */
   private final DataDependenceOptions dOptions;
 
@@ -841,15 +858,81 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     PDG<T> result = pdgMap.get(node);
     if (result == null) {
       result = new PDG<>(node, pa, mod, ref, dOptions, cOptions, heapExclude, cg, modRef);
+      // clients such as the tabulation solver query PDGs directly, so let the PDG report when it
+      // is populated
+      result.setPopulateListener(this::pdgPopulated);
       pdgMap.put(node, result);
       // Let's not eagerly add nodes, shall we?
       // for (Iterator<? extends Statement> it = result.iterator(); it.hasNext();) {
       // nodeMgr.addNode(it.next());
       // }
+    } else if (cachedPDGs.get(node) != null) {
+      pdgCacheHits++;
     }
     return result;
   }
 
+  /** called whenever a PDG of this SDG computes its statements */
+  private void pdgPopulated(PDG<T> pdg) {
+    pdgCacheMisses++;
+    cachedPDGs.put(pdg.getCallGraphNode(), pdg);
+    evictPDGs();
+  }
+
+  /**
+   * release the least recently used PDGs until the cache is within its size, and forget the numbers
+   * of their statements
+   */
+  private void evictPDGs() {
+    Iterator<PDG<T>> it = cachedPDGs.values().iterator();
+    while (cachedPDGs.size() > pdgCacheSize) {
+      PDG<T> victim = it.next();
+      it.remove();
+      if (statementsAdded.remove(victim.getCallGraphNode())) {
+        for (Statement s : Iterator2Iterable.make(victim.iterateStatementsComputed())) {
+          nodeMgr.removeNode(s);
+        }
+      }
+      victim.release();
+      pdgCacheEvictions++;
+    }
+  }
+
+  /**
+   * Bound the number of PDGs whose statements and dependences are kept. When more are needed, the
+   * least recently used ones are released, to be recomputed if they are queried again. Slices are
+   * the same whatever the bound; a smaller one trades time for space. The statements of a released
+   * PDG are dropped from this graph too, and numbered anew when they are next needed.
+   *
+   * @throws IllegalArgumentException if n is not positive
+   */
+  public void setPDGCacheSize(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid PDG cache size: " + n);
+    }
+    pdgCacheSize = n;
+    evictPDGs();
+  }
+
+  /** @return the maximum number of PDGs kept, {@link Integer#MAX_VALUE} if unbounded */
+  public int getPDGCacheSize() {
+    return pdgCacheSize;
+  }
+
+  /**
+   * @return the counters of the PDG cache; a miss is a PDG computing its statements, for the first
+   *     time or after it was released, and the weight is the number of statements held by cached
+   *     PDGs
+   */
+  public CacheStatistics getPDGCacheStatistics() {
+    long statements = 0;
+    for (PDG<T> pdg : cachedPDGs.values()) {
+      statements += pdg.getNumberOfStatementsComputed();
+    }
+    return new CacheStatistics(
+        pdgCacheHits, pdgCacheMisses, pdgCacheEvictions, 0, 0, cachedPDGs.size(), statements);
+  }
+
   @Override
   public ControlDependenceOptions getCOptions() {
     return cOptions;
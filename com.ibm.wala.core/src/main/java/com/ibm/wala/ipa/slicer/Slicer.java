@@ -27,8 +27,10 @@ import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.OrdinalSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 /**
  * A demand-driven context-sensitive slicer.
@@ -217,6 +219,17 @@ public class Slicer {
     return computeSlice(sdg, ss, true);
   }
 
+  /**
+   * Use the passed-in SDG
+   *
+   * @return the backward slice of each statement in ss
+   * @see BatchSlicer
+   */
+  public static Map<Statement, OrdinalSet<Statement>> computeBackwardSlices(
+      SDG<?> sdg, Collection<Statement> ss) throws IllegalArgumentException, CancelException {
+    return new BatchSlicer(sdg, true).slice(ss, null);
+  }
+
   /** @param ss a collection of statements of interest */
   protected static Collection<Statement> computeSlice(
       SDG<?> sdg, Collection<Statement> ss, boolean backward) throws CancelException {
@@ -45,6 +45,13 @@ public class AuxiliaryCache implements IAuxiliaryCache {
   /** number of items cached here. */
   private int nItems = 0;
 
+  private long hits = 0;
+
+  private long misses = 0;
+
+  /** number of items found to be reclaimed by the garbage collector */
+  private long evictions = 0;
+
   /*
    * @see com.ibm.wala.ssa.IAuxiliaryCache#wipe()
    */
@@ -68,6 +75,7 @@ public class AuxiliaryCache implements IAuxiliaryCache {
         Object val = e2.getValue();
         if (CacheReference.get(val) == null) {
           toRemove.add(key);
+          evictions++;
         }
       }
       for (Object object : toRemove) {
@@ -88,11 +96,13 @@ public class AuxiliaryCache implements IAuxiliaryCache {
     Pair<IMethod, Context> p = Pair.make(m, c);
     Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
     Object ref = methodMap.get(options);
-    if (ref == null || CacheReference.get(ref) == null) {
-      return null;
+    Object result = CacheReference.get(ref);
+    if (result == null) {
+      misses++;
     } else {
-      return CacheReference.get(ref);
+      hits++;
     }
+    return result;
   }
 
   /*
@@ -119,4 +129,14 @@ public class AuxiliaryCache implements IAuxiliaryCache {
   public void invalidate(IMethod method, Context c) {
     dictionary.remove(Pair.make(method, c));
   }
+
+  @Override
+  public synchronized CacheStatistics getStatistics() {
+    // not nItems, which counts insertions since the last reset; some entries may be cleared already
+    int size = 0;
+    for (Map<SSAOptions, Object> methodMap : dictionary.values()) {
+      size += methodMap.size();
+    }
+    return new CacheStatistics(hits, misses, evictions, 0, 0, size, -1);
+  }
 }
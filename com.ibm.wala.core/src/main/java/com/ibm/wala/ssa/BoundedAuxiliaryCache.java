@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * An {@link IAuxiliaryCache} with an explicit budget, as an alternative to the soft references of
+ * {@link AuxiliaryCache}. Values are held strongly until the number of entries or their total
+ * estimated weight exceeds the budget, at which point the least recently used entries are evicted.
+ *
+ * <p>With {@link EvictionPolicy#TINY_LFU}, a new entry that would force an eviction is only
+ * admitted if it has been looked up more often recently than the entry it would replace; this keeps
+ * the IRs of frequently analyzed methods cached when many methods are visited once.
+ *
+ * <p>Evicted values may be handed to a {@link SpillStore} instead of being dropped, and are
+ * restored from it on a later miss; a {@link SerializedIRSpillStore} keeps evicted IRs in encoded
+ * form.
+ */
+public class BoundedAuxiliaryCache implements IAuxiliaryCache {
+
+  /** How to choose which entries leave a full cache */
+  public enum EvictionPolicy {
+    /** always admit new entries, evicting the least recently used ones */
+    LRU,
+    /** admit a new entry only if it is used more frequently than the entry it would evict */
+    TINY_LFU
+  }
+
+  /**
+   * A second level for evicted values, e.g. in a more compact form. Implementations must tolerate
+   * values they cannot represent, by dropping them.
+   */
+  public interface SpillStore {
+
+    /** keep a value evicted from the cache */
+    void spill(IMethod m, Context c, SSAOptions options, Object aux);
+
+    /** @return a value previously spilled for the given key, or null if there is none */
+    Object restore(IMethod m, Context c, SSAOptions options);
+
+    /** forget all values spilled for a method */
+    void invalidate(IMethod m, Context c);
+
+    /** forget all spilled values */
+    void wipe();
+  }
+
+  private static final class Key {
+    private final IMethod method;
+
+    private final Context context;
+
+    private final SSAOptions options;
+
+    Key(IMethod method, Context context, SSAOptions options) {
+      this.method = method;
+      this.context = context;
+      this.options = options;
+    }
+
+    @Override
+    public int hashCode() {
+      return method.hashCode() * 7919 + context.hashCode() * 31 + options.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return method.equals(other.method)
+          && context.equals(other.context)
+          && options.equals(other.options);
+    }
+  }
+
+  private static final class Entry {
+    private final Object value;
+
+    private final long weight;
+
+    Entry(Object value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /** entries, from least to most recently used */
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final int maxEntries;
+
+  private final long maxWeight;
+
+  private final ToLongFunction<Object> weigher;
+
+  private final FrequencySketch sketch;
+
+  private final SpillStore spillStore;
+
+  private long weight = 0;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  private long evictions = 0;
+
+  private long spills = 0;
+
+  private long restores = 0;
+
+  /**
+   * @param maxEntries the maximum number of values to cache
+   * @param maxWeight the maximum total weight of the cached values
+   * @param weigher estimates the weight of a value, e.g. {@link #estimateBytes(Object)}
+   * @param policy how to choose the entries to evict
+   * @param spillStore where to put evicted values, e.g. a {@link SerializedIRSpillStore}, or null
+   *     to drop them
+   * @throws IllegalArgumentException if maxEntries or maxWeight is not positive, or weigher or
+   *     policy is null
+   */
+  public BoundedAuxiliaryCache(
+      int maxEntries,
+      long maxWeight,
+      ToLongFunction<Object> weigher,
+      EvictionPolicy policy,
+      SpillStore spillStore) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("invalid maxEntries: " + maxEntries);
+    }
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("invalid maxWeight: " + maxWeight);
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("null weigher");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("null policy");
+    }
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.sketch = policy == EvictionPolicy.TINY_LFU ? new FrequencySketch(maxEntries) : null;
+    this.spillStore = spillStore;
+  }
+
+  /** A least-recently-used cache holding at most maxEntries values */
+  public BoundedAuxiliaryCache(int maxEntries) {
+    this(maxEntries, Long.MAX_VALUE, x -> 1, EvictionPolicy.LRU, null);
+  }
+
+  /**
+   * A rough estimate of the heap footprint of an {@link IR} or {@link DefUse}, in bytes, for use as
+   * a weigher. Other values weigh 1.
+   */
+  public static long estimateBytes(Object aux) {
+    if (aux instanceof IR) {
+      IR ir = (IR) aux;
+      return 64L * ir.getInstructions().length
+          + 32L * ir.getSymbolTable().getMaxValueNumber()
+          + 128L * ir.getControlFlowGraph().getNumberOfNodes();
+    } else if (aux instanceof DefUse) {
+      return 48L * ((DefUse) aux).allInstructions.size();
+    } else {
+      return 1;
+    }
+  }
+
+  @Override
+  public synchronized Object find(IMethod m, Context c, SSAOptions options) {
+    Key key = new Key(m, c, options);
+    if (sketch != null) {
+      sketch.increment(key.hashCode());
+    }
+    Entry e = entries.get(key);
+    if (e != null) {
+      hits++;
+      return e.value;
+    }
+    misses++;
+    if (spillStore != null) {
+      Object aux = spillStore.restore(m, c, options);
+      if (aux != null) {
+        restores++;
+        insert(key, aux);
+        return aux;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    insert(new Key(m, c, options), aux);
+  }
+
+  private void insert(Key key, Object aux) {
+    Entry e = new Entry(aux, weigher.applyAsLong(aux));
+    Entry old = entries.remove(key);
+    if (old != null) {
+      weight -= old.weight;
+    }
+    if (e.weight > maxWeight) {
+      evict(key, e);
+      return;
+    }
+    if (sketch != null && old == null && !entries.isEmpty() && isFullFor(e)) {
+      // decide admission before evicting anything, against the first entry that would go
+      Key victim = entries.keySet().iterator().next();
+      if (sketch.frequency(key.hashCode()) <= sketch.frequency(victim.hashCode())) {
+        // the victim is more valuable than the newcomer
+        evict(key, e);
+        return;
+      }
+    }
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while (isFullFor(e)) {
+      Map.Entry<Key, Entry> victim = it.next();
+      it.remove();
+      weight -= victim.getValue().weight;
+      evict(victim.getKey(), victim.getValue());
+    }
+    entries.put(key, e);
+    weight += e.weight;
+  }
+
+  /** @return true if e does not fit in the cache without evicting other entries */
+  private boolean isFullFor(Entry e) {
+    return entries.size() >= maxEntries || weight + e.weight > maxWeight;
+  }
+
+  private void evict(Key key, Entry e) {
+    evictions++;
+    if (spillStore != null) {
+      spills++;
+      spillStore.spill(key.method, key.context, key.options, e.value);
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(IMethod method, Context c) {
+    for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<Key, Entry> e = it.next();
+      if (e.getKey().method.equals(method) && e.getKey().context.equals(c)) {
+        it.remove();
+        weight -= e.getValue().weight;
+      }
+    }
+    if (spillStore != null) {
+      spillStore.invalidate(method, c);
+    }
+  }
+
+  @Override
+  public synchronized void wipe() {
+    entries.clear();
+    weight = 0;
+    if (spillStore != null) {
+      spillStore.wipe();
+    }
+  }
+
+  @Override
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hits, misses, evictions, spills, restores, entries.size(), weight);
+  }
+
+  /**
+   * A count-min sketch of how often keys have been looked up recently, with 4-bit counters. All
+   * counters are halved periodically, so old popularity fades.
+   */
+  private static final class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+
+    private final int[][] table = new int[4][];
+
+    private final int mask;
+
+    private final int sampleSize;
+
+    private int additions = 0;
+
+    FrequencySketch(int maxEntries) {
+      int width = Integer.highestOneBit(Math.max(16, Math.min(maxEntries, 1 << 24)) * 2 - 1);
+      for (int i = 0; i < table.length; i++) {
+        table[i] = new int[width];
+      }
+      mask = width - 1;
+      sampleSize = 10 * width;
+    }
+
+    /** one multiplier per row, so that keys colliding in one row are unlikely to collide in all */
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private static int index(int hash, int i) {
+      int h = hash * SEEDS[i];
+      return h ^ (h >>> 16);
+    }
+
+    int frequency(int hash) {
+      int result = MAX_COUNT;
+      for (int i = 0; i < table.length; i++) {
+        result = Math.min(result, table[i][index(hash, i) & mask]);
+      }
+      return result;
+    }
+
+    void increment(int hash) {
+      for (int i = 0; i < table.length; i++) {
+        int j = index(hash, i) & mask;
+        if (table[i][j] < MAX_COUNT) {
+          table[i][j]++;
+        }
+      }
+      if (++additions == sampleSize) {
+        for (int[] row : table) {
+          for (int j = 0; j < row.length; j++) {
+            row[j] >>>= 1;
+          }
+        }
+        additions /= 2;
+      }
+    }
+  }
+}
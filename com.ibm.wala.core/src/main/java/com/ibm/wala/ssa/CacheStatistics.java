@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+/** A snapshot of the counters kept by a cache, such as an {@link IAuxiliaryCache}. */
+public final class CacheStatistics {
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long evictions;
+
+  private final long spills;
+
+  private final long restores;
+
+  private final int size;
+
+  private final long weight;
+
+  public CacheStatistics(
+      long hits, long misses, long evictions, long spills, long restores, int size, long weight) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.spills = spills;
+    this.restores = restores;
+    this.size = size;
+    this.weight = weight;
+  }
+
+  /** @return the number of lookups that found a cached value */
+  public long getHits() {
+    return hits;
+  }
+
+  /** @return the number of lookups that found nothing, including those answered by a restore */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** @return the number of values dropped from the cache, whether or not they were spilled */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /** @return the number of evicted values handed to a spill store */
+  public long getSpills() {
+    return spills;
+  }
+
+  /** @return the number of misses answered from a spill store */
+  public long getRestores() {
+    return restores;
+  }
+
+  /** @return the number of values currently cached */
+  public int getSize() {
+    return size;
+  }
+
+  /** @return the estimated weight of the values currently cached, or -1 if not tracked */
+  public long getWeight() {
+    return weight;
+  }
+
+  /** @return the fraction of lookups that were hits, or 0 if there were none */
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Override
+  public String toString() {
+    return "hits: "
+        + hits
+        + " misses: "
+        + misses
+        + " evictions: "
+        + evictions
+        + " spills: "
+        + spills
+        + " restores: "
+        + restores
+        + " size: "
+        + size
+        + " weight: "
+        + weight;
+  }
+}
@@ -13,7 +13,13 @@ package com.ibm.wala.ssa;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 
-interface IAuxiliaryCache {
+/**
+ * A cache for IRs or auxiliary information derived from them, as used by {@link SSACache}.
+ *
+ * @see AuxiliaryCache
+ * @see BoundedAuxiliaryCache
+ */
+public interface IAuxiliaryCache {
 
   /** The existence of this is unfortunate. */
   void wipe();
@@ -35,4 +41,7 @@ interface IAuxiliaryCache {
 
   /** invalidate all cached information about a method */
   void invalidate(IMethod method, Context c);
+
+  /** @return the current values of this cache's counters */
+  CacheStatistics getStatistics();
 }
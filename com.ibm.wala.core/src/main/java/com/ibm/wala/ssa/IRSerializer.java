@@ -0,0 +1,1043 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JavaLanguage;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ShrikeIRFactory;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrike.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrike.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrike.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrike.shrikeBT.InvokeDynamicInstruction;
+import com.ibm.wala.shrike.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.SSACFG.ExceptionHandlerBasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntPair;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of the {@link IR}s built by {@link ShrikeIRFactory}, so that they can
+ * be kept, e.g. in an {@link IRStore}, and later restored without running SSA construction again.
+ *
+ * <p>The encoding covers the instruction array, the symbol table, the phi, pi and catch
+ * instructions of each basic block, and the local variable map. The control-flow graph is rebuilt
+ * from the bytecode when decoding, which is cheap; only its edges are recorded, since exceptional
+ * edges depend on the class hierarchy, and an IR is not restored if the edges no longer match.
+ * Integers are written in a variable-length form, and each string or type is written in full only
+ * once per IR.
+ *
+ * <p>Only IRs of Java bytecode methods can be encoded.
+ */
+public class IRSerializer {
+
+  /** bump this whenever the encoding changes */
+  static final int VERSION = 1;
+
+  // kinds of value numbers in the symbol table
+  private static final int SYMBOL = 0;
+  private static final int CONSTANT = 1;
+  private static final int PHI = 2;
+
+  // kinds of constants
+  private static final int NULL = 0;
+  private static final int BOOLEAN = 1;
+  private static final int INTEGER = 2;
+  private static final int LONG = 3;
+  private static final int FLOAT = 4;
+  private static final int DOUBLE = 5;
+  private static final int STRING = 6;
+
+  // kinds of instructions
+  private static final int NONE = 0;
+  private static final int ARRAY_LENGTH = 1;
+  private static final int ARRAY_LOAD = 2;
+  private static final int ARRAY_STORE = 3;
+  private static final int BINARY_OP = 4;
+  private static final int CHECK_CAST = 5;
+  private static final int COMPARISON = 6;
+  private static final int CONDITIONAL_BRANCH = 7;
+  private static final int CONVERSION = 8;
+  private static final int GET = 9;
+  private static final int GOTO = 10;
+  private static final int INSTANCEOF = 11;
+  private static final int INVOKE = 12;
+  private static final int LOAD_METADATA = 13;
+  private static final int MONITOR = 14;
+  private static final int NEW = 15;
+  private static final int PUT = 16;
+  private static final int RETURN = 17;
+  private static final int SWITCH = 18;
+  private static final int THROW = 19;
+  private static final int UNARY_OP = 20;
+
+  private IRSerializer() {}
+
+  /**
+   * @return the encoded form of ir, or null if ir contains something this encoding does not cover
+   * @throws IllegalArgumentException if ir is null
+   */
+  public static byte[] encode(IR ir) {
+    if (ir == null) {
+      throw new IllegalArgumentException("null ir");
+    }
+    try {
+      Writer w = new Writer();
+      encode(ir, w);
+      return w.toByteArray();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Rebuild an IR from its encoded form.
+   *
+   * @param method the method whose IR was encoded
+   * @param options the options the IR was built with
+   * @param data as returned by {@link #encode(IR)}
+   * @return the IR, or null if data is damaged or does not fit the bytecode of method
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public static IR decode(IBytecodeMethod<IInstruction> method, SSAOptions options, byte[] data) {
+    if (method == null) {
+      throw new IllegalArgumentException("null method");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("null options");
+    }
+    if (data == null) {
+      throw new IllegalArgumentException("null data");
+    }
+    try {
+      return decode(method, options, new Reader(method.getClassHierarchy(), data));
+    } catch (IOException | InvalidClassFileException | IllegalArgumentException e) {
+      // damaged data just means the IR must be built again
+      return null;
+    }
+  }
+
+  private static IOException unsupported(Object o) {
+    return new IOException("cannot encode " + o);
+  }
+
+  private static void encode(IR ir, Writer w) throws IOException {
+    IMethod method = ir.getMethod();
+    if (!(method instanceof IBytecodeMethod) || method.isWalaSynthetic()) {
+      throw unsupported(method);
+    }
+    SSAIndirectionData<?> indirectionData = ir.getIndirectionData();
+    if (indirectionData != null && !indirectionData.getNames().isEmpty()) {
+      throw unsupported(indirectionData);
+    }
+    w.writeInt(VERSION);
+
+    SymbolTable symbolTable = ir.getSymbolTable();
+    int nParams = symbolTable.getNumberOfParameters();
+    int maxValueNumber = symbolTable.getMaxValueNumber();
+    w.writeInt(nParams);
+    w.writeInt(maxValueNumber);
+    for (int vn = 1; vn <= maxValueNumber; vn++) {
+      Value v = symbolTable.getValue(vn);
+      if (vn <= nParams) {
+        if (v != null) {
+          throw unsupported(v);
+        }
+      } else if (v == null) {
+        w.writeInt(SYMBOL);
+      } else if (v instanceof ConstantValue) {
+        w.writeInt(CONSTANT);
+        writeConstant(w, ((ConstantValue) v).getValue());
+      } else if (v instanceof PhiValue) {
+        SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+        if (phi.getDef() != vn) {
+          throw unsupported(phi);
+        }
+        w.writeInt(PHI);
+        w.writeInts(uses(phi));
+      } else {
+        throw unsupported(v);
+      }
+    }
+
+    SSAInstruction[] instructions = ir.getInstructions();
+    w.writeInt(instructions.length);
+    for (int i = 0; i < instructions.length; i++) {
+      if (instructions[i] == null) {
+        w.writeInt(NONE);
+      } else if (instructions[i].iIndex() != i) {
+        throw unsupported(instructions[i]);
+      } else {
+        writeInstruction(w, instructions[i]);
+      }
+    }
+
+    SSACFG cfg = ir.getControlFlowGraph();
+    w.writeInt(cfg.getNumberOfNodes());
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      w.writeInts(numbers(cfg.getNormalSuccessors(bb)));
+      w.writeInts(numbers(cfg.getExceptionalSuccessors(bb)));
+      writePhis(w, symbolTable, bb.getStackSlotPhis());
+      writePhis(w, symbolTable, bb.getLocalPhis());
+      List<SSAPiInstruction> pis = new ArrayList<>();
+      for (Iterator<SSAPiInstruction> it = bb.iteratePis(); it.hasNext(); ) {
+        pis.add(it.next());
+      }
+      w.writeInt(pis.size());
+      for (SSAPiInstruction pi : pis) {
+        SSAInstruction cause = pi.getCause();
+        if (pi.iIndex() != SSAInstruction.NO_INDEX
+            || (cause != null
+                && (cause.iIndex() < 0
+                    || cause.iIndex() >= instructions.length
+                    || instructions[cause.iIndex()] != cause))) {
+          throw unsupported(pi);
+        }
+        w.writeInt(pi.getDef());
+        w.writeInt(pi.getVal());
+        w.writeInt(pi.getPiBlock());
+        w.writeInt(pi.getSuccessor());
+        w.writeInt(cause == null ? -1 : cause.iIndex());
+      }
+      if (bb instanceof ExceptionHandlerBasicBlock) {
+        SSAGetCaughtExceptionInstruction s =
+            ((ExceptionHandlerBasicBlock) bb).getCatchInstruction();
+        w.writeInt(s == null ? -1 : s.getDef());
+      }
+    }
+
+    IR.SSA2LocalMap localMap = ir.getLocalMap();
+    if (localMap == null) {
+      w.writeBoolean(false);
+    } else if (localMap instanceof SSABuilder.SSA2LocalMap) {
+      w.writeBoolean(true);
+      IntPair[] localStoreMap = ((SSABuilder.SSA2LocalMap) localMap).getLocalStoreMap();
+      w.writeInt(localStoreMap.length);
+      for (IntPair p : localStoreMap) {
+        w.writeBoolean(p != null);
+        if (p != null) {
+          w.writeInt(p.getX());
+          w.writeInt(p.getY());
+        }
+      }
+      int[][] block2LocalState = ((SSABuilder.SSA2LocalMap) localMap).getBlock2LocalState();
+      w.writeInt(block2LocalState.length);
+      for (int[] locals : block2LocalState) {
+        w.writeInts(locals);
+      }
+    } else {
+      throw unsupported(localMap);
+    }
+  }
+
+  private static IR decode(IBytecodeMethod<IInstruction> method, SSAOptions options, Reader r)
+      throws IOException, InvalidClassFileException {
+    if (r.readInt() != VERSION) {
+      throw new IOException("wrong version");
+    }
+    IInstruction[] shrikeInstructions = method.getInstructions();
+
+    int nParams = r.readInt();
+    if (nParams != method.getNumberOfParameters()) {
+      throw new IOException("wrong number of parameters: " + nParams);
+    }
+    SymbolTable symbolTable = new SymbolTable(nParams);
+    int maxValueNumber = r.readInt();
+    for (int vn = nParams + 1; vn <= maxValueNumber; vn++) {
+      int v;
+      switch (r.readInt()) {
+        case SYMBOL:
+          v = symbolTable.newSymbol();
+          break;
+        case CONSTANT:
+          v = symbolTable.getOtherConstant(readConstant(r));
+          break;
+        case PHI:
+          v = symbolTable.newPhi(r.readInts());
+          break;
+        default:
+          throw new IOException("bad value kind for " + vn);
+      }
+      if (v != vn) {
+        throw new IOException("bad value " + vn);
+      }
+    }
+
+    final SSAInstruction[] instructions = new SSAInstruction[r.readInt()];
+    if (instructions.length != shrikeInstructions.length) {
+      throw new IOException("wrong number of instructions: " + instructions.length);
+    }
+    ShrikeCFG shrikeCFG = ShrikeCFG.make(method);
+    SSACFG cfg = new SSACFG(method, shrikeCFG, instructions);
+    SSAInstructionFactory insts =
+        method.getDeclaringClass().getClassLoader().getInstructionFactory();
+    for (int i = 0; i < instructions.length; i++) {
+      instructions[i] = readInstruction(r, insts, i, shrikeInstructions[i]);
+    }
+
+    if (r.readInt() != cfg.getNumberOfNodes()) {
+      throw new IOException("wrong number of blocks");
+    }
+    for (int b = 0; b < cfg.getNumberOfNodes(); b++) {
+      SSACFG.BasicBlock bb = cfg.getNode(b);
+      // exceptional edges depend on the class hierarchy, which may have changed
+      if (!Arrays.equals(r.readInts(), numbers(cfg.getNormalSuccessors(bb)))
+          || !Arrays.equals(r.readInts(), numbers(cfg.getExceptionalSuccessors(bb)))) {
+        throw new IOException("control flow differs at block " + b);
+      }
+      bb.setPhis(readPhis(r, symbolTable), readPhis(r, symbolTable));
+      int nPis = r.readInt();
+      for (int i = 0; i < nPis; i++) {
+        int def = r.readInt();
+        int val = r.readInt();
+        int piBlock = r.readInt();
+        int successor = r.readInt();
+        int cause = r.readInt();
+        SSAPiInstruction pi =
+            insts.PiInstruction(
+                SSAInstruction.NO_INDEX,
+                def,
+                val,
+                piBlock,
+                successor,
+                cause == -1 ? null : element(instructions, cause));
+        bb.addPiForRefAndPath(val, shrikeCFG.getNode(successor), pi);
+      }
+      if (bb instanceof ExceptionHandlerBasicBlock) {
+        int exception = r.readInt();
+        if (exception != -1) {
+          ((ExceptionHandlerBasicBlock) bb)
+              .setCatchInstruction(
+                  insts.GetCaughtExceptionInstruction(
+                      SSAInstruction.NO_INDEX, bb.getNumber(), exception));
+        }
+      }
+    }
+
+    final SSABuilder.SSA2LocalMap localMap;
+    if (r.readBoolean()) {
+      IntPair[] localStoreMap = new IntPair[r.readInt()];
+      for (int i = 0; i < localStoreMap.length; i++) {
+        if (r.readBoolean()) {
+          localStoreMap[i] = new IntPair(r.readInt(), r.readInt());
+        }
+      }
+      int[][] block2LocalState = new int[r.readInt()][];
+      for (int i = 0; i < block2LocalState.length; i++) {
+        block2LocalState[i] = r.readInts();
+      }
+      localMap = new SSABuilder.SSA2LocalMap(shrikeCFG, localStoreMap, block2LocalState);
+    } else {
+      localMap = null;
+    }
+
+    return new IR(method, instructions, symbolTable, cfg, options) {
+      {
+        setupLocationMap();
+      }
+
+      @Override
+      protected String instructionPosition(int instructionIndex) {
+        try {
+          int bcIndex = method.getBytecodeIndex(instructionIndex);
+          int lineNumber = method.getLineNumber(bcIndex);
+
+          if (lineNumber == -1) {
+            return "";
+          } else {
+            return "(line " + lineNumber + ')';
+          }
+        } catch (InvalidClassFileException e) {
+          return "";
+        }
+      }
+
+      @Override
+      protected SSA2LocalMap getLocalMap() {
+        return localMap;
+      }
+
+      /** only IRs without indirect uses are encoded, so there is nothing to provide */
+      @Override
+      protected <T extends SSAIndirectionData.Name> SSAIndirectionData<T> getIndirectionData() {
+        return null;
+      }
+    };
+  }
+
+  private static int[] numbers(Collection<ISSABasicBlock> blocks) {
+    int[] result = new int[blocks.size()];
+    int i = 0;
+    for (ISSABasicBlock b : blocks) {
+      result[i++] = b.getNumber();
+    }
+    return result;
+  }
+
+  private static int[] uses(SSAInstruction s) {
+    int[] result = new int[s.getNumberOfUses()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = s.getUse(i);
+    }
+    return result;
+  }
+
+  private static void writePhis(Writer w, SymbolTable symbolTable, SSAPhiInstruction[] phis)
+      throws IOException {
+    if (phis == null) {
+      w.writeInt(-1);
+      return;
+    }
+    w.writeInt(phis.length);
+    for (SSAPhiInstruction phi : phis) {
+      if (phi == null) {
+        w.writeInt(0);
+      } else if (symbolTable.getValue(phi.getDef()) instanceof PhiValue
+          && symbolTable.getPhiValue(phi.getDef()).getPhiInstruction() == phi) {
+        w.writeInt(phi.getDef());
+      } else {
+        throw unsupported(phi);
+      }
+    }
+  }
+
+  private static SSAPhiInstruction[] readPhis(Reader r, SymbolTable symbolTable)
+      throws IOException {
+    int n = r.readInt();
+    if (n == -1) {
+      return null;
+    }
+    SSAPhiInstruction[] result = new SSAPhiInstruction[n];
+    for (int i = 0; i < n; i++) {
+      int vn = r.readInt();
+      if (vn != 0) {
+        if (vn < 0
+            || vn > symbolTable.getMaxValueNumber()
+            || !(symbolTable.getValue(vn) instanceof PhiValue)) {
+          throw new IOException("bad phi " + vn);
+        }
+        result[i] = symbolTable.getPhiValue(vn).getPhiInstruction();
+      }
+    }
+    return result;
+  }
+
+  private static void writeConstant(Writer w, Object o) throws IOException {
+    if (o == null) {
+      w.writeInt(NULL);
+    } else if (o instanceof Boolean) {
+      w.writeInt(BOOLEAN);
+      w.writeBoolean((Boolean) o);
+    } else if (o instanceof Integer) {
+      w.writeInt(INTEGER);
+      w.writeInt((Integer) o);
+    } else if (o instanceof Long) {
+      w.writeInt(LONG);
+      w.writeLong((Long) o);
+    } else if (o instanceof Float) {
+      w.writeInt(FLOAT);
+      w.writeInt(Float.floatToRawIntBits((Float) o));
+    } else if (o instanceof Double) {
+      w.writeInt(DOUBLE);
+      w.writeLong(Double.doubleToRawLongBits((Double) o));
+    } else if (o instanceof String) {
+      w.writeInt(STRING);
+      w.writeString((String) o);
+    } else {
+      throw unsupported(o);
+    }
+  }
+
+  private static Object readConstant(Reader r) throws IOException {
+    switch (r.readInt()) {
+      case NULL:
+        return null;
+      case BOOLEAN:
+        return r.readBoolean();
+      case INTEGER:
+        return r.readInt();
+      case LONG:
+        return r.readLong();
+      case FLOAT:
+        return Float.intBitsToFloat(r.readInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(r.readLong());
+      case STRING:
+        return r.readString();
+      default:
+        throw new IOException("bad constant");
+    }
+  }
+
+  private static void writeInstruction(Writer w, SSAInstruction s) throws IOException {
+    if (s instanceof SSAArrayLengthInstruction) {
+      w.writeInt(ARRAY_LENGTH);
+      w.writeInt(s.getDef());
+      w.writeInt(((SSAArrayLengthInstruction) s).getArrayRef());
+    } else if (s instanceof SSAArrayLoadInstruction) {
+      SSAArrayLoadInstruction load = (SSAArrayLoadInstruction) s;
+      w.writeInt(ARRAY_LOAD);
+      w.writeInt(load.getDef());
+      w.writeInt(load.getArrayRef());
+      w.writeInt(load.getIndex());
+      w.writeType(load.getElementType());
+    } else if (s instanceof SSAArrayStoreInstruction) {
+      SSAArrayStoreInstruction store = (SSAArrayStoreInstruction) s;
+      w.writeInt(ARRAY_STORE);
+      w.writeInt(store.getArrayRef());
+      w.writeInt(store.getIndex());
+      w.writeInt(store.getValue());
+      w.writeType(store.getElementType());
+    } else if (s instanceof SSABinaryOpInstruction) {
+      SSABinaryOpInstruction binop = (SSABinaryOpInstruction) s;
+      w.writeInt(BINARY_OP);
+      IBinaryOpInstruction.IOperator operator = binop.getOperator();
+      if (operator instanceof IBinaryOpInstruction.Operator) {
+        w.writeInt(0);
+        w.writeInt(((IBinaryOpInstruction.Operator) operator).ordinal());
+      } else if (operator instanceof IShiftInstruction.Operator) {
+        w.writeInt(1);
+        w.writeInt(((IShiftInstruction.Operator) operator).ordinal());
+      } else {
+        throw unsupported(operator);
+      }
+      w.writeInt(binop.getDef());
+      w.writeInt(binop.getUse(0));
+      w.writeInt(binop.getUse(1));
+      w.writeBoolean(binop.mayBeIntegerOp());
+    } else if (s instanceof SSACheckCastInstruction) {
+      SSACheckCastInstruction cast = (SSACheckCastInstruction) s;
+      w.writeInt(CHECK_CAST);
+      w.writeInt(cast.getResult());
+      w.writeInt(cast.getVal());
+      TypeReference[] types = cast.getDeclaredResultTypes();
+      w.writeInt(types.length);
+      for (TypeReference t : types) {
+        w.writeType(t);
+      }
+      w.writeBoolean(cast.isPEI());
+    } else if (s instanceof SSAComparisonInstruction) {
+      w.writeInt(COMPARISON);
+      w.writeInt(((SSAComparisonInstruction) s).getOperator().ordinal());
+      w.writeInt(s.getDef());
+      w.writeInt(s.getUse(0));
+      w.writeInt(s.getUse(1));
+    } else if (s instanceof SSAConditionalBranchInstruction) {
+      SSAConditionalBranchInstruction branch = (SSAConditionalBranchInstruction) s;
+      if (!(branch.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+        throw unsupported(branch.getOperator());
+      }
+      w.writeInt(CONDITIONAL_BRANCH);
+      w.writeInt(((IConditionalBranchInstruction.Operator) branch.getOperator()).ordinal());
+      w.writeType(branch.getType());
+      w.writeInt(branch.getUse(0));
+      w.writeInt(branch.getUse(1));
+      w.writeInt(branch.getTarget());
+    } else if (s instanceof SSAConversionInstruction) {
+      SSAConversionInstruction conversion = (SSAConversionInstruction) s;
+      w.writeInt(CONVERSION);
+      w.writeInt(conversion.getDef());
+      w.writeInt(conversion.getUse(0));
+      w.writeType(conversion.getFromType());
+      w.writeType(conversion.getToType());
+    } else if (s instanceof SSAGetInstruction) {
+      SSAGetInstruction get = (SSAGetInstruction) s;
+      w.writeInt(GET);
+      w.writeBoolean(get.isStatic());
+      w.writeInt(get.getDef());
+      if (!get.isStatic()) {
+        w.writeInt(get.getRef());
+      }
+      w.writeField(get.getDeclaredField());
+    } else if (s instanceof SSAGotoInstruction) {
+      w.writeInt(GOTO);
+      w.writeInt(((SSAGotoInstruction) s).getTarget());
+    } else if (s instanceof SSAInstanceofInstruction) {
+      SSAInstanceofInstruction instanceOf = (SSAInstanceofInstruction) s;
+      w.writeInt(INSTANCEOF);
+      w.writeInt(instanceOf.getDef());
+      w.writeInt(instanceOf.getRef());
+      w.writeType(instanceOf.getCheckedType());
+    } else if (s instanceof SSAInvokeInstruction) {
+      SSAInvokeInstruction call = (SSAInvokeInstruction) s;
+      CallSiteReference site = call.getCallSite();
+      if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+        throw unsupported(site);
+      }
+      w.writeInt(INVOKE);
+      // the bootstrap method is taken from the bytecode when decoding
+      w.writeBoolean(call instanceof SSAInvokeDynamicInstruction);
+      w.writeInt(call.getNumberOfReturnValues() == 0 ? -1 : call.getReturnValue(0));
+      w.writeInts(uses(call));
+      w.writeInt(call.getException());
+      w.writeInt(site.getProgramCounter());
+      w.writeMethod(site.getDeclaredTarget());
+      w.writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      SSALoadMetadataInstruction load = (SSALoadMetadataInstruction) s;
+      if (!(load.getToken() instanceof TypeReference)) {
+        throw unsupported(load.getToken());
+      }
+      w.writeInt(LOAD_METADATA);
+      w.writeInt(load.getDef());
+      w.writeType(load.getType());
+      w.writeType((TypeReference) load.getToken());
+    } else if (s instanceof SSAMonitorInstruction) {
+      SSAMonitorInstruction monitor = (SSAMonitorInstruction) s;
+      w.writeInt(MONITOR);
+      w.writeInt(monitor.getRef());
+      w.writeBoolean(monitor.isMonitorEnter());
+    } else if (s instanceof SSANewInstruction) {
+      SSANewInstruction alloc = (SSANewInstruction) s;
+      NewSiteReference site = alloc.getNewSite();
+      w.writeInt(NEW);
+      w.writeInt(alloc.getDef());
+      w.writeInt(site.getProgramCounter());
+      w.writeType(site.getDeclaredType());
+      if (site.getDeclaredType().isArrayType()) {
+        w.writeInts(uses(alloc));
+        // see ShrikeIRFactory, which marks array allocations that cannot throw
+        w.writeBoolean(alloc.getExceptionTypes() == JavaLanguage.getNewSafeArrayExceptions());
+      }
+    } else if (s instanceof SSAPutInstruction) {
+      SSAPutInstruction put = (SSAPutInstruction) s;
+      w.writeInt(PUT);
+      w.writeBoolean(put.isStatic());
+      if (!put.isStatic()) {
+        w.writeInt(put.getRef());
+      }
+      w.writeInt(put.getVal());
+      w.writeField(put.getDeclaredField());
+    } else if (s instanceof SSAReturnInstruction) {
+      SSAReturnInstruction ret = (SSAReturnInstruction) s;
+      w.writeInt(RETURN);
+      w.writeBoolean(ret.returnsVoid());
+      if (!ret.returnsVoid()) {
+        w.writeInt(ret.getResult());
+        w.writeBoolean(ret.returnsPrimitiveType());
+      }
+    } else if (s instanceof SSASwitchInstruction) {
+      SSASwitchInstruction sw = (SSASwitchInstruction) s;
+      w.writeInt(SWITCH);
+      w.writeInt(sw.getUse(0));
+      w.writeInt(sw.getDefault());
+      w.writeInts(sw.getCasesAndLabels());
+    } else if (s instanceof SSAThrowInstruction) {
+      w.writeInt(THROW);
+      w.writeInt(((SSAThrowInstruction) s).getException());
+    } else if (s instanceof SSAUnaryOpInstruction) {
+      SSAUnaryOpInstruction unop = (SSAUnaryOpInstruction) s;
+      if (!(unop.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+        throw unsupported(unop.getOpcode());
+      }
+      w.writeInt(UNARY_OP);
+      w.writeInt(((IUnaryOpInstruction.Operator) unop.getOpcode()).ordinal());
+      w.writeInt(unop.getDef());
+      w.writeInt(unop.getUse(0));
+    } else {
+      throw unsupported(s);
+    }
+  }
+
+  private static SSAInstruction readInstruction(
+      Reader r, SSAInstructionFactory insts, int i, IInstruction shrikeInstruction)
+      throws IOException {
+    switch (r.readInt()) {
+      case NONE:
+        return null;
+      case ARRAY_LENGTH:
+        return insts.ArrayLengthInstruction(i, r.readInt(), r.readInt());
+      case ARRAY_LOAD:
+        return insts.ArrayLoadInstruction(i, r.readInt(), r.readInt(), r.readInt(), r.readType());
+      case ARRAY_STORE:
+        return insts.ArrayStoreInstruction(i, r.readInt(), r.readInt(), r.readInt(), r.readType());
+      case BINARY_OP:
+        {
+          IBinaryOpInstruction.IOperator operator =
+              r.readInt() == 0
+                  ? element(IBinaryOpInstruction.Operator.values(), r.readInt())
+                  : element(IShiftInstruction.Operator.values(), r.readInt());
+          return insts.BinaryOpInstruction(
+              i, operator, false, false, r.readInt(), r.readInt(), r.readInt(), r.readBoolean());
+        }
+      case CHECK_CAST:
+        {
+          int result = r.readInt();
+          int val = r.readInt();
+          TypeReference[] types = new TypeReference[r.readInt()];
+          for (int j = 0; j < types.length; j++) {
+            types[j] = r.readType();
+          }
+          return insts.CheckCastInstruction(i, result, val, types, r.readBoolean());
+        }
+      case COMPARISON:
+        return insts.ComparisonInstruction(
+            i,
+            element(IComparisonInstruction.Operator.values(), r.readInt()),
+            r.readInt(),
+            r.readInt(),
+            r.readInt());
+      case CONDITIONAL_BRANCH:
+        return insts.ConditionalBranchInstruction(
+            i,
+            element(IConditionalBranchInstruction.Operator.values(), r.readInt()),
+            r.readType(),
+            r.readInt(),
+            r.readInt(),
+            r.readInt());
+      case CONVERSION:
+        return insts.ConversionInstruction(
+            i, r.readInt(), r.readInt(), r.readType(), r.readType(), false);
+      case GET:
+        return r.readBoolean()
+            ? insts.GetInstruction(i, r.readInt(), r.readField())
+            : insts.GetInstruction(i, r.readInt(), r.readInt(), r.readField());
+      case GOTO:
+        return insts.GotoInstruction(i, r.readInt());
+      case INSTANCEOF:
+        return insts.InstanceofInstruction(i, r.readInt(), r.readInt(), r.readType());
+      case INVOKE:
+        {
+          BootstrapMethod bootstrap = null;
+          if (r.readBoolean()) {
+            if (!(shrikeInstruction instanceof InvokeDynamicInstruction)) {
+              throw new IOException("no invokedynamic at " + i);
+            }
+            bootstrap = ((InvokeDynamicInstruction) shrikeInstruction).getBootstrap();
+          }
+          int result = r.readInt();
+          int[] params = r.readInts();
+          int exception = r.readInt();
+          CallSiteReference site =
+              CallSiteReference.make(
+                  r.readInt(),
+                  r.readMethod(),
+                  element(IInvokeInstruction.Dispatch.values(), r.readInt()));
+          return result == -1
+              ? insts.InvokeInstruction(i, params, exception, site, bootstrap)
+              : insts.InvokeInstruction(i, result, params, exception, site, bootstrap);
+        }
+      case LOAD_METADATA:
+        return insts.LoadMetadataInstruction(i, r.readInt(), r.readType(), r.readType());
+      case MONITOR:
+        return insts.MonitorInstruction(i, r.readInt(), r.readBoolean());
+      case NEW:
+        {
+          int result = r.readInt();
+          NewSiteReference site = NewSiteReference.make(r.readInt(), r.readType());
+          if (!site.getDeclaredType().isArrayType()) {
+            return insts.NewInstruction(i, result, site);
+          }
+          int[] params = r.readInts();
+          if (r.readBoolean()) {
+            return new SSANewInstruction(i, result, site, params) {
+              @Override
+              public Collection<TypeReference> getExceptionTypes() {
+                return JavaLanguage.getNewSafeArrayExceptions();
+              }
+            };
+          } else {
+            return insts.NewInstruction(i, result, site, params);
+          }
+        }
+      case PUT:
+        return r.readBoolean()
+            ? insts.PutInstruction(i, r.readInt(), r.readField())
+            : insts.PutInstruction(i, r.readInt(), r.readInt(), r.readField());
+      case RETURN:
+        return r.readBoolean()
+            ? insts.ReturnInstruction(i)
+            : insts.ReturnInstruction(i, r.readInt(), r.readBoolean());
+      case SWITCH:
+        return insts.SwitchInstruction(i, r.readInt(), r.readInt(), r.readInts());
+      case THROW:
+        return insts.ThrowInstruction(i, r.readInt());
+      case UNARY_OP:
+        return insts.UnaryOpInstruction(
+            i,
+            element(IUnaryOpInstruction.Operator.values(), r.readInt()),
+            r.readInt(),
+            r.readInt());
+      default:
+        throw new IOException("bad instruction at " + i);
+    }
+  }
+
+  private static <T> T element(T[] array, int i) throws IOException {
+    if (i < 0 || i >= array.length) {
+      throw new IOException("bad index " + i);
+    }
+    return array[i];
+  }
+
+  private static <T> T element(List<T> list, int i) throws IOException {
+    if (i < 0 || i >= list.size()) {
+      throw new IOException("bad index " + i);
+    }
+    return list.get(i);
+  }
+
+  /**
+   * Writes integers in zig-zag variable-length form, and strings and types via tables, so each is
+   * written in full only once
+   */
+  private static final class Writer {
+
+    private byte[] buf = new byte[256];
+
+    private int size = 0;
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private final Map<TypeReference, Integer> types = HashMapFactory.make();
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buf, size);
+    }
+
+    private void ensureCapacity(int n) {
+      if (size + n > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(2 * buf.length, size + n));
+      }
+    }
+
+    private void writeByte(int b) {
+      ensureCapacity(1);
+      buf[size++] = (byte) b;
+    }
+
+    void writeInt(int v) {
+      int z = (v << 1) ^ (v >> 31);
+      while ((z & ~0x7F) != 0) {
+        writeByte((z & 0x7F) | 0x80);
+        z >>>= 7;
+      }
+      writeByte(z);
+    }
+
+    void writeLong(long v) {
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        writeByte((int) (v >>> shift));
+      }
+    }
+
+    void writeBoolean(boolean b) {
+      writeByte(b ? 1 : 0);
+    }
+
+    void writeInts(int[] a) {
+      if (a == null) {
+        writeInt(-1);
+      } else {
+        writeInt(a.length);
+        for (int x : a) {
+          writeInt(x);
+        }
+      }
+    }
+
+    /** 0 for null, 1 for a new string, which follows, or 2 + the index of a string seen before */
+    void writeString(String s) {
+      if (s == null) {
+        writeInt(0);
+        return;
+      }
+      Integer index = strings.get(s);
+      if (index == null) {
+        writeInt(1);
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeInt(utf8.length);
+        ensureCapacity(utf8.length);
+        System.arraycopy(utf8, 0, buf, size, utf8.length);
+        size += utf8.length;
+        strings.put(s, strings.size());
+      } else {
+        writeInt(index + 2);
+      }
+    }
+
+    /** like {@link #writeString(String)} */
+    void writeType(TypeReference t) {
+      if (t == null) {
+        writeInt(0);
+        return;
+      }
+      Integer index = types.get(t);
+      if (index == null) {
+        writeInt(1);
+        writeString(t.getClassLoader().getName().toString());
+        writeString(t.getName().toString());
+        types.put(t, types.size());
+      } else {
+        writeInt(index + 2);
+      }
+    }
+
+    void writeMethod(MethodReference m) {
+      writeType(m.getDeclaringClass());
+      writeString(m.getSelector().toString());
+    }
+
+    void writeField(FieldReference f) {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+  }
+
+  /** Reads what a {@link Writer} wrote, resolving class loaders by name */
+  private static final class Reader {
+
+    private final byte[] data;
+
+    private int pos = 0;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final List<TypeReference> types = new ArrayList<>();
+
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    Reader(IClassHierarchy cha, byte[] data) {
+      this.data = data;
+      for (IClassLoader loader : cha.getLoaders()) {
+        loaders.put(loader.getReference().getName().toString(), loader.getReference());
+      }
+    }
+
+    private int readByte() throws IOException {
+      if (pos >= data.length) {
+        throw new IOException("truncated data");
+      }
+      return data[pos++] & 0xFF;
+    }
+
+    int readInt() throws IOException {
+      int z = 0;
+      for (int shift = 0; ; shift += 7) {
+        if (shift > 28) {
+          throw new IOException("bad integer");
+        }
+        int b = readByte();
+        z |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      return (z >>> 1) ^ -(z & 1);
+    }
+
+    long readLong() throws IOException {
+      long result = 0;
+      for (int i = 0; i < 8; i++) {
+        result = (result << 8) | readByte();
+      }
+      return result;
+    }
+
+    boolean readBoolean() throws IOException {
+      return readByte() != 0;
+    }
+
+    /** @return the next length, which must not exceed the remaining data */
+    private int readLength() throws IOException {
+      return checkLength(readInt());
+    }
+
+    private int checkLength(int n) throws IOException {
+      if (n < 0 || n > data.length - pos) {
+        throw new IOException("bad length " + n);
+      }
+      return n;
+    }
+
+    int[] readInts() throws IOException {
+      int n = readInt();
+      if (n == -1) {
+        return null;
+      }
+      int[] result = new int[checkLength(n)];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = readInt();
+      }
+      return result;
+    }
+
+    String readString() throws IOException {
+      int code = readInt();
+      if (code == 0) {
+        return null;
+      } else if (code == 1) {
+        int n = readLength();
+        String s = new String(data, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        strings.add(s);
+        return s;
+      } else {
+        return element(strings, code - 2);
+      }
+    }
+
+    TypeReference readType() throws IOException {
+      int code = readInt();
+      if (code == 0) {
+        return null;
+      } else if (code == 1) {
+        String loaderName = readString();
+        ClassLoaderReference loader = loaders.get(loaderName);
+        if (loader == null) {
+          throw new IOException("unknown loader " + loaderName);
+        }
+        TypeReference t = TypeReference.findOrCreate(loader, readString());
+        types.add(t);
+        return t;
+      } else {
+        return element(types, code - 2);
+      }
+    }
+
+    MethodReference readMethod() throws IOException {
+      TypeReference declaringClass = readType();
+      return MethodReference.findOrCreate(declaringClass, Selector.make(readString()));
+    }
+
+    FieldReference readField() throws IOException {
+      TypeReference declaringClass = readType();
+      String name = readString();
+      return FieldReference.findOrCreate(
+          declaringClass, Atom.findOrCreateUnicodeAtom(name), readType());
+    }
+  }
+}
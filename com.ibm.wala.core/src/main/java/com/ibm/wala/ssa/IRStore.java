@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.shrike.shrikeCT.ConstantPoolParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A directory of IRs encoded by {@link IRSerializer}, keyed by method and {@link SSAOptions}.
+ *
+ * <p>Keys also hash the raw bytecode and exception table of the method and the constant pool of its
+ * class, so an entry is never found for a method that changed since it was stored. Entries live in
+ * subdirectories named by the first two characters of their keys, to keep directories small.
+ */
+public class IRStore {
+
+  private static final String SUFFIX = ".ir";
+
+  private final File directory;
+
+  /** @throws IllegalArgumentException if directory is null */
+  public IRStore(File directory) {
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    this.directory = directory;
+  }
+
+  /**
+   * Compute the key for the IR of a method. Only IRs built with the default options are stored,
+   * since neither a {@link SSAPiNodePolicy} nor {@link SSAOptions.DefaultValues} can be identified
+   * across runs.
+   *
+   * @return the key, or null if the IR should not be stored
+   */
+  public static String computeKey(ShrikeCTMethod method, SSAOptions options) {
+    if (options.getPiNodePolicy() != null || options.getDefaultValues() != null) {
+      return null;
+    }
+    byte[] bytecodes = method.getBytecodes();
+    int[] handlers = method.getRawHandlers();
+    if (bytecodes == null || handlers == null) {
+      return null;
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    String header =
+        IRSerializer.VERSION
+            + " "
+            + method.getDeclaringClass().getClassLoader().getName()
+            + " "
+            + method.getReference().getSignature()
+            + "\n";
+    digest.update(header.getBytes(StandardCharsets.UTF_8));
+    digest.update(bytecodes);
+    ByteBuffer table = ByteBuffer.allocate(4 * handlers.length);
+    table.asIntBuffer().put(handlers);
+    digest.update(table);
+    // the bytecode refers to the constant pool by index, so its contents matter too
+    ConstantPoolParser cp = ((ShrikeClass) method.getDeclaringClass()).getReader().getCP();
+    digest.update(cp.getRawBytes(), cp.getRawOffset(), cp.getRawSize());
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+
+  private File getFile(String key) {
+    return new File(new File(directory, key.substring(0, 2)), key + SUFFIX);
+  }
+
+  /** @return the data stored for a key, or null if there is none or it cannot be read */
+  public byte[] read(String key) {
+    File file = getFile(key);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      return Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Store data for a key. The file is first written under a temporary name and then moved into
+   * place, so concurrent readers never see a partial entry.
+   */
+  public void write(String key, byte[] data) throws IOException {
+    File file = getFile(key);
+    File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("could not create directory " + dir);
+    }
+    File tmp = File.createTempFile(key, ".tmp", dir);
+    try {
+      Files.write(tmp.toPath(), data);
+      Files.move(
+          tmp.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp.toPath());
+    }
+  }
+}
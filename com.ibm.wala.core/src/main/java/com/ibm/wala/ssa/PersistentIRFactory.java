@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.core.util.warnings.Warning;
+import com.ibm.wala.core.util.warnings.Warnings;
+import com.ibm.wala.ipa.callgraph.Context;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link DefaultIRFactory} that keeps the IRs it builds for Java bytecode methods in an {@link
+ * IRStore}, and reloads them from there rather than running SSA construction again, e.g. for the
+ * library methods analyzed in every run.
+ */
+public class PersistentIRFactory extends DefaultIRFactory {
+
+  private final IRStore store;
+
+  private final AtomicInteger loaded = new AtomicInteger();
+
+  private final AtomicInteger stored = new AtomicInteger();
+
+  /** @param directory where to keep IRs; it is created if needed */
+  public PersistentIRFactory(File directory) {
+    this.store = new IRStore(directory);
+  }
+
+  @Override
+  public IR makeIR(IMethod method, Context c, SSAOptions options) throws IllegalArgumentException {
+    if (method == null) {
+      throw new IllegalArgumentException("method cannot be null");
+    }
+    if (method.isWalaSynthetic()
+        || !(method instanceof ShrikeCTMethod)
+        || !Language.JAVA.equals(method.getDeclaringClass().getClassLoader().getLanguage())) {
+      return super.makeIR(method, c, options);
+    }
+    ShrikeCTMethod m = (ShrikeCTMethod) method;
+    String key = IRStore.computeKey(m, options);
+    if (key == null) {
+      return super.makeIR(method, c, options);
+    }
+    byte[] data = store.read(key);
+    if (data != null) {
+      IR ir = IRSerializer.decode(m, options, data);
+      if (ir != null) {
+        loaded.incrementAndGet();
+        return ir;
+      }
+    }
+    IR ir = super.makeIR(method, c, options);
+    data = IRSerializer.encode(ir);
+    if (data != null) {
+      try {
+        store.write(key, data);
+        stored.incrementAndGet();
+      } catch (IOException e) {
+        Warnings.add(StoreFailure.create(method, e));
+      }
+    }
+    return ir;
+  }
+
+  /** @return the number of IRs read from the store rather than built */
+  public int getNumberOfLoadedIRs() {
+    return loaded.get();
+  }
+
+  /** @return the number of IRs built and written to the store */
+  public int getNumberOfStoredIRs() {
+    return stored.get();
+  }
+
+  /** A warning for when an IR could not be written to the store */
+  private static class StoreFailure extends Warning {
+
+    final IMethod method;
+
+    final IOException exception;
+
+    StoreFailure(IMethod method, IOException exception) {
+      super(Warning.MILD);
+      this.method = method;
+      this.exception = exception;
+    }
+
+    @Override
+    public String getMsg() {
+      return getClass().toString() + " : " + method + ' ' + exception;
+    }
+
+    public static StoreFailure create(IMethod method, IOException exception) {
+      return new StoreFailure(method, exception);
+    }
+  }
+}
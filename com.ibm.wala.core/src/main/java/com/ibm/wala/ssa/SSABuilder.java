@@ -991,7 +991,7 @@ public class SSABuilder extends AbstractIntStackMachine {
    * A logical mapping from &lt;pc, valueNumber&gt; -&gt; local number Note: make sure this class
    * remains static: this persists as part of the IR!!
    */
-  private static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
+  static class SSA2LocalMap implements com.ibm.wala.ssa.IR.SSA2LocalMap {
 
     private final ShrikeCFG shrikeCFG;
 
@@ -1017,6 +1017,21 @@ public class SSABuilder extends AbstractIntStackMachine {
       block2LocalState = new int[nBlocks][];
     }
 
+    /** Restore a map previously taken apart by {@link IRSerializer} */
+    SSA2LocalMap(ShrikeCFG shrikeCfg, IntPair[] localStoreMap, int[][] block2LocalState) {
+      this.shrikeCFG = shrikeCfg;
+      this.localStoreMap = localStoreMap;
+      this.block2LocalState = block2LocalState;
+    }
+
+    IntPair[] getLocalStoreMap() {
+      return localStoreMap;
+    }
+
+    int[][] getBlock2LocalState() {
+      return block2LocalState;
+    }
+
     /**
      * Record the beginning of a new range, starting at the given program counter, in which a
      * particular value number corresponds to a particular local number
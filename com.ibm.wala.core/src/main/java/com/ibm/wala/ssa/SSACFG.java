@@ -383,6 +383,22 @@ public class SSACFG
       localPhis[n] = phi;
     }
 
+    /** @return the phis for stack slots, indexed by slot; may contain nulls, or be null */
+    SSAPhiInstruction[] getStackSlotPhis() {
+      return stackSlotPhis;
+    }
+
+    /** @return the phis for locals, indexed by local number; may contain nulls, or be null */
+    SSAPhiInstruction[] getLocalPhis() {
+      return localPhis;
+    }
+
+    /** Install phis as returned by {@link #getStackSlotPhis()} and {@link #getLocalPhis()} */
+    void setPhis(SSAPhiInstruction[] stackSlotPhis, SSAPhiInstruction[] localPhis) {
+      this.stackSlotPhis = stackSlotPhis;
+      this.localPhis = localPhis;
+    }
+
     /** Remove any phis in the set. */
     public void removePhis(Set<SSAPhiInstruction> toRemove) {
       int nRemoved = 0;
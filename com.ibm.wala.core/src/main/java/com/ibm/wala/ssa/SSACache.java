@@ -13,12 +13,20 @@ package com.ibm.wala.ssa;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * A mapping from IMethod -&gt; SSAOptions -&gt; SoftReference -&gt; Something
  *
  * <p>This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp
  * it.
+ *
+ * <p>IRs and {@link DefUse}s are built without holding the lock of the cache, so several threads
+ * may build them at once. A thread asking for an IR or {@link DefUse} that another thread is
+ * building waits for it, so there is only ever one of each for a method, context and options.
  */
 public class SSACache {
 
@@ -34,6 +42,12 @@ public class SSACache {
   /** A cache of DefUse information */
   private final IAuxiliaryCache duCache;
 
+  /** the &lt;method,context,options&gt; triples whose IRs are being built */
+  private final Set<Pair<Pair<IMethod, Context>, SSAOptions>> buildingIRs = HashSetFactory.make();
+
+  /** the &lt;method,context,options&gt; triples whose {@link DefUse}s are being built */
+  private final Set<Pair<Pair<IMethod, Context>, SSAOptions>> buildingDUs = HashSetFactory.make();
+
   /** @param factory a factory for creating IRs */
   public SSACache(IRFactory<IMethod> factory, IAuxiliaryCache irCache, IAuxiliaryCache duCache) {
     this.factory = factory;
@@ -47,7 +61,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -64,12 +78,63 @@ public class SSACache {
       return factory.makeIR(m, c, options);
     }
 
-    IR ir = (IR) irCache.find(m, c, options);
-    if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
+    final Context context = c;
+    return (IR)
+        findOrCreate(
+            irCache, buildingIRs, m, c, options, () -> factory.makeIR(m, context, options));
+  }
+
+  /**
+   * Find the object cached for m, c and options, or build and cache it. The object is built without
+   * holding the lock; a thread asking for an object another thread is building waits for it.
+   *
+   * @param building the keys whose objects are being built for cache
+   */
+  private Object findOrCreate(
+      IAuxiliaryCache cache,
+      Set<Pair<Pair<IMethod, Context>, SSAOptions>> building,
+      IMethod m,
+      Context c,
+      SSAOptions options,
+      Supplier<Object> make) {
+    Pair<Pair<IMethod, Context>, SSAOptions> key = Pair.make(Pair.make(m, c), options);
+    synchronized (this) {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          Object aux = cache.find(m, c, options);
+          if (aux != null) {
+            return aux;
+          }
+          if (building.add(key)) {
+            break;
+          }
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    Object aux = null;
+    try {
+      aux = make.get();
+      return aux;
+    } finally {
+      synchronized (this) {
+        if (aux != null) {
+          cache.cache(m, c, options, aux);
+        }
+        building.remove(key);
+        notifyAll();
+      }
     }
-    return ir;
   }
 
   /**
@@ -78,7 +143,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -89,13 +154,15 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    final Context context = c;
+    return (DefUse)
+        findOrCreate(
+            duCache,
+            buildingDUs,
+            m,
+            c,
+            options,
+            () -> new DefUse(findOrCreateIR(m, context, options)));
   }
 
   /**
@@ -103,16 +170,13 @@ public class SSACache {
    *     unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
-    }
-    return du;
+    return (DefUse)
+        findOrCreate(
+            duCache, buildingDUs, ir.getMethod(), C, ir.getOptions(), () -> new DefUse(ir));
   }
 
   /** The existence of this is unfortunate. */
@@ -136,4 +200,14 @@ public class SSACache {
     invalidateIR(method, c);
     invalidateDU(method, c);
   }
+
+  /** @return the counters of the IR cache */
+  public CacheStatistics getIRCacheStatistics() {
+    return irCache.getStatistics();
+  }
+
+  /** @return the counters of the {@link DefUse} cache */
+  public CacheStatistics getDefUseCacheStatistics() {
+    return duCache.getStatistics();
+  }
 }
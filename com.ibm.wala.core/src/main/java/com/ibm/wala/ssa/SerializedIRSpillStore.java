@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Pair;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link BoundedAuxiliaryCache.SpillStore} that keeps evicted IRs of Java bytecode methods in
+ * memory, encoded by {@link IRSerializer}, which takes a fraction of the space of the IR itself.
+ * Restoring an IR decodes it again rather than running SSA construction.
+ *
+ * <p>Other values, and IRs the encoding does not cover, are dropped. This class is not thread-safe;
+ * the {@link BoundedAuxiliaryCache} using it serializes all calls.
+ */
+public class SerializedIRSpillStore implements BoundedAuxiliaryCache.SpillStore {
+
+  /** A mapping from (IMethod,Context) -&gt; SSAOptions -&gt; encoded IR */
+  private final HashMap<Pair<IMethod, Context>, Map<SSAOptions, byte[]>> dictionary =
+      HashMapFactory.make();
+
+  /** total size of the encoded IRs held */
+  private long bytes = 0;
+
+  @Override
+  public void spill(IMethod m, Context c, SSAOptions options, Object aux) {
+    if (!(aux instanceof IR) || !(m instanceof ShrikeCTMethod) || m.isWalaSynthetic()) {
+      return;
+    }
+    byte[] data = IRSerializer.encode((IR) aux);
+    if (data == null) {
+      return;
+    }
+    byte[] old =
+        dictionary.computeIfAbsent(Pair.make(m, c), k -> HashMapFactory.make()).put(options, data);
+    if (old != null) {
+      bytes -= old.length;
+    }
+    bytes += data.length;
+  }
+
+  @Override
+  public Object restore(IMethod m, Context c, SSAOptions options) {
+    Pair<IMethod, Context> key = Pair.make(m, c);
+    Map<SSAOptions, byte[]> spilled = dictionary.get(key);
+    if (spilled == null) {
+      return null;
+    }
+    // the cache holds the restored IR again, so there is no need to keep its encoding
+    byte[] data = spilled.remove(options);
+    if (spilled.isEmpty()) {
+      dictionary.remove(key);
+    }
+    if (data == null) {
+      return null;
+    }
+    bytes -= data.length;
+    return IRSerializer.decode((ShrikeCTMethod) m, options, data);
+  }
+
+  @Override
+  public void invalidate(IMethod m, Context c) {
+    Map<SSAOptions, byte[]> spilled = dictionary.remove(Pair.make(m, c));
+    if (spilled != null) {
+      for (byte[] data : spilled.values()) {
+        bytes -= data.length;
+      }
+    }
+  }
+
+  @Override
+  public void wipe() {
+    dictionary.clear();
+    bytes = 0;
+  }
+
+  /** @return the total size of the encoded IRs held, in bytes */
+  public long getSpilledBytes() {
+    return bytes;
+  }
+}
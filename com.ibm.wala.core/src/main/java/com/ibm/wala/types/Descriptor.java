@@ -14,8 +14,8 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
 import com.ibm.wala.core.util.strings.UTF8Convert;
-import com.ibm.wala.util.collections.HashMapFactory;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A method descriptor; something like: (Ljava/langString;)Ljava/lang/Class;
@@ -25,7 +25,7 @@ import java.util.Map;
 public final class Descriptor {
 
   /** A mapping from Key -&gt; Descriptor */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  private static final ConcurrentMap<Key, Descriptor> map = new ConcurrentHashMap<>();
 
   /** key holds the logical value of this descriptor */
   private final Key key;
@@ -42,13 +42,7 @@ public final class Descriptor {
     if (parameters != null && parameters.length == 0) {
       parameters = null;
     }
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   /**
@@ -59,13 +53,7 @@ public final class Descriptor {
       throws IllegalArgumentException {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
-    Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(new Key(returnType, parameters));
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
@@ -89,6 +77,18 @@ public final class Descriptor {
     return findOrCreate(l, new ImmutableByteArray(b));
   }
 
+  private static Descriptor findOrCreate(Key k) {
+    Descriptor result = map.get(k);
+    if (result == null) {
+      result = new Descriptor(k);
+      Descriptor old = map.putIfAbsent(k, result);
+      if (old != null) {
+        result = old;
+      }
+    }
+    return result;
+  }
+
   /** @param key "value" of this descriptor */
   private Descriptor(Key key) {
     this.key = key;
@@ -12,17 +12,17 @@ package com.ibm.wala.types;
 
 import com.ibm.wala.core.util.shrike.ShrikeUtil;
 import com.ibm.wala.core.util.strings.Atom;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** A class to represent the reference in a class file to a field. */
 public final class FieldReference extends MemberReference {
   private static final boolean DEBUG = false;
 
   /** Used to canonicalize MemberReferences a mapping from Key -&gt; MemberReference */
-  private static final HashMap<Key, FieldReference> dictionary = HashMapFactory.make();
+  private static final ConcurrentMap<Key, FieldReference> dictionary = new ConcurrentHashMap<>();
 
   private final TypeReference fieldType;
 
@@ -36,8 +36,7 @@ public final class FieldReference extends MemberReference {
    *
    * @param mn the name of the member
    */
-  public static synchronized FieldReference findOrCreate(
-      TypeReference tref, Atom mn, TypeReference fieldType) {
+  public static FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
     }
@@ -50,8 +49,8 @@ public final class FieldReference extends MemberReference {
 
     val = new FieldReference(key, fieldType);
 
-    dictionary.put(key, val);
-    return val;
+    FieldReference old = dictionary.putIfAbsent(key, val);
+    return old == null ? val : old;
   }
 
   /** Find or create the canonical MemberReference instance for the given tuple. */
@@ -13,11 +13,11 @@ package com.ibm.wala.types;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.Serializable;
 import java.io.UTFDataFormatException;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * We've introduced this class to canonicalize Atoms that represent package names.
@@ -38,13 +38,16 @@ public final class TypeName implements Serializable {
   private static final long serialVersionUID = -3256390509887654326L;
 
   /** canonical mapping from TypeNameKey -&gt; TypeName */
-  private static final Map<TypeNameKey, TypeName> map = HashMapFactory.make();
+  private static final ConcurrentMap<TypeNameKey, TypeName> map = new ConcurrentHashMap<>();
 
-  private static synchronized TypeName findOrCreate(TypeNameKey t) {
+  private static TypeName findOrCreate(TypeNameKey t) {
     TypeName result = map.get(t);
     if (result == null) {
       result = new TypeName(t);
-      map.put(t, result);
+      TypeName old = map.putIfAbsent(t, result);
+      if (old != null) {
+        result = old;
+      }
     }
     return result;
   }
@@ -54,9 +57,8 @@ public final class TypeName implements Serializable {
 
   public static TypeName findOrCreate(ImmutableByteArray name, int start, int length)
       throws IllegalArgumentException {
-    Atom className = Atom.findOrCreate(StringStuff.parseForClass(name, start, length));
-    ImmutableByteArray p = StringStuff.parseForPackage(name, start, length);
-    Atom packageName = (p == null) ? null : Atom.findOrCreate(p);
+    Atom className = StringStuff.parseForClassAtom(name, start, length);
+    Atom packageName = StringStuff.parseForPackageAtom(name, start, length);
     int dim = StringStuff.parseForArrayDimensionality(name, start, length);
     boolean innermostPrimitive = StringStuff.classIsPrimitive(name, start, length);
     if (innermostPrimitive) {
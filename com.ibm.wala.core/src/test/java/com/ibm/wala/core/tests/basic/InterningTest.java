@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.core.util.strings.ImmutableByteArray;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the canonicalization of {@link Atom}s, {@link TypeName}s, {@link TypeReference}s and
+ * {@link Descriptor}s.
+ */
+public class InterningTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 20000;
+
+  @Test
+  public void testSlices() {
+    byte[] bytes = "Ljava/lang/Object;".getBytes();
+    Atom a = Atom.findOrCreate(bytes, 1, bytes.length - 2);
+    Assert.assertSame(Atom.findOrCreateAsciiAtom("java/lang/Object"), a);
+    Assert.assertSame(a, Atom.findOrCreate(new ImmutableByteArray(bytes), 1, bytes.length - 2));
+    Assert.assertEquals(Atom.findOrCreateAsciiAtom("java/lang/Object").hashCode(), a.hashCode());
+    // the atom must not share the array it was sliced from
+    bytes[1] = 'x';
+    Assert.assertEquals("java/lang/Object", a.toString());
+
+    Assert.assertSame(Atom.findOrCreateAsciiAtom(""), Atom.findOrCreate(bytes, 3, 0));
+  }
+
+  @Test
+  public void testTypeNames() {
+    ImmutableByteArray b = ImmutableByteArray.make("(Ljava/util/List;[[I)V");
+    Assert.assertSame(TypeName.string2TypeName("Ljava/util/List"), TypeName.findOrCreate(b, 1, 15));
+    Assert.assertSame(TypeName.string2TypeName("[[I"), TypeName.findOrCreate(b, 17, 3));
+    Assert.assertEquals("java/util", TypeName.findOrCreate(b, 1, 15).getPackage().toString());
+  }
+
+  @Test
+  public void testConcurrentInterning() throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Callable<Object[]>> tasks = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        tasks.add(
+            () -> {
+              Object[] result = new Object[4 * NAMES];
+              for (int i = 0; i < NAMES; i++) {
+                String name = "Lp" + (i % 97) + "/C" + i;
+                result[4 * i] = Atom.findOrCreateAsciiAtom(name);
+                result[4 * i + 1] = TypeName.string2TypeName(name);
+                result[4 * i + 2] =
+                    TypeReference.findOrCreate(ClassLoaderReference.Application, name);
+                result[4 * i + 3] = Descriptor.findOrCreateUTF8("(" + name + ";I)V");
+              }
+              return result;
+            });
+      }
+      List<Future<Object[]>> results = executor.invokeAll(tasks);
+      Object[] first = results.get(0).get();
+      for (Future<Object[]> f : results) {
+        Object[] result = f.get();
+        for (int i = 0; i < result.length; i++) {
+          Assert.assertSame(first[i], result[i]);
+        }
+      }
+      for (int i = 0; i < NAMES; i++) {
+        Assert.assertEquals("Lp" + (i % 97) + "/C" + i, first[4 * i].toString());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
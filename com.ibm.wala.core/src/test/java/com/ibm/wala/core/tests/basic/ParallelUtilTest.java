@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.ParallelUtil;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** JUnit tests for {@link ParallelUtil}. */
+public class ParallelUtilTest extends WalaTestCase {
+
+  @Test
+  public void testEachIndexOnce() throws CancelException {
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (int n : new int[] {0, 1, 2, 11, 12, 13, 1000}) {
+        AtomicIntegerArray counts = new AtomicIntegerArray(n);
+        ParallelUtil.forEach(pool, n, counts::incrementAndGet);
+        for (int i = 0; i < n; i++) {
+          Assert.assertEquals(n + ": " + i, 1, counts.get(i));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testExceptionsRethrown() {
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      ParallelUtil.forEach(
+          pool,
+          100,
+          i -> {
+            if (i == 57) {
+              throw CancelException.make("canceled");
+            }
+          });
+      Assert.fail("expected a CancelException");
+    } catch (CancelException e) {
+      Assert.assertEquals("canceled", e.getMessage());
+    }
+    try {
+      ParallelUtil.forEach(
+          pool,
+          100,
+          i -> {
+            if (i == 42) {
+              throw new IllegalStateException("failed");
+            }
+          });
+      Assert.fail("expected an IllegalStateException");
+    } catch (IllegalStateException | CancelException e) {
+      Assert.assertEquals("failed", e.getMessage());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumberOfThreads() {
+    ParallelUtil.checkNumberOfThreads(0);
+  }
+}
@@ -27,6 +27,7 @@ import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.HashConsedIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
@@ -41,7 +42,9 @@ import com.ibm.wala.util.intset.MutableLongSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseLongSetFactory;
+import com.ibm.wala.util.intset.OffHeapIntSetFactory;
 import com.ibm.wala.util.intset.OffsetBitVector;
+import com.ibm.wala.util.intset.RoaringIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 import com.ibm.wala.util.intset.SparseIntSet;
@@ -355,6 +358,24 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /** Test the RoaringIntSet implementation */
+  @Test
+  public void testRoaringIntSet() {
+    doMutableIntSet(new RoaringIntSetFactory());
+  }
+
+  /** Test the HashConsedIntSet implementation */
+  @Test
+  public void testHashConsedIntSet() {
+    doMutableIntSet(new HashConsedIntSetFactory());
+  }
+
+  /** Test the OffHeapIntSet implementation */
+  @Test
+  public void testOffHeapIntSet() {
+    doMutableIntSet(new OffHeapIntSetFactory());
+  }
+
   /** Test the MutableSparseIntSet implementation */
   private static void doMutableLongSet(MutableLongSetFactory factory) {
     MutableLongSet v = factory.parse("{9,17}");
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.CallGraphCache;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that call graphs kept by a {@link CallGraphCache} are the same as built from scratch. */
+public class CallGraphCacheTest extends WalaTestCase {
+
+  private static final String UNRELATED = "arrayAlias/TestArrayAlias";
+
+  private static final String STATIC_INIT_MAIN = "LstaticInit/TestStaticInit";
+
+  private static final String STATIC_INIT_A = "staticInit/TestStaticInit\\$A";
+
+  /** make a class hierarchy of the test data, leaving out the given classes */
+  private static IClassHierarchy makeClassHierarchy(String... excluded)
+      throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    for (String klass : excluded) {
+      scope.getExclusions().add(klass);
+    }
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  private static CallGraphCache makeCache(String mainClass) {
+    return new CallGraphCache(
+        cha -> {
+          AnalysisScope scope = cha.getScope();
+          AnalysisOptions options =
+              CallGraphTestUtil.makeAnalysisOptions(
+                  scope, Util.makeMainEntrypoints(scope, cha, mainClass));
+          return Util.makeZeroCFABuilder(
+              Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+        });
+  }
+
+  private static IClass lookup(IClassHierarchy cha, String name) {
+    IClass klass =
+        cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, 'L' + name));
+    Assert.assertNotNull(name, klass);
+    return klass;
+  }
+
+  @Test
+  public void testChangeUnrelatedClass()
+      throws IOException, ClassHierarchyException, CancelException {
+    IClassHierarchy cha = makeClassHierarchy();
+    CallGraphCache cache = makeCache(TestConstants.RECURSE_MAIN);
+    CallGraph cg = cache.makeCallGraph(cha, null);
+
+    CallGraph updated = cache.update(cha, Collections.singleton(lookup(cha, UNRELATED)), null);
+    Assert.assertSame(cg, updated);
+    Assert.assertSame(cha, cache.getClassHierarchy());
+    Assert.assertEquals(1, cache.getNumberOfBuilds());
+    Assert.assertEquals(1, cache.getNumberOfKeptUpdates());
+  }
+
+  @Test
+  public void testRemoveUnrelatedClass()
+      throws IOException, ClassHierarchyException, CancelException {
+    IClassHierarchy before = makeClassHierarchy();
+    IClassHierarchy after = makeClassHierarchy(UNRELATED);
+    CallGraphCache cache = makeCache(TestConstants.RECURSE_MAIN);
+    CallGraph cg = cache.makeCallGraph(before, null);
+
+    // the change does not matter, but a call graph of the old hierarchy cannot be kept
+    IClass unrelated = lookup(before, UNRELATED);
+    Assert.assertFalse(cache.isAffected(after, Collections.singleton(unrelated)));
+    CallGraph updated = cache.update(after, Collections.singleton(unrelated), null);
+    Assert.assertNotSame(cg, updated);
+    Assert.assertSame(after, cache.getClassHierarchy());
+    for (CGNode n : updated) {
+      Assert.assertSame(after, n.getMethod().getClassHierarchy());
+    }
+    Assert.assertEquals(2, cache.getNumberOfBuilds());
+    Assert.assertEquals(0, cache.getNumberOfKeptUpdates());
+    Assert.assertEquals(describe(cg), describe(updated));
+  }
+
+  @Test
+  public void testAddUnrelatedClass() throws IOException, ClassHierarchyException, CancelException {
+    IClassHierarchy before = makeClassHierarchy(UNRELATED);
+    IClassHierarchy after = makeClassHierarchy();
+    CallGraphCache cache = makeCache(TestConstants.RECURSE_MAIN);
+    cache.makeCallGraph(before, null);
+
+    IClass unrelated = lookup(after, UNRELATED);
+    Assert.assertFalse(cache.isAffected(after, Collections.singleton(unrelated)));
+    CallGraph updated = cache.update(after, Collections.singleton(unrelated), null);
+    Assert.assertSame(after, cache.getClassHierarchy());
+    Assert.assertEquals(
+        describe(makeCache(TestConstants.RECURSE_MAIN).makeCallGraph(after, null)),
+        describe(updated));
+  }
+
+  @Test
+  public void testRemoveUsedClass() throws IOException, ClassHierarchyException, CancelException {
+    IClassHierarchy before = makeClassHierarchy();
+    IClassHierarchy after = makeClassHierarchy(STATIC_INIT_A);
+    CallGraphCache cache = makeCache(STATIC_INIT_MAIN);
+    CallGraph cg = cache.makeCallGraph(before, null);
+
+    IClass a = lookup(before, "staticInit/TestStaticInit$A");
+    Assert.assertTrue(cache.isAffected(after, Collections.singleton(a)));
+    CallGraph updated = cache.update(after, Collections.singleton(a), null);
+    Assert.assertNotSame(cg, updated);
+    Assert.assertSame(after, cache.getClassHierarchy());
+    Assert.assertEquals(2, cache.getNumberOfBuilds());
+    Assert.assertEquals(0, cache.getNumberOfKeptUpdates());
+    Assert.assertNotEquals(describe(cg), describe(updated));
+    Assert.assertEquals(
+        describe(makeCache(STATIC_INIT_MAIN).makeCallGraph(after, null)), describe(updated));
+  }
+
+  /** @return the nodes and edges of cg, in a form that can be compared across builds */
+  private static Set<String> describe(CallGraph cg) {
+    Set<String> result = new TreeSet<>();
+    for (CGNode node : cg) {
+      result.add(node.getMethod().getSignature() + ' ' + node.getContext());
+      for (CallSiteReference site : Iterator2Iterable.make(node.iterateCallSites())) {
+        for (CGNode target : cg.getPossibleTargets(node, site)) {
+          result.add(
+              node.getMethod().getSignature()
+                  + " @"
+                  + site.getProgramCounter()
+                  + " -> "
+                  + target.getMethod().getSignature()
+                  + ' '
+                  + target.getContext());
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that merging the variables of cycles of assignments while solving does not change the
+ * result of pointer analysis.
+ */
+public class CycleEliminationTest extends WalaTestCase {
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = makeScope();
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    // large enough for the solver to look for cycles while solving
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, TestConstants.HELLO_MAIN);
+
+    SSAPropagationCallGraphBuilder builder = makeBuilder(scope, cha, entrypoints, false);
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    Map<String, Set<String>> expected = describe(builder, cg);
+    builder = makeBuilder(scope, cha, entrypoints, true);
+    cg = builder.makeCallGraph(builder.getOptions(), null);
+    Assert.assertEquals(expected, describe(builder, cg));
+    Assert.assertTrue(countUnified(builder) > 0);
+  }
+
+  @Test
+  public void testCollapseCyclesAfterSolving()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = makeScope();
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    SSAPropagationCallGraphBuilder builder =
+        makeBuilder(scope, cha, makeEntrypoints(scope, cha), false);
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    Map<String, Set<String>> expected = describe(builder, cg);
+
+    PropagationSystem system = builder.getPropagationSystem();
+    Assert.assertTrue(system.collapseCycles() > 0);
+    system.solve(null);
+    Assert.assertEquals(expected, describe(builder, cg));
+    Assert.assertEquals(0, system.collapseCycles());
+  }
+
+  private static AnalysisScope makeScope() throws IOException {
+    return CallGraphTestUtil.makeJ2SEAnalysisScope(
+        TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+  }
+
+  private static Iterable<Entrypoint> makeEntrypoints(AnalysisScope scope, IClassHierarchy cha) {
+    return Util.makeMainEntrypoints(
+        scope,
+        cha,
+        new String[] {
+          TestConstants.RECURSE_MAIN, TestConstants.MULTI_DIM_MAIN, TestConstants.ARRAY_ALIAS_MAIN
+        });
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(
+      AnalysisScope scope,
+      IClassHierarchy cha,
+      Iterable<Entrypoint> entrypoints,
+      boolean useCycleElimination) {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setUseCycleElimination(useCycleElimination);
+    return Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+  }
+
+  private static int countUnified(SSAPropagationCallGraphBuilder builder) {
+    int result = 0;
+    for (PointerKey key : builder.getPointerAnalysis().getPointerKeys()) {
+      if (builder.getPropagationSystem().isUnified(key)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a description of the call graph and the points-to sets, keyed by their string form. The
+   *     instructions of the fake root methods are numbered in the order the solver discovers them,
+   *     so their call sites and locals are left out.
+   */
+  private static Map<String, Set<String>> describe(
+      SSAPropagationCallGraphBuilder builder, CallGraph cg) {
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+    Set<CGNode> fakeNodes = HashSetFactory.make();
+    fakeNodes.add(cg.getFakeRootNode());
+    fakeNodes.add(cg.getFakeWorldClinitNode());
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode node : cg) {
+      Set<String> targets = HashSetFactory.make();
+      for (CallSiteReference site : Iterator2Iterable.make(node.iterateCallSites())) {
+        for (CGNode target : cg.getPossibleTargets(node, site)) {
+          targets.add(fakeNodes.contains(node) ? target.toString() : site + " -> " + target);
+        }
+      }
+      Assert.assertNull(result.put(node.toString(), targets));
+    }
+    for (PointerKey key : pa.getPointerKeys()) {
+      if (key instanceof LocalPointerKey && fakeNodes.contains(((LocalPointerKey) key).getNode())) {
+        continue;
+      }
+      Set<String> instances = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(key)) {
+        instances.add(ik.toString());
+      }
+      result.put(key.toString(), instances);
+    }
+    return result;
+  }
+}
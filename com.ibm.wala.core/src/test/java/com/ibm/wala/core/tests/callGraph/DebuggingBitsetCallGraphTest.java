@@ -16,10 +16,13 @@ import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.DebuggingMutableIntSetFactory;
+import com.ibm.wala.util.intset.HashConsedIntSetFactory;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.OffHeapIntSetFactory;
+import com.ibm.wala.util.intset.RoaringIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 import java.io.IOException;
 import org.junit.Test;
@@ -77,4 +80,22 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
+
+  @Test
+  public void testRoaringShared()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new RoaringIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
+  }
+
+  @Test
+  public void testHashConsedShared()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new HashConsedIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
+  }
+
+  @Test
+  public void testOffHeapShared()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new OffHeapIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
+  }
 }
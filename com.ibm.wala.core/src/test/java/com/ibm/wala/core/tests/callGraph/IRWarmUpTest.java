@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.IRWarmUp;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that building IRs ahead of call graph construction does not change the call graph. */
+public class IRWarmUpTest extends WalaTestCase {
+
+  private static Iterable<Entrypoint> makeEntrypoints(AnalysisScope scope, IClassHierarchy cha) {
+    return Util.makeMainEntrypoints(
+        scope,
+        cha,
+        new String[] {
+          TestConstants.RECURSE_MAIN, TestConstants.MULTI_DIM_MAIN, TestConstants.ARRAY_ALIAS_MAIN
+        });
+  }
+
+  @Test
+  public void testSameCallGraph()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = makeEntrypoints(scope, cha);
+
+    Map<String, Set<String>> lazy = describe(scope, cha, entrypoints, 0);
+    Map<String, Set<String>> warm = describe(scope, cha, entrypoints, 4);
+    Assert.assertEquals(lazy, warm);
+  }
+
+  @Test
+  public void testApplicationMethodsWarm()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = makeEntrypoints(scope, cha);
+
+    IAnalysisCacheView cache = new AnalysisCacheImpl();
+    int built = new IRWarmUp(cha, cache, 4).warmUp(entrypoints, null);
+    Assert.assertTrue(built > 0);
+    Assert.assertEquals(built, cache.getIRCacheStatistics().getMisses());
+    Assert.assertEquals(built, cache.getDefUseCacheStatistics().getMisses());
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, cache, cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    for (CGNode node : cg) {
+      IMethod m = node.getMethod();
+      if (!m.isWalaSynthetic()
+          && m.getDeclaringClass()
+              .getClassLoader()
+              .getReference()
+              .equals(ClassLoaderReference.Application)) {
+        long misses = cache.getIRCacheStatistics().getMisses();
+        cache.getIR(m);
+        Assert.assertEquals(m.toString(), misses, cache.getIRCacheStatistics().getMisses());
+      }
+    }
+  }
+
+  /** @return the call targets of each call graph node, keyed by their string form */
+  private static Map<String, Set<String>> describe(
+      AnalysisScope scope, IClassHierarchy cha, Iterable<Entrypoint> entrypoints, int nThreads)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setNumberOfIRWarmUpThreads(nThreads);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode node : cg) {
+      Set<String> targets = HashSetFactory.make();
+      for (CallSiteReference site : Iterator2Iterable.make(node.iterateCallSites())) {
+        for (CGNode target : cg.getPossibleTargets(node, site)) {
+          targets.add(site + " -> " + target);
+        }
+      }
+      Assert.assertNull(result.put(node.toString(), targets));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.ArrayClass;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OffHeapIntSetFactory;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that keeping the propagation graph and the points-to sets outside the Java heap does not
+ * change the result of pointer analysis.
+ */
+public class OffHeapStorageTest extends WalaTestCase {
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(
+            scope,
+            cha,
+            new String[] {
+              TestConstants.RECURSE_MAIN,
+              TestConstants.MULTI_DIM_MAIN,
+              TestConstants.ARRAY_ALIAS_MAIN
+            });
+
+    Map<String, Set<String>> onHeap = solve(scope, cha, entrypoints, false);
+    Map<String, Set<String>> offHeap;
+    PointsToSetVariable.setPointsToSetFactory(new OffHeapIntSetFactory());
+    try {
+      offHeap = solve(scope, cha, entrypoints, true);
+    } finally {
+      PointsToSetVariable.setPointsToSetFactory(null);
+    }
+    Assert.assertEquals(onHeap, offHeap);
+  }
+
+  @Test
+  public void testNoBlocksLeaked()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(scope, cha, TestConstants.RECURSE_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    OffHeapIntSetFactory factory = new OffHeapIntSetFactory();
+    PointsToSetVariable.setPointsToSetFactory(factory);
+    try {
+      SSAPropagationCallGraphBuilder builder =
+          Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+      builder.makeCallGraph(options, null);
+      PropagationSystem system = builder.getPropagationSystem();
+
+      // every block in use belongs to a points-to set or to the instance keys of a class
+      Set<IntSet> live = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (PointerKey key : Iterator2Iterable.make(system.iteratePointerKeys())) {
+        if (!system.isImplicit(key)) {
+          live.add(system.findOrCreatePointsToSet(key).getValue());
+        }
+      }
+      int dims = 0;
+      for (InstanceKey ik : builder.getPointerAnalysis().getInstanceKeys()) {
+        IClass type = ik.getConcreteType();
+        if (type.isArrayClass()) {
+          dims = Math.max(dims, ((ArrayClass) type).getDimensionality());
+          live.add(system.getInstanceKeysForClass(type));
+        }
+      }
+      for (IClass klass : cha) {
+        TypeReference type = klass.getReference();
+        for (int i = 0; i <= dims; i++, type = TypeReference.findOrCreateArrayOf(type)) {
+          IClass c = cha.lookupClass(type);
+          if (c != null && !type.equals(TypeReference.JavaLangObject)) {
+            live.add(system.getInstanceKeysForClass(c));
+          }
+        }
+      }
+      live.removeIf(set -> set == null || set.isEmpty());
+      Assert.assertTrue(live.size() > 10);
+      Assert.assertEquals(live.size(), factory.getStore().getUsedBlockCount());
+    } finally {
+      PointsToSetVariable.setPointsToSetFactory(null);
+    }
+  }
+
+  /** @return a description of the call graph and the points-to sets, keyed by their string form */
+  private static Map<String, Set<String>> solve(
+      AnalysisScope scope,
+      IClassHierarchy cha,
+      Iterable<Entrypoint> entrypoints,
+      boolean useOffHeapStorage)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setUseOffHeapStorage(useOffHeapStorage);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode node : cg) {
+      Set<String> targets = HashSetFactory.make();
+      for (CallSiteReference site : Iterator2Iterable.make(node.iterateCallSites())) {
+        for (CGNode target : cg.getPossibleTargets(node, site)) {
+          targets.add(site + " -> " + target);
+        }
+      }
+      Assert.assertNull(result.put(node.toString(), targets));
+    }
+    for (PointerKey key : pa.getPointerKeys()) {
+      Set<String> instances = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(key)) {
+        instances.add(ik.toString());
+      }
+      result.put(key.toString(), instances);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that the parallel points-to solver computes the same result as the sequential one. */
+public class ParallelSolverTest extends WalaTestCase {
+
+  @Test
+  public void testZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(
+            scope,
+            cha,
+            new String[] {
+              TestConstants.RECURSE_MAIN,
+              TestConstants.MULTI_DIM_MAIN,
+              TestConstants.ARRAY_ALIAS_MAIN
+            });
+
+    Map<String, Set<String>> sequential = solve(scope, cha, entrypoints, 1);
+    Map<String, Set<String>> parallel = solve(scope, cha, entrypoints, 4);
+    Assert.assertEquals(sequential, parallel);
+  }
+
+  /** @return a description of the call graph and the points-to sets, keyed by their string form */
+  private static Map<String, Set<String>> solve(
+      AnalysisScope scope, IClassHierarchy cha, Iterable<Entrypoint> entrypoints, int nThreads)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setNumberOfSolverThreads(nThreads);
+    // the test data is too small to fill the default batches
+    options.setMinParallelBatch(8);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    if (nThreads > 1) {
+      // otherwise every round was too small for the pool, and the test proves nothing
+      Assert.assertTrue(
+          "expected a round evaluated on the pool",
+          builder.getPropagationSystem().getNumberOfParallelRounds() > 0);
+    }
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    Map<String, Set<String>> result = HashMapFactory.make();
+    for (CGNode node : cg) {
+      Set<String> targets = HashSetFactory.make();
+      for (CallSiteReference site : Iterator2Iterable.make(node.iterateCallSites())) {
+        for (CGNode target : cg.getPossibleTargets(node, site)) {
+          targets.add(site + " -> " + target);
+        }
+      }
+      Assert.assertNull(result.put(node.toString(), targets));
+    }
+    for (PointerKey key : pa.getPointerKeys()) {
+      Set<String> instances = HashSetFactory.make();
+      for (InstanceKey ik : pa.getPointsToSet(key)) {
+        instances.add(ik.toString());
+      }
+      result.put(key.toString(), instances);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileEntry;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that memory-mapped archives read the same as {@link JarFile}s. */
+public class MappedJarFileModuleTest extends WalaTestCase {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static File getTestDataJar() throws IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    for (Module m : scope.getModules(scope.getApplicationLoader())) {
+      if (m instanceof JarFileModule) {
+        return new File(((JarFileModule) m).getAbsolutePath());
+      }
+    }
+    throw new AssertionError("no test data jar");
+  }
+
+  private static byte[] read(ModuleEntry e) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (InputStream s = e.getInputStream()) {
+      byte[] b = new byte[4096];
+      for (int n = s.read(b); n != -1; n = s.read(b)) {
+        result.write(b, 0, n);
+      }
+    }
+    return result.toByteArray();
+  }
+
+  @Test
+  public void testSameContents() throws IOException {
+    File file = getTestDataJar();
+    List<ModuleEntry> expected = new ArrayList<>();
+    for (ModuleEntry e :
+        Iterator2Iterable.make(new JarFileModule(new JarFile(file, false)).getEntries())) {
+      if (!e.getName().endsWith("/")) {
+        expected.add(e);
+      }
+    }
+    MappedJarFileModule mapped = new MappedJarFileModule(file);
+    Assert.assertEquals(expected.size(), mapped.getNumberOfEntries());
+
+    int i = 0;
+    for (ModuleEntry e : Iterator2Iterable.make(mapped.getEntries())) {
+      ModuleEntry j = expected.get(i++);
+      Assert.assertEquals(j.getName(), e.getName());
+      Assert.assertEquals(j.isClassFile(), e.isClassFile());
+      Assert.assertArrayEquals(e.getName(), read(j), read(e));
+      if (e.isClassFile()) {
+        Assert.assertEquals(j.getClassName(), e.getClassName());
+      }
+    }
+  }
+
+  @Test
+  public void testClassHierarchy() throws IOException, ClassHierarchyException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    AnalysisScope mapped = makeScope("mappedJarFile", getTestDataJar());
+    Assert.assertEquals(
+        ModuleSnapshotTest.describe(ClassHierarchyFactory.make(scope)),
+        ModuleSnapshotTest.describe(ClassHierarchyFactory.make(mapped)));
+  }
+
+  @Test
+  public void testFatJar() throws IOException, ClassHierarchyException {
+    JarFile testData = new JarFile(getTestDataJar(), false);
+    byte[] nlist = read(testData, "recurse/NList.class");
+    byte[] alias = read(testData, "arrayAlias/TestArrayAlias.class");
+
+    ByteArrayOutputStream lib = new ByteArrayOutputStream();
+    try (ZipOutputStream z = new ZipOutputStream(lib)) {
+      put(z, "arrayAlias/TestArrayAlias.class", alias, false);
+    }
+    File fat = temporaryFolder.newFile("fat.jar");
+    try (ZipOutputStream z = new ZipOutputStream(new FileOutputStream(fat))) {
+      put(z, "BOOT-INF/classes/recurse/NList.class", nlist, true);
+      put(z, "BOOT-INF/lib/lib.jar", lib.toByteArray(), false);
+    }
+
+    MappedJarFileModule module = new MappedJarFileModule(fat);
+    List<ModuleEntry> entries = new ArrayList<>();
+    Iterator2Iterable.make(module.getEntries()).forEach(entries::add);
+    Assert.assertEquals(2, entries.size());
+    Assert.assertEquals("recurse/NList", entries.get(0).getClassName());
+    Assert.assertArrayEquals(nlist, read(entries.get(0)));
+
+    MappedJarFileEntry nested = (MappedJarFileEntry) entries.get(1);
+    Assert.assertTrue(nested.isModuleFile());
+    Assert.assertTrue(nested.isStored());
+    ModuleEntry inner = nested.asModule().getEntries().next();
+    Assert.assertEquals("arrayAlias/TestArrayAlias", inner.getClassName());
+    Assert.assertArrayEquals(alias, read(inner));
+
+    IClassHierarchy cha = ClassHierarchyFactory.make(makeScope("mappedJarFile", fat));
+    Assert.assertNotNull(
+        cha.lookupClass(
+            TypeReference.findOrCreate(ClassLoaderReference.Application, "Lrecurse/NList")));
+    Assert.assertNotNull(
+        cha.lookupClass(
+            TypeReference.findOrCreate(
+                ClassLoaderReference.Application, "LarrayAlias/TestArrayAlias")));
+  }
+
+  @Test
+  public void testJMod() throws IOException {
+    byte[] nlist = read(new JarFile(getTestDataJar(), false), "recurse/NList.class");
+    File jmod = temporaryFolder.newFile("test.jmod");
+    try (OutputStream s = new FileOutputStream(jmod)) {
+      s.write(new byte[] {'J', 'M', 1, 0});
+      ZipOutputStream z = new ZipOutputStream(s);
+      put(z, "classes/module-info.class", new byte[] {0}, false);
+      put(z, "classes/recurse/NList.class", nlist, false);
+      z.close();
+    }
+
+    List<ModuleEntry> entries = new ArrayList<>();
+    Iterator2Iterable.make(new MappedJarFileModule(jmod).getEntries()).forEach(entries::add);
+    Assert.assertEquals(2, entries.size());
+    Assert.assertFalse(entries.get(0).isClassFile());
+    Assert.assertTrue(entries.get(1).isClassFile());
+    Assert.assertEquals("recurse/NList", entries.get(1).getClassName());
+    Assert.assertArrayEquals(nlist, read(entries.get(1)));
+  }
+
+  private static AnalysisScope makeScope(String entryType, File file) throws IOException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.makePrimordialScope(
+            new FileProvider().getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    AnalysisScopeReader.instance.processScopeDefLine(
+        scope,
+        MappedJarFileModuleTest.class.getClassLoader(),
+        "Application,Java," + entryType + ',' + file.getAbsolutePath());
+    return scope;
+  }
+
+  private static byte[] read(JarFile jar, String name) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (InputStream s = jar.getInputStream(jar.getEntry(name))) {
+      byte[] b = new byte[4096];
+      for (int n = s.read(b); n != -1; n = s.read(b)) {
+        result.write(b, 0, n);
+      }
+    }
+    return result.toByteArray();
+  }
+
+  private static void put(ZipOutputStream z, String name, byte[] contents, boolean deflate)
+      throws IOException {
+    ZipEntry e = new ZipEntry(name);
+    if (!deflate) {
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      e.setMethod(ZipEntry.STORED);
+      e.setSize(contents.length);
+      e.setCompressedSize(contents.length);
+      e.setCrc(crc.getValue());
+    }
+    z.putNextEntry(e);
+    z.write(contents);
+    z.closeEntry();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleSnapshot;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that class hierarchies built from module snapshots match those built from class files. */
+public class ModuleSnapshotTest extends WalaTestCase {
+
+  /** the file name suffix of snapshots */
+  private static final String SUFFIX = ".wcs";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSnapshots() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File dir = temporaryFolder.newFolder();
+
+    Map<String, String> expected = describe(ClassHierarchyFactory.make(scope));
+
+    // the first time around, snapshots are written ...
+    Assert.assertEquals(expected, describe(ClassHierarchyFactory.makeWithSnapshots(scope, dir)));
+    File[] snapshots = dir.listFiles();
+    Assert.assertNotNull(snapshots);
+    Assert.assertTrue(snapshots.length > 0);
+
+    // ... and the second time, they are used, so no summarized class file is read
+    ModuleSnapshot snapshot = null;
+    for (Module m : scope.getModules(ClassLoaderReference.Application)) {
+      if (m instanceof JarFileModule) {
+        snapshot = ModuleSnapshot.read(dir, ModuleSnapshot.computeKey((JarFileModule) m));
+      }
+    }
+    Assert.assertNotNull(snapshot);
+    IClassHierarchy cha = ClassHierarchyFactory.makeWithSnapshots(scope, dir);
+    int fromSnapshot = 0;
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          && klass instanceof ShrikeClass) {
+        ShrikeClassReaderHandle handle = ((ShrikeClass) klass).getReaderHandle();
+        if (snapshot.getSummary(handle.getModuleEntry().getName()) != null) {
+          Assert.assertEquals(klass.toString(), 0, handle.getHydrateCount());
+          fromSnapshot++;
+        }
+      }
+    }
+    Assert.assertTrue(fromSnapshot > 0);
+    Assert.assertEquals(expected, describe(cha));
+    Assert.assertEquals(snapshots.length, dir.listFiles().length);
+  }
+
+  @Test
+  public void testFailedWriteLeavesNoTemporaryFile() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    File dir = temporaryFolder.newFolder();
+    ClassHierarchyFactory.makeWithSnapshots(scope, dir);
+    File[] snapshots = dir.listFiles();
+    Assert.assertNotNull(snapshots);
+    Assert.assertTrue(snapshots.length > 0);
+    String name = snapshots[0].getName();
+    ModuleSnapshot snapshot =
+        ModuleSnapshot.read(dir, name.substring(0, name.length() - SUFFIX.length()));
+    Assert.assertNotNull(snapshot);
+
+    // a non-empty directory in place of the snapshot file makes the final move fail
+    File other = temporaryFolder.newFolder();
+    File blocker = new File(other, name);
+    Assert.assertTrue(new File(blocker, "file").mkdirs());
+    try {
+      snapshot.write(other);
+      Assert.fail("expected the write to fail");
+    } catch (IOException e) {
+      // expected
+    }
+    File[] left = other.listFiles();
+    Assert.assertNotNull(left);
+    Assert.assertArrayEquals(new File[] {blocker}, left);
+  }
+
+  /** @return a description of each class in the hierarchy, keyed by class name */
+  static Map<String, String> describe(IClassHierarchy cha) {
+    Map<String, String> result = HashMapFactory.make();
+    for (IClass klass : cha) {
+      StringBuilder s = new StringBuilder();
+      s.append(klass.getModifiers()).append(' ').append(klass.getSuperclass());
+      SortedSet<String> members = new TreeSet<>();
+      for (IClass i : klass.getDirectInterfaces()) {
+        members.add("implements " + i);
+      }
+      for (IField f : klass.getDeclaredInstanceFields()) {
+        members.add(f.toString());
+      }
+      for (IField f : klass.getDeclaredStaticFields()) {
+        members.add("static " + f);
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        members.add(m.toString());
+      }
+      s.append(members);
+      result.put(klass.getName().toString(), s.toString());
+    }
+    return result;
+  }
+}
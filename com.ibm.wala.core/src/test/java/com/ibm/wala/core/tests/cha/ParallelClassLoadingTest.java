@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that class loaders parsing on several threads load the same classes as on one thread. */
+public class ParallelClassLoadingTest extends WalaTestCase {
+
+  @Test
+  public void testParallelLoading() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+
+    ClassLoaderFactoryImpl sequential = new ClassLoaderFactoryImpl(scope.getExclusions());
+    ClassLoaderFactoryImpl parallel = new ClassLoaderFactoryImpl(scope.getExclusions());
+    parallel.setNumberOfThreads(4);
+
+    Assert.assertEquals(
+        ModuleSnapshotTest.describe(ClassHierarchyFactory.make(scope, sequential)),
+        ModuleSnapshotTest.describe(ClassHierarchyFactory.make(scope, parallel)));
+  }
+}
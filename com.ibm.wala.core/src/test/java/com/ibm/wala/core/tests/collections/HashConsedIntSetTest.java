@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.HashConsedIntSet;
+import com.ibm.wala.util.intset.HashConsedIntSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSetRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link HashConsedIntSet} and the {@link SparseIntSetRepository}. */
+public class HashConsedIntSetTest extends WalaTestCase {
+
+  private final HashConsedIntSetFactory factory = new HashConsedIntSetFactory();
+
+  @Test
+  public void testCanonicalSets() {
+    SparseIntSet a = SparseIntSetRepository.findOrCreate(new int[] {1, 5, 9});
+    SparseIntSet b = SparseIntSetRepository.findOrCreate(new int[] {1, 5, 9});
+    Assert.assertSame(a, b);
+    SparseIntSet c = SparseIntSetRepository.findOrCreate(new int[] {2, 5});
+    SparseIntSet u = SparseIntSetRepository.union(a, c);
+    Assert.assertSame(u, SparseIntSetRepository.union(c, a));
+    Assert.assertSame(u, SparseIntSetRepository.findOrCreate(new int[] {1, 2, 5, 9}));
+    Assert.assertSame(a, SparseIntSetRepository.intersection(a, u));
+    Assert.assertSame(
+        SparseIntSetRepository.findOrCreate(new int[] {5}),
+        SparseIntSetRepository.intersection(a, c));
+  }
+
+  @Test
+  public void testCopyOnWrite() {
+    MutableIntSet a = factory.parse("{3,1,2}");
+    MutableIntSet b = factory.makeCopy(a);
+    Assert.assertTrue(b.add(4));
+    Assert.assertEquals(3, a.size());
+    Assert.assertFalse(a.contains(4));
+    Assert.assertFalse(a.sameValue(b));
+    Assert.assertTrue(a.isSubset(b));
+    Assert.assertTrue(a.add(4));
+    Assert.assertTrue(a.sameValue(b));
+    Assert.assertTrue(b.remove(1));
+    Assert.assertTrue(a.contains(1));
+    Assert.assertTrue(factory.make(new int[] {4, 2, 3, 3}).sameValue(b));
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(7);
+    for (int round = 0; round < 200; round++) {
+      BitVectorIntSet e1 = new BitVectorIntSet();
+      BitVectorIntSet e2 = new BitVectorIntSet();
+      BitVectorIntSet filter = new BitVectorIntSet();
+      MutableIntSet s1 = factory.make();
+      MutableIntSet s2 = factory.make();
+      MutableIntSet f = factory.make();
+      for (int i = 0; i < 40; i++) {
+        int x = random.nextInt(60);
+        Assert.assertEquals(e1.add(x), s1.add(x));
+        x = random.nextInt(60);
+        Assert.assertEquals(e2.add(x), s2.add(x));
+        x = random.nextInt(60);
+        Assert.assertEquals(filter.add(x), f.add(x));
+      }
+      assertSame(e1, s1);
+
+      MutableIntSet copy = factory.makeCopy(s1);
+      BitVectorIntSet expected = new BitVectorIntSet(e1);
+      Assert.assertEquals(
+          expected.addAllInIntersection(e2, filter), copy.addAllInIntersection(s2, f));
+      assertSame(expected, copy);
+
+      copy = factory.makeCopy(s1);
+      expected = new BitVectorIntSet(e1);
+      Assert.assertEquals(expected.addAll(e2), copy.addAll(s2));
+      assertSame(expected, copy);
+      Assert.assertTrue(s2.isSubset(copy));
+      Assert.assertEquals(e1.isSubset(e2), s1.isSubset(s2));
+      Assert.assertEquals(e1.containsAny(e2), s1.containsAny(s2));
+
+      copy.intersectWith(f);
+      expected.intersectWith(filter);
+      assertSame(expected, copy);
+
+      for (int i = 0; i < 20; i++) {
+        int x = random.nextInt(60);
+        Assert.assertEquals(e1.contains(x), s1.remove(x));
+        e1.remove(x);
+      }
+      assertSame(e1, s1);
+    }
+  }
+
+  @Test
+  public void testConcurrentOperations() throws InterruptedException, ExecutionException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t % 2;
+        results.add(
+            pool.submit(
+                () -> {
+                  // threads with the same seed build the same sets, so they race to intern them
+                  Random random = new Random(seed);
+                  for (int round = 0; round < 2000; round++) {
+                    BitVectorIntSet e1 = new BitVectorIntSet();
+                    BitVectorIntSet e2 = new BitVectorIntSet();
+                    for (int i = 0; i < 10; i++) {
+                      e1.add(random.nextInt(40));
+                      e2.add(random.nextInt(40));
+                    }
+                    SparseIntSet s1 = canonical(e1);
+                    SparseIntSet s2 = canonical(e2);
+                    BitVectorIntSet u = new BitVectorIntSet(e1);
+                    u.addAll(e2);
+                    Assert.assertSame(canonical(u), SparseIntSetRepository.union(s1, s2));
+                    BitVectorIntSet m = new BitVectorIntSet(e1);
+                    m.intersectWith(e2);
+                    Assert.assertSame(canonical(m), SparseIntSetRepository.intersection(s2, s1));
+                  }
+                  return null;
+                }));
+      }
+      for (Future<Void> f : results) {
+        f.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static SparseIntSet canonical(IntSet s) {
+    int[] elements = new int[s.size()];
+    int i = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      elements[i++] = it.next();
+    }
+    return SparseIntSetRepository.findOrCreate(elements);
+  }
+
+  private static void assertSame(IntSet expected, IntSet actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertTrue(actual.sameValue(expected));
+    Assert.assertTrue(expected.sameValue(new BitVectorIntSet(actual)));
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.intset.MutableMapping;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link ObjectIntHashMap} against a {@link java.util.HashMap}. */
+public class ObjectIntHashMapTest extends WalaTestCase {
+
+  /** a key whose hash code collides with many others, to exercise long probe runs */
+  private static final class Key {
+    private final int id;
+
+    Key(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id % 7;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj).id == id;
+    }
+
+    @Override
+    public String toString() {
+      return "Key" + id;
+    }
+  }
+
+  /**
+   * Like an SDG statement, a key whose equals only checks the node, while the keys of a subclass
+   * also have an index: a statement equals the indexed statements of its node, but not vice versa,
+   * and their hash codes differ.
+   */
+  private static class Stmt {
+    final int node;
+
+    Stmt(int node) {
+      this.node = node;
+    }
+
+    @Override
+    public int hashCode() {
+      return node * 31;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Stmt && ((Stmt) obj).node == node;
+    }
+  }
+
+  private static final class IndexedStmt extends Stmt {
+    final int index;
+
+    IndexedStmt(int node, int index) {
+      super(node);
+      this.index = index;
+    }
+
+    /** differs from the hash code of the Stmt of the same node only in the high bits */
+    @Override
+    public int hashCode() {
+      return super.hashCode() ^ ((index + 1) << 26);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || obj.getClass() != getClass()) {
+        return false;
+      }
+      IndexedStmt other = (IndexedStmt) obj;
+      return other.node == node && other.index == index;
+    }
+  }
+
+  @Test
+  public void testRandomOperations() {
+    Random random = new Random(17);
+    ObjectIntHashMap<Object> map = new ObjectIntHashMap<>(0);
+    Map<Object, Integer> expected = HashMapFactory.make();
+    for (int step = 0; step < 20000; step++) {
+      int id = random.nextInt(300);
+      int value = random.nextInt();
+      Object key = id == 0 ? null : (id % 2 == 0 ? new Key(id) : Integer.valueOf(id));
+      switch (random.nextInt(4)) {
+        case 0:
+          map.put(key, value);
+          expected.put(key, value);
+          break;
+        case 1:
+          Assert.assertEquals(
+              (int) expected.computeIfAbsent(key, k -> value), map.getOrPut(key, value));
+          break;
+        case 2:
+          Assert.assertEquals(expected.remove(key) != null, map.remove(key));
+          break;
+        default:
+          Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+          Assert.assertEquals(expected.getOrDefault(key, -1), (Integer) map.getOrDefault(key, -1));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+
+    Set<Object> keys = HashSetFactory.make();
+    for (Object key : map.keys()) {
+      Assert.assertTrue(keys.add(key));
+      Assert.assertEquals((int) expected.get(key), map.getOrDefault(key, -1));
+    }
+    Assert.assertEquals(expected.keySet(), keys);
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertFalse(map.keys().iterator().hasNext());
+  }
+
+  @Test
+  public void testMutableMapping() {
+    MutableMapping<String> mapping = MutableMapping.make();
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(i, mapping.add("s" + i));
+    }
+    Assert.assertEquals(5, mapping.add("s5"));
+    mapping.deleteMappedObject("s5");
+    Assert.assertEquals(-1, mapping.getMappedIndex("s5"));
+    mapping.replace("s6", "t6");
+    Assert.assertEquals(6, mapping.getMappedIndex("t6"));
+    Assert.assertFalse(mapping.hasMappedIndex("s6"));
+    Assert.assertEquals(1000, mapping.add("s1000"));
+    Assert.assertEquals(1000, mapping.getSize());
+    Assert.assertEquals(1000, mapping.getObjects().size());
+  }
+
+  /** Statement-like keys are numbered as a {@link java.util.HashMap} would tell them apart. */
+  @Test
+  public void testStatementKeys() {
+    MutableMapping<Stmt> mapping = MutableMapping.make();
+    Map<Stmt, Integer> expected = HashMapFactory.make();
+    for (int node = 0; node < 50; node++) {
+      // the plain statement first, so that it is the stored key the indexed ones probe past
+      Stmt s = new Stmt(node);
+      Assert.assertEquals((int) expected.computeIfAbsent(s, k -> expected.size()), mapping.add(s));
+      for (int index = 0; index < 4; index++) {
+        Stmt t = new IndexedStmt(node, index);
+        Assert.assertEquals(
+            (int) expected.computeIfAbsent(t, k -> expected.size()), mapping.add(t));
+      }
+    }
+    Assert.assertEquals(250, expected.size());
+    Assert.assertEquals(expected.size(), mapping.getSize());
+    for (Map.Entry<Stmt, Integer> e : expected.entrySet()) {
+      Assert.assertEquals((int) e.getValue(), mapping.getMappedIndex(e.getKey()));
+      Assert.assertSame(e.getKey(), mapping.getMappedObject(e.getValue()));
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.IteratorUtil;
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.OffHeapIntSet;
+import com.ibm.wala.util.intset.OffHeapIntSetFactory;
+import com.ibm.wala.util.intset.OffHeapIntStore;
+import com.ibm.wala.util.intset.OffHeapNaturalRelation;
+import com.ibm.wala.util.intset.SparseIntSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests {@link OffHeapIntStore} and the sets and relations kept in it. */
+public class OffHeapIntSetTest extends WalaTestCase {
+
+  @Test
+  public void testStore() {
+    // slabs of 64 ints, so that blocks spill into several slabs
+    OffHeapIntStore store = new OffHeapIntStore(6);
+    Assert.assertEquals(64, store.maxCapacity());
+    List<Long> blocks = new ArrayList<>();
+    for (int n = 0; n <= 64; n++) {
+      long b = store.allocate(n);
+      Assert.assertTrue(OffHeapIntStore.capacity(b) >= Math.max(n, 2));
+      for (int i = 0; i < n; i++) {
+        store.set(b, i, n * 1000 + i);
+      }
+      blocks.add(b);
+    }
+    for (int n = 0; n <= 64; n++) {
+      for (int i = 0; i < n; i++) {
+        Assert.assertEquals(n * 1000 + i, store.get(blocks.get(n), i));
+      }
+    }
+    long used = store.getUsedBytes();
+    long reserved = store.getReservedBytes();
+    store.free(blocks.get(40));
+    Assert.assertEquals(blocks.get(40).longValue(), store.allocate(33));
+    Assert.assertEquals(used, store.getUsedBytes());
+    Assert.assertEquals(reserved, store.getReservedBytes());
+
+    long b = blocks.get(8);
+    store.copy(b, 0, b, 1, 7);
+    Assert.assertEquals(8000, store.get(b, 1));
+    Assert.assertEquals(8006, store.get(b, 7));
+    store.copy(b, 2, b, 0, 6);
+    Assert.assertEquals(8001, store.get(b, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlockTooLarge() {
+    new OffHeapIntStore(6).allocate(65);
+  }
+
+  @Test
+  public void testRandomSetOperations() {
+    OffHeapIntSetFactory factory = new OffHeapIntSetFactory(new OffHeapIntStore(8));
+    Random random = new Random(11);
+    for (int round = 0; round < 200; round++) {
+      BitVectorIntSet e1 = new BitVectorIntSet();
+      BitVectorIntSet e2 = new BitVectorIntSet();
+      BitVectorIntSet filter = new BitVectorIntSet();
+      MutableIntSet s1 = factory.make();
+      MutableIntSet s2 = factory.make();
+      for (int i = 0; i < 50; i++) {
+        int x = random.nextInt(100);
+        Assert.assertEquals(e1.add(x), s1.add(x));
+        x = random.nextInt(100);
+        Assert.assertEquals(e2.add(x), s2.add(x));
+        filter.add(random.nextInt(100));
+      }
+      assertSame(e1, s1);
+      Assert.assertEquals(e1.max(), s1.max());
+
+      MutableIntSet copy = factory.makeCopy(s1);
+      BitVectorIntSet expected = new BitVectorIntSet(e1);
+      Assert.assertEquals(
+          expected.addAllInIntersection(e2, filter), copy.addAllInIntersection(s2, filter));
+      assertSame(expected, copy);
+
+      copy = factory.makeCopy(s1);
+      expected = new BitVectorIntSet(e1);
+      Assert.assertEquals(expected.addAll(e2), copy.addAll(s2));
+      assertSame(expected, copy);
+      Assert.assertFalse(copy.addAll(s2));
+      Assert.assertTrue(s2.isSubset(copy));
+      Assert.assertEquals(e1.isSubset(e2), s1.isSubset(s2));
+      Assert.assertEquals(e1.containsAny(e2), s1.containsAny(s2));
+      Assert.assertTrue(e1.union(e2).sameValue(s1.union(e2)));
+      Assert.assertTrue(e1.intersection(e2).sameValue(s1.intersection(s2)));
+
+      copy.intersectWith(filter);
+      expected.intersectWith(filter);
+      assertSame(expected, copy);
+
+      for (int i = 0; i < 30; i++) {
+        int x = random.nextInt(100);
+        Assert.assertEquals(e1.contains(x), s1.remove(x));
+        e1.remove(x);
+      }
+      assertSame(e1, s1);
+    }
+  }
+
+  @Test
+  public void testDerivedSetsOnHeap() {
+    OffHeapIntSetFactory factory = new OffHeapIntSetFactory(new OffHeapIntStore(8));
+    MutableIntSet s1 = factory.make(new int[] {1, 3, 5, 7});
+    MutableIntSet s2 = factory.make(new int[] {3, 4, 5});
+    Assert.assertEquals(2, factory.getStore().getUsedBlockCount());
+
+    // nothing frees the blocks of temporaries, so they must not take any
+    Assert.assertTrue(s1.union(s2).sameValue(factory.make(new int[] {1, 3, 4, 5, 7})));
+    Assert.assertTrue(s1.intersection(s2).sameValue(SparseIntSet.pair(3, 5)));
+    Assert.assertTrue(IntSetUtil.diff(s1, s2).sameValue(SparseIntSet.pair(1, 7)));
+    MutableIntSet copy = IntSetUtil.makeMutableCopy(s1);
+    copy.add(9);
+    Assert.assertEquals(3, factory.getStore().getUsedBlockCount());
+
+    s1.clear();
+    Assert.assertEquals(2, factory.getStore().getUsedBlockCount());
+    Assert.assertEquals(5, copy.size());
+  }
+
+  @Test
+  public void testRandomRelationOperations() {
+    OffHeapIntStore store = new OffHeapIntStore(12);
+    IBinaryNaturalRelation actual = new OffHeapNaturalRelation(store);
+    IBinaryNaturalRelation expected = new BasicNaturalRelation();
+    Random random = new Random(5);
+    for (int i = 0; i < 20000; i++) {
+      int x = random.nextInt(3000);
+      int y = random.nextInt(12);
+      switch (random.nextInt(8)) {
+        case 0:
+          actual.remove(x, y);
+          expected.remove(x, y);
+          break;
+        case 1:
+          if (random.nextInt(10) == 0) {
+            actual.removeAll(x);
+            expected.removeAll(x);
+          }
+          break;
+        default:
+          Assert.assertEquals(expected.add(x, y), actual.add(x, y));
+      }
+    }
+    Assert.assertEquals(expected.maxKeyValue(), actual.maxKeyValue());
+    for (int i = 0; i <= expected.maxKeyValue() + 1; i++) {
+      int x = i;
+      Assert.assertEquals(expected.getRelatedCount(x), actual.getRelatedCount(x));
+      Assert.assertEquals(expected.anyRelated(x), actual.anyRelated(x));
+      IntSet related = expected.getRelated(x);
+      if (related == null || related.isEmpty()) {
+        Assert.assertFalse(actual.anyRelated(x));
+      } else {
+        Assert.assertTrue(related.sameValue(actual.getRelated(x)));
+        related.foreach(y -> Assert.assertTrue(actual.contains(x, y)));
+      }
+    }
+    int pairs = 0;
+    for (IntPair p : actual) {
+      Assert.assertTrue(expected.contains(p.getX(), p.getY()));
+      pairs++;
+    }
+    Assert.assertEquals(IteratorUtil.count(expected.iterator()), pairs);
+  }
+
+  private static void assertSame(IntSet expected, IntSet actual) {
+    Assert.assertTrue(actual instanceof OffHeapIntSet);
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertTrue(actual.sameValue(expected));
+    Assert.assertTrue(expected.sameValue(new BitVectorIntSet(actual)));
+  }
+}
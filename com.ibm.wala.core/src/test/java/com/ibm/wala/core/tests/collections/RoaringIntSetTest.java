@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.RoaringIntSet;
+import com.ibm.wala.util.intset.RoaringIntSetFactory;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link RoaringIntSet} against {@link BitVectorIntSet}, with sets whose blocks need array,
+ * bitmap and run containers.
+ */
+public class RoaringIntSetTest extends WalaTestCase {
+
+  private static final int BLOCK = 1 << 16;
+
+  private final Random random = new Random(42);
+
+  /** Add values to both sets, some blocks sparse, some dense and some in runs. */
+  private void fill(MutableIntSet roaring, MutableIntSet expected) {
+    for (int block = 0; block < 6; block++) {
+      int base = random.nextInt(8) * BLOCK;
+      int n;
+      switch (random.nextInt(4)) {
+        case 0:
+          // sparse: an array container
+          n = random.nextInt(100);
+          for (int i = 0; i < n; i++) {
+            add(base + random.nextInt(BLOCK), roaring, expected);
+          }
+          break;
+        case 1:
+          // dense: a bitmap container, around the array limit of 4096
+          n = 3900 + random.nextInt(400);
+          for (int i = 0; i < n; i++) {
+            add(base + random.nextInt(BLOCK), roaring, expected);
+          }
+          break;
+        case 2:
+          // long runs, reaching the ends of the block
+          add(base, roaring, expected);
+          add(base + BLOCK - 1, roaring, expected);
+          for (int run = 0; run < 5; run++) {
+            int start = random.nextInt(BLOCK);
+            int end = Math.min(BLOCK, start + random.nextInt(20000));
+            for (int x = start; x < end; x++) {
+              add(base + x, roaring, expected);
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static void add(int x, MutableIntSet roaring, MutableIntSet expected) {
+    Assert.assertEquals(expected.add(x), roaring.add(x));
+  }
+
+  private RoaringIntSet makeRandom(MutableIntSet expected) {
+    RoaringIntSet result = new RoaringIntSet();
+    fill(result, expected);
+    if (random.nextBoolean()) {
+      result.runOptimize();
+    }
+    assertSame(expected, result);
+    return result;
+  }
+
+  private static void assertSame(IntSet expected, IntSet actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertEquals(expected.max(), actual.max());
+    IntIterator e = expected.intIterator();
+    for (IntIterator it = actual.intIterator(); it.hasNext(); ) {
+      Assert.assertTrue(e.hasNext());
+      Assert.assertEquals(e.next(), it.next());
+    }
+    Assert.assertFalse(e.hasNext());
+    int[] count = new int[1];
+    actual.foreach(
+        x -> {
+          Assert.assertTrue(expected.contains(x));
+          count[0]++;
+        });
+    Assert.assertEquals(expected.size(), count[0]);
+    Assert.assertTrue(actual.sameValue(expected));
+  }
+
+  @Test
+  public void testBinaryOperations() {
+    for (int round = 0; round < 40; round++) {
+      BitVectorIntSet e1 = new BitVectorIntSet();
+      BitVectorIntSet e2 = new BitVectorIntSet();
+      RoaringIntSet r1 = makeRandom(e1);
+      RoaringIntSet r2 = makeRandom(e2);
+
+      BitVectorIntSet meet = new BitVectorIntSet(e1);
+      meet.intersectWith(e2);
+      assertSame(meet, r1.intersection(r2));
+      assertSame(meet, r1.intersection(e2));
+      Assert.assertEquals(!meet.isEmpty(), r1.containsAny(r2));
+      Assert.assertEquals(!meet.isEmpty(), r1.containsAny(e2));
+      Assert.assertEquals(e1.isSubset(e2), r1.isSubset(r2));
+      Assert.assertTrue(r1.intersection(r2).isSubset(r2));
+      Assert.assertEquals(e1.sameValue(e2), r1.sameValue(r2));
+
+      RoaringIntSet copy = new RoaringIntSet(r1);
+      copy.intersectWith(r2);
+      assertSame(meet, copy);
+
+      BitVectorIntSet join = new BitVectorIntSet(e1);
+      join.addAll(e2);
+      copy = new RoaringIntSet(r1);
+      Assert.assertEquals(!e2.isSubset(e1), copy.addAll(r2));
+      assertSame(join, copy);
+      Assert.assertFalse(copy.addAll(r2));
+      assertSame(e1, r1);
+      assertSame(e2, r2);
+      copy = new RoaringIntSet(r1);
+      copy.addAll(e2);
+      assertSame(join, copy);
+
+      BitVectorIntSet filter = new BitVectorIntSet();
+      RoaringIntSet roaringFilter = makeRandom(filter);
+      BitVectorIntSet expected = new BitVectorIntSet(e1);
+      expected.addAllInIntersection(e2, filter);
+      copy = new RoaringIntSet(r1);
+      copy.addAllInIntersection(r2, roaringFilter);
+      assertSame(expected, copy);
+    }
+  }
+
+  @Test
+  public void testRemove() {
+    for (int round = 0; round < 10; round++) {
+      BitVectorIntSet expected = new BitVectorIntSet();
+      RoaringIntSet set = makeRandom(expected);
+      for (int i = 0; i < 30000; i++) {
+        int x = random.nextInt(8 * BLOCK);
+        if (random.nextInt(3) == 0) {
+          add(x, set, expected);
+        } else {
+          Assert.assertEquals(expected.contains(x), set.remove(x));
+          expected.remove(x);
+        }
+      }
+      assertSame(expected, set);
+      for (IntIterator it = expected.intIterator(); it.hasNext(); ) {
+        Assert.assertTrue(set.remove(it.next()));
+      }
+      Assert.assertTrue(set.isEmpty());
+      Assert.assertEquals(-1, set.max());
+    }
+  }
+
+  @Test
+  public void testFactory() {
+    RoaringIntSetFactory factory = new RoaringIntSetFactory();
+    BitVectorIntSet expected = new BitVectorIntSet();
+    RoaringIntSet set = makeRandom(expected);
+    assertSame(expected, factory.makeCopy(set));
+    assertSame(expected, factory.makeCopy(expected));
+    Assert.assertEquals("{ 3 65536 65537 }", factory.parse("{65537,3,65536}").toString());
+  }
+}
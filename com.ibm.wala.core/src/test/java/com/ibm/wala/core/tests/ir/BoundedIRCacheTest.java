@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache;
+import com.ibm.wala.ssa.BoundedAuxiliaryCache.EvictionPolicy;
+import com.ibm.wala.ssa.CacheStatistics;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.SerializedIRSpillStore;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** Tests for {@link BoundedAuxiliaryCache} used as an IR cache. */
+public class BoundedIRCacheTest extends WalaTestCase {
+
+  private static final List<IMethod> methods = new ArrayList<>();
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    for (IClass klass :
+        Iterator2Iterable.make(
+            cha.getLoader(ClassLoaderReference.Application).iterateAllClasses())) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative() && methods.size() < 4) {
+          methods.add(m);
+        }
+      }
+    }
+    Assert.assertEquals(4, methods.size());
+  }
+
+  private static IAnalysisCacheView makeCache(BoundedAuxiliaryCache irCache) {
+    return new AnalysisCacheImpl(
+        new DefaultIRFactory(),
+        new AnalysisOptions().getSSAOptions(),
+        irCache,
+        new AuxiliaryCache());
+  }
+
+  @Test
+  public void testLRU() {
+    IAnalysisCacheView cache = makeCache(new BoundedAuxiliaryCache(3));
+    IR ir0 = cache.getIR(methods.get(0));
+    IR ir1 = cache.getIR(methods.get(1));
+    cache.getIR(methods.get(2));
+    Assert.assertSame(ir0, cache.getIR(methods.get(0)));
+    // evicts methods.get(1), the least recently used
+    cache.getIR(methods.get(3));
+    Assert.assertSame(ir0, cache.getIR(methods.get(0)));
+    Assert.assertNotSame(ir1, cache.getIR(methods.get(1)));
+
+    CacheStatistics stats = cache.getIRCacheStatistics();
+    Assert.assertEquals(2, stats.getHits());
+    Assert.assertEquals(5, stats.getMisses());
+    Assert.assertEquals(2, stats.getEvictions());
+    Assert.assertEquals(3, stats.getSize());
+  }
+
+  @Test
+  public void testWeight() {
+    BoundedAuxiliaryCache irCache =
+        new BoundedAuxiliaryCache(
+            100, Long.MAX_VALUE, BoundedAuxiliaryCache::estimateBytes, EvictionPolicy.LRU, null);
+    IAnalysisCacheView cache = makeCache(irCache);
+    IR ir = cache.getIR(methods.get(0));
+    Assert.assertEquals(
+        BoundedAuxiliaryCache.estimateBytes(ir), cache.getIRCacheStatistics().getWeight());
+
+    // a budget smaller than any IR caches nothing
+    cache =
+        makeCache(
+            new BoundedAuxiliaryCache(
+                100, 1, BoundedAuxiliaryCache::estimateBytes, EvictionPolicy.LRU, null));
+    cache.getIR(methods.get(0));
+    Assert.assertEquals(0, cache.getIRCacheStatistics().getSize());
+    Assert.assertEquals(1, cache.getIRCacheStatistics().getEvictions());
+  }
+
+  @Test
+  public void testSpill() {
+    Map<Pair<IMethod, SSAOptions>, Object> spilled = HashMapFactory.make();
+    BoundedAuxiliaryCache.SpillStore store =
+        new BoundedAuxiliaryCache.SpillStore() {
+          @Override
+          public void spill(IMethod m, Context c, SSAOptions options, Object aux) {
+            spilled.put(Pair.make(m, options), aux);
+          }
+
+          @Override
+          public Object restore(IMethod m, Context c, SSAOptions options) {
+            return spilled.remove(Pair.make(m, options));
+          }
+
+          @Override
+          public void invalidate(IMethod m, Context c) {}
+
+          @Override
+          public void wipe() {
+            spilled.clear();
+          }
+        };
+    IAnalysisCacheView cache =
+        makeCache(new BoundedAuxiliaryCache(1, Long.MAX_VALUE, x -> 1, EvictionPolicy.LRU, store));
+    IR ir0 = cache.getIR(methods.get(0));
+    cache.getIR(methods.get(1));
+    Assert.assertEquals(1, spilled.size());
+    Assert.assertSame(ir0, cache.getIR(methods.get(0)));
+
+    CacheStatistics stats = cache.getIRCacheStatistics();
+    Assert.assertEquals(2, stats.getSpills());
+    Assert.assertEquals(1, stats.getRestores());
+  }
+
+  @Test
+  public void testSerializedSpill() {
+    SerializedIRSpillStore store = new SerializedIRSpillStore();
+    IAnalysisCacheView cache =
+        makeCache(new BoundedAuxiliaryCache(1, Long.MAX_VALUE, x -> 1, EvictionPolicy.LRU, store));
+    IR ir0 = cache.getIR(methods.get(0));
+    String expected = ir0.toString();
+    // evicts the IR of methods.get(0) into the store
+    cache.getIR(methods.get(1));
+    Assert.assertTrue(store.getSpilledBytes() > 0);
+
+    IR restored = cache.getIR(methods.get(0));
+    Assert.assertNotSame(ir0, restored);
+    Assert.assertEquals(expected, restored.toString());
+    CacheStatistics stats = cache.getIRCacheStatistics();
+    Assert.assertEquals(1, stats.getRestores());
+    // the restored IR left the store, and the IR of methods.get(1) took its place
+    Assert.assertEquals(2, stats.getSpills());
+
+    store.wipe();
+    Assert.assertEquals(0, store.getSpilledBytes());
+  }
+
+  @Test
+  public void testTinyLFU() {
+    IAnalysisCacheView cache =
+        makeCache(
+            new BoundedAuxiliaryCache(2, Long.MAX_VALUE, x -> 1, EvictionPolicy.TINY_LFU, null));
+    IR ir0 = cache.getIR(methods.get(0));
+    IR ir1 = cache.getIR(methods.get(1));
+    for (int i = 0; i < 5; i++) {
+      cache.getIR(methods.get(0));
+      cache.getIR(methods.get(1));
+    }
+    // methods visited once do not displace frequently used ones
+    cache.getIR(methods.get(2));
+    cache.getIR(methods.get(3));
+    Assert.assertSame(ir0, cache.getIR(methods.get(0)));
+    Assert.assertSame(ir1, cache.getIR(methods.get(1)));
+    Assert.assertEquals(2, cache.getIRCacheStatistics().getEvictions());
+  }
+
+  @Test
+  public void testTinyLFUAdmissionBeforeEviction() {
+    Context c = Everywhere.EVERYWHERE;
+    SSAOptions options = new SSAOptions();
+    IMethod m0 = methods.get(0), m1 = methods.get(1), m2 = methods.get(2);
+
+    // values are their own weights; both entries must go to make room for a value of weight 2
+    BoundedAuxiliaryCache cache =
+        new BoundedAuxiliaryCache(10, 2, x -> (Integer) x, EvictionPolicy.TINY_LFU, null);
+    cache.cache(m0, c, options, 1);
+    cache.cache(m1, c, options, 1);
+    for (int i = 0; i < 5; i++) {
+      cache.find(m0, c, options);
+      cache.find(m1, c, options);
+    }
+    // a newcomer less popular than the first entry to go is rejected, and nothing is evicted
+    cache.cache(m2, c, options, 2);
+    Assert.assertEquals(1, cache.find(m0, c, options));
+    Assert.assertEquals(1, cache.find(m1, c, options));
+    Assert.assertEquals(1, cache.getStatistics().getEvictions());
+
+    cache = new BoundedAuxiliaryCache(10, 2, x -> (Integer) x, EvictionPolicy.TINY_LFU, null);
+    cache.cache(m0, c, options, 1);
+    cache.cache(m1, c, options, 1);
+    for (int i = 0; i < 5; i++) {
+      cache.find(m1, c, options);
+    }
+    cache.find(m2, c, options);
+    cache.find(m2, c, options);
+    // a newcomer more popular than the first entry to go is admitted, whatever comes after it
+    cache.cache(m2, c, options, 2);
+    Assert.assertEquals(2, cache.find(m2, c, options));
+    Assert.assertNull(cache.find(m0, c, options));
+    Assert.assertEquals(2, cache.getStatistics().getEvictions());
+  }
+
+  @Test
+  public void testAuxiliaryCacheSize() {
+    Context c = Everywhere.EVERYWHERE;
+    SSAOptions options = new SSAOptions();
+    AuxiliaryCache cache = new AuxiliaryCache();
+    cache.cache(methods.get(0), c, options, "a");
+    cache.cache(methods.get(0), c, options, "b");
+    cache.cache(methods.get(1), c, options, "c");
+    Assert.assertEquals(2, cache.getStatistics().getSize());
+  }
+}
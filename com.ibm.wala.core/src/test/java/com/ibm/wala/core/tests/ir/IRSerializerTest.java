@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRSerializer;
+import com.ibm.wala.ssa.IRStore;
+import com.ibm.wala.ssa.PersistentIRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link IRSerializer} and {@link PersistentIRFactory}. */
+public class IRSerializerTest extends WalaTestCase {
+
+  private static final List<IMethod> methods = new ArrayList<>();
+
+  private static final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void beforeClass() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    List<IClass> classes = new ArrayList<>();
+    for (IClass klass :
+        Iterator2Iterable.make(
+            cha.getLoader(ClassLoaderReference.Application).iterateAllClasses())) {
+      classes.add(klass);
+    }
+    for (TypeReference t :
+        Arrays.asList(
+            TypeReference.JavaLangString,
+            TypeReference.findOrCreate(ClassLoaderReference.Primordial, "Ljava/util/HashMap"))) {
+      classes.add(cha.lookupClass(t));
+    }
+    for (IClass klass : classes) {
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (m instanceof ShrikeCTMethod && !m.isAbstract() && !m.isNative()) {
+          try {
+            ((ShrikeCTMethod) m).getInstructions();
+            methods.add(m);
+          } catch (InvalidClassFileException e) {
+            // some test classes are broken on purpose
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    DefaultIRFactory factory = new DefaultIRFactory();
+    for (IMethod m : methods) {
+      IR ir = factory.makeIR(m, Everywhere.EVERYWHERE, options);
+      byte[] data = IRSerializer.encode(ir);
+      Assert.assertNotNull(m.toString(), data);
+      IR copy = IRSerializer.decode((ShrikeCTMethod) m, options, data);
+      Assert.assertNotNull(m.toString(), copy);
+      Assert.assertEquals(ir.toString(), copy.toString());
+    }
+  }
+
+  @Test
+  public void testDamagedData() {
+    IMethod m = methods.get(0);
+    byte[] data =
+        IRSerializer.encode(new DefaultIRFactory().makeIR(m, Everywhere.EVERYWHERE, options));
+    Assert.assertNull(
+        IRSerializer.decode((ShrikeCTMethod) m, options, Arrays.copyOf(data, data.length / 2)));
+  }
+
+  @Test
+  public void testStore() throws IOException {
+    File dir = temporaryFolder.newFolder();
+    List<String> expected = new ArrayList<>();
+
+    // the first time around, IRs are built and stored ...
+    PersistentIRFactory factory = new PersistentIRFactory(dir);
+    for (IMethod m : methods) {
+      expected.add(factory.makeIR(m, Everywhere.EVERYWHERE, options).toString());
+    }
+    Assert.assertEquals(methods.size(), factory.getNumberOfStoredIRs());
+    Assert.assertEquals(0, factory.getNumberOfLoadedIRs());
+
+    // ... and the second time, they are loaded
+    factory = new PersistentIRFactory(dir);
+    for (int i = 0; i < methods.size(); i++) {
+      Assert.assertEquals(
+          expected.get(i),
+          factory.makeIR(methods.get(i), Everywhere.EVERYWHERE, options).toString());
+    }
+    Assert.assertEquals(methods.size(), factory.getNumberOfLoadedIRs());
+    Assert.assertEquals(0, factory.getNumberOfStoredIRs());
+  }
+
+  @Test
+  public void testOnlyDefaultOptionsStored() {
+    ShrikeCTMethod m = (ShrikeCTMethod) methods.get(0);
+    Assert.assertNotNull(IRStore.computeKey(m, options));
+
+    SSAOptions pi = new AnalysisOptions().getSSAOptions();
+    pi.setPiNodePolicy(SSAOptions.getAllBuiltInPiNodes());
+    Assert.assertNull(IRStore.computeKey(m, pi));
+
+    SSAOptions defaults = new AnalysisOptions().getSSAOptions();
+    defaults.setDefaultValues((symtab, valueNumber) -> symtab.getConstant(0));
+    Assert.assertNull(IRStore.computeKey(m, defaults));
+  }
+}
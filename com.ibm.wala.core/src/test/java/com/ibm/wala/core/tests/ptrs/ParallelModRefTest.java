@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Check that the parallel mod-ref analysis computes the same result as the sequential one. */
+public class ParallelModRefTest extends WalaTestCase {
+
+  @Test
+  public void testModRef()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(
+            scope,
+            cha,
+            new String[] {
+              TestConstants.RECURSE_MAIN,
+              TestConstants.MULTI_DIM_MAIN,
+              TestConstants.ARRAY_ALIAS_MAIN
+            });
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    ModRef<InstanceKey> sequential = ModRef.make();
+    ModRef<InstanceKey> parallel = ModRef.make();
+    parallel.setNumberOfThreads(4);
+
+    Map<String, Set<String>> mod = describe(sequential.computeMod(cg, pa));
+    Assert.assertFalse(mod.isEmpty());
+    Assert.assertEquals(mod, describe(parallel.computeMod(cg, pa)));
+    Assert.assertEquals(
+        describe(sequential.computeRef(cg, pa)), describe(parallel.computeRef(cg, pa)));
+  }
+
+  /** @return the heap locations of each node, keyed by their string form */
+  private static Map<String, Set<String>> describe(Map<CGNode, OrdinalSet<PointerKey>> result) {
+    Map<String, Set<String>> description = HashMapFactory.make();
+    for (Map.Entry<CGNode, OrdinalSet<PointerKey>> e : result.entrySet()) {
+      Set<String> keys = HashSetFactory.make();
+      for (PointerKey k : e.getValue()) {
+        keys.add(k.toString());
+      }
+      Assert.assertNull(description.put(e.getKey().toString(), keys));
+    }
+    return description;
+  }
+}
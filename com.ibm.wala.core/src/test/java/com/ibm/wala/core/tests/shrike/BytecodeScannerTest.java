@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.classLoader.BytecodeLanguage;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.CodeScanner;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.config.AnalysisScopeReader;
+import com.ibm.wala.core.util.io.FileProvider;
+import com.ibm.wala.core.util.shrike.ShrikeUtil;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.BytecodeScanner;
+import com.ibm.wala.shrike.shrikeBT.Decoder;
+import com.ibm.wala.shrike.shrikeBT.IArrayLoadInstruction;
+import com.ibm.wala.shrike.shrikeBT.IArrayStoreInstruction;
+import com.ibm.wala.shrike.shrikeBT.IGetInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrike.shrikeBT.IPutInstruction;
+import com.ibm.wala.shrike.shrikeBT.ITypeTestInstruction;
+import com.ibm.wala.shrike.shrikeBT.MonitorInstruction;
+import com.ibm.wala.shrike.shrikeBT.NewInstruction;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BytecodeScannerTest extends WalaTestCase {
+
+  /** What a method does, found by visiting the instructions of its {@link Decoder} */
+  private static class DecodedMethod extends IInstruction.Visitor {
+    final Set<CallSiteReference> callSites = HashSetFactory.make();
+
+    final Set<FieldReference> fieldsRead = HashSetFactory.make();
+
+    final Set<FieldReference> fieldsWritten = HashSetFactory.make();
+
+    final Set<NewSiteReference> newSites = HashSetFactory.make();
+
+    final Set<TypeReference> arraysRead = HashSetFactory.make();
+
+    final Set<TypeReference> arraysWritten = HashSetFactory.make();
+
+    final Set<TypeReference> castTypes = HashSetFactory.make();
+
+    final Set<TypeReference> implicitExceptions = HashSetFactory.make();
+
+    boolean hasMonitorOp;
+
+    private final IClassLoader loader;
+
+    private int pc;
+
+    DecodedMethod(ShrikeCTMethod method) throws InvalidClassFileException {
+      loader = method.getDeclaringClass().getClassLoader();
+      BytecodeLanguage lang = (BytecodeLanguage) loader.getLanguage();
+      IInstruction[] instructions = method.getInstructions();
+      for (int i = 0; i < instructions.length; i++) {
+        pc = method.getBytecodeIndex(i);
+        instructions[i].visit(this);
+        if (instructions[i].isPEI()) {
+          Collection<TypeReference> t = lang.getImplicitExceptionTypes(instructions[i]);
+          if (t != null) {
+            implicitExceptions.addAll(t);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void visitInvoke(IInvokeInstruction instruction) {
+      MethodReference m =
+          MethodReference.findOrCreate(
+              loader.getLanguage(),
+              loader.getReference(),
+              instruction.getClassType(),
+              instruction.getMethodName(),
+              instruction.getMethodSignature());
+      callSites.add(CallSiteReference.make(pc, m, instruction.getInvocationCode()));
+    }
+
+    @Override
+    public void visitGet(IGetInstruction instruction) {
+      fieldsRead.add(
+          FieldReference.findOrCreate(
+              loader.getReference(),
+              instruction.getClassType(),
+              instruction.getFieldName(),
+              instruction.getFieldType()));
+    }
+
+    @Override
+    public void visitPut(IPutInstruction instruction) {
+      fieldsWritten.add(
+          FieldReference.findOrCreate(
+              loader.getReference(),
+              instruction.getClassType(),
+              instruction.getFieldName(),
+              instruction.getFieldType()));
+    }
+
+    @Override
+    public void visitMonitor(MonitorInstruction instruction) {
+      hasMonitorOp = true;
+    }
+
+    @Override
+    public void visitNew(NewInstruction instruction) {
+      newSites.add(NewSiteReference.make(pc, type(instruction.getType())));
+    }
+
+    @Override
+    public void visitArrayLoad(IArrayLoadInstruction instruction) {
+      arraysRead.add(type(instruction.getType()));
+    }
+
+    @Override
+    public void visitArrayStore(IArrayStoreInstruction instruction) {
+      arraysWritten.add(type(instruction.getType()));
+    }
+
+    @Override
+    public void visitCheckCast(ITypeTestInstruction instruction) {
+      for (String t : instruction.getTypes()) {
+        castTypes.add(type(t));
+      }
+    }
+
+    private TypeReference type(String name) {
+      return ShrikeUtil.makeTypeReference(loader.getReference(), name);
+    }
+  }
+
+  private static <T> Set<T> toSet(Iterator<T> it) {
+    Set<T> result = HashSetFactory.make();
+    it.forEachRemaining(result::add);
+    return result;
+  }
+
+  @Test
+  public void testSameSummaryAsDecoder()
+      throws IOException, ClassHierarchyException, InvalidClassFileException {
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            TestConstants.WALA_TESTDATA,
+            new FileProvider().getFile("J2SEClassHierarchyExclusions.txt"),
+            BytecodeScannerTest.class.getClassLoader());
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+
+    int methods = 0;
+    for (IClass klass : cha) {
+      // the methods of CodeDeleted have had their code removed on purpose
+      if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          || klass.getName().toString().equals("LCodeDeleted")) {
+        continue;
+      }
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (m.isAbstract() || m.isNative()) {
+          continue;
+        }
+        ShrikeCTMethod method = (ShrikeCTMethod) m;
+        DecodedMethod expected = new DecodedMethod(method);
+
+        Assert.assertEquals(
+            m.toString(), expected.callSites, HashSetFactory.make(method.getCallSites()));
+        Assert.assertEquals(m.toString(), expected.fieldsRead, toSet(method.getFieldsRead()));
+        Assert.assertEquals(m.toString(), expected.fieldsWritten, toSet(method.getFieldsWritten()));
+        Assert.assertEquals(m.toString(), expected.hasMonitorOp, method.hasMonitorOp());
+        Assert.assertEquals(
+            m.toString(), expected.newSites, HashSetFactory.make(CodeScanner.getNewSites(method)));
+        Assert.assertEquals(m.toString(), expected.arraysRead, toSet(method.getArraysRead()));
+        Assert.assertEquals(m.toString(), expected.arraysWritten, toSet(method.getArraysWritten()));
+        Assert.assertEquals(m.toString(), expected.castTypes, toSet(method.getCastTypes()));
+        Assert.assertEquals(
+            m.toString(),
+            expected.implicitExceptions,
+            HashSetFactory.make(method.getImplicitExceptionTypes()));
+        methods++;
+      }
+    }
+    Assert.assertTrue("expected methods in " + TestConstants.WALA_TESTDATA, methods > 500);
+  }
+
+  @Test
+  public void testBranchOutOfCode() {
+    // iconst_0; ifeq +100; return
+    byte[] code = {0x03, (byte) 0x99, 0x00, 0x64, (byte) 0xb1};
+    BytecodeScanner scanner = new BytecodeScanner(code, new int[0], null);
+    try {
+      scanner.scan(new BytecodeScanner.Visitor() {});
+      Assert.fail("expected an InvalidBytecodeException");
+    } catch (Decoder.InvalidBytecodeException e) {
+      Assert.assertEquals(101, e.getIndex());
+    }
+  }
+
+  @Test
+  public void testUnreachableCodeIsSkipped() throws Decoder.InvalidBytecodeException {
+    // goto +5; nop; monitorenter; return
+    byte[] code = {(byte) 0xa7, 0x00, 0x05, 0x00, (byte) 0xc2, (byte) 0xb1};
+    int[] visited = new int[code.length];
+    new BytecodeScanner(code, new int[0], null)
+        .scan(
+            new BytecodeScanner.Visitor() {
+              @Override
+              public void visitInstruction(int pc, int opcode) {
+                visited[pc]++;
+              }
+            });
+    Assert.assertArrayEquals(new int[] {1, 0, 0, 0, 0, 1}, visited);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.Constants;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyProvider;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.TemporaryFile;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassHierarchyCacheTest extends WalaTestCase {
+
+  private static final String TEST_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  /** Counts the questions asked of a store. */
+  private static class CountingProvider implements ClassHierarchyProvider {
+    private final ClassHierarchyProvider store;
+
+    int queries;
+
+    CountingProvider(ClassHierarchyProvider store) {
+      this.store = store;
+    }
+
+    @Override
+    public String getSuperClass(String cl) {
+      queries++;
+      return store.getSuperClass(cl);
+    }
+
+    @Override
+    public String[] getSuperInterfaces(String cl) {
+      queries++;
+      return store.getSuperInterfaces(cl);
+    }
+
+    @Override
+    public String[] getSubClasses(String cl) {
+      queries++;
+      return store.getSubClasses(cl);
+    }
+
+    @Override
+    public int isInterface(String cl) {
+      queries++;
+      return store.isInterface(cl);
+    }
+  }
+
+  private List<ClassReader> readTestClasses() throws IOException, InvalidClassFileException {
+    File jar =
+        TemporaryFile.urlToFile(
+            "cache_" + TEST_JAR, getClass().getClassLoader().getResource(TEST_JAR));
+    jar.deleteOnExit();
+    List<ClassReader> result = new ArrayList<>();
+    try (JarFile f = new JarFile(jar)) {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          try (InputStream in = f.getInputStream(entry)) {
+            OfflineInstrumenter.copyStream(in, bytes);
+          }
+          result.add(new ClassReader(bytes.toByteArray()));
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Add a useless push and pop to the start of every method, which needs new stack maps. */
+  private static byte[] instrument(ClassReader cr, ClassHierarchyProvider hierarchy)
+      throws InvalidClassFileException {
+    ClassInstrumenter ci = new ClassInstrumenter(cr.getName(), cr, hierarchy);
+    for (int m = 0; m < cr.getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(ConstantInstruction.make(0));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.emitClass().makeBytes();
+  }
+
+  @Test
+  public void testSameStackMaps() throws IOException, InvalidClassFileException {
+    List<ClassReader> classes = readTestClasses();
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    for (ClassReader cr : classes) {
+      CTUtils.addClassToHierarchy(store, cr);
+    }
+
+    CountingProvider uncached = new CountingProvider(store);
+    CountingProvider underCache = new CountingProvider(store);
+    ClassHierarchyCache cache = new ClassHierarchyCache(underCache);
+    for (ClassReader cr : classes) {
+      Assert.assertArrayEquals(cr.getName(), instrument(cr, uncached), instrument(cr, cache));
+    }
+    Assert.assertTrue("expected classes in " + TEST_JAR, classes.size() > 100);
+    Assert.assertTrue("expected queries of the hierarchy", uncached.queries > 0);
+    Assert.assertTrue(underCache.queries <= uncached.queries);
+
+    // a second time, everything is answered by the cache
+    int queries = underCache.queries;
+    for (ClassReader cr : classes) {
+      instrument(cr, cache);
+    }
+    Assert.assertEquals(queries, underCache.queries);
+  }
+
+  @Test
+  public void testSameAnswers() {
+    ClassHierarchyStore store = new ClassHierarchyStore();
+    store.setClassInfo(Constants.TYPE_Object, false, false, null, new String[0]);
+    store.setClassInfo("LI;", true, false, Constants.TYPE_Object, new String[0]);
+    store.setClassInfo("LJ;", true, false, Constants.TYPE_Object, new String[] {"LI;"});
+    store.setClassInfo("LA;", false, false, Constants.TYPE_Object, new String[] {"LI;"});
+    store.setClassInfo("LB;", false, true, "LA;", new String[] {"LJ;"});
+    store.setClassInfo("LC;", false, false, "LA;", new String[0]);
+    store.setClassInfo("LD;", false, false, "LMissing;", new String[0]);
+    ClassHierarchyCache cache = new ClassHierarchyCache(store);
+
+    List<String> types =
+        Arrays.asList(
+            Constants.TYPE_Object,
+            "LI;",
+            "LJ;",
+            "LA;",
+            "LB;",
+            "LC;",
+            "LD;",
+            "LMissing;",
+            Constants.TYPE_null,
+            Constants.TYPE_unknown,
+            "[LA;",
+            "[LB;",
+            "[[LC;",
+            "[I",
+            "I",
+            null);
+    // twice, to get the remembered answers the second time
+    for (int i = 0; i < 2; i++) {
+      for (String t1 : types) {
+        for (String t2 : types) {
+          String pair = t1 + ", " + t2;
+          Assert.assertEquals(
+              pair,
+              ClassHierarchy.isSubtypeOf(store, t1, t2),
+              ClassHierarchy.isSubtypeOf(cache, t1, t2));
+          Assert.assertEquals(
+              pair,
+              ClassHierarchy.findCommonSupertype(store, t1, t2),
+              ClassHierarchy.findCommonSupertype(cache, t1, t2));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullHierarchy() {
+    new ClassHierarchyCache(null);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.Decoder;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTDecoder;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassConstants;
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.ClassWriter;
+import com.ibm.wala.shrike.shrikeCT.CodeReader;
+import com.ibm.wala.shrike.shrikeCT.ConstantPoolParser;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.io.TemporaryFile;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassWriterTest extends WalaTestCase {
+
+  private static final String TEST_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  private List<ClassReader> readTestClasses() throws IOException, InvalidClassFileException {
+    File jar =
+        TemporaryFile.urlToFile(
+            "writer_" + TEST_JAR, getClass().getClassLoader().getResource(TEST_JAR));
+    jar.deleteOnExit();
+    List<ClassReader> result = new ArrayList<>();
+    try (JarFile f = new JarFile(jar)) {
+      for (Enumeration<JarEntry> e = f.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          try (InputStream in = f.getInputStream(entry)) {
+            OfflineInstrumenter.copyStream(in, bytes);
+          }
+          result.add(new ClassReader(bytes.toByteArray()));
+        }
+      }
+    }
+    return result;
+  }
+
+  /** @return the index the writer gives to an entry with the value of item i of cp */
+  private static int addLike(ClassWriter w, ConstantPoolParser cp, int i)
+      throws InvalidClassFileException {
+    switch (cp.getItemType(i)) {
+      case ClassConstants.CONSTANT_Utf8:
+        return w.addCPUtf8(cp.getCPUtf8(i));
+      case ClassConstants.CONSTANT_Class:
+        return w.addCPClass(cp.getCPClass(i));
+      case ClassConstants.CONSTANT_String:
+        return w.addCPString(cp.getCPString(i));
+      case ClassConstants.CONSTANT_Integer:
+        return w.addCPInt(cp.getCPInt(i));
+      case ClassConstants.CONSTANT_Long:
+        return w.addCPLong(cp.getCPLong(i));
+      case ClassConstants.CONSTANT_NameAndType:
+        return w.addCPNAT(cp.getCPNATName(i), cp.getCPNATType(i));
+      case ClassConstants.CONSTANT_FieldRef:
+        return w.addCPFieldRef(cp.getCPRefClass(i), cp.getCPRefName(i), cp.getCPRefType(i));
+      case ClassConstants.CONSTANT_MethodRef:
+        return w.addCPMethodRef(cp.getCPRefClass(i), cp.getCPRefName(i), cp.getCPRefType(i));
+      case ClassConstants.CONSTANT_InterfaceMethodRef:
+        return w.addCPInterfaceMethodRef(
+            cp.getCPRefClass(i), cp.getCPRefName(i), cp.getCPRefType(i));
+      default:
+        return -1;
+    }
+  }
+
+  @Test
+  public void testReuseRawEntries() throws IOException, InvalidClassFileException {
+    int checked = 0;
+    for (ClassReader cr : readTestClasses()) {
+      ConstantPoolParser cp = cr.getCP();
+      ClassWriter w = new ClassWriter();
+      w.setIncrementalRawCP(cp);
+      for (int i = 1; i < cp.getItemCount(); i++) {
+        if (cp.getItemType(i) != 0) {
+          int index = addLike(w, cp, i);
+          if (index != -1) {
+            Assert.assertEquals(cr.getName() + " item " + i, i, index);
+            checked++;
+          }
+        }
+      }
+      Assert.assertEquals(cp.getItemCount(), w.addCPUtf8("not in any pool \u00e9\u0000"));
+      Assert.assertEquals(cp.getItemCount(), w.addCPUtf8("not in any pool \u00e9\u0000"));
+    }
+    Assert.assertTrue("expected constant pool items in " + TEST_JAR, checked > 5000);
+  }
+
+  @Test
+  public void testInstrumentedClassAppendsOnlyMissingEntries()
+      throws IOException, InvalidClassFileException, Decoder.InvalidBytecodeException {
+    int classes = 0;
+    for (ClassReader cr : readTestClasses()) {
+      ClassInstrumenter ci = new ClassInstrumenter(cr.getName(), cr, null);
+      for (int m = 0; m < cr.getMethodCount(); m++) {
+        MethodData d = ci.visitMethod(m);
+        if (d != null) {
+          MethodEditor me = new MethodEditor(d);
+          me.beginPass();
+          me.insertAtStart(
+              new MethodEditor.Patch() {
+                @Override
+                public void emitTo(MethodEditor.Output w) {
+                  w.emit(ConstantInstruction.make(0));
+                  w.emit(PopInstruction.make(1));
+                }
+              });
+          me.applyPatches();
+          me.endPass();
+        }
+      }
+      if (!ci.isChanged()) {
+        continue;
+      }
+
+      ConstantPoolParser in = cr.getCP();
+      Set<String> strings = HashSetFactory.make();
+      for (int i = 1; i < in.getItemCount(); i++) {
+        if (in.getItemType(i) == ClassConstants.CONSTANT_Utf8) {
+          strings.add(in.getCPUtf8(i));
+        }
+      }
+
+      ClassReader out = new ClassReader(ci.emitClass().makeBytes());
+      ConstantPoolParser cp = out.getCP();
+      Assert.assertTrue(cp.getItemCount() >= in.getItemCount());
+      for (int i = in.getItemCount(); i < cp.getItemCount(); i++) {
+        if (cp.getItemType(i) == ClassConstants.CONSTANT_Utf8) {
+          Assert.assertFalse(cr.getName() + " item " + i, strings.contains(cp.getCPUtf8(i)));
+        }
+      }
+
+      ClassReader.AttrIterator iter = new ClassReader.AttrIterator();
+      for (int m = 0; m < out.getMethodCount(); m++) {
+        out.initMethodAttributeIterator(m, iter);
+        for (; iter.isValid(); iter.advance()) {
+          if (iter.getName().equals("Code")) {
+            new CTDecoder(new CodeReader(iter)).decode();
+          }
+        }
+      }
+      classes++;
+    }
+    Assert.assertTrue("expected classes in " + TEST_JAR, classes > 100);
+  }
+}
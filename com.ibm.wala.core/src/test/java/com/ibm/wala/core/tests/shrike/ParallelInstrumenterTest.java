@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.OfflineInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.ClassWriter;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.util.io.TemporaryFile;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelInstrumenterTest extends WalaTestCase {
+
+  private static final String TEST_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  /** Add a useless push and pop to the start of every method. */
+  private static ClassWriter rewrite(ClassInstrumenter ci) throws InvalidClassFileException {
+    for (int m = 0; m < ci.getReader().getMethodCount(); m++) {
+      MethodData d = ci.visitMethod(m);
+      if (d != null) {
+        final int value = m;
+        MethodEditor me = new MethodEditor(d);
+        me.beginPass();
+        me.insertAtStart(
+            new MethodEditor.Patch() {
+              @Override
+              public void emitTo(MethodEditor.Output w) {
+                w.emit(ConstantInstruction.make(value));
+                w.emit(PopInstruction.make(1));
+              }
+            });
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    return ci.isChanged() ? ci.emitClass() : null;
+  }
+
+  private File instrument(int threads) throws IOException, InvalidClassFileException {
+    File input =
+        TemporaryFile.urlToFile(
+            "parallel_" + TEST_JAR, getClass().getClassLoader().getResource(TEST_JAR));
+    input.deleteOnExit();
+    File output = Files.createTempFile("wala-test", ".jar").toFile();
+    output.deleteOnExit();
+
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter();
+    instrumenter.addInputJar(input);
+    instrumenter.setOutputJar(output);
+    instrumenter.setPassUnmodifiedClasses(true);
+    if (threads > 1) {
+      instrumenter.outputModifiedClasses(ParallelInstrumenterTest::rewrite, threads);
+    } else {
+      instrumenter.beginTraversal();
+      ClassInstrumenter ci;
+      while ((ci = instrumenter.nextClass()) != null) {
+        ClassWriter cw = rewrite(ci);
+        if (cw != null) {
+          instrumenter.outputModifiedClass(ci, cw);
+        }
+      }
+    }
+    instrumenter.close();
+    return output;
+  }
+
+  /** @return the names and contents of the entries of a jar, in order */
+  private static List<Object> entries(File jar) throws IOException {
+    List<Object> result = new ArrayList<>();
+    try (JarInputStream in = new JarInputStream(Files.newInputStream(jar.toPath()))) {
+      for (JarEntry e = in.getNextJarEntry(); e != null; e = in.getNextJarEntry()) {
+        result.add(e.getName());
+        result.add(Arrays.toString(read(in)));
+      }
+    }
+    return result;
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OfflineInstrumenter.copyStream(in, bytes);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testSameOutputAsTraversal() throws IOException, InvalidClassFileException {
+    List<Object> sequential = entries(instrument(1));
+    List<Object> parallel = entries(instrument(4));
+    Assert.assertTrue("expected classes in " + TEST_JAR, sequential.size() > 100);
+    Assert.assertEquals(sequential, parallel);
+  }
+
+  @Test
+  public void testRewriterFailure() throws IOException {
+    File output = Files.createTempFile("wala-test", ".jar").toFile();
+    output.deleteOnExit();
+    File input =
+        TemporaryFile.urlToFile(
+            "parallel_" + TEST_JAR, getClass().getClassLoader().getResource(TEST_JAR));
+    input.deleteOnExit();
+
+    OfflineInstrumenter instrumenter = new OfflineInstrumenter();
+    instrumenter.addInputJar(input);
+    instrumenter.setOutputJar(output);
+    try {
+      instrumenter.outputModifiedClasses(
+          ci -> {
+            throw new InvalidClassFileException(0, "expected");
+          },
+          2);
+      Assert.fail("expected an IOException");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof InvalidClassFileException);
+    } finally {
+      instrumenter.close();
+    }
+  }
+}
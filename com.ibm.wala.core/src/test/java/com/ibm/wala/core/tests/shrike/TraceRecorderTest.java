@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.shrike;
+
+import com.ibm.wala.shrike.cg.TraceDecoder;
+import com.ibm.wala.shrike.cg.TraceRecorder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TraceRecorderTest {
+
+  private static final int THREADS = 4;
+
+  /** enough events to fill several buffers of each thread */
+  private static final int EVENTS = 20000;
+
+  /**
+   * Record the events of thread t, and return the lines {@link TraceDecoder} should give for them,
+   * except for edges from the root.
+   */
+  private static List<String> record(TraceRecorder recorder, int t) {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < EVENTS; i++) {
+      String klass = "Lp/C" + (i % 17);
+      String method = "m" + (i % 5) + "()V";
+      if (i % 3 == 0) {
+        recorder.edge("root", klass, method);
+      } else {
+        String caller = "Lp/T" + t;
+        String receiver = "r" + t + '\u00e9' + i;
+        recorder.callTo(caller, "run()V", klass, method, receiver);
+        String site = caller + "\trun()V\t" + klass + '\t' + method + '\t' + receiver;
+        expected.add("call to " + site);
+        recorder.edge(caller + "\trun()V", klass, method);
+        expected.add(caller + "\trun()V\t" + klass + '\t' + method);
+        recorder.returnFrom();
+        expected.add("return from " + site);
+      }
+    }
+    return expected;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, InterruptedException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TraceRecorder recorder = new TraceRecorder(bytes);
+    List<List<String>> expected = new ArrayList<>();
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      List<String> e = new ArrayList<>();
+      expected.add(e);
+      threads[t] = new Thread(() -> e.addAll(record(recorder, thread)));
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    recorder.close();
+
+    StringWriter text = new StringWriter();
+    TraceDecoder.decode(new ByteArrayInputStream(bytes.toByteArray()), text);
+    List<String> lines = new ArrayList<>(Arrays.asList(text.toString().split("\n")));
+
+    // the lines of each thread are in order, though those of different threads interleave
+    for (int t = 0; t < THREADS; t++) {
+      String caller = "Lp/T" + t + '\t';
+      List<String> mine = new ArrayList<>();
+      for (String line : lines) {
+        if (line.contains(caller)) {
+          mine.add(line);
+        }
+      }
+      Assert.assertEquals(expected.get(t), mine);
+    }
+
+    long roots = lines.stream().filter(line -> line.startsWith("root\t")).count();
+    Assert.assertEquals(THREADS * ((EVENTS + 2) / 3), roots);
+    Assert.assertEquals(THREADS * EVENTS * 3 - 2 * roots, lines.size());
+  }
+
+  @Test
+  public void testRecordAfterClose() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TraceRecorder recorder = new TraceRecorder(bytes);
+    recorder.edge("root", "LA", "main([Ljava/lang/String;)V");
+    recorder.close();
+    recorder.edge("root", "LB", "f()V");
+    recorder.close();
+
+    StringWriter text = new StringWriter();
+    TraceDecoder.decode(new ByteArrayInputStream(bytes.toByteArray()), text);
+    Assert.assertEquals("root\tLA\tmain([Ljava/lang/String;)V\n", text.toString());
+  }
+}
@@ -40,6 +40,7 @@ import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.BatchSlicer;
 import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCaller;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalReturnCaller;
@@ -51,19 +52,27 @@ import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
 import com.ibm.wala.ipa.slicer.SlicerUtil;
 import com.ibm.wala.ipa.slicer.Statement;
 import com.ibm.wala.ipa.slicer.thin.ThinSlicer;
+import com.ibm.wala.ssa.CacheStatistics;
+import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.IteratorUtil;
 import com.ibm.wala.util.config.FileOfClasses;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.io.FileUtil;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -675,6 +684,107 @@ public class SlicerTest {
     Assert.assertEquals(slice.toString(), 1, SlicerUtil.countPutfields(slice));
   }
 
+  @Test
+  public void testBoundedPDGCache()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            scope, cha, TestConstants.SLICE_TESTFIELDS);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+
+    Statement s = findCallToDoNothing(main);
+    final PointerAnalysis<InstanceKey> pointerAnalysis = builder.getPointerAnalysis();
+    SDG<InstanceKey> unbounded =
+        new SDG<>(cg, pointerAnalysis, DataDependenceOptions.FULL, ControlDependenceOptions.FULL);
+    Collection<Statement> expected = Slicer.computeBackwardSlice(unbounded, s);
+    Assert.assertEquals(0, unbounded.getPDGCacheStatistics().getEvictions());
+
+    SDG<InstanceKey> bounded =
+        new SDG<>(cg, pointerAnalysis, DataDependenceOptions.FULL, ControlDependenceOptions.FULL);
+    bounded.setPDGCacheSize(1);
+    Collection<Statement> slice = Slicer.computeBackwardSlice(bounded, s);
+    Assert.assertEquals(expected, slice);
+    CacheStatistics stats = bounded.getPDGCacheStatistics();
+    Assert.assertEquals(stats.toString(), 1, stats.getSize());
+    Assert.assertTrue(stats.toString(), stats.getEvictions() > 0);
+
+    // numbering statements keeps those of the cached PDG only
+    for (CGNode n : cg) {
+      bounded.getNumber(new MethodEntryStatement(n));
+    }
+    stats = bounded.getPDGCacheStatistics();
+    Assert.assertEquals(
+        stats.toString(), stats.getWeight(), IteratorUtil.count(bounded.iterateLazyNodes()));
+  }
+
+  @Test
+  public void testBatchSlices()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            scope, cha, TestConstants.SLICE_TESTRECURSION);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    SDG<InstanceKey> sdg =
+        new SDG<>(
+            cg,
+            builder.getPointerAnalysis(),
+            DataDependenceOptions.FULL,
+            ControlDependenceOptions.FULL);
+
+    List<Statement> seeds = new ArrayList<>();
+    for (CGNode n : cg) {
+      if (n.getMethod()
+          .getDeclaringClass()
+          .getClassLoader()
+          .getReference()
+          .equals(ClassLoaderReference.Application)) {
+        SSAInstruction[] instructions = n.getIR().getInstructions();
+        for (int i = 0; i < instructions.length; i++) {
+          if (instructions[i] != null) {
+            seeds.add(new NormalStatement(n, i));
+          }
+        }
+      }
+    }
+
+    for (boolean backward : new boolean[] {true, false}) {
+      Map<Statement, OrdinalSet<Statement>> sequential =
+          new BatchSlicer(sdg, backward).slice(seeds, null);
+      BatchSlicer parallel = new BatchSlicer(sdg, backward);
+      parallel.setNumberOfThreads(4);
+      Map<Statement, OrdinalSet<Statement>> slices = parallel.slice(seeds, null);
+      Assert.assertEquals(seeds.size(), slices.size());
+      for (Statement s : seeds) {
+        Collection<Statement> expected =
+            backward ? Slicer.computeBackwardSlice(sdg, s) : Slicer.computeForwardSlice(sdg, s);
+        Assert.assertEquals(s.toString(), new HashSet<>(expected), toSet(sequential.get(s)));
+        Assert.assertEquals(s.toString(), new HashSet<>(expected), toSet(slices.get(s)));
+      }
+    }
+  }
+
+  private static Set<Statement> toSet(OrdinalSet<Statement> slice) {
+    Set<Statement> result = new HashSet<>();
+    slice.forEach(result::add);
+    return result;
+  }
+
   @Test
   public void testThin1()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
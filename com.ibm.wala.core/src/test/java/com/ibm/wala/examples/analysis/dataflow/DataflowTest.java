@@ -226,4 +226,28 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  @Test
+  public void testContextSensitiveParallel() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            scope, cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        sequential = reachingDefs.analyze(1);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        parallel = reachingDefs.analyze(4);
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+      IntSet expected = sequential.getResult(bb);
+      IntSet actual = parallel.getResult(bb);
+      Assert.assertTrue(bb.toString(), expected.sameValue(actual));
+    }
+    Assert.assertEquals(
+        sequential.getSupergraphNodesReached(), parallel.getSupergraphNodesReached());
+  }
 }
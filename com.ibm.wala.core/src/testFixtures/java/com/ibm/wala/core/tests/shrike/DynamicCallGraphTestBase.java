@@ -16,6 +16,7 @@ import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.properties.WalaProperties;
 import com.ibm.wala.shrike.cg.OfflineDynamicCallGraph;
+import com.ibm.wala.shrike.cg.TraceDecoder;
 import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
@@ -28,7 +29,10 @@ import com.ibm.wala.util.io.TemporaryFile;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -46,6 +50,9 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
 
   protected boolean testPatchCalls = false;
 
+  /** trace in binary, and decode the trace with {@link TraceDecoder} to check it */
+  protected boolean testBinaryTrace = false;
+
   private boolean instrumentedJarBuilt = false;
 
   private final java.nio.file.Path instrumentedJarLocation;
@@ -122,6 +129,9 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
               "exclusions.txt", getClass().getClassLoader().getResource(exclusionsFile));
       jvmArgs += " -DdynamicCGFilter=" + tmpFile.getCanonicalPath();
     }
+    if (testBinaryTrace) {
+      jvmArgs += " -DdynamicCGFormat=binary";
+    }
     childJvm.createJvmarg().setLine(jvmArgs);
 
     for (String a : args) {
@@ -199,12 +209,23 @@ public abstract class DynamicCallGraphTestBase extends WalaTestCase {
     Assert.assertTrue("could not find " + notFound, notFound.isEmpty());
   }
 
+  private BufferedReader openTrace() throws IOException {
+    if (testBinaryTrace) {
+      StringWriter text = new StringWriter();
+      try (InputStream trace = Files.newInputStream(cgLocation)) {
+        TraceDecoder.decode(trace, text);
+      }
+      return new BufferedReader(new StringReader(text.toString()));
+    } else {
+      return new BufferedReader(
+          new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))));
+    }
+  }
+
   protected void check(CallGraph staticCG, EdgesTest test, Predicate<MethodReference> filter)
       throws IOException {
     int lines = 0;
-    try (final BufferedReader dynamicEdgesFile =
-        new BufferedReader(
-            new InputStreamReader(new GZIPInputStream(Files.newInputStream(cgLocation))))) {
+    try (final BufferedReader dynamicEdgesFile = openTrace()) {
       String line;
       loop:
       while ((line = dynamicEdgesFile.readLine()) != null) {
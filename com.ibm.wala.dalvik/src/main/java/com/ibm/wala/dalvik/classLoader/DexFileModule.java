@@ -49,28 +49,34 @@ package com.ibm.wala.dalvik.classLoader;
 
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.ModuleEntry;
-import com.ibm.wala.util.io.TemporaryFile;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.jar.JarFile;
+import java.util.List;
 import org.jf.dexlib2.DexFileFactory;
 import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.ClassDef;
 import org.jf.dexlib2.iface.DexFile;
+import org.jf.dexlib2.iface.MultiDexContainer;
+import org.jf.dexlib2.iface.MultiDexContainer.DexEntry;
 
 /**
  * A module which is a wrapper around .dex and .apk file.
  *
+ * <p>The contents of a .dex file are decoded by dexlib2 only when they are asked for, and the
+ * instructions of each method only when its IR is built; see {@link DexIMethod#getInstructions()}.
+ * An .apk, .aab or .jar file may hold several .dex files, e.g. classes.dex, classes2.dex and so on;
+ * use {@link #makeAll(File, int)} to get a module for each of them.
+ *
  * @author barjo
  */
 public class DexFileModule implements Module {
   private final File f;
   private final DexFile dexfile;
-  private final Collection<ModuleEntry> entries;
+  private Collection<ModuleEntry> entries;
   public static final int AUTO_INFER_API_LEVEL = -1;
 
   public static DexFileModule make(File f) throws IllegalArgumentException, IOException {
@@ -80,50 +86,63 @@ public class DexFileModule implements Module {
   public static DexFileModule make(File f, int apiLevel)
       throws IllegalArgumentException, IOException {
     if (f.getName().endsWith("jar")) {
-      try (final JarFile jar = new JarFile(f)) {
-        return new DexFileModule(jar);
-      }
+      return new DexFileModule(f, "classes.dex", apiLevel);
     } else {
       return new DexFileModule(f, apiLevel);
     }
   }
 
-  private static File tf(JarFile f) throws IOException {
-    String name = f.getName();
-    if (name.indexOf('/') >= 0) {
-      name = name.substring(name.lastIndexOf('/') + 1);
+  /**
+   * Create a module for each .dex file in a container such as an .apk, .aab, .jar or .oat file. The
+   * container is opened once, and each .dex file is read straight from it, without copying it to a
+   * temporary file. A plain .dex file yields a single module.
+   *
+   * @param f the container file
+   * @param apiLevel the api level wanted
+   * @return the modules, in the order of the .dex files in the container
+   */
+  public static List<DexFileModule> makeAll(File f, int apiLevel)
+      throws IllegalArgumentException, IOException {
+    if (f == null) {
+      throw new IllegalArgumentException("null f");
+    }
+    MultiDexContainer<? extends DexBackedDexFile> container =
+        DexFileFactory.loadDexContainer(f, opcodes(apiLevel));
+    List<String> names = container.getDexEntryNames();
+    List<DexFileModule> result = new ArrayList<>(names.size());
+    for (String name : names) {
+      DexEntry<? extends DexBackedDexFile> entry = container.getEntry(name);
+      if (entry != null) {
+        result.add(new DexFileModule(f, entry.getDexFile()));
+      }
     }
-    File tf = Files.createTempFile("name", "_classes.dex").toFile();
-    tf.deleteOnExit();
-    System.err.println("using " + tf);
-    return tf;
+    return result;
   }
 
-  private DexFileModule(JarFile f) throws IllegalArgumentException, IOException {
-    this(TemporaryFile.streamToFile(tf(f), f.getInputStream(f.getEntry("classes.dex"))));
+  public static List<DexFileModule> makeAll(File f) throws IllegalArgumentException, IOException {
+    return makeAll(f, AUTO_INFER_API_LEVEL);
+  }
+
+  /**
+   * @return true if the file name has the extension of a container whose .dex files should be
+   *     loaded by {@link #makeAll(File, int)}, i.e., an .apk, .aab or .oat file
+   */
+  public static boolean isContainerFile(String fileName) {
+    return fileName.endsWith(".apk") || fileName.endsWith(".aab") || fileName.endsWith(".oat");
   }
 
-  private DexFileModule(File f) throws IllegalArgumentException {
-    this(f, AUTO_INFER_API_LEVEL);
+  private static Opcodes opcodes(int apiLevel) {
+    return apiLevel == AUTO_INFER_API_LEVEL ? null : Opcodes.forApi(apiLevel);
   }
 
   /** @param f the .dex or .apk file */
   private DexFileModule(File f, int apiLevel) throws IllegalArgumentException {
     try {
       this.f = f;
-      dexfile =
-          DexFileFactory.loadDexFile(
-              f, apiLevel == AUTO_INFER_API_LEVEL ? null : Opcodes.forApi(apiLevel));
+      dexfile = DexFileFactory.loadDexFile(f, opcodes(apiLevel));
     } catch (IOException e) {
       throw new IllegalArgumentException(e);
     }
-
-    // create ModuleEntries from ClassDefItem
-    entries = new HashSet<>();
-
-    for (ClassDef cdefitems : dexfile.getClasses()) {
-      entries.add(new DexModuleEntry(cdefitems, this));
-    }
   }
 
   /**
@@ -134,28 +153,25 @@ public class DexFileModule implements Module {
   public DexFileModule(File f, String entry, int apiLevel) throws IllegalArgumentException {
     try {
       this.f = f;
-      dexfile =
-          DexFileFactory.loadDexEntry(
-                  f,
-                  entry,
-                  true,
-                  apiLevel == AUTO_INFER_API_LEVEL ? null : Opcodes.forApi(apiLevel))
-              .getDexFile();
+      dexfile = DexFileFactory.loadDexEntry(f, entry, true, opcodes(apiLevel)).getDexFile();
     } catch (IOException e) {
       throw new IllegalArgumentException(e);
     }
-
-    // create ModuleEntries from ClassDefItem
-    entries = new HashSet<>();
-    for (ClassDef cdefitems : dexfile.getClasses()) {
-      entries.add(new DexModuleEntry(cdefitems, this));
-    }
   }
 
   public DexFileModule(File f, String entry) throws IllegalArgumentException {
     this(f, entry, AUTO_INFER_API_LEVEL);
   }
 
+  /**
+   * @param f the file the .dex file was read from
+   * @param dexfile the decoded .dex file
+   */
+  private DexFileModule(File f, DexFile dexfile) {
+    this.f = f;
+    this.dexfile = dexfile;
+  }
+
   /** @return The DexFile associated to this module. */
   public DexFile getDexFile() {
     return dexfile;
@@ -172,7 +188,15 @@ public class DexFileModule implements Module {
    * @see com.ibm.wala.classLoader.Module#getEntries()
    */
   @Override
-  public Iterator<ModuleEntry> getEntries() {
+  public synchronized Iterator<ModuleEntry> getEntries() {
+    if (entries == null) {
+      // create ModuleEntries from ClassDefItem
+      Collection<? extends ClassDef> classes = dexfile.getClasses();
+      entries = new ArrayList<>(classes.size());
+      for (ClassDef cdefitems : classes) {
+        entries.add(new DexModuleEntry(cdefitems, this));
+      }
+    }
     return entries.iterator();
   }
 }
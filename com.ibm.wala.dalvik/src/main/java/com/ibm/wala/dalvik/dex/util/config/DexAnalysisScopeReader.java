@@ -70,7 +70,11 @@ public class DexAnalysisScopeReader extends AnalysisScopeReader {
 
     ClassLoaderReference loader = scope.getLoader(AnalysisScope.APPLICATION);
     final String path = classPath.getPath();
-    if (path.endsWith(".jar") || path.endsWith(".apk") || path.endsWith(".dex")) {
+    if (DexFileModule.isContainerFile(path)) {
+      for (DexFileModule dexModule : DexFileModule.makeAll(new File(classPath))) {
+        scope.addToScope(loader, dexModule);
+      }
+    } else if (path.endsWith(".jar") || path.endsWith(".dex")) {
       scope.addToScope(loader, DexFileModule.make(new File(classPath)));
     } else {
       throw new IOException("could not determine type of classpath from file extension: " + path);
@@ -25,10 +25,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.jar.JarFile;
-import org.jf.dexlib2.DexFileFactory;
-import org.jf.dexlib2.Opcodes;
-import org.jf.dexlib2.dexbacked.DexBackedDexFile;
-import org.jf.dexlib2.iface.MultiDexContainer;
 
 public class AndroidAnalysisScope {
 
@@ -37,7 +33,7 @@ public class AndroidAnalysisScope {
   /**
    * Creates an Android Analysis Scope
    *
-   * @param codeFileName the name of a .oat|.apk|.dex file
+   * @param codeFileName the name of a .oat|.apk|.aab|.dex file
    * @param exclusions the name of the exclusions file (nullable)
    * @param loader the classloader to use
    * @param androidLib an array of libraries (e.g. the Android SDK jar) to add to the scope
@@ -89,18 +85,9 @@ public class AndroidAnalysisScope {
         ClassLoaderReference.Application, "com.ibm.wala.dalvik.classLoader.WDexClassLoaderImpl");
 
     File codeFile = new File(codeFileName);
-    boolean isContainerFile =
-        codeFile.getName().endsWith(".oat") || codeFile.getName().endsWith(".apk");
-
-    if (isContainerFile) {
-      MultiDexContainer<? extends DexBackedDexFile> multiDex =
-          DexFileFactory.loadDexContainer(
-              codeFile,
-              apiLevel == DexFileModule.AUTO_INFER_API_LEVEL ? null : Opcodes.forApi(apiLevel));
-
-      for (String dexEntry : multiDex.getDexEntryNames()) {
-        scope.addToScope(
-            ClassLoaderReference.Application, new DexFileModule(codeFile, dexEntry, apiLevel));
+    if (DexFileModule.isContainerFile(codeFile.getName())) {
+      for (DexFileModule dexModule : DexFileModule.makeAll(codeFile, apiLevel)) {
+        scope.addToScope(ClassLoaderReference.Application, dexModule);
       }
     } else {
       scope.addToScope(ClassLoaderReference.Application, DexFileModule.make(codeFile, apiLevel));
@@ -119,9 +106,11 @@ public class AndroidAnalysisScope {
       String[] paths = classPath.split(File.pathSeparator);
 
       for (String path : paths) {
-        if (path.endsWith(".jar")
-            || path.endsWith(".apk")
-            || path.endsWith(".dex")) { // Handle android file.
+        if (DexFileModule.isContainerFile(path)) { // Handle android file.
+          for (DexFileModule dexModule : DexFileModule.makeAll(new File(path))) {
+            scope.addToScope(loader, dexModule);
+          }
+        } else if (path.endsWith(".jar") || path.endsWith(".dex")) {
           File f = new File(path);
           scope.addToScope(loader, DexFileModule.make(f));
         } else {
@@ -19,6 +19,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import org.jf.dexlib2.DexFileFactory;
@@ -130,6 +131,25 @@ public class MultiDexScopeTest {
         Integer.valueOf(getNumberOfAppClasses(cha)), Integer.valueOf(getNumberOfAppClasses(cha2)));
   }
 
+  @Test
+  public void testMakeAll() throws ClassHierarchyException, IOException {
+    String multidexApk = "src/test/resources/multidex-test.apk";
+    List<DexFileModule> modules =
+        DexFileModule.makeAll(new File(multidexApk), DexFileModule.AUTO_INFER_API_LEVEL);
+    Assert.assertEquals(2, modules.size());
+
+    AnalysisScope scope =
+        AnalysisScopeReader.instance.readJavaScope(
+            "primordial.txt", new File(""), MultiDexScopeTest.class.getClassLoader());
+    scope.setLoaderImpl(
+        ClassLoaderReference.Application, "com.ibm.wala.dalvik.classLoader.WDexClassLoaderImpl");
+    for (DexFileModule m : modules) {
+      scope.addToScope(ClassLoaderReference.Application, m);
+    }
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Assert.assertEquals(5, getNumberOfAppClasses(cha));
+  }
+
   private static void extractDexFiles(String apkFileName, File outDir) throws IOException {
     try (ZipInputStream zis = new ZipInputStream(new FileInputStream(new File(apkFileName)))) {
       ZipEntry entry;
@@ -25,6 +25,7 @@ import com.ibm.wala.shrike.shrikeBT.ReturnInstruction;
 import com.ibm.wala.shrike.shrikeBT.ThrowInstruction;
 import com.ibm.wala.shrike.shrikeBT.Util;
 import com.ibm.wala.shrike.shrikeBT.analysis.Analyzer.FailureException;
+import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyCache;
 import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyStore;
 import com.ibm.wala.shrike.shrikeBT.analysis.Verifier;
 import com.ibm.wala.shrike.shrikeBT.shrikeCT.CTUtils;
@@ -43,6 +44,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Map;
 
@@ -108,6 +110,12 @@ public class OfflineDynamicCallGraph {
   private static boolean extractDynamicCalls = false;
   private static boolean extractConstructors = true;
 
+  /**
+   * the number of threads to instrument classes on; with more than one, each class's report is
+   * buffered and written whole, but the classes are reported in no fixed order
+   */
+  private static int threads = 1;
+
   private static Class<?> runtime = Runtime.class;
 
   private static SetOfClasses filter;
@@ -135,6 +143,8 @@ public class OfflineDynamicCallGraph {
           extractDynamicCalls = true;
         } else if ("--extract-constructors".equals(args[i])) {
           extractConstructors = true;
+        } else if ("--threads".equals(args[i])) {
+          threads = Integer.parseInt(args[i + 1]);
         } else if ("--rt-jar".equals(args[i])) {
           System.err.println("using " + args[i + 1] + " as stdlib");
           OfflineInstrumenter libReader = new OfflineInstrumenter();
@@ -155,13 +165,27 @@ public class OfflineDynamicCallGraph {
         CTUtils.addClassToHierarchy(cha, ci.getReader());
       }
 
-      instrumenter.setClassHierarchyProvider(cha);
+      // the stack maps of every class ask about the same few types, so answer each question once
+      instrumenter.setClassHierarchyProvider(new ClassHierarchyCache(cha));
 
-      instrumenter.beginTraversal();
-      while ((ci = instrumenter.nextClass()) != null) {
-        ClassWriter cw = doClass(ci, w);
-        if (cw != null) {
-          instrumenter.outputModifiedClass(ci, cw);
+      if (threads > 1) {
+        instrumenter.outputModifiedClasses(
+            c -> {
+              StringWriter report = new StringWriter();
+              ClassWriter cw = doClass(c, report);
+              synchronized (w) {
+                w.write(report.toString());
+              }
+              return cw;
+            },
+            threads);
+      } else {
+        instrumenter.beginTraversal();
+        while ((ci = instrumenter.nextClass()) != null) {
+          ClassWriter cw = doClass(ci, w);
+          if (cw != null) {
+            instrumenter.outputModifiedClass(ci, cw);
+          }
         }
       }
     }
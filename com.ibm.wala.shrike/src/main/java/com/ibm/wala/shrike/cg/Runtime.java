@@ -35,13 +35,7 @@ public class Runtime {
           "<clinit>".equals(stack[1].getMethodName())
               ? "clinit"
               : "finalize".equals(stack[1].getMethodName()) ? "root" : "callbacks";
-      String line = root + '\t' + bashToDescriptor(klass) + '\t' + String.valueOf(method) + '\n';
-      synchronized (runtime) {
-        if (runtime.output != null) {
-          runtime.output.printf(line);
-          runtime.output.flush();
-        }
-      }
+      edge(root, bashToDescriptor(klass), String.valueOf(method));
     }
   }
 
@@ -52,6 +46,13 @@ public class Runtime {
           System.getProperty("policyClass", "com.ibm.wala.shrike.cg.Runtime$DefaultPolicy"));
 
   private PrintWriter output;
+
+  /**
+   * records the trace in binary instead of writing text to output, if the system property
+   * dynamicCGFormat is "binary"; {@link TraceDecoder} turns such a trace into text
+   */
+  private TraceRecorder recorder;
+
   private SetOfClasses filter;
   private Policy handleCallback;
   private final ThreadLocal<String> currentSite = new ThreadLocal<>();
@@ -71,13 +72,23 @@ public class Runtime {
       filter = null;
     }
 
-    try {
-      output =
-          new PrintWriter(
-              new OutputStreamWriter(
-                  new GZIPOutputStream(new FileOutputStream(fileName)), "UTF-8"));
-    } catch (IOException e) {
-      output = new PrintWriter(System.err);
+    if ("binary".equals(System.getProperty("dynamicCGFormat"))) {
+      try {
+        recorder = new TraceRecorder(new FileOutputStream(fileName));
+      } catch (IOException e) {
+        recorder = null;
+      }
+    }
+
+    if (recorder == null) {
+      try {
+        output =
+            new PrintWriter(
+                new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(fileName)), "UTF-8"));
+      } catch (IOException e) {
+        output = new PrintWriter(System.err);
+      }
     }
 
     try {
@@ -102,6 +113,37 @@ public class Runtime {
         runtime.output.close();
         runtime.output = null;
       }
+      if (runtime.recorder != null) {
+        try {
+          runtime.recorder.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        runtime.recorder = null;
+      }
+    }
+  }
+
+  private boolean isTracing() {
+    return output != null || recorder != null;
+  }
+
+  /** Trace a call edge from caller, a class and method separated by a tab, or a root. */
+  private static void edge(String caller, String klass, String method) {
+    TraceRecorder r = runtime.recorder;
+    if (r != null) {
+      r.edge(caller, klass, method);
+    } else {
+      print(caller + '\t' + klass + '\t' + method + '\n');
+    }
+  }
+
+  private static void print(String line) {
+    synchronized (runtime) {
+      if (runtime.output != null) {
+        runtime.output.printf(line);
+        runtime.output.flush();
+      }
     }
   }
 
@@ -126,7 +168,7 @@ public class Runtime {
   public static void execution(String klass, String method, Object receiver) {
     runtime.currentSite.set(null);
     if (runtime.filter == null || !runtime.filter.contains(bashToDescriptor(klass))) {
-      if (runtime.output != null) {
+      if (runtime.isTracing()) {
         String caller = runtime.callStacks.get().peek();
 
         checkValid:
@@ -149,19 +191,10 @@ public class Runtime {
             }
           }
 
-          String line =
-              (method.contains("<clinit>") ? "clinit" : String.valueOf(caller))
-                  + '\t'
-                  + bashToDescriptor(klass)
-                  + '\t'
-                  + String.valueOf(method)
-                  + '\n';
-          synchronized (runtime) {
-            if (runtime.output != null) {
-              runtime.output.printf(line);
-              runtime.output.flush();
-            }
-          }
+          edge(
+              method.contains("<clinit>") ? "clinit" : String.valueOf(caller),
+              bashToDescriptor(klass),
+              String.valueOf(method));
         }
       }
     }
@@ -176,11 +209,11 @@ public class Runtime {
 
   public static void pop() {
     if (runtime.currentSite.get() != null) {
-      synchronized (runtime) {
-        if (runtime.output != null) {
-          runtime.output.printf("return from " + runtime.currentSite.get() + '\n');
-          runtime.output.flush();
-        }
+      TraceRecorder r = runtime.recorder;
+      if (r != null) {
+        r.returnFrom();
+      } else {
+        print("return from " + runtime.currentSite.get() + '\n');
       }
 
       runtime.currentSite.set(null);
@@ -196,14 +229,16 @@ public class Runtime {
         runtime.callStacks.get().isEmpty()
             ? "BLOB"
             : runtime.callStacks.get().peek().split("\t")[1];
+    TraceRecorder r = runtime.recorder;
+    if (r != null) {
+      // the recorder remembers the site itself, so just note that there is one
+      runtime.currentSite.set(klass);
+      r.callTo(callerClass, callerMethod, klass, method, receiver);
+      return;
+    }
     runtime.currentSite.set(
         callerClass + '\t' + callerMethod + '\t' + klass + '\t' + method + '\t' + receiver);
     //	  runtime.currentSite = klass + "\t" + method + "\t" + receiver;
-    synchronized (runtime) {
-      if (runtime.output != null) {
-        runtime.output.printf("call to " + runtime.currentSite.get() + '\n');
-        runtime.output.flush();
-      }
-    }
+    print("call to " + runtime.currentSite.get() + '\n');
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Turns a trace written by {@link TraceRecorder} into the text {@link Runtime} writes when it does
+ * not record in binary: one line per call edge, and one per call site and return if call sites are
+ * traced.
+ */
+public class TraceDecoder {
+
+  private final DataInputStream in;
+
+  private final Writer out;
+
+  /** the name of each number */
+  private final List<String> names = new ArrayList<>();
+
+  /** for each thread, the last call site it recorded */
+  private final Map<Long, String> sites = new HashMap<>();
+
+  /** the next byte to decode in the current chunk */
+  private int position;
+
+  private TraceDecoder(InputStream in, Writer out) {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+    this.out = out;
+  }
+
+  /**
+   * Decode a trace.
+   *
+   * @param in a trace, compressed with gzip as {@link TraceRecorder} writes it
+   * @param out where to write the text
+   * @throws IOException if the trace cannot be read or is malformed
+   */
+  public static void decode(InputStream in, Writer out) throws IOException {
+    new TraceDecoder(new GZIPInputStream(in), out).decode();
+  }
+
+  private void decode() throws IOException {
+    if (in.readInt() != TraceRecorder.MAGIC) {
+      throw new IOException("not a call graph trace");
+    }
+    for (int tag = in.read(); tag != -1; tag = in.read()) {
+      switch (tag) {
+        case TraceRecorder.DEFINE:
+          {
+            int id = in.readInt();
+            String name = in.readUTF();
+            while (names.size() <= id) {
+              names.add(null);
+            }
+            names.set(id, name);
+            break;
+          }
+        case TraceRecorder.CHUNK:
+          {
+            long thread = in.readLong();
+            byte[] chunk = new byte[in.readInt()];
+            in.readFully(chunk);
+            decodeChunk(thread, chunk);
+            break;
+          }
+        default:
+          throw new IOException("unexpected block " + tag);
+      }
+    }
+  }
+
+  private void decodeChunk(long thread, byte[] chunk) throws IOException {
+    position = 0;
+    while (position < chunk.length) {
+      int kind = chunk[position++];
+      switch (kind) {
+        case TraceRecorder.EDGE:
+          {
+            String caller = name(chunk);
+            String klass = name(chunk);
+            String method = name(chunk);
+            out.write(caller + '\t' + klass + '\t' + method + '\n');
+            break;
+          }
+        case TraceRecorder.CALL:
+          {
+            String callerClass = name(chunk);
+            String callerMethod = name(chunk);
+            String klass = name(chunk);
+            String method = name(chunk);
+            int length = readVarInt(chunk);
+            String receiver = new String(chunk, position, length, StandardCharsets.UTF_8);
+            position += length;
+            String site =
+                callerClass + '\t' + callerMethod + '\t' + klass + '\t' + method + '\t' + receiver;
+            sites.put(thread, site);
+            out.write("call to " + site + '\n');
+            break;
+          }
+        case TraceRecorder.RETURN:
+          out.write("return from " + sites.remove(thread) + '\n');
+          break;
+        default:
+          throw new IOException("unexpected record " + kind);
+      }
+    }
+  }
+
+  private int readVarInt(byte[] chunk) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (position >= chunk.length) {
+        throw new EOFException();
+      }
+      byte b = chunk[position++];
+      result |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return result;
+      }
+    }
+    throw new IOException("malformed number");
+  }
+
+  private String name(byte[] chunk) throws IOException {
+    int id = readVarInt(chunk);
+    if (id >= names.size() || names.get(id) == null) {
+      throw new IOException("undefined name " + id);
+    }
+    return names.get(id);
+  }
+
+  /**
+   * Decode the trace in the file args[0] into the file args[1], compressed with gzip like the text
+   * {@link Runtime} writes.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("usage: TraceDecoder <binary trace> <text trace>");
+      System.exit(1);
+    }
+    try (InputStream in = new FileInputStream(args[0]);
+        PrintWriter out =
+            new PrintWriter(
+                new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(args[1])), "UTF-8"))) {
+      decode(in, out);
+    }
+  }
+}
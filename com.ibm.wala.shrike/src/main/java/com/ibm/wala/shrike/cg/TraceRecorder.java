@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.cg;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the events traced by {@link Runtime} in a compact binary form, for programs where
+ * formatting and writing a line per call would cost too much.
+ *
+ * <p>Each thread appends its records to a buffer of its own, so threads never wait for each other;
+ * the monitor of a buffer is only contended when the trace is closed. Full buffers go to a writer
+ * thread, which appends them to the trace. Class and method names are replaced by numbers, defined
+ * in the trace before their first use. Records of one thread stay in order, but those of different
+ * threads are interleaved a buffer at a time.
+ *
+ * <p>{@link TraceDecoder} turns a trace back into the text {@link Runtime} writes otherwise.
+ */
+public class TraceRecorder {
+
+  /** the first int of a trace */
+  static final int MAGIC = 0x57434754;
+
+  /** a block of the trace giving the name of a number */
+  static final int DEFINE = 0;
+
+  /** a block of the trace holding the records of a thread */
+  static final int CHUNK = 1;
+
+  /** a record of a call edge: caller, class and method */
+  static final int EDGE = 0;
+
+  /** a record of a call site: caller class and method, class, method, and receiver */
+  static final int CALL = 1;
+
+  /** a record of a return from the last call site of the thread */
+  static final int RETURN = 2;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** the longest record that is not made longer by a receiver */
+  private static final int MAX_RECORD_SIZE = 1 + 5 * 5;
+
+  /** records of one thread */
+  private static final class Buffer {
+    final long thread;
+
+    byte[] bytes;
+
+    int size = 0;
+
+    /** has this buffer gone to the writer? */
+    boolean handedOff = false;
+
+    Buffer(long thread, int capacity) {
+      this.thread = thread;
+      this.bytes = new byte[capacity];
+    }
+
+    void ensureCapacity(int n) {
+      if (size + n > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+      }
+    }
+
+    void writeByte(int b) {
+      bytes[size++] = (byte) b;
+    }
+
+    void writeVarInt(int v) {
+      while ((v & ~0x7f) != 0) {
+        bytes[size++] = (byte) ((v & 0x7f) | 0x80);
+        v >>>= 7;
+      }
+      bytes[size++] = (byte) v;
+    }
+  }
+
+  /** marks the end of the buffers for the writer thread */
+  private static final Buffer END = new Buffer(-1, 0);
+
+  private static final class Definition {
+    final int id;
+
+    final String name;
+
+    Definition(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+
+  private final DataOutputStream out;
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextId = new AtomicInteger();
+
+  /** names numbered but not yet written */
+  private final Queue<Definition> definitions = new ConcurrentLinkedQueue<>();
+
+  /** buffers to write, in order */
+  private final BlockingQueue<Buffer> full = new LinkedBlockingQueue<>();
+
+  /** the buffers threads are filling */
+  private final Set<Buffer> live = ConcurrentHashMap.newKeySet();
+
+  private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(this::newBuffer);
+
+  private final Thread writer;
+
+  private volatile boolean closed = false;
+
+  /** the first error of the writer thread, if any */
+  private volatile IOException failure;
+
+  /**
+   * Start a trace, compressed with gzip.
+   *
+   * @throws IOException if the header of the trace cannot be written
+   */
+  public TraceRecorder(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)));
+    this.out.writeInt(MAGIC);
+    writer = new Thread(this::writeBuffers, "TraceRecorder");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private Buffer newBuffer() {
+    Buffer result = new Buffer(Thread.currentThread().getId(), BUFFER_SIZE);
+    live.add(result);
+    return result;
+  }
+
+  /** @return the number of a name, defining it if needed */
+  private int id(String name) {
+    Integer result = ids.get(name);
+    if (result == null) {
+      result =
+          ids.computeIfAbsent(
+              name,
+              n -> {
+                int id = nextId.getAndIncrement();
+                definitions.add(new Definition(id, n));
+                return id;
+              });
+    }
+    return result;
+  }
+
+  /**
+   * @return the buffer of the current thread, with room for a record of n bytes, after handing it
+   *     to the writer if it was full
+   */
+  private Buffer buffer(int n) {
+    Buffer b = buffers.get();
+    if (b.size + n > b.bytes.length && b.size > 0) {
+      handOff(b);
+      b = newBuffer();
+      buffers.set(b);
+    }
+    b.ensureCapacity(n);
+    return b;
+  }
+
+  /** Record that caller, a class and method separated by a tab, called method of klass. */
+  public void edge(String caller, String klass, String method) {
+    int c = id(caller);
+    int k = id(klass);
+    int m = id(method);
+    Buffer b = buffer(MAX_RECORD_SIZE);
+    synchronized (b) {
+      if (!closed) {
+        b.writeByte(EDGE);
+        b.writeVarInt(c);
+        b.writeVarInt(k);
+        b.writeVarInt(m);
+      }
+    }
+  }
+
+  /** Record a call from callerMethod of callerClass to method of klass on receiver. */
+  public void callTo(
+      String callerClass, String callerMethod, String klass, String method, Object receiver) {
+    int cc = id(callerClass);
+    int cm = id(callerMethod);
+    int k = id(klass);
+    int m = id(method);
+    byte[] r = String.valueOf(receiver).getBytes(StandardCharsets.UTF_8);
+    Buffer b = buffer(MAX_RECORD_SIZE + r.length);
+    synchronized (b) {
+      if (!closed) {
+        b.writeByte(CALL);
+        b.writeVarInt(cc);
+        b.writeVarInt(cm);
+        b.writeVarInt(k);
+        b.writeVarInt(m);
+        b.writeVarInt(r.length);
+        System.arraycopy(r, 0, b.bytes, b.size, r.length);
+        b.size += r.length;
+      }
+    }
+  }
+
+  /** Record a return from the last call site recorded by the current thread. */
+  public void returnFrom() {
+    Buffer b = buffer(1);
+    synchronized (b) {
+      if (!closed) {
+        b.writeByte(RETURN);
+      }
+    }
+  }
+
+  private void handOff(Buffer b) {
+    synchronized (b) {
+      live.remove(b);
+      if (!b.handedOff) {
+        b.handedOff = true;
+        full.add(b);
+      }
+    }
+  }
+
+  private void writeBuffers() {
+    try {
+      while (true) {
+        Buffer b = full.take();
+        writeDefinitions();
+        if (b == END) {
+          return;
+        }
+        if (failure == null) {
+          out.writeByte(CHUNK);
+          out.writeLong(b.thread);
+          out.writeInt(b.size);
+          out.write(b.bytes, 0, b.size);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+
+  private void writeDefinitions() throws IOException {
+    for (Definition d = definitions.poll(); d != null; d = definitions.poll()) {
+      if (failure == null) {
+        out.writeByte(DEFINE);
+        out.writeInt(d.id);
+        out.writeUTF(d.name);
+      }
+    }
+  }
+
+  /**
+   * Write the records of all threads and close the trace. Records made afterwards are dropped.
+   *
+   * @throws IOException if the trace could not be written
+   */
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Buffer b : live) {
+      handOff(b);
+    }
+    full.add(END);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    out.close();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
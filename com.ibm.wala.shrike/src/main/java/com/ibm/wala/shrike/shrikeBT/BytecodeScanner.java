@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.shrikeBT;
+
+import com.ibm.wala.shrike.shrikeBT.Decoder.InvalidBytecodeException;
+import java.util.Arrays;
+
+/**
+ * A BytecodeScanner reports the instructions of a method's Java bytecode to a {@link Visitor}, with
+ * their constant pool operands, without building {@link Instruction} objects.
+ *
+ * <p>It is meant for clients that only want to know which methods are called, which fields are
+ * accessed and so on, for whom a {@link Decoder} does much more work than needed. Like a Decoder,
+ * it only reports instructions reachable from the start of the method or from an exception handler,
+ * and it reports them in the order of their offsets, but it does not inline subroutines: each
+ * instruction is reported once.
+ */
+public final class BytecodeScanner implements Constants {
+
+  /**
+   * Receives the instructions found by a scan. For each instruction, {@link #visitInstruction(int,
+   * int)} is called first, then {@link #visitPEI(int, int)} if the instruction may throw an
+   * exception, and then the method for its kind, if any.
+   */
+  public abstract static class Visitor {
+    /**
+     * @param pc the offset of the instruction
+     * @param opcode the opcode of the instruction; for a wide instruction, the opcode it widens
+     */
+    public void visitInstruction(int pc, int opcode) {}
+
+    /**
+     * An instruction for which {@link IInstruction#isPEI()} would be true.
+     *
+     * @param opcode the opcode {@link Instruction#getOpcode()} would give: the opcode of the
+     *     instruction, except that a load of a class constant is always ldc_w
+     */
+    public void visitPEI(int pc, int opcode) {}
+
+    /** An ldc, ldc_w or ldc2_w of the constant pool item at cpIndex. */
+    public void visitConstant(int pc, int cpIndex) {}
+
+    /** A getfield or getstatic of the field reference at cpIndex. */
+    public void visitGet(int pc, int cpIndex, boolean isStatic) {}
+
+    /** A putfield or putstatic of the field reference at cpIndex. */
+    public void visitPut(int pc, int cpIndex, boolean isStatic) {}
+
+    /**
+     * A call; cpIndex is a method reference, or an invokedynamic item if opcode is invokedynamic.
+     */
+    public void visitInvoke(int pc, int opcode, int cpIndex) {}
+
+    /**
+     * A new, newarray, anewarray or multianewarray.
+     *
+     * @param type the type of the new object, as {@link NewInstruction#getType()} would give
+     * @param dimensions the number of array dimensions given on the stack
+     */
+    public void visitNew(int pc, String type, int dimensions) {}
+
+    /** An array load of elements of type, one of {@link Constants#indexedTypes}. */
+    public void visitArrayLoad(int pc, String type) {}
+
+    /** An array store of elements of type, one of {@link Constants#indexedTypes}. */
+    public void visitArrayStore(int pc, String type) {}
+
+    /** A checkcast to the class at cpIndex. */
+    public void visitCheckCast(int pc, int cpIndex) {}
+
+    /** An instanceof of the class at cpIndex. */
+    public void visitInstanceof(int pc, int cpIndex) {}
+  }
+
+  /** the length of each instruction of fixed length, or 0 */
+  private static final byte[] lengths = makeLengths();
+
+  private static byte[] makeLengths() {
+    byte[] table = new byte[256];
+    for (int i = OP_nop; i <= OP_jsr_w; i++) {
+      table[i] = 1;
+    }
+    table[OP_bipush] = 2;
+    table[OP_sipush] = 3;
+    table[OP_ldc] = 2;
+    table[OP_ldc_w] = 3;
+    table[OP_ldc2_w] = 3;
+    for (int i = OP_iload; i <= OP_aload; i++) {
+      table[i] = 2;
+    }
+    for (int i = OP_istore; i <= OP_astore; i++) {
+      table[i] = 2;
+    }
+    table[OP_iinc] = 3;
+    for (int i = OP_ifeq; i <= OP_jsr; i++) {
+      table[i] = 3;
+    }
+    table[OP_ret] = 2;
+    table[OP_tableswitch] = 0;
+    table[OP_lookupswitch] = 0;
+    for (int i = OP_getstatic; i <= OP_invokestatic; i++) {
+      table[i] = 3;
+    }
+    table[OP_invokeinterface] = 5;
+    table[OP_invokedynamic] = 5;
+    table[OP_new] = 3;
+    table[OP_newarray] = 2;
+    table[OP_anewarray] = 3;
+    table[OP_checkcast] = 3;
+    table[OP_instanceof] = 3;
+    table[OP_wide] = 0;
+    table[OP_multianewarray] = 4;
+    table[OP_ifnull] = 3;
+    table[OP_ifnonnull] = 3;
+    table[OP_goto_w] = 5;
+    table[OP_jsr_w] = 5;
+    return table;
+  }
+
+  private final byte[] code;
+
+  private final int[] rawHandlers;
+
+  private final ConstantPoolReader constantPool;
+
+  /**
+   * @param code the bytecode of a method
+   * @param rawHandlers flattened array of (startPC, endPC, targetPC, classIndex) tuples defined as
+   *     in the JVM specification
+   * @param cp the constant pool the code refers to
+   */
+  public BytecodeScanner(byte[] code, int[] rawHandlers, ConstantPoolReader cp) {
+    if (code == null) {
+      throw new IllegalArgumentException("code is null");
+    }
+    if (rawHandlers == null) {
+      throw new IllegalArgumentException("rawHandlers is null");
+    }
+    this.code = code;
+    this.rawHandlers = rawHandlers;
+    this.constantPool = cp;
+  }
+
+  public ConstantPoolReader getConstantPool() {
+    return constantPool;
+  }
+
+  private int decodeShort(int index) {
+    return (code[index] << 8) | (code[index + 1] & 0xFF);
+  }
+
+  private int decodeUShort(int index) {
+    return ((code[index] & 0xFF) << 8) | (code[index + 1] & 0xFF);
+  }
+
+  private int decodeInt(int index) {
+    return (code[index] << 24)
+        | ((code[index + 1] & 0xFF) << 16)
+        | ((code[index + 2] & 0xFF) << 8)
+        | (code[index + 3] & 0xFF);
+  }
+
+  /** @return the offset of the first operand of the switch at pc, after the padding */
+  private static int switchOperands(int pc) {
+    return (pc + 4) & ~3;
+  }
+
+  /** @return the length of the instruction at pc */
+  private int length(int pc) throws InvalidBytecodeException {
+    int opcode = code[pc] & 0xFF;
+    int length = lengths[opcode];
+    if (length > 0) {
+      return length;
+    }
+    checkOperands(pc, 2);
+    switch (opcode) {
+      case OP_wide:
+        return (code[pc + 1] & 0xFF) == OP_iinc ? 6 : 4;
+      case OP_tableswitch:
+        {
+          int operands = switchOperands(pc);
+          checkOperands(operands, 12);
+          long count = (long) decodeInt(operands + 8) - decodeInt(operands + 4) + 1;
+          return checkLength(pc, operands + 12 + count * 4);
+        }
+      case OP_lookupswitch:
+        {
+          int operands = switchOperands(pc);
+          checkOperands(operands, 8);
+          return checkLength(pc, operands + 8 + decodeInt(operands + 4) * 8L);
+        }
+      default:
+        throw new InvalidBytecodeException(pc, "Unknown opcode " + opcode);
+    }
+  }
+
+  private void checkOperands(int index, int length) throws InvalidBytecodeException {
+    if (index + length > code.length) {
+      throw new InvalidBytecodeException(index, "Fell off end of bytecode array");
+    }
+  }
+
+  private int checkLength(int pc, long end) throws InvalidBytecodeException {
+    if (end < pc || end > code.length) {
+      throw new InvalidBytecodeException(pc, "Invalid switch at " + pc);
+    }
+    return (int) (end - pc);
+  }
+
+  /**
+   * @return for each offset, whether an instruction reachable from the start of the method or an
+   *     exception handler starts there
+   */
+  private boolean[] findReachable() throws InvalidBytecodeException {
+    boolean[] reachable = new boolean[code.length];
+    int[] worklist = new int[8];
+    int size = 0;
+    worklist[size++] = 0;
+    for (int i = 0; i < rawHandlers.length; i += 4) {
+      if (size == worklist.length) {
+        worklist = Arrays.copyOf(worklist, size * 2);
+      }
+      worklist[size++] = rawHandlers[i + 2];
+    }
+
+    while (size > 0) {
+      int pc = worklist[--size];
+      while (true) {
+        if (pc < 0 || pc >= code.length) {
+          throw new InvalidBytecodeException(pc, "Branch index " + pc + " out of range");
+        }
+        if (reachable[pc]) {
+          break;
+        }
+        reachable[pc] = true;
+
+        int length = length(pc);
+        checkOperands(pc, length);
+        int opcode = code[pc] & 0xFF;
+        boolean fallsThrough = true;
+        switch (opcode) {
+          case OP_ifeq:
+          case OP_ifne:
+          case OP_iflt:
+          case OP_ifge:
+          case OP_ifgt:
+          case OP_ifle:
+          case OP_if_icmpeq:
+          case OP_if_icmpne:
+          case OP_if_icmplt:
+          case OP_if_icmpge:
+          case OP_if_icmpgt:
+          case OP_if_icmple:
+          case OP_if_acmpeq:
+          case OP_if_acmpne:
+          case OP_ifnull:
+          case OP_ifnonnull:
+          case OP_jsr:
+            // the code after a jsr is taken to be reachable, whether or not the subroutine returns
+            worklist = push(worklist, size++, pc + decodeShort(pc + 1));
+            break;
+          case OP_jsr_w:
+            worklist = push(worklist, size++, pc + decodeInt(pc + 1));
+            break;
+          case OP_goto:
+            worklist = push(worklist, size++, pc + decodeShort(pc + 1));
+            fallsThrough = false;
+            break;
+          case OP_goto_w:
+            worklist = push(worklist, size++, pc + decodeInt(pc + 1));
+            fallsThrough = false;
+            break;
+          case OP_tableswitch:
+            {
+              int operands = switchOperands(pc);
+              worklist = push(worklist, size++, pc + decodeInt(operands));
+              for (int t = operands + 12; t < pc + length; t += 4) {
+                worklist = push(worklist, size++, pc + decodeInt(t));
+              }
+              fallsThrough = false;
+              break;
+            }
+          case OP_lookupswitch:
+            {
+              int operands = switchOperands(pc);
+              worklist = push(worklist, size++, pc + decodeInt(operands));
+              for (int t = operands + 12; t < pc + length; t += 8) {
+                worklist = push(worklist, size++, pc + decodeInt(t));
+              }
+              fallsThrough = false;
+              break;
+            }
+          case OP_ireturn:
+          case OP_lreturn:
+          case OP_freturn:
+          case OP_dreturn:
+          case OP_areturn:
+          case OP_return:
+          case OP_athrow:
+          case OP_ret:
+            fallsThrough = false;
+            break;
+          case OP_wide:
+            fallsThrough = (code[pc + 1] & 0xFF) != OP_ret;
+            break;
+          default:
+            break;
+        }
+        if (!fallsThrough) {
+          break;
+        }
+        pc += length;
+        if (pc >= code.length) {
+          throw new InvalidBytecodeException(pc, "Fell off end of bytecode array");
+        }
+      }
+    }
+    return reachable;
+  }
+
+  private static int[] push(int[] worklist, int size, int pc) {
+    if (size == worklist.length) {
+      worklist = Arrays.copyOf(worklist, size * 2);
+    }
+    worklist[size] = pc;
+    return worklist;
+  }
+
+  /**
+   * Report each reachable instruction to v, in the order of their offsets.
+   *
+   * @throws InvalidBytecodeException if the code is malformed; the scanner checks less than a
+   *     {@link Decoder}
+   */
+  public void scan(Visitor v) throws InvalidBytecodeException {
+    if (v == null) {
+      throw new IllegalArgumentException("v is null");
+    }
+    boolean[] reachable = findReachable();
+    for (int pc = 0; pc < code.length; pc++) {
+      if (reachable[pc]) {
+        visitInstructionAt(pc, v);
+      }
+    }
+  }
+
+  private void visitInstructionAt(int pc, Visitor v) throws InvalidBytecodeException {
+    int opcode = code[pc] & 0xFF;
+    if (opcode == OP_wide) {
+      opcode = code[pc + 1] & 0xFF;
+    }
+    v.visitInstruction(pc, opcode);
+    switch (opcode) {
+      case OP_ldc:
+        visitConstant(pc, code[pc + 1] & 0xFF, v);
+        break;
+      case OP_ldc_w:
+      case OP_ldc2_w:
+        visitConstant(pc, decodeUShort(pc + 1), v);
+        break;
+      case OP_iaload:
+      case OP_laload:
+      case OP_faload:
+      case OP_daload:
+      case OP_aaload:
+      case OP_baload:
+      case OP_caload:
+      case OP_saload:
+        v.visitPEI(pc, opcode);
+        v.visitArrayLoad(pc, indexedTypes[opcode - OP_iaload]);
+        break;
+      case OP_iastore:
+      case OP_lastore:
+      case OP_fastore:
+      case OP_dastore:
+      case OP_aastore:
+      case OP_bastore:
+      case OP_castore:
+      case OP_sastore:
+        v.visitPEI(pc, opcode);
+        v.visitArrayStore(pc, indexedTypes[opcode - OP_iastore]);
+        break;
+      case OP_idiv:
+      case OP_ldiv:
+      case OP_irem:
+      case OP_lrem:
+      case OP_arraylength:
+      case OP_athrow:
+      case OP_monitorenter:
+      case OP_monitorexit:
+        v.visitPEI(pc, opcode);
+        break;
+      case OP_getstatic:
+      case OP_getfield:
+        if (opcode == OP_getfield) {
+          v.visitPEI(pc, opcode);
+        }
+        v.visitGet(pc, decodeUShort(pc + 1), opcode == OP_getstatic);
+        break;
+      case OP_putstatic:
+      case OP_putfield:
+        if (opcode == OP_putfield) {
+          v.visitPEI(pc, opcode);
+        }
+        v.visitPut(pc, decodeUShort(pc + 1), opcode == OP_putstatic);
+        break;
+      case OP_invokevirtual:
+      case OP_invokespecial:
+      case OP_invokestatic:
+      case OP_invokeinterface:
+      case OP_invokedynamic:
+        v.visitPEI(pc, opcode);
+        v.visitInvoke(pc, opcode, decodeUShort(pc + 1));
+        break;
+      case OP_new:
+        v.visitPEI(pc, opcode);
+        v.visitNew(pc, constantPool.getConstantPoolClassType(decodeUShort(pc + 1)), 0);
+        break;
+      case OP_newarray:
+        v.visitPEI(pc, opcode);
+        v.visitNew(pc, Util.makeArray(Decoder.getPrimitiveType(code[pc + 1])), 1);
+        break;
+      case OP_anewarray:
+        v.visitPEI(pc, opcode);
+        v.visitNew(
+            pc, Util.makeArray(constantPool.getConstantPoolClassType(decodeUShort(pc + 1))), 1);
+        break;
+      case OP_multianewarray:
+        v.visitPEI(pc, opcode);
+        v.visitNew(
+            pc, constantPool.getConstantPoolClassType(decodeUShort(pc + 1)), code[pc + 3] & 0xFF);
+        break;
+      case OP_checkcast:
+        v.visitPEI(pc, opcode);
+        v.visitCheckCast(pc, decodeUShort(pc + 1));
+        break;
+      case OP_instanceof:
+        v.visitInstanceof(pc, decodeUShort(pc + 1));
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void visitConstant(int pc, int cpIndex, Visitor v) {
+    if (constantPool.getConstantPoolItemType(cpIndex) == CONSTANT_Class) {
+      v.visitPEI(pc, OP_ldc_w);
+    }
+    v.visitConstant(pc, cpIndex);
+  }
+}
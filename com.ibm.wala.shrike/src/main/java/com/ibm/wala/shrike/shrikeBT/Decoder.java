@@ -237,7 +237,7 @@ public abstract class Decoder implements Constants {
     }
   }
 
-  private static String getPrimitiveType(int t) throws InvalidBytecodeException {
+  static String getPrimitiveType(int t) throws InvalidBytecodeException {
     switch (t) {
       case T_BOOLEAN:
         return TYPE_boolean;
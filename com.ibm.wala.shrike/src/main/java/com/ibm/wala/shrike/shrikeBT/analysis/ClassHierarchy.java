@@ -20,6 +20,8 @@ import java.util.Iterator;
  *
  * <p>Because ClassHierarchyProvider sometimes only provides partial information, these routines
  * sometimes answer "don't know".
+ *
+ * <p>The answers for class types are remembered when the provider is a {@link ClassHierarchyCache}.
  */
 public final class ClassHierarchy {
   private ClassHierarchy() {}
@@ -133,8 +135,7 @@ public final class ClassHierarchy {
     return r;
   }
 
-  private static int checkSubtypeOfHierarchy(
-      ClassHierarchyProvider hierarchy, String t1, String t2) {
+  static int checkSubtypeOfHierarchy(ClassHierarchyProvider hierarchy, String t1, String t2) {
     if (t2.equals(Constants.TYPE_Object)) {
       return YES;
     } else {
@@ -170,6 +171,8 @@ public final class ClassHierarchy {
             return NO;
           } else if (hierarchy == null) {
             return MAYBE;
+          } else if (hierarchy instanceof ClassHierarchyCache) {
+            return ((ClassHierarchyCache) hierarchy).isSubtypeOf(t1, t2);
           } else {
             return checkSubtypeOfHierarchy(hierarchy, t1, t2);
           }
@@ -278,7 +281,7 @@ public final class ClassHierarchy {
     return r;
   }
 
-  private static String findCommonSupertypeHierarchy(
+  static String findCommonSupertypeHierarchy(
       ClassHierarchyProvider hierarchy, String t1, String t2) {
     if (isSubtypeOf(hierarchy, t1, t2) == YES) {
       return t2;
@@ -378,6 +381,8 @@ public final class ClassHierarchy {
           } else if (hierarchy == null) {
             // don't have a class hierarchy
             return Constants.TYPE_unknown;
+          } else if (hierarchy instanceof ClassHierarchyCache) {
+            return ((ClassHierarchyCache) hierarchy).findCommonSupertype(t1, t2);
           } else {
             return findCommonSupertypeHierarchy(hierarchy, t1, t2);
           }
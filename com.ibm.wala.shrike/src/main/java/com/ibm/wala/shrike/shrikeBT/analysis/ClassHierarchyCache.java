@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.shrike.shrikeBT.analysis;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This ClassHierarchyProvider wraps another one and remembers the answers {@link ClassHierarchy}
+ * computes from it for subtype checks and common supertypes of class types. Computing stack maps
+ * asks the same questions for the same few types over and over, so share one cache among all the
+ * classes being instrumented.
+ *
+ * <p>The cache is safe to use from several threads if the provider it wraps is. The answers are
+ * never forgotten, so the wrapped provider must not change while the cache is in use.
+ */
+public final class ClassHierarchyCache implements ClassHierarchyProvider {
+  private static final class TypePair {
+    final String t1;
+
+    final String t2;
+
+    TypePair(String t1, String t2) {
+      this.t1 = t1;
+      this.t2 = t2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof TypePair)) {
+        return false;
+      }
+      TypePair p = (TypePair) o;
+      return t1.equals(p.t1) && t2.equals(p.t2);
+    }
+
+    @Override
+    public int hashCode() {
+      return t1.hashCode() * 31 + t2.hashCode();
+    }
+  }
+
+  private final ClassHierarchyProvider hierarchy;
+
+  private final ConcurrentHashMap<TypePair, Integer> subtypes = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<TypePair, String> supertypes = new ConcurrentHashMap<>();
+
+  /** @param hierarchy the provider whose answers are cached */
+  public ClassHierarchyCache(ClassHierarchyProvider hierarchy) {
+    if (hierarchy == null) {
+      throw new IllegalArgumentException("hierarchy is null");
+    }
+    this.hierarchy = hierarchy;
+  }
+
+  /**
+   * Called by {@link ClassHierarchy#isSubtypeOf(ClassHierarchyProvider, String, String)} once t1
+   * and t2 are known to be different class types.
+   */
+  int isSubtypeOf(String t1, String t2) {
+    TypePair key = new TypePair(t1, t2);
+    Integer v = subtypes.get(key);
+    if (v == null) {
+      // not computeIfAbsent, since the computation asks the cache about other pairs
+      v = ClassHierarchy.checkSubtypeOfHierarchy(this, t1, t2);
+      subtypes.put(key, v);
+    }
+    return v;
+  }
+
+  /**
+   * Called by {@link ClassHierarchy#findCommonSupertype(ClassHierarchyProvider, String, String)}
+   * once t1 and t2 are known to be different class types.
+   */
+  String findCommonSupertype(String t1, String t2) {
+    TypePair key = new TypePair(t1, t2);
+    String v = supertypes.get(key);
+    if (v == null) {
+      v = ClassHierarchy.findCommonSupertypeHierarchy(this, t1, t2);
+      supertypes.put(key, v);
+    }
+    // the Analyzer notices changed types by identity, so answer with the arguments where they fit
+    if (v.equals(t1)) {
+      return t1;
+    } else if (v.equals(t2)) {
+      return t2;
+    } else {
+      return v;
+    }
+  }
+
+  @Override
+  public String getSuperClass(String cl) {
+    return hierarchy.getSuperClass(cl);
+  }
+
+  @Override
+  public String[] getSuperInterfaces(String cl) {
+    return hierarchy.getSuperInterfaces(cl);
+  }
+
+  @Override
+  public String[] getSubClasses(String cl) {
+    return hierarchy.getSubClasses(cl);
+  }
+
+  @Override
+  public int isInterface(String cl) {
+    return hierarchy.isInterface(cl);
+  }
+}
@@ -254,7 +254,9 @@ public final class ClassInstrumenter {
    * Create a class which is a copy of the original class but with the new method code. We return
    * the ClassWriter used, so more methods and fields (and other changes) can still be added.
    *
-   * <p>We fix up any debug information to be consistent with the changes to the code.
+   * <p>We fix up any debug information to be consistent with the changes to the code. Fields,
+   * attributes and unchanged methods are copied verbatim, as is the constant pool, to which only
+   * the entries it lacks are appended.
    */
   public ClassWriter emitClass() throws InvalidClassFileException {
     return emitClass(new ClassWriter());
@@ -274,7 +276,7 @@ public final class ClassInstrumenter {
   private void emitClassInto(ClassWriter w) throws InvalidClassFileException {
     w.setMajorVersion(cr.getMajorVersion());
     w.setMinorVersion(cr.getMinorVersion());
-    w.setRawCP(cr.getCP(), false);
+    w.setIncrementalRawCP(cr.getCP());
     w.setAccessFlags(cr.getAccessFlags());
     w.setNameIndex(cr.getNameIndex());
     w.setSuperNameIndex(cr.getSuperNameIndex());
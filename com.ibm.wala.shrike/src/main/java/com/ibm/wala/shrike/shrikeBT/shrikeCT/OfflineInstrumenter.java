@@ -56,6 +56,37 @@ public final class OfflineInstrumenter extends OfflineInstrumenterBase {
     }
   }
 
+  /** Instruments a class for {@link #outputModifiedClasses(ClassRewriter, int)}. */
+  @FunctionalInterface
+  public interface ClassRewriter {
+    /**
+     * Instrument a class. This is called on several threads at once, for different classes, so it
+     * must not change state shared between classes without synchronization.
+     *
+     * @return the instrumented class, e.g. the result of ci.emitClass(), or null to leave the class
+     *     unmodified
+     */
+    ClassWriter rewrite(ClassInstrumenter ci) throws Exception;
+  }
+
+  /**
+   * Instrument every class that is not ignored on a pool of threads, and output the modified ones.
+   * The classes are read, and the output JAR written, in the same order as by a traversal with
+   * {@link #nextClass()} and {@link #outputModifiedClass(ClassInstrumenter, ClassWriter)}; the
+   * classes are decoded, instrumented and compiled in parallel.
+   *
+   * @param threads the number of threads to instrument classes on
+   * @throws IllegalArgumentException if rewriter is null or threads is less than 1
+   * @throws IOException if a class cannot be read, instrumented or written
+   */
+  public void outputModifiedClasses(ClassRewriter rewriter, int threads)
+      throws IllegalArgumentException, IOException {
+    if (rewriter == null) {
+      throw new IllegalArgumentException("rewriter is null");
+    }
+    internalOutputModifiedClasses(cl -> rewriter.rewrite((ClassInstrumenter) cl), threads);
+  }
+
   /** Get the next class to be instrumented. */
   public ClassInstrumenter nextClass() throws IOException {
     return (ClassInstrumenter) internalNextClass();
@@ -13,17 +13,25 @@ package com.ibm.wala.shrike.shrikeBT.tools;
 import com.ibm.wala.shrike.shrikeBT.analysis.ClassHierarchyProvider;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -388,6 +396,116 @@ public abstract class OfflineInstrumenterBase {
     return outputFile;
   }
 
+  /** Transforms one class for {@link #internalOutputModifiedClasses}. */
+  protected interface ClassTransformer {
+    /**
+     * This is called on several threads at once, for different classes.
+     *
+     * @return the modifications to pass to {@link #writeClassTo}, or null to leave cl unmodified
+     */
+    Object transform(Object cl) throws Exception;
+  }
+
+  /** A class read and transformed by a worker of {@link #internalOutputModifiedClasses}. */
+  private static final class TransformedClass {
+    final Input input;
+
+    final String className;
+
+    /** the transformed class file, or null if the class was not modified */
+    final byte[] bytes;
+
+    TransformedClass(Input input, String className, byte[] bytes) {
+      this.input = input;
+      this.className = className;
+      this.bytes = bytes;
+    }
+  }
+
+  /** the number of classes each worker may have read but not yet written */
+  private static final int PENDING_CLASSES_PER_THREAD = 4;
+
+  /**
+   * Transform every class not ignored and write the modified ones to the output JAR, using a pool
+   * of threads. This thread reads the classes and writes the output in the order of the inputs,
+   * while the pool decodes, transforms and compiles them; the output is the same as that of a
+   * traversal that passes each class to transformer and then to {@link
+   * #internalOutputModifiedClass}. The traversal of {@link #internalNextClass()} is not affected.
+   *
+   * @param threads the number of threads to transform classes on
+   * @throws IllegalArgumentException if threads is less than 1
+   * @throws IOException if a class cannot be read, transformed or written
+   */
+  protected final void internalOutputModifiedClasses(ClassTransformer transformer, int threads)
+      throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + threads);
+    }
+    makeOutputJar();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    ArrayDeque<Future<TransformedClass>> pending = new ArrayDeque<>();
+    try {
+      for (int i = 0; i < inputs.size(); i++) {
+        Input in = inputs.get(i);
+        if (ignoringInputs.get(i) || !in.isClass()) {
+          continue;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final InputStream s = in.open()) {
+          copyStream(s, bytes);
+        }
+        pending.add(pool.submit(() -> transformClass(in, bytes.toByteArray(), transformer)));
+        if (pending.size() > PENDING_CLASSES_PER_THREAD * threads) {
+          writeTransformedClass(pending.remove());
+        }
+      }
+      while (!pending.isEmpty()) {
+        writeTransformedClass(pending.remove());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private TransformedClass transformClass(Input in, byte[] bytes, ClassTransformer transformer)
+      throws Exception {
+    Object cl =
+        makeClassFromStream(
+            in.getInputName(), new BufferedInputStream(new ByteArrayInputStream(bytes)));
+    String name = getClassName(cl);
+    Object mods = transformer.transform(cl);
+    if (mods == null) {
+      return new TransformedClass(in, name, null);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + bytes.length / 4);
+    writeClassTo(cl, mods, out);
+    return new TransformedClass(in, name, out.toByteArray());
+  }
+
+  private void writeTransformedClass(Future<TransformedClass> f) throws IOException {
+    TransformedClass c;
+    try {
+      c = f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while transforming classes");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("could not transform class: " + e.getCause(), e.getCause());
+    }
+    if (c.className != null) {
+      c.input.setClassName(c.className);
+    }
+    String name = c.input.getInputName();
+    if (c.bytes != null && !entryNames.contains(name)) {
+      putNextEntry(new ZipEntry(name));
+      outputJar.write(c.bytes);
+      outputJar.closeEntry();
+    }
+  }
+
   protected final boolean internalOutputModifiedClass(Object cf, String name, Object mods)
       throws IOException {
     makeOutputJar();
@@ -46,6 +46,18 @@ public class ClassWriter implements ClassConstants {
 
   private boolean forceAddCPEntries = false;
 
+  /** should new entries that are already in the raw constant pool be looked up by their bytes? */
+  private boolean findRawCPEntries = false;
+
+  /**
+   * open hash table of the indices of the raw constant pool items, keyed by their bytes; built when
+   * the first entry is looked up
+   */
+  private int[] rawCPTable;
+
+  /** the bytes of the entry being looked up in the raw constant pool */
+  private byte[] rawCPKey = new byte[64];
+
   // output
   private byte[] buf;
 
@@ -315,6 +327,20 @@ public class ClassWriter implements ClassConstants {
     }
   }
 
+  /**
+   * Copy a constant pool from some ClassReader into this class, like {@link
+   * #setRawCP(ConstantPoolParser, boolean)}, such that entries already in the raw pool are reused
+   * rather than added again. Unlike caching the entries, this does not decode the raw pool: when a
+   * new entry is first requested, the raw items are hashed by their bytes, and each requested entry
+   * is looked up by its encoding. A class that needs few new entries, such as a lightly
+   * instrumented one, can thus be written at little more than the cost of copying it.
+   */
+  public void setIncrementalRawCP(ConstantPoolParser cp)
+      throws InvalidClassFileException, IllegalArgumentException {
+    setRawCP(cp, false);
+    findRawCPEntries = true;
+  }
+
   /**
    * @param force true iff you want the addCP methods to always create a new constant pool entry and
    *     never reuse an existing constant pool entry
@@ -330,6 +356,13 @@ public class ClassWriter implements ClassConstants {
     }
 
     Integer i = forceAddCPEntries ? null : cachedCPEntries.get(o);
+    if (i == null && !forceAddCPEntries && findRawCPEntries) {
+      int raw = findRawCPEntry(o);
+      if (raw > 0) {
+        i = raw;
+        cachedCPEntries.put(o, i);
+      }
+    }
     if (i != null) {
       return i;
     } else {
@@ -345,6 +378,130 @@ public class ClassWriter implements ClassConstants {
     }
   }
 
+  private void indexRawCP() {
+    int count = rawCP.getItemCount();
+    int size = Integer.highestOneBit(Math.max(count, 1) * 2) * 2;
+    rawCPTable = new int[size];
+    byte[] bytes = rawCP.getRawBytes();
+    for (int i = 1; i < count; i++) {
+      int offset = rawCP.getItemOffset(i);
+      if (offset != 0) {
+        int slot = hashBytes(bytes, offset, rawCP.getItemSize(i)) & (size - 1);
+        while (rawCPTable[slot] != 0) {
+          slot = (slot + 1) & (size - 1);
+        }
+        rawCPTable[slot] = i;
+      }
+    }
+  }
+
+  private static int hashBytes(byte[] b, int offset, int len) {
+    int h = 1;
+    for (int i = offset; i < offset + len; i++) {
+      h = 31 * h + b[i];
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private void reserveRawCPKey(int size) {
+    if (rawCPKey.length < size) {
+      rawCPKey = new byte[Math.max(rawCPKey.length * 2, size)];
+    }
+  }
+
+  /**
+   * Find an item of the raw constant pool with the same bytes as a new entry would have.
+   *
+   * @return the index of the item, or -1 if there is none, or if the entry is of a kind that is not
+   *     looked up
+   */
+  private int findRawCPEntry(Object o) {
+    int len;
+    if (o instanceof String) {
+      String s = (String) o;
+      reserveRawCPKey(3 + s.length() * 3);
+      len = putUtf8(s, rawCPKey, 3);
+      if (len - 3 > 0xFFFF) {
+        return -1;
+      }
+      rawCPKey[0] = CONSTANT_Utf8;
+      setUShort(rawCPKey, 1, len - 3);
+    } else if (o instanceof CWStringItem) {
+      CWStringItem item = (CWStringItem) o;
+      int utf8 = findRawCPEntry(item.s);
+      if (utf8 < 0) {
+        return -1;
+      }
+      rawCPKey[0] = item.type;
+      setUShort(rawCPKey, 1, utf8);
+      len = 3;
+    } else if (o instanceof CWNAT) {
+      CWNAT nat = (CWNAT) o;
+      int n = findRawCPEntry(nat.n);
+      int t = n < 0 ? -1 : findRawCPEntry(nat.t);
+      if (t < 0) {
+        return -1;
+      }
+      rawCPKey[0] = CONSTANT_NameAndType;
+      setUShort(rawCPKey, 1, n);
+      setUShort(rawCPKey, 3, t);
+      len = 5;
+    } else if (o instanceof CWRef && !(o instanceof CWHandle)) {
+      CWRef ref = (CWRef) o;
+      int c = findRawCPEntry(new CWStringItem(ref.c, CONSTANT_Class));
+      int nat = c < 0 ? -1 : findRawCPEntry(new CWNAT(ref.n, ref.t));
+      if (nat < 0) {
+        return -1;
+      }
+      rawCPKey[0] = ref.type;
+      setUShort(rawCPKey, 1, c);
+      setUShort(rawCPKey, 3, nat);
+      len = 5;
+    } else if (o instanceof Integer) {
+      rawCPKey[0] = CONSTANT_Integer;
+      setInt(rawCPKey, 1, (Integer) o);
+      len = 5;
+    } else if (o instanceof Float) {
+      rawCPKey[0] = CONSTANT_Float;
+      setFloat(rawCPKey, 1, (Float) o);
+      len = 5;
+    } else if (o instanceof Long) {
+      rawCPKey[0] = CONSTANT_Long;
+      setLong(rawCPKey, 1, (Long) o);
+      len = 9;
+    } else if (o instanceof Double) {
+      rawCPKey[0] = CONSTANT_Double;
+      setDouble(rawCPKey, 1, (Double) o);
+      len = 9;
+    } else {
+      return -1;
+    }
+
+    if (rawCPTable == null) {
+      indexRawCP();
+    }
+    byte[] bytes = rawCP.getRawBytes();
+    int mask = rawCPTable.length - 1;
+    for (int slot = hashBytes(rawCPKey, 0, len) & mask;
+        rawCPTable[slot] != 0;
+        slot = (slot + 1) & mask) {
+      int i = rawCPTable[slot];
+      if (rawCP.getItemSize(i) == len && sameBytes(bytes, rawCP.getItemOffset(i), rawCPKey, len)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean sameBytes(byte[] a, int offset, byte[] b, int len) {
+    for (int i = 0; i < len; i++) {
+      if (a[offset + i] != b[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Add a Utf8 string to the constant pool if necessary.
    *
@@ -785,7 +942,35 @@ public class ClassWriter implements ClassConstants {
     }
   }
 
-  private static final char[] noChars = new char[0];
+  /**
+   * Write s in the modified UTF-8 of class files, without a length, into buf at offset, which must
+   * have room for three bytes per character.
+   *
+   * @return the offset after the last byte written
+   */
+  private static int putUtf8(String s, byte[] buf, int offset) {
+    int p = offset;
+    for (int j = 0; j < s.length(); j++) {
+      char ch = s.charAt(j);
+      if (ch == 0) {
+        setUShort(buf, p, 0xC080);
+        p += 2;
+      } else if (ch < 0x80) {
+        buf[p] = (byte) ch;
+        p += 1;
+      } else if (ch < 0x800) {
+        buf[p] = (byte) ((ch >> 6) | 0xC0);
+        buf[p + 1] = (byte) ((ch & 0x3F) | 0x80);
+        p += 2;
+      } else {
+        buf[p] = (byte) ((ch >> 12) | 0xE0);
+        buf[p + 1] = (byte) (((ch >> 6) & 0x3F) | 0x80);
+        buf[p + 2] = (byte) ((ch & 0x3F) | 0x80);
+        p += 3;
+      }
+    }
+    return p;
+  }
 
   private void emitConstantPool() {
     if (rawCP != null) {
@@ -794,8 +979,6 @@ public class ClassWriter implements ClassConstants {
       System.arraycopy(rawCP.getRawBytes(), rawCP.getRawOffset(), buf, offset, len);
     }
 
-    char[] chars = noChars;
-
     // BE CAREFUL: the newCPEntries array grows during this loop.
     //noinspection ForLoopReplaceableByForEach
     for (int i = 0; i < newCPEntries.size(); i++) {
@@ -881,38 +1064,13 @@ public class ClassWriter implements ClassConstants {
       } else {
         if (o instanceof String) {
           String s = (String) o;
-          int slen = s.length();
-
-          if (chars.length < slen) {
-            chars = new char[slen];
-          }
-          s.getChars(0, slen, chars, 0);
 
           int offset = reserveBuf(3);
           buf[offset] = CONSTANT_Utf8;
 
-          int maxBytes = slen * 3;
+          int maxBytes = s.length() * 3;
           int p = reserveBuf(maxBytes); // worst case reservation
-
-          for (int j = 0; j < slen; j++) {
-            char ch = chars[j];
-            if (ch == 0) {
-              setUShort(buf, p, 0xC080);
-              p += 2;
-            } else if (ch < 0x80) {
-              buf[p] = (byte) ch;
-              p += 1;
-            } else if (ch < 0x800) {
-              buf[p] = (byte) ((ch >> 6) | 0xC0);
-              buf[p + 1] = (byte) ((ch & 0x3F) | 0x80);
-              p += 2;
-            } else {
-              buf[p] = (byte) ((ch >> 12) | 0xE0);
-              buf[p + 1] = (byte) (((ch >> 6) & 0x3F) | 0x80);
-              buf[p + 2] = (byte) ((ch & 0x3F) | 0x80);
-              p += 3;
-            }
-          }
+          p = putUtf8(s, buf, p);
           int bytes = p - (offset + 3);
           reserveBuf(bytes - maxBytes); // negative reservation to push back buf
           // size
@@ -147,6 +147,22 @@ public final class ConstantPoolParser implements ClassConstants {
     return cpOffsets.length - 1;
   }
 
+  /**
+   * @return the offset of constant pool item i in the raw class file buffer, or 0 if it is unused
+   */
+  int getItemOffset(int i) {
+    return cpOffsets[i];
+  }
+
+  /** @return the size of constant pool item i in the raw class file buffer, including its tag */
+  int getItemSize(int i) {
+    int next = i + 1;
+    while (cpOffsets[next] == 0) {
+      next++;
+    }
+    return cpOffsets[next] - cpOffsets[i];
+  }
+
   private void checkLength(int offset, int required) throws InvalidClassFileException {
     if (bytes.length < offset + required) {
       throw new InvalidClassFileException(
@@ -103,6 +103,11 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     firstSolve = false;
   }
 
+  /** @return true iff {@link #initForFirstSolve()} has not yet run */
+  protected boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /** @return true iff work list is empty */
   public boolean emptyWorkList() {
     return workList.isEmpty();
@@ -13,6 +13,7 @@ package com.ibm.wala.fixpoint;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * A variable for dataflow analysis, representing a set of integers.
@@ -24,11 +25,16 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   MutableIntSet V;
 
+  /** @return the factory for the set this variable holds */
+  protected MutableIntSetFactory<?> getIntSetFactory() {
+    return IntSetUtil.getDefaultIntSetFactory();
+  }
+
   @Override
   public void copyState(T other) {
     if (V == null) {
       if (other.V != null) {
-        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        V = getIntSetFactory().makeCopy(other.V);
       }
       return;
     } else {
@@ -45,7 +51,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    */
   public boolean addAll(IntSet B) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
+      V = getIntSetFactory().makeCopy(B);
       return (B.size() > 0);
     } else {
       boolean result = V.addAll(B);
@@ -99,7 +105,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
    */
   public boolean add(int b) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().make();
+      V = getIntSetFactory().make();
     }
     return V.add(b);
   }
@@ -158,7 +164,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
+      V = getIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
       if (V.isEmpty()) {
         V = null;
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Simple utilities for running loops on a pool of threads */
+public class ParallelUtil {
+
+  /** the number of chunks each thread of a pool gets, so that uneven chunks even out */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** An action on the element with a given index, which may be canceled. */
+  @FunctionalInterface
+  public interface IndexAction {
+    void apply(int i) throws CancelException;
+  }
+
+  private ParallelUtil() {}
+
+  /**
+   * @return n, if it is a valid number of threads
+   * @throws IllegalArgumentException if n &lt; 1
+   */
+  public static int checkNumberOfThreads(int n) {
+    if (n < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + n);
+    }
+    return n;
+  }
+
+  /**
+   * Apply action to 0 .. n-1, in chunks of consecutive indices on the pool, and wait for all of
+   * them. Unless the action fails, each index is applied exactly once, so the action may store its
+   * result in slot i of an array or list without locking. The first exception thrown by the action
+   * stops the remaining work and is rethrown on the calling thread.
+   *
+   * @throws CancelException if the action was canceled
+   * @throws IllegalArgumentException if pool or action is null
+   */
+  public static void forEach(ForkJoinPool pool, int n, IndexAction action) throws CancelException {
+    if (pool == null) {
+      throw new IllegalArgumentException("null pool");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    if (n <= 1) {
+      for (int i = 0; i < n; i++) {
+        action.apply(i);
+      }
+      return;
+    }
+    int nChunks = Math.min(n, pool.getParallelism() * CHUNKS_PER_THREAD);
+    int chunkSize = (n + nChunks - 1) / nChunks;
+    // the pool wraps, and may re-create, exceptions thrown by a task, so each task records the
+    // first failure itself, and it is rethrown as is once all tasks are done
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Callable<Void>> tasks = new ArrayList<>(nChunks);
+    for (int start = 0; start < n; start += chunkSize) {
+      final int from = start;
+      final int to = Math.min(start + chunkSize, n);
+      tasks.add(
+          () -> {
+            try {
+              for (int i = from; i < to && failure.get() == null; i++) {
+                action.apply(i);
+              }
+            } catch (CancelException | RuntimeException | Error e) {
+              failure.compareAndSet(null, e);
+            }
+            return null;
+          });
+    }
+    pool.invokeAll(tasks);
+    Throwable cause = failure.get();
+    if (cause instanceof CancelException) {
+      throw (CancelException) cause;
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from objects to ints, for numbering objects without boxing.
+ *
+ * <p>Keys, their hash codes and values live in three parallel arrays, searched by linear probing,
+ * so there are no entry objects and no {@link Integer}s: an entry costs about 16 to 32 bytes of
+ * array slots, against about 50 to 60 bytes for a {@link java.util.HashMap} entry with a boxed
+ * value. Removal shifts later entries back instead of leaving tombstones, so lookups stay short.
+ *
+ * <p>Like {@link java.util.HashMap}, a key matches only a stored key with the same hash code, and
+ * the stored key is passed to the equals method of the key looked up.
+ *
+ * <p>The null key is allowed; this class is not thread-safe.
+ */
+public class ObjectIntHashMap<K> implements Serializable {
+
+  private static final long serialVersionUID = -2183264526102983781L;
+
+  private static final int MIN_CAPACITY = 4;
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /** the keys, or null for free slots; the length is a power of two */
+  private Object[] keys;
+
+  /** the hash code of the key in the same slot */
+  private int[] hashes;
+
+  /** the value of the key in the same slot */
+  private int[] values;
+
+  /** the number of non-null keys */
+  private int size;
+
+  /** grow when size exceeds this, 3/4 of the capacity */
+  private int threshold;
+
+  private boolean hasNullKey;
+
+  private int nullValue;
+
+  public ObjectIntHashMap() {
+    this(16);
+  }
+
+  /** @param expectedSize the number of entries the map should hold without growing */
+  public ObjectIntHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("invalid expected size: " + expectedSize);
+    }
+    long capacity = MIN_CAPACITY;
+    while (capacity < MAX_CAPACITY && capacity * 3 / 4 < expectedSize) {
+      capacity *= 2;
+    }
+    allocate((int) capacity);
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    hashes = new int[capacity];
+    values = new int[capacity];
+    threshold = capacity == MAX_CAPACITY ? MAX_CAPACITY - 1 : capacity / 4 * 3;
+  }
+
+  /** @return the home slot of a key, spreading its hash code so that nearby codes scatter */
+  private static int slot(int hash, int mask) {
+    int h = hash * 0x9e3779b9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /** @return the slot holding key, or -1 */
+  private int find(Object key) {
+    int hash = key.hashCode();
+    int mask = keys.length - 1;
+    for (int i = slot(hash, mask); ; i = (i + 1) & mask) {
+      Object k = keys[i];
+      if (k == null) {
+        return -1;
+      }
+      if (k == key || (hashes[i] == hash && key.equals(k))) {
+        return i;
+      }
+    }
+  }
+
+  public int size() {
+    return hasNullKey ? size + 1 : size;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean containsKey(Object key) {
+    return key == null ? hasNullKey : find(key) != -1;
+  }
+
+  /** @return the value of key, or defaultValue if key is not in the map */
+  public int getOrDefault(Object key, int defaultValue) {
+    if (key == null) {
+      return hasNullKey ? nullValue : defaultValue;
+    }
+    int i = find(key);
+    return i == -1 ? defaultValue : values[i];
+  }
+
+  /** Map key to value, replacing any previous value. */
+  public void put(K key, int value) {
+    insert(key, value, true);
+  }
+
+  /**
+   * Map key to value, unless key is already in the map; this looks the key up only once.
+   *
+   * @return the value key is now mapped to
+   */
+  public int getOrPut(K key, int value) {
+    return insert(key, value, false);
+  }
+
+  private int insert(Object key, int value, boolean replace) {
+    if (key == null) {
+      if (!hasNullKey || replace) {
+        hasNullKey = true;
+        nullValue = value;
+      }
+      return nullValue;
+    }
+    int hash = key.hashCode();
+    int mask = keys.length - 1;
+    int i = slot(hash, mask);
+    for (Object k = keys[i]; k != null; k = keys[i]) {
+      if (k == key || (hashes[i] == hash && key.equals(k))) {
+        if (replace) {
+          values[i] = value;
+        }
+        return values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    hashes[i] = hash;
+    values[i] = value;
+    if (++size > threshold) {
+      grow();
+    }
+    return value;
+  }
+
+  private void grow() {
+    if (keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("map too large: " + size);
+    }
+    Object[] oldKeys = keys;
+    int[] oldHashes = hashes;
+    int[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      Object k = oldKeys[j];
+      if (k != null) {
+        int i = slot(oldHashes[j], mask);
+        while (keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        hashes[i] = oldHashes[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /** @return true if key was in the map */
+  public boolean remove(Object key) {
+    if (key == null) {
+      boolean result = hasNullKey;
+      hasNullKey = false;
+      return result;
+    }
+    int hole = find(key);
+    if (hole == -1) {
+      return false;
+    }
+    // shift back each later key of the run that may move into the hole without passing its home
+    int mask = keys.length - 1;
+    for (int j = (hole + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+      int home = slot(hashes[j], mask);
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        hashes[hole] = hashes[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+    }
+    keys[hole] = null;
+    size--;
+    return true;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, null);
+    size = 0;
+    hasNullKey = false;
+  }
+
+  /** @return an unmodifiable view of the keys, in no particular order */
+  public Collection<K> keys() {
+    return new AbstractCollection<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return keyIterator();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+
+      @Override
+      public int size() {
+        return ObjectIntHashMap.this.size();
+      }
+    };
+  }
+
+  private Iterator<K> keyIterator() {
+    return new Iterator<K>() {
+      /** the next slot to look at; keys.length stands for the null key */
+      private int next = advance(0);
+
+      private int advance(int i) {
+        while (i < keys.length && keys[i] == null) {
+          i++;
+        }
+        if (i == keys.length && !hasNullKey) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next <= keys.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public K next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int i = next;
+        next = i == keys.length ? i + 1 : advance(i + 1);
+        return i == keys.length ? null : (K) keys[i];
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (K k : keys()) {
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(k).append('=').append(getOrDefault(k, 0));
+    }
+    return result.append('}').toString();
+  }
+}
@@ -66,6 +66,30 @@ public final class SparseNumberedEdgeManager<T> implements NumberedEdgeManager<T
     }
   }
 
+  /**
+   * @param nodeManager an object to track nodes
+   * @param successors an empty relation to hold the out edges of each node
+   * @param predecessors an empty relation to hold the in edges of each node
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public SparseNumberedEdgeManager(
+      NumberedNodeManager<T> nodeManager,
+      IBinaryNaturalRelation successors,
+      IBinaryNaturalRelation predecessors) {
+    if (nodeManager == null) {
+      throw new IllegalArgumentException("null nodeManager");
+    }
+    if (successors == null) {
+      throw new IllegalArgumentException("null successors");
+    }
+    if (predecessors == null) {
+      throw new IllegalArgumentException("null predecessors");
+    }
+    this.nodeManager = nodeManager;
+    this.successors = successors;
+    this.predecessors = predecessors;
+  }
+
   /**
    * The default implementation policy conservatively uses 2-level vectors, in an attempt to
    * somewhat optimize for space.
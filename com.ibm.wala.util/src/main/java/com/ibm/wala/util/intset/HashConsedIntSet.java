@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+
+/**
+ * A {@link MutableIntSet} whose value is a canonical, immutable set from the {@link
+ * SparseIntSetRepository}. Sets with the same value share one array, a copy takes constant time,
+ * and two of these sets have the same value exactly when they refer to the same canonical set.
+ *
+ * <p>Each change replaces the canonical set by the one for the new value (copy on write). The
+ * repository remembers the unions and intersections of canonical sets, so adding all of one {@link
+ * HashConsedIntSet} to another, which a points-to analysis repeats for many variables with the same
+ * values, is usually a cache lookup. Adding or removing single elements costs time linear in the
+ * size of the set.
+ */
+public class HashConsedIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -3270513834213815297L;
+
+  /** a canonical set */
+  private SparseIntSet value;
+
+  public HashConsedIntSet() {
+    value = SparseIntSetRepository.empty();
+  }
+
+  /** @throws IllegalArgumentException if set is null */
+  public HashConsedIntSet(IntSet set) {
+    copySet(set);
+  }
+
+  private static HashConsedIntSet wrap(SparseIntSet canonical) {
+    HashConsedIntSet result = new HashConsedIntSet();
+    result.value = canonical;
+    return result;
+  }
+
+  /** @return the canonical set with the value of s */
+  private static SparseIntSet canonical(IntSet s) {
+    if (s instanceof HashConsedIntSet) {
+      return ((HashConsedIntSet) s).value;
+    }
+    if (SparseIntSetRepository.isCanonical(s)) {
+      return (SparseIntSet) s;
+    }
+    if (s.isEmpty()) {
+      return SparseIntSetRepository.empty();
+    }
+    int[] elements;
+    if (s instanceof SparseIntSet) {
+      SparseIntSet sparse = (SparseIntSet) s;
+      elements = Arrays.copyOf(sparse.elements, sparse.size);
+    } else {
+      elements = new int[s.size()];
+      int i = 0;
+      for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+        elements[i++] = it.next();
+      }
+      Arrays.sort(elements);
+    }
+    return SparseIntSetRepository.findOrCreate(elements);
+  }
+
+  /** @return the set to pass on to the canonical set in place of s */
+  private static IntSet unwrap(IntSet s) {
+    return s instanceof HashConsedIntSet ? ((HashConsedIntSet) s).value : s;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    return value.contains(i);
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    return value.containsAny(unwrap(set));
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    return wrap(SparseIntSetRepository.intersection(value, canonical(that)));
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    return wrap(SparseIntSetRepository.union(value, canonical(that)));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return value.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return value.size();
+  }
+
+  @Override
+  public int max() {
+    return value.max();
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return value.intIterator();
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    value.foreach(action);
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    value.foreachExcluding(unwrap(X), action);
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    if (that instanceof HashConsedIntSet) {
+      return value == ((HashConsedIntSet) that).value;
+    }
+    return size() == that.size() && value.isSubset(that);
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    if (that instanceof HashConsedIntSet) {
+      SparseIntSet other = ((HashConsedIntSet) that).value;
+      return value == other || SparseIntSetRepository.intersection(value, other) == value;
+    }
+    return value.isSubset(that);
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    value = canonical(set);
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    SparseIntSet old = value;
+    value = SparseIntSetRepository.union(value, canonical(set));
+    return value != old;
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (value.contains(i)) {
+      return false;
+    }
+    int n = value.size;
+    int[] elements = new int[n + 1];
+    int index = -Arrays.binarySearch(value.elements, 0, n, i) - 1;
+    System.arraycopy(value.elements, 0, elements, 0, index);
+    elements[index] = i;
+    System.arraycopy(value.elements, index, elements, index + 1, n - index);
+    value = SparseIntSetRepository.findOrCreate(elements);
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    int n = value.size;
+    int index = Arrays.binarySearch(value.elements, 0, n, i);
+    if (index < 0) {
+      return false;
+    }
+    int[] elements = new int[n - 1];
+    System.arraycopy(value.elements, 0, elements, 0, index);
+    System.arraycopy(value.elements, index + 1, elements, index, n - index - 1);
+    value = SparseIntSetRepository.findOrCreate(elements);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    value = SparseIntSetRepository.empty();
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    value = SparseIntSetRepository.intersection(value, canonical(set));
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter is null");
+    }
+    SparseIntSet old = value;
+    value =
+        SparseIntSetRepository.union(
+            value, SparseIntSetRepository.intersection(canonical(other), canonical(filter)));
+    return value != old;
+  }
+
+  @Override
+  public String toString() {
+    return value.toString();
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+
+/** An object that creates {@link HashConsedIntSet}s. */
+public class HashConsedIntSetFactory implements MutableIntSetFactory<HashConsedIntSet> {
+
+  /** @throws IllegalArgumentException if set is null */
+  @Override
+  public HashConsedIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    int[] sorted = set.clone();
+    Arrays.sort(sorted);
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (n == 0 || sorted[n - 1] != sorted[i]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    return new HashConsedIntSet(SparseIntSetRepository.findOrCreate(Arrays.copyOf(sorted, n)));
+  }
+
+  @Override
+  public HashConsedIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public HashConsedIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new HashConsedIntSet(x);
+  }
+
+  @Override
+  public HashConsedIntSet make() {
+    return new HashConsedIntSet();
+  }
+}
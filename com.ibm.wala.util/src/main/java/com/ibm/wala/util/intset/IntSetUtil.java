@@ -84,6 +84,13 @@ public class IntSetUtil {
       return new MutableSharedBitVectorIntSet((MutableSharedBitVectorIntSet) set);
     } else if (set instanceof SemiSparseMutableIntSet) {
       return new SemiSparseMutableIntSet((SemiSparseMutableIntSet) set);
+    } else if (set instanceof RoaringIntSet) {
+      return new RoaringIntSet((RoaringIntSet) set);
+    } else if (set instanceof HashConsedIntSet) {
+      return new HashConsedIntSet(set);
+    } else if (set instanceof OffHeapIntSet) {
+      // nothing would free the block of a copy, so keep it on the heap
+      return MutableSparseIntSet.make(set);
     } else if (set instanceof DebuggingMutableIntSet) {
       MutableIntSet pCopy = makeMutableCopy(((DebuggingMutableIntSet) set).primaryImpl);
       MutableIntSet sCopy = makeMutableCopy(((DebuggingMutableIntSet) set).secondaryImpl);
@@ -143,6 +150,18 @@ public class IntSetUtil {
       IntSet d =
           SemiSparseMutableIntSet.diff((SemiSparseMutableIntSet) A, (SemiSparseMutableIntSet) B);
       return d;
+    } else if (A instanceof RoaringIntSet) {
+      RoaringIntSet result = new RoaringIntSet();
+      A.foreachExcluding(B, result::add);
+      return result;
+    } else if (A instanceof HashConsedIntSet) {
+      MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+      A.foreachExcluding(B, result::add);
+      return new HashConsedIntSet(result);
+    } else if (A instanceof OffHeapIntSet) {
+      MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+      A.foreachExcluding(B, result::add);
+      return result;
     } else {
       return defaultSlowDiff(A, B, factory);
     }
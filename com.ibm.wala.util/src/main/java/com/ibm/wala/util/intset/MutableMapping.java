@@ -10,12 +10,11 @@
  */
 package com.ibm.wala.util.intset;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.stream.Stream;
 
@@ -25,7 +24,7 @@ import java.util.stream.Stream;
  */
 public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
 
-  private static final long serialVersionUID = 4011751404163534418L;
+  private static final long serialVersionUID = -6466937417640384593L;
 
   private static final int INITIAL_CAPACITY = 20;
 
@@ -39,8 +38,8 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
 
   private int nextIndex = 0;
 
-  /** A mapping from object to Integer. */
-  final HashMap<T, Integer> map = HashMapFactory.make();
+  /** A mapping from object to index. */
+  final ObjectIntHashMap<T> map = new ObjectIntHashMap<>();
 
   /** @throws IllegalArgumentException if array is null */
   @SuppressWarnings("unchecked")
@@ -73,17 +72,12 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
 
   @Override
   public int getMappedIndex(Object o) {
-    Integer I = map.get(o);
-    if (I == null) {
-      return -1;
-    } else {
-      return I;
-    }
+    return map.getOrDefault(o, -1);
   }
 
   @Override
   public boolean hasMappedIndex(T o) {
-    return map.get(o) != null;
+    return map.containsKey(o);
   }
 
   /**
@@ -93,11 +87,11 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
    */
   @Override
   public int add(T o) {
-    Integer I = map.get(o);
-    if (I != null) {
+    // every mapped index is below nextIndex, so nextIndex comes back only if o was not mapped
+    int I = map.getOrPut(o, nextIndex);
+    if (I != nextIndex) {
       return I;
     }
-    map.put(o, nextIndex);
     if (nextIndex >= array.length) {
       array = Arrays.copyOf(array, 2 * array.length);
     }
@@ -120,12 +114,12 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
    */
   @Override
   public Iterator<T> iterator() {
-    return map.keySet().iterator();
+    return map.keys().iterator();
   }
 
   @Override
   public Stream<T> stream() {
-    return map.keySet().stream();
+    return map.keys().stream();
   }
 
   /*
@@ -144,7 +138,7 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
   }
 
   public Collection<T> getObjects() {
-    return Collections.unmodifiableCollection(map.keySet());
+    return Collections.unmodifiableCollection(map.keys());
   }
 
   /** Replace a in this mapping with b. */
@@ -164,8 +158,7 @@ public class MutableMapping<T> implements OrdinalSetMapping<T>, Serializable {
     if (i < 0 || i > MAX_SIZE) {
       throw new IllegalArgumentException("invalid i: " + i);
     }
-    Integer I = i;
-    map.put(o, I);
+    map.put(o, i);
     if (i >= array.length) {
       array = Arrays.copyOf(array, 2 * i);
     }
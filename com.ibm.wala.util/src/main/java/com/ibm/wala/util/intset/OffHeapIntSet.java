@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A {@link MutableIntSet} whose elements are a sorted array in a block of an {@link
+ * OffHeapIntStore}. The object on the Java heap holds only the store, a handle and a size, so a
+ * points-to analysis with millions of sets puts little pressure on the garbage collector.
+ *
+ * <p>Lookups take logarithmic time; adding or removing a single element takes linear time, like
+ * {@link MutableSparseIntSet}. The block of a set is freed when the set becomes empty, and
+ * otherwise when the store is dropped, so many short-lived sets should share a store that lives no
+ * longer than they do. The sets that {@link #union(IntSet)} and {@link #intersection(IntSet)}
+ * compute are temporaries, so they are kept on the Java heap. Sets in the same store are not
+ * thread-safe.
+ *
+ * <p>Such a set is serialized as a {@link MutableSparseIntSet}.
+ */
+public class OffHeapIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = 5021358840930937352L;
+
+  private final OffHeapIntStore store;
+
+  /** the block holding the elements in increasing order, or 0 if the set is empty */
+  private long block = 0;
+
+  private int size = 0;
+
+  /** @throws IllegalArgumentException if store is null */
+  public OffHeapIntSet(OffHeapIntStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("store is null");
+    }
+    this.store = store;
+  }
+
+  /** @throws IllegalArgumentException if store or set is null */
+  public OffHeapIntSet(OffHeapIntStore store, IntSet set) {
+    this(store);
+    copySet(set);
+  }
+
+  public OffHeapIntStore getStore() {
+    return store;
+  }
+
+  private int get(int i) {
+    return store.get(block, i);
+  }
+
+  /** Make room for n elements, keeping the current ones. */
+  private void ensureCapacity(int n) {
+    if (block == 0 || OffHeapIntStore.capacity(block) < n) {
+      block = store.reallocate(block, size, n);
+    }
+  }
+
+  /** @return the index of x, or -(insertion point) - 1 */
+  private int indexOf(int x) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int v = get(mid);
+      if (v < x) {
+        low = mid + 1;
+      } else if (v > x) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /** Append x, which must be larger than every element. */
+  private void append(int x) {
+    ensureCapacity(size + 1);
+    store.set(block, size++, x);
+  }
+
+  /** Drop the elements from index n on. */
+  private void truncate(int n) {
+    size = n;
+    if (n == 0 && block != 0) {
+      store.free(block);
+      block = 0;
+    }
+  }
+
+  /**
+   * @param elements the i-th element of a set, for i less than n, in increasing order
+   * @return true if this set changed
+   */
+  private boolean addAllSorted(IntUnaryOperator elements, int n) {
+    // count the new elements first, so that the merge can run in place, from the back
+    int added = 0;
+    for (int i = 0, j = 0; j < n; ) {
+      int q = elements.applyAsInt(j);
+      if (i == size) {
+        added += n - j;
+        break;
+      }
+      int p = get(i);
+      if (p < q) {
+        i++;
+      } else {
+        if (p > q) {
+          added++;
+        } else {
+          i++;
+        }
+        j++;
+      }
+    }
+    if (added == 0) {
+      return false;
+    }
+    ensureCapacity(size + added);
+    int k = size + added - 1;
+    int i = size - 1;
+    int j = n - 1;
+    while (j >= 0 && i < k) {
+      int q = elements.applyAsInt(j);
+      int p = i >= 0 ? get(i) : -1;
+      if (i >= 0 && p > q) {
+        store.set(block, k--, p);
+        i--;
+      } else {
+        store.set(block, k--, q);
+        if (i >= 0 && p == q) {
+          i--;
+        }
+        j--;
+      }
+    }
+    size += added;
+    return true;
+  }
+
+  /** @return the elements of s in increasing order, keeping only those in filter, if not null */
+  private static int[] sortedElements(IntSet s, IntSet filter) {
+    int[] result = new int[s.size()];
+    int n = 0;
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      int x = it.next();
+      if (filter == null || filter.contains(x)) {
+        result[n++] = x;
+      }
+    }
+    if (!(s instanceof SparseIntSet || s instanceof BitVectorIntSet)) {
+      Arrays.sort(result, 0, n);
+    }
+    return n == result.length ? result : Arrays.copyOf(result, n);
+  }
+
+  @Override
+  public boolean contains(int i) {
+    return size > 0 && indexOf(i) >= 0;
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set instanceof OffHeapIntSet) {
+      OffHeapIntSet that = (OffHeapIntSet) set;
+      for (int i = 0, j = 0; i < size && j < that.size; ) {
+        int p = get(i);
+        int q = that.get(j);
+        if (p < q) {
+          i++;
+        } else if (p > q) {
+          j++;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (set.size() < size) {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (set.contains(get(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int i = 0; i < size; i++) {
+      int x = get(i);
+      if (that.contains(x)) {
+        result.add(x);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    MutableSparseIntSet result = MutableSparseIntSet.make(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int max() {
+    return size == 0 ? -1 : get(size - 1);
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public int next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        return get(next++);
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("action is null");
+    }
+    for (int i = 0; i < size; i++) {
+      action.act(get(i));
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("action is null");
+    }
+    for (int i = 0; i < size; i++) {
+      int x = get(i);
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    return size == that.size() && isSubset(that);
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    if (size > that.size()) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!that.contains(get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof OffHeapIntSet) {
+      OffHeapIntSet that = (OffHeapIntSet) set;
+      truncate(0);
+      if (that.size > 0) {
+        ensureCapacity(that.size);
+        if (that.store == store) {
+          store.copy(that.block, 0, block, 0, that.size);
+        } else {
+          for (int i = 0; i < that.size; i++) {
+            store.set(block, i, that.get(i));
+          }
+        }
+        size = that.size;
+      }
+    } else {
+      int[] elements = sortedElements(set, null);
+      truncate(0);
+      for (int x : elements) {
+        append(x);
+      }
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set == this || set.isEmpty()) {
+      return false;
+    }
+    if (set instanceof OffHeapIntSet) {
+      OffHeapIntSet that = (OffHeapIntSet) set;
+      return addAllSorted(that::get, that.size);
+    }
+    int[] elements = sortedElements(set, null);
+    return addAllSorted(j -> elements[j], elements.length);
+  }
+
+  @Override
+  public boolean add(int i) {
+    int index = indexOf(i);
+    if (index >= 0) {
+      return false;
+    }
+    index = -index - 1;
+    ensureCapacity(size + 1);
+    store.copy(block, index, block, index + 1, size - index);
+    store.set(block, index, i);
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    int index = indexOf(i);
+    if (index < 0) {
+      return false;
+    }
+    store.copy(block, index + 1, block, index, size - index - 1);
+    truncate(size - 1);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    truncate(0);
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      int x = get(i);
+      if (set.contains(x)) {
+        store.set(block, n++, x);
+      }
+    }
+    truncate(n);
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter is null");
+    }
+    int[] elements = sortedElements(other, filter);
+    return addAllSorted(j -> elements[j], elements.length);
+  }
+
+  private Object writeReplace() {
+    return MutableSparseIntSet.make(this);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{ ");
+    for (int i = 0; i < size; i++) {
+      result.append(get(i)).append(' ');
+    }
+    return result.append('}').toString();
+  }
+}
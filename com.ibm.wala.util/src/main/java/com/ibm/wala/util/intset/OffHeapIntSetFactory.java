@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/** An object that creates {@link OffHeapIntSet}s, all in one {@link OffHeapIntStore}. */
+public class OffHeapIntSetFactory implements MutableIntSetFactory<OffHeapIntSet> {
+
+  private final OffHeapIntStore store;
+
+  public OffHeapIntSetFactory() {
+    this(new OffHeapIntStore());
+  }
+
+  /** @throws IllegalArgumentException if store is null */
+  public OffHeapIntSetFactory(OffHeapIntStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("store is null");
+    }
+    this.store = store;
+  }
+
+  public OffHeapIntStore getStore() {
+    return store;
+  }
+
+  /** @throws IllegalArgumentException if set is null */
+  @Override
+  public OffHeapIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    OffHeapIntSet result = new OffHeapIntSet(store);
+    for (int element : set) {
+      result.add(element);
+    }
+    return result;
+  }
+
+  @Override
+  public OffHeapIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public OffHeapIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return new OffHeapIntSet(store, x);
+  }
+
+  @Override
+  public OffHeapIntSet make() {
+    return new OffHeapIntSet(store);
+  }
+}
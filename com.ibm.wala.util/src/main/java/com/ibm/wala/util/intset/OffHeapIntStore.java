@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Blocks of ints kept outside the Java heap, in slabs of direct {@link ByteBuffer}s.
+ *
+ * <p>A block holds a power of two of ints, at least 2, and is named by a long handle; 0 is never a
+ * handle. Freed blocks are kept on one free list per size, so a store serves many small blocks that
+ * grow and shrink without creating garbage for the collector: the only heap objects are one buffer
+ * per slab. The memory of a store is released when the store becomes unreachable.
+ *
+ * <p>This class is not thread-safe, but reads of blocks may run concurrently as long as nothing
+ * changes the store.
+ */
+public class OffHeapIntStore {
+
+  /** log2 of the number of ints in the largest block */
+  private static final int MAX_SHIFT = 28;
+
+  /** log2 of the default number of ints in a slab: 4M ints, or 16 MB */
+  private static final int DEFAULT_SLAB_SHIFT = 22;
+
+  /** a handle is (shift &lt;&lt; 56) | (slab &lt;&lt; 32) | offset, in ints */
+  private static final int SHIFT_POSITION = 56;
+
+  private static final int SLAB_POSITION = 32;
+
+  private static final long SLAB_MASK = (1L << (SHIFT_POSITION - SLAB_POSITION)) - 1;
+
+  /** log2 of the number of ints in a slab */
+  private final int slabShift;
+
+  private IntBuffer[] slabs = new IntBuffer[4];
+
+  /** the number of slabs allocated */
+  private int slabCount = 0;
+
+  /** the first int of the current slab not handed out yet */
+  private int top;
+
+  /** for each block size 2^i, the handle of a free block, or 0 */
+  private final long[] freeLists = new long[MAX_SHIFT + 1];
+
+  /** the number of ints in blocks that are in use */
+  private long usedInts = 0;
+
+  /** the number of blocks that are in use */
+  private int usedBlocks = 0;
+
+  public OffHeapIntStore() {
+    this(DEFAULT_SLAB_SHIFT);
+  }
+
+  /**
+   * @param slabShift log2 of the number of ints in each slab, which bounds the size of a block
+   * @throws IllegalArgumentException if slabShift is not between 1 and 28
+   */
+  public OffHeapIntStore(int slabShift) {
+    if (slabShift < 1 || slabShift > MAX_SHIFT) {
+      throw new IllegalArgumentException("invalid slab shift: " + slabShift);
+    }
+    this.slabShift = slabShift;
+    this.top = 1 << slabShift;
+  }
+
+  /** @return the number of ints in a block */
+  public static int capacity(long handle) {
+    return 1 << (int) (handle >>> SHIFT_POSITION);
+  }
+
+  /** @return the number of ints in the largest block this store can allocate */
+  public int maxCapacity() {
+    return 1 << slabShift;
+  }
+
+  private IntBuffer slab(long handle) {
+    return slabs[(int) ((handle >>> SLAB_POSITION) & SLAB_MASK)];
+  }
+
+  private static int offset(long handle) {
+    return (int) handle;
+  }
+
+  /**
+   * Allocate a block; its contents are undefined.
+   *
+   * @param n the number of ints the block must hold
+   * @return the handle of a block of at least n ints, and at least 2
+   * @throws IllegalArgumentException if n is negative or larger than {@link #maxCapacity()}
+   */
+  public long allocate(int n) {
+    if (n < 0 || n > maxCapacity()) {
+      throw new IllegalArgumentException("invalid block size: " + n);
+    }
+    int shift = n <= 2 ? 1 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    usedInts += 1 << shift;
+    usedBlocks++;
+    long handle = freeLists[shift];
+    if (handle != 0) {
+      freeLists[shift] = link(handle);
+      return handle;
+    }
+    if (top + (1 << shift) > maxCapacity()) {
+      newSlab();
+    }
+    handle = makeHandle(shift, slabCount - 1, top);
+    top += 1 << shift;
+    return handle;
+  }
+
+  private static long makeHandle(int shift, int slab, int offset) {
+    return ((long) shift << SHIFT_POSITION) | ((long) slab << SLAB_POSITION) | offset;
+  }
+
+  /** Start a new slab, putting what is left of the current one on the free lists. */
+  private void newSlab() {
+    // top is a multiple of the smallest block, and the rest of the slab a sum of powers of two
+    for (int shift = 1; top < maxCapacity(); shift++) {
+      if ((top & (1 << shift)) != 0) {
+        release(makeHandle(shift, slabCount - 1, top));
+        top += 1 << shift;
+      }
+    }
+    if (slabCount == slabs.length) {
+      slabs = Arrays.copyOf(slabs, slabCount * 2);
+    }
+    if (slabCount > SLAB_MASK) {
+      throw new IllegalStateException("too many slabs: " + slabCount);
+    }
+    slabs[slabCount++] =
+        ByteBuffer.allocateDirect(maxCapacity() * Integer.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer();
+    top = 0;
+  }
+
+  /** Return a block to the store; the handle must not be used afterwards. */
+  public void free(long handle) {
+    usedInts -= capacity(handle);
+    usedBlocks--;
+    release(handle);
+  }
+
+  private void release(long handle) {
+    int shift = (int) (handle >>> SHIFT_POSITION);
+    setLink(handle, freeLists[shift]);
+    freeLists[shift] = handle;
+  }
+
+  /** a free block holds the handle of the next free block of its size in its first two ints */
+  private long link(long handle) {
+    IntBuffer b = slab(handle);
+    int o = offset(handle);
+    return ((long) b.get(o) << 32) | (b.get(o + 1) & 0xffffffffL);
+  }
+
+  private void setLink(long handle, long next) {
+    IntBuffer b = slab(handle);
+    int o = offset(handle);
+    b.put(o, (int) (next >>> 32));
+    b.put(o + 1, (int) next);
+  }
+
+  /** @return the int at index i of a block */
+  public int get(long handle, int i) {
+    assert i >= 0 && i < capacity(handle);
+    return slab(handle).get(offset(handle) + i);
+  }
+
+  /** Set the int at index i of a block. */
+  public void set(long handle, int i, int value) {
+    assert i >= 0 && i < capacity(handle);
+    slab(handle).put(offset(handle) + i, value);
+  }
+
+  /**
+   * Copy n ints from one block to another, or within one block; overlapping ranges are copied as if
+   * through a temporary array.
+   */
+  public void copy(long from, int fromIndex, long to, int toIndex, int n) {
+    assert fromIndex >= 0 && fromIndex + n <= capacity(from);
+    assert toIndex >= 0 && toIndex + n <= capacity(to);
+    IntBuffer src = slab(from);
+    IntBuffer dst = slab(to);
+    int s = offset(from) + fromIndex;
+    int d = offset(to) + toIndex;
+    if (src == dst && s < d) {
+      for (int i = n - 1; i >= 0; i--) {
+        dst.put(d + i, src.get(s + i));
+      }
+    } else {
+      for (int i = 0; i < n; i++) {
+        dst.put(d + i, src.get(s + i));
+      }
+    }
+  }
+
+  /**
+   * Copy a block into a larger one and free it.
+   *
+   * @param handle a block, or 0 for none
+   * @param n the number of ints to keep
+   * @param capacity the number of ints the new block must hold
+   * @return the new block
+   */
+  public long reallocate(long handle, int n, int capacity) {
+    long result = allocate(capacity);
+    if (handle != 0) {
+      copy(handle, 0, result, 0, n);
+      free(handle);
+    }
+    return result;
+  }
+
+  /** @return the number of bytes of memory held by this store */
+  public long getReservedBytes() {
+    return (long) slabCount * maxCapacity() * Integer.BYTES;
+  }
+
+  /** @return the number of blocks that have been allocated and not freed */
+  public int getUsedBlockCount() {
+    return usedBlocks;
+  }
+
+  /** @return the number of bytes in blocks that are in use */
+  public long getUsedBytes() {
+    return usedInts * Integer.BYTES;
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapIntStore: " + getUsedBytes() + " of " + getReservedBytes() + " bytes in use";
+  }
+}
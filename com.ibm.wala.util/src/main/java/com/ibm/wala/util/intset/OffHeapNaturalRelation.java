@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A relation between non-negative integers kept in an {@link OffHeapIntStore}, so that a graph with
+ * millions of edges costs the Java heap only a few objects.
+ *
+ * <p>Each x has an entry of four ints, in pages of 1024 entries: the number of y's related to x and
+ * then either those y's, if there are at most three, or the handle of a block holding all of them
+ * in increasing order. {@link #getRelated(int)} returns a copy of the y's, which later changes to
+ * the relation do not affect.
+ */
+public class OffHeapNaturalRelation implements IBinaryNaturalRelation {
+
+  private static final boolean VERBOSE = false;
+
+  private static final int PAGE_SHIFT = 10;
+
+  private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+  private static final int ENTRY_SIZE = 4;
+
+  /** rows with at most this many y's are kept in their entry */
+  private static final int INLINE = ENTRY_SIZE - 1;
+
+  private final OffHeapIntStore store;
+
+  /** the block of each page of entries, or 0 */
+  private long[] pages = new long[16];
+
+  /** maximum x for any pair in this relation. */
+  private int maxX = -1;
+
+  /**
+   * @throws IllegalArgumentException if store is null, or cannot hold a page of 1024 entries in a
+   *     block
+   */
+  public OffHeapNaturalRelation(OffHeapIntStore store) {
+    if (store == null) {
+      throw new IllegalArgumentException("store is null");
+    }
+    if (store.maxCapacity() < ENTRY_SIZE << PAGE_SHIFT) {
+      throw new IllegalArgumentException("store blocks too small: " + store.maxCapacity());
+    }
+    this.store = store;
+  }
+
+  /** @return the block of the page holding the entry of x, or 0 */
+  private long page(int x) {
+    int p = x >>> PAGE_SHIFT;
+    return p < pages.length ? pages[p] : 0;
+  }
+
+  private long findOrCreatePage(int x) {
+    int p = x >>> PAGE_SHIFT;
+    if (p >= pages.length) {
+      pages = Arrays.copyOf(pages, Math.max(pages.length * 2, p + 1));
+    }
+    if (pages[p] == 0) {
+      long page = store.allocate(ENTRY_SIZE << PAGE_SHIFT);
+      for (int i = 0; i < ENTRY_SIZE << PAGE_SHIFT; i += ENTRY_SIZE) {
+        store.set(page, i, 0);
+      }
+      pages[p] = page;
+    }
+    return pages[p];
+  }
+
+  private static int entry(int x) {
+    return (x & PAGE_MASK) * ENTRY_SIZE;
+  }
+
+  private long getHandle(long page, int entry) {
+    return ((long) store.get(page, entry + 1) << 32) | (store.get(page, entry + 2) & 0xffffffffL);
+  }
+
+  private void setHandle(long page, int entry, long handle) {
+    store.set(page, entry + 1, (int) (handle >>> 32));
+    store.set(page, entry + 2, (int) handle);
+  }
+
+  /** @return the block holding the y's of a row of n elements */
+  private long rowBlock(long page, int entry, int n) {
+    return n <= INLINE ? page : getHandle(page, entry);
+  }
+
+  /** @return the index in its block of the first y of a row of n elements */
+  private static int rowOffset(int entry, int n) {
+    return n <= INLINE ? entry + 1 : 0;
+  }
+
+  /** @return the index of y among the n ints from offset on, or -(insertion point) - 1 */
+  private int indexOf(long block, int offset, int n, int y) {
+    int low = 0;
+    int high = n - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int v = store.get(block, offset + mid);
+      if (v < y) {
+        low = mid + 1;
+      } else if (v > y) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  @Override
+  public boolean add(int x, int y) throws IllegalArgumentException {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    if (y < 0) {
+      throw new IllegalArgumentException("illegal y: " + y);
+    }
+    long page = findOrCreatePage(x);
+    int e = entry(x);
+    int n = store.get(page, e);
+    long block = rowBlock(page, e, n);
+    int offset = rowOffset(e, n);
+    int index = indexOf(block, offset, n, y);
+    if (index >= 0) {
+      return false;
+    }
+    index = -index - 1;
+    if (n < INLINE) {
+      store.copy(page, offset + index, page, offset + index + 1, n - index);
+      store.set(page, offset + index, y);
+    } else if (n == INLINE) {
+      long row = store.allocate(n + 1);
+      store.copy(page, offset, row, 0, index);
+      store.set(row, index, y);
+      store.copy(page, offset + index, row, index + 1, n - index);
+      setHandle(page, e, row);
+    } else {
+      if (OffHeapIntStore.capacity(block) == n) {
+        block = store.reallocate(block, n, n + 1);
+        setHandle(page, e, block);
+      }
+      store.copy(block, index, block, index + 1, n - index);
+      store.set(block, index, y);
+    }
+    store.set(page, e, n + 1);
+    maxX = Math.max(maxX, x);
+    return true;
+  }
+
+  @Override
+  public void remove(int x, int y) {
+    long page = x < 0 ? 0 : page(x);
+    if (page == 0) {
+      return;
+    }
+    int e = entry(x);
+    int n = store.get(page, e);
+    long block = rowBlock(page, e, n);
+    int offset = rowOffset(e, n);
+    int index = indexOf(block, offset, n, y);
+    if (index < 0) {
+      return;
+    }
+    if (n == INLINE + 1) {
+      // move the rest back into the entry
+      store.copy(block, 0, page, e + 1, index);
+      store.copy(block, index + 1, page, e + 1 + index, n - index - 1);
+      store.free(block);
+    } else {
+      store.copy(block, offset + index + 1, block, offset + index, n - index - 1);
+    }
+    store.set(page, e, n - 1);
+  }
+
+  @Override
+  public void removeAll(int x) {
+    long page = x < 0 ? 0 : page(x);
+    if (page == 0) {
+      return;
+    }
+    int e = entry(x);
+    int n = store.get(page, e);
+    if (n > INLINE) {
+      store.free(getHandle(page, e));
+    }
+    store.set(page, e, 0);
+  }
+
+  @Override
+  public IntSet getRelated(int x) {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    long page = page(x);
+    if (page == 0) {
+      return null;
+    }
+    int e = entry(x);
+    int n = store.get(page, e);
+    if (n == 0) {
+      return null;
+    }
+    long block = rowBlock(page, e, n);
+    int offset = rowOffset(e, n);
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = store.get(block, offset + i);
+    }
+    return new SparseIntSet(result);
+  }
+
+  @Override
+  public int getRelatedCount(int x) throws IllegalArgumentException {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    long page = page(x);
+    return page == 0 ? 0 : store.get(page, entry(x));
+  }
+
+  @Override
+  public boolean anyRelated(int x) {
+    return getRelatedCount(x) > 0;
+  }
+
+  @Override
+  public boolean contains(int x, int y) {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    long page = page(x);
+    if (page == 0) {
+      return false;
+    }
+    int e = entry(x);
+    int n = store.get(page, e);
+    return indexOf(rowBlock(page, e, n), rowOffset(e, n), n, y) >= 0;
+  }
+
+  @Override
+  public int maxKeyValue() {
+    return maxX;
+  }
+
+  @Override
+  public Iterator<IntPair> iterator() {
+    return new Iterator<IntPair>() {
+      /** the x of the next pair, or maxX + 1 if there is none */
+      private int x = advance(0);
+
+      /** the index of the y of the next pair among the y's of x */
+      private int index = 0;
+
+      private int advance(int start) {
+        int i = start;
+        while (i <= maxX && !anyRelated(i)) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return x <= maxX;
+      }
+
+      @Override
+      public IntPair next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        long page = page(x);
+        int e = entry(x);
+        int n = store.get(page, e);
+        IntPair result = new IntPair(x, store.get(rowBlock(page, e, n), rowOffset(e, n) + index));
+        if (++index == n) {
+          index = 0;
+          x = advance(x + 1);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void performVerboseAction() {
+    if (VERBOSE) {
+      System.err.println(getClass() + " stats:");
+      System.err.println("maxX: " + maxX);
+      System.err.println(store);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i <= maxX; i++) {
+      result.append(i).append(':');
+      result.append(getRelated(i));
+      result.append('\n');
+    }
+    return result.toString();
+  }
+}
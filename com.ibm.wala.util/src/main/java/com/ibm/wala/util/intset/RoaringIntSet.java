@@ -0,0 +1,1269 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link MutableIntSet} split into blocks of 65536 values, in the manner of Roaring bitmaps
+ * (Chambi, Lemire, Kaser and Godin, "Better bitmap performance with Roaring bitmaps", 2016).
+ *
+ * <p>Each block that holds any values has a container, the most compact of three kinds: a sorted
+ * array of the low 16 bits of at most 4096 values, a bitmap of all 65536 values, or a sorted list
+ * of runs of consecutive values. A medium-density set over a large universe, such as a points-to
+ * set over millions of instance keys, thus takes space in proportion to the blocks it touches and
+ * to the density within each of them, where a {@link BitVectorIntSet} takes space in proportion to
+ * its largest element and a {@link MutableSparseIntSet} four bytes per element. {@link
+ * #addAll(IntSet)}, {@link #intersection(IntSet)} and {@link #containsAny(IntSet)} work block by
+ * block when both sets are {@link RoaringIntSet}s, on whole words of bitmaps.
+ *
+ * <p>Run containers are only made by {@link #runOptimize()}, which {@link RoaringIntSetFactory}
+ * calls on the sets it makes from arrays; operations on two containers treat a run container as an
+ * array or a bitmap.
+ *
+ * <p>Only non-negative values may be added.
+ */
+public class RoaringIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = 3197530414236207711L;
+
+  /** the high 16 bits of the values in each container, in increasing order */
+  private char[] keys;
+
+  private Container[] containers;
+
+  /** the number of containers in use; none of them is empty */
+  private int nContainers;
+
+  /** the number of values in the set */
+  private int size;
+
+  public RoaringIntSet() {
+    keys = new char[2];
+    containers = new Container[2];
+  }
+
+  public RoaringIntSet(RoaringIntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    keys = new char[Math.max(2, set.nContainers)];
+    containers = new Container[keys.length];
+    copyFrom(set);
+  }
+
+  private void copyFrom(RoaringIntSet set) {
+    if (keys.length < set.nContainers) {
+      keys = new char[set.nContainers];
+      containers = new Container[set.nContainers];
+    } else {
+      Arrays.fill(containers, null);
+    }
+    System.arraycopy(set.keys, 0, keys, 0, set.nContainers);
+    for (int i = 0; i < set.nContainers; i++) {
+      containers[i] = set.containers[i].copy();
+    }
+    nContainers = set.nContainers;
+    size = set.size;
+  }
+
+  private static char high(int i) {
+    return (char) (i >>> 16);
+  }
+
+  private static char low(int i) {
+    return (char) i;
+  }
+
+  /** @return the index of the container for key, or (-(insertion point) - 1) */
+  private int indexOf(char key) {
+    return Arrays.binarySearch(keys, 0, nContainers, key);
+  }
+
+  private void insertContainer(int index, char key, Container c) {
+    if (nContainers == keys.length) {
+      int capacity = Math.max(2, nContainers * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, nContainers - index);
+    System.arraycopy(containers, index, containers, index + 1, nContainers - index);
+    keys[index] = key;
+    containers[index] = c;
+    nContainers++;
+  }
+
+  private void removeContainer(int index) {
+    System.arraycopy(keys, index + 1, keys, index, nContainers - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, nContainers - index - 1);
+    containers[--nContainers] = null;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = indexOf(high(i));
+    return index >= 0 && containers[index].contains(low(i));
+  }
+
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("invalid value: " + i);
+    }
+    int index = indexOf(high(i));
+    if (index < 0) {
+      ArrayContainer c = new ArrayContainer(4);
+      c.add(low(i));
+      insertContainer(-index - 1, high(i), c);
+      size++;
+      return true;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    containers[index] = c = c.add(low(i));
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size++;
+    return true;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = indexOf(high(i));
+    if (index < 0) {
+      return false;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = c.remove(low(i));
+    if (c.cardinality() == before) {
+      return false;
+    }
+    size--;
+    if (c.cardinality() == 0) {
+      removeContainer(index);
+    } else {
+      containers[index] = c;
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(containers, 0, nContainers, null);
+    nContainers = 0;
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int max() {
+    if (nContainers == 0) {
+      return -1;
+    }
+    return (keys[nContainers - 1] << 16) | containers[nContainers - 1].last();
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set instanceof RoaringIntSet) {
+      copyFrom((RoaringIntSet) set);
+    } else {
+      clear();
+      addAll(set);
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (!(set instanceof RoaringIntSet)) {
+      boolean result = false;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        result |= add(it.next());
+      }
+      return result;
+    }
+    RoaringIntSet other = (RoaringIntSet) set;
+    if (other == this) {
+      return false;
+    }
+    int before = size;
+    int n = nContainers + countMissingKeys(other);
+    char[] newKeys = keys;
+    Container[] newContainers = containers;
+    if (n > nContainers) {
+      // merge into fresh arrays, from the end, so that no container is moved twice
+      newKeys = n <= keys.length ? keys : new char[n];
+      newContainers = n <= containers.length ? containers : new Container[n];
+    }
+    int i = nContainers - 1;
+    int j = other.nContainers - 1;
+    size = 0;
+    for (int k = n - 1; k >= 0; k--) {
+      Container c;
+      if (j < 0 || (i >= 0 && keys[i] > other.keys[j])) {
+        newKeys[k] = keys[i];
+        c = containers[i--];
+      } else if (i < 0 || keys[i] < other.keys[j]) {
+        newKeys[k] = other.keys[j];
+        c = other.containers[j--].copy();
+      } else {
+        newKeys[k] = keys[i];
+        c = or(containers[i--], other.containers[j--]);
+      }
+      newContainers[k] = c;
+      size += c.cardinality();
+    }
+    keys = newKeys;
+    containers = newContainers;
+    nContainers = n;
+    return size != before;
+  }
+
+  /** @return the number of keys of other that this set does not have */
+  private int countMissingKeys(RoaringIntSet other) {
+    int result = 0;
+    int i = 0;
+    for (int j = 0; j < other.nContainers; j++) {
+      while (i < nContainers && keys[i] < other.keys[j]) {
+        i++;
+      }
+      if (i == nContainers || keys[i] != other.keys[j]) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    RoaringIntSet result = new RoaringIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  @Override
+  public RoaringIntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    RoaringIntSet result = new RoaringIntSet();
+    if (that instanceof RoaringIntSet) {
+      RoaringIntSet other = (RoaringIntSet) that;
+      for (int i = 0, j = 0; i < nContainers && j < other.nContainers; ) {
+        if (keys[i] < other.keys[j]) {
+          i++;
+        } else if (keys[i] > other.keys[j]) {
+          j++;
+        } else {
+          Container c = and(containers[i], other.containers[j]);
+          if (c != null) {
+            result.insertContainer(result.nContainers, keys[i], c);
+            result.size += c.cardinality();
+          }
+          i++;
+          j++;
+        }
+      }
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        int x = it.next();
+        if (that.contains(x)) {
+          result.add(x);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set == this) {
+      return;
+    }
+    RoaringIntSet result = intersection(set);
+    keys = result.keys;
+    containers = result.containers;
+    nContainers = result.nContainers;
+    size = result.size;
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter is null");
+    }
+    if (other instanceof RoaringIntSet && filter instanceof RoaringIntSet) {
+      RoaringIntSet o = (RoaringIntSet) other;
+      RoaringIntSet f = (RoaringIntSet) filter;
+      int before = size;
+      for (int i = 0, j = 0; i < o.nContainers && j < f.nContainers; ) {
+        if (o.keys[i] < f.keys[j]) {
+          i++;
+        } else if (o.keys[i] > f.keys[j]) {
+          j++;
+        } else {
+          addAllInIntersection(o.keys[i], o.containers[i++], f.containers[j++]);
+        }
+      }
+      return size != before;
+    }
+    boolean result = false;
+    for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+      int x = it.next();
+      if (filter.contains(x)) {
+        result |= add(x);
+      }
+    }
+    return result;
+  }
+
+  /** Add the values of the block key that are in both other and filter. */
+  private void addAllInIntersection(char key, Container other, Container filter) {
+    Container meet = and(other, filter);
+    if (meet == null) {
+      return;
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      insertContainer(-index - 1, key, meet);
+      size += meet.cardinality();
+    } else {
+      Container c = containers[index];
+      int before = c.cardinality();
+      containers[index] = c = or(c, meet);
+      size += c.cardinality() - before;
+    }
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    if (set instanceof RoaringIntSet) {
+      RoaringIntSet other = (RoaringIntSet) set;
+      for (int i = 0, j = 0; i < nContainers && j < other.nContainers; ) {
+        if (keys[i] < other.keys[j]) {
+          i++;
+        } else if (keys[i] > other.keys[j]) {
+          j++;
+        } else if (intersects(containers[i++], other.containers[j++])) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+      if (contains(it.next())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    if (that instanceof RoaringIntSet) {
+      RoaringIntSet other = (RoaringIntSet) that;
+      if (size > other.size) {
+        return false;
+      }
+      for (int i = 0, j = 0; i < nContainers; i++) {
+        while (j < other.nContainers && other.keys[j] < keys[i]) {
+          j++;
+        }
+        if (j == other.nContainers || other.keys[j] != keys[i]) {
+          return false;
+        }
+        Container c = containers[i];
+        if (c.cardinality() > other.containers[j].cardinality()
+            || andCardinality(c, other.containers[j]) != c.cardinality()) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      if (!that.contains(it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that is null");
+    }
+    if (size != that.size()) {
+      return false;
+    }
+    if (that instanceof RoaringIntSet) {
+      RoaringIntSet other = (RoaringIntSet) that;
+      if (nContainers != other.nContainers) {
+        return false;
+      }
+      for (int i = 0; i < nContainers; i++) {
+        if (keys[i] != other.keys[i]
+            || containers[i].cardinality() != other.containers[i].cardinality()
+            || andCardinality(containers[i], other.containers[i]) != containers[i].cardinality()) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return isSubset(that);
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int container = 0;
+
+      /** the index of the next value in the current container, if it is an array container */
+      private int index = 0;
+
+      /** the low 16 bits of the next value, or -1 */
+      private int next = nContainers == 0 ? -1 : containers[0].next(0);
+
+      @Override
+      public boolean hasNext() {
+        return next != -1;
+      }
+
+      @Override
+      public int next() {
+        if (next == -1) {
+          throw new NoSuchElementException();
+        }
+        int result = (keys[container] << 16) | next;
+        Container c = containers[container];
+        if (c instanceof ArrayContainer) {
+          ArrayContainer a = (ArrayContainer) c;
+          next = ++index < a.n ? a.values[index] : -1;
+        } else {
+          next = next < 0xffff ? c.next(next + 1) : -1;
+        }
+        if (next == -1 && ++container < nContainers) {
+          index = 0;
+          next = containers[container].next(0);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < nContainers; i++) {
+      containers[i].foreach(keys[i] << 16, action);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      int x = it.next();
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  /**
+   * Replace each container by the most compact of an array, a bitmap and a list of runs holding the
+   * same values.
+   */
+  public void runOptimize() {
+    for (int i = 0; i < nContainers; i++) {
+      containers[i] = containers[i].optimize();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(6 * size);
+    sb.append("{ ");
+    for (IntIterator it = intIterator(); it.hasNext(); ) {
+      sb.append(it.next());
+      sb.append(' ');
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+
+  /**
+   * @return the union of a and b; a may be changed and returned, b is left alone and never returned
+   */
+  private static Container or(Container a, Container b) {
+    a = a.toArrayOrBitmap();
+    b = b.toArrayOrBitmap();
+    if (a instanceof BitmapContainer) {
+      BitmapContainer x = (BitmapContainer) a;
+      if (b instanceof BitmapContainer) {
+        x.or((BitmapContainer) b);
+      } else {
+        x.or((ArrayContainer) b);
+      }
+      return x;
+    }
+    ArrayContainer x = (ArrayContainer) a;
+    if (b instanceof BitmapContainer) {
+      BitmapContainer result = ((BitmapContainer) b).copy();
+      result.or(x);
+      return result;
+    }
+    return x.or((ArrayContainer) b);
+  }
+
+  /** @return the intersection of a and b, or null if it is empty; a and b are left alone */
+  private static Container and(Container a, Container b) {
+    a = a.toArrayOrBitmap();
+    b = b.toArrayOrBitmap();
+    Container result;
+    if (a instanceof ArrayContainer) {
+      result = ((ArrayContainer) a).and(b);
+    } else if (b instanceof ArrayContainer) {
+      result = ((ArrayContainer) b).and(a);
+    } else {
+      result = ((BitmapContainer) a).and((BitmapContainer) b);
+    }
+    return result.cardinality() == 0 ? null : result;
+  }
+
+  private static boolean intersects(Container a, Container b) {
+    a = a.toArrayOrBitmap();
+    b = b.toArrayOrBitmap();
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).intersects(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).intersects(a);
+    }
+    return ((BitmapContainer) a).intersects((BitmapContainer) b);
+  }
+
+  private static int andCardinality(Container a, Container b) {
+    a = a.toArrayOrBitmap();
+    b = b.toArrayOrBitmap();
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).andCardinality(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).andCardinality(a);
+    }
+    return ((BitmapContainer) a).andCardinality((BitmapContainer) b);
+  }
+
+  /** The low 16 bits of the values of one block. */
+  private abstract static class Container implements Serializable {
+
+    private static final long serialVersionUID = -2606516624734359413L;
+
+    abstract int cardinality();
+
+    abstract boolean contains(char x);
+
+    /** @return a container holding the values of this one and x; this one, or a new one */
+    abstract Container add(char x);
+
+    /** @return a container holding the values of this one but x; this one, or a new one */
+    abstract Container remove(char x);
+
+    /** @return the smallest value &gt;= x, or -1 if there is none */
+    abstract int next(int x);
+
+    /** @return the largest value */
+    abstract int last();
+
+    /** Apply action to each value, with the given high bits. */
+    abstract void foreach(int high, IntSetAction action);
+
+    abstract Container copy();
+
+    /** @return this container or an equal array or bitmap container */
+    abstract Container toArrayOrBitmap();
+
+    /** @return the number of runs of consecutive values */
+    abstract int countRuns();
+
+    /** @return the most compact container holding the values of this one */
+    Container optimize() {
+      int n = cardinality();
+      int runBytes = 4 * countRuns();
+      int arrayBytes = n <= ArrayContainer.MAX_SIZE ? 2 * n : Integer.MAX_VALUE;
+      if (runBytes < Math.min(arrayBytes, BitmapContainer.BYTES)) {
+        return this instanceof RunContainer ? this : RunContainer.of(this);
+      }
+      Container result = toArrayOrBitmap();
+      if (result instanceof BitmapContainer && n <= ArrayContainer.MAX_SIZE) {
+        return ((BitmapContainer) result).toArray();
+      }
+      if (result instanceof ArrayContainer && n > ArrayContainer.MAX_SIZE) {
+        return ((ArrayContainer) result).toBitmap();
+      }
+      return result;
+    }
+  }
+
+  /** A sorted array of at most {@link #MAX_SIZE} values. */
+  private static final class ArrayContainer extends Container {
+
+    private static final long serialVersionUID = 5338251934932412361L;
+
+    /** beyond this, a bitmap is smaller */
+    static final int MAX_SIZE = 4096;
+
+    /**
+     * when one array is this many times longer, look up the values of the other by binary search
+     */
+    static final int SKEW = 16;
+
+    private char[] values;
+
+    private int n;
+
+    ArrayContainer(int capacity) {
+      values = new char[capacity];
+    }
+
+    ArrayContainer(char[] values, int n) {
+      this.values = values;
+      this.n = n;
+    }
+
+    @Override
+    int cardinality() {
+      return n;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return Arrays.binarySearch(values, 0, n, x) >= 0;
+    }
+
+    @Override
+    Container add(char x) {
+      int i = Arrays.binarySearch(values, 0, n, x);
+      if (i >= 0) {
+        return this;
+      }
+      if (n == MAX_SIZE) {
+        return toBitmap().add(x);
+      }
+      i = -i - 1;
+      if (n == values.length) {
+        values = Arrays.copyOf(values, Math.min(MAX_SIZE, Math.max(4, n * 2)));
+      }
+      System.arraycopy(values, i, values, i + 1, n - i);
+      values[i] = x;
+      n++;
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      int i = Arrays.binarySearch(values, 0, n, x);
+      if (i >= 0) {
+        System.arraycopy(values, i + 1, values, i, n - i - 1);
+        n--;
+      }
+      return this;
+    }
+
+    @Override
+    int next(int x) {
+      int i = Arrays.binarySearch(values, 0, n, (char) x);
+      if (i < 0) {
+        i = -i - 1;
+      }
+      return i < n ? values[i] : -1;
+    }
+
+    @Override
+    int last() {
+      return values[n - 1];
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < n; i++) {
+        action.act(high | values[i]);
+      }
+    }
+
+    @Override
+    ArrayContainer copy() {
+      return new ArrayContainer(Arrays.copyOf(values, n), n);
+    }
+
+    @Override
+    Container toArrayOrBitmap() {
+      return this;
+    }
+
+    @Override
+    int countRuns() {
+      int result = n == 0 ? 0 : 1;
+      for (int i = 1; i < n; i++) {
+        if (values[i] != values[i - 1] + 1) {
+          result++;
+        }
+      }
+      return result;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      result.or(this);
+      return result;
+    }
+
+    /** @return the union of this and other; this may be changed and returned */
+    Container or(ArrayContainer other) {
+      if (other.n * SKEW < n) {
+        // a few values into a large array: binary search beats a linear merge
+        Container result = this;
+        for (int i = 0; i < other.n; i++) {
+          result = result.add(other.values[i]);
+        }
+        return result;
+      }
+      int total = n + other.n - andCardinality(other);
+      if (total == n) {
+        return this;
+      }
+      if (total > MAX_SIZE) {
+        BitmapContainer result = toBitmap();
+        result.or(other);
+        return result;
+      }
+      if (total > values.length) {
+        values = Arrays.copyOf(values, Math.min(MAX_SIZE, Math.max(total, n * 2)));
+      }
+      // merge from the end, so that no value is overwritten before it moves
+      int i = n - 1;
+      int j = other.n - 1;
+      for (int k = total - 1; j >= 0; k--) {
+        if (i >= 0 && values[i] >= other.values[j]) {
+          if (values[i] == other.values[j]) {
+            j--;
+          }
+          values[k] = values[i--];
+        } else {
+          values[k] = other.values[j--];
+        }
+      }
+      n = total;
+      return this;
+    }
+
+    /**
+     * @return true if each value of this array should be looked up in other, rather than merging
+     *     two arrays
+     */
+    private boolean probe(Container other) {
+      return other instanceof BitmapContainer || n * SKEW < other.cardinality();
+    }
+
+    /** @param other an array or bitmap container */
+    ArrayContainer and(Container other) {
+      if (other instanceof ArrayContainer && other.cardinality() * SKEW < n) {
+        return ((ArrayContainer) other).and(this);
+      }
+      char[] result = new char[n];
+      int k = 0;
+      if (probe(other)) {
+        for (int i = 0; i < n; i++) {
+          if (other.contains(values[i])) {
+            result[k++] = values[i];
+          }
+        }
+      } else {
+        ArrayContainer a = (ArrayContainer) other;
+        for (int i = 0, j = 0; i < n && j < a.n; ) {
+          if (values[i] < a.values[j]) {
+            i++;
+          } else if (values[i] > a.values[j]) {
+            j++;
+          } else {
+            result[k++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      }
+      return new ArrayContainer(result, k);
+    }
+
+    /** @param other an array or bitmap container */
+    boolean intersects(Container other) {
+      if (other instanceof ArrayContainer && other.cardinality() * SKEW < n) {
+        return ((ArrayContainer) other).intersects(this);
+      }
+      if (probe(other)) {
+        for (int i = 0; i < n; i++) {
+          if (other.contains(values[i])) {
+            return true;
+          }
+        }
+        return false;
+      }
+      ArrayContainer a = (ArrayContainer) other;
+      for (int i = 0, j = 0; i < n && j < a.n; ) {
+        if (values[i] < a.values[j]) {
+          i++;
+        } else if (values[i] > a.values[j]) {
+          j++;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** @param other an array or bitmap container */
+    int andCardinality(Container other) {
+      if (other instanceof ArrayContainer && other.cardinality() * SKEW < n) {
+        return ((ArrayContainer) other).andCardinality(this);
+      }
+      int result = 0;
+      if (probe(other)) {
+        for (int i = 0; i < n; i++) {
+          if (other.contains(values[i])) {
+            result++;
+          }
+        }
+        return result;
+      }
+      ArrayContainer a = (ArrayContainer) other;
+      for (int i = 0, j = 0; i < n && j < a.n; ) {
+        if (values[i] < a.values[j]) {
+          i++;
+        } else if (values[i] > a.values[j]) {
+          j++;
+        } else {
+          result++;
+          i++;
+          j++;
+        }
+      }
+      return result;
+    }
+  }
+
+  /** A bitmap of all 65536 values of a block. */
+  private static final class BitmapContainer extends Container {
+
+    private static final long serialVersionUID = -2826004282396325571L;
+
+    static final int BYTES = 8192;
+
+    private final long[] words;
+
+    private int n;
+
+    BitmapContainer() {
+      words = new long[BYTES / 8];
+    }
+
+    private BitmapContainer(long[] words, int n) {
+      this.words = words;
+      this.n = n;
+    }
+
+    @Override
+    int cardinality() {
+      return n;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    Container add(char x) {
+      long w = words[x >>> 6];
+      long v = w | (1L << x);
+      if (v != w) {
+        words[x >>> 6] = v;
+        n++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      long w = words[x >>> 6];
+      long v = w & ~(1L << x);
+      if (v != w) {
+        words[x >>> 6] = v;
+        n--;
+        if (n <= ArrayContainer.MAX_SIZE) {
+          return toArray();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    int next(int x) {
+      int i = x >>> 6;
+      long w = words[i] & (-1L << x);
+      while (w == 0) {
+        if (++i == words.length) {
+          return -1;
+        }
+        w = words[i];
+      }
+      return i * 64 + Long.numberOfTrailingZeros(w);
+    }
+
+    @Override
+    int last() {
+      for (int i = words.length - 1; i >= 0; i--) {
+        if (words[i] != 0) {
+          return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < words.length; i++) {
+        for (long w = words[i]; w != 0; w &= w - 1) {
+          action.act(high | (i * 64 + Long.numberOfTrailingZeros(w)));
+        }
+      }
+    }
+
+    @Override
+    BitmapContainer copy() {
+      return new BitmapContainer(words.clone(), n);
+    }
+
+    @Override
+    Container toArrayOrBitmap() {
+      return this;
+    }
+
+    @Override
+    int countRuns() {
+      int result = 0;
+      long previous = 0;
+      for (long w : words) {
+        // a run starts at each set bit whose predecessor is clear
+        result += Long.bitCount(w & ~((w << 1) | (previous >>> 63)));
+        previous = w;
+      }
+      return result;
+    }
+
+    ArrayContainer toArray() {
+      char[] values = new char[n];
+      int k = 0;
+      for (int i = 0; i < words.length; i++) {
+        for (long w = words[i]; w != 0; w &= w - 1) {
+          values[k++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+        }
+      }
+      return new ArrayContainer(values, k);
+    }
+
+    void or(ArrayContainer other) {
+      for (int i = 0; i < other.n; i++) {
+        add(other.values[i]);
+      }
+    }
+
+    void or(BitmapContainer other) {
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        long w = words[i] | other.words[i];
+        words[i] = w;
+        count += Long.bitCount(w);
+      }
+      n = count;
+    }
+
+    Container and(BitmapContainer other) {
+      long[] result = new long[words.length];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+        long w = words[i] & other.words[i];
+        result[i] = w;
+        count += Long.bitCount(w);
+      }
+      BitmapContainer b = new BitmapContainer(result, count);
+      return count <= ArrayContainer.MAX_SIZE ? b.toArray() : b;
+    }
+
+    boolean intersects(BitmapContainer other) {
+      for (int i = 0; i < words.length; i++) {
+        if ((words[i] & other.words[i]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    int andCardinality(BitmapContainer other) {
+      int result = 0;
+      for (int i = 0; i < words.length; i++) {
+        result += Long.bitCount(words[i] & other.words[i]);
+      }
+      return result;
+    }
+  }
+
+  /** Runs of consecutive values, as pairs of a start and a length minus one, sorted by start. */
+  private static final class RunContainer extends Container {
+
+    private static final long serialVersionUID = 6043113728651219815L;
+
+    private char[] runs;
+
+    private int nRuns;
+
+    private int n;
+
+    private RunContainer(char[] runs, int nRuns, int n) {
+      this.runs = runs;
+      this.nRuns = nRuns;
+      this.n = n;
+    }
+
+    static RunContainer of(Container c) {
+      char[] runs = new char[2 * c.countRuns()];
+      int k = 0;
+      if (c instanceof ArrayContainer) {
+        ArrayContainer a = (ArrayContainer) c;
+        for (int i = 0; i < a.n; i++) {
+          if (i > 0 && a.values[i] == a.values[i - 1] + 1) {
+            runs[k - 1]++;
+          } else {
+            runs[k++] = a.values[i];
+            runs[k++] = 0;
+          }
+        }
+        return new RunContainer(runs, k / 2, a.n);
+      }
+      for (int x = c.next(0); x != -1; ) {
+        int end = x;
+        while (end < 0xffff && c.contains((char) (end + 1))) {
+          end++;
+        }
+        runs[k++] = (char) x;
+        runs[k++] = (char) (end - x);
+        x = end < 0xffff ? c.next(end + 1) : -1;
+      }
+      return new RunContainer(runs, k / 2, c.cardinality());
+    }
+
+    private int start(int r) {
+      return runs[2 * r];
+    }
+
+    private int end(int r) {
+      return runs[2 * r] + runs[2 * r + 1];
+    }
+
+    /** @return the last run starting at or before x, or -1 */
+    private int findRun(int x) {
+      int lo = 0;
+      int hi = nRuns - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (start(mid) <= x) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi;
+    }
+
+    @Override
+    int cardinality() {
+      return n;
+    }
+
+    @Override
+    boolean contains(char x) {
+      int r = findRun(x);
+      return r >= 0 && x <= end(r);
+    }
+
+    @Override
+    Container add(char x) {
+      int r = findRun(x);
+      if (r >= 0 && x <= end(r)) {
+        return this;
+      }
+      n++;
+      boolean extendsPrevious = r >= 0 && end(r) + 1 == x;
+      boolean extendsNext = r + 1 < nRuns && start(r + 1) == x + 1;
+      if (extendsPrevious && extendsNext) {
+        // x joins two runs
+        runs[2 * r + 1] = (char) (end(r + 1) - start(r));
+        System.arraycopy(runs, 2 * r + 4, runs, 2 * r + 2, 2 * (nRuns - r - 2));
+        nRuns--;
+      } else if (extendsPrevious) {
+        runs[2 * r + 1]++;
+      } else if (extendsNext) {
+        runs[2 * r + 2] = x;
+        runs[2 * r + 3]++;
+      } else {
+        insertRun(r + 1, x, x);
+      }
+      return this;
+    }
+
+    private void insertRun(int r, int start, int end) {
+      if (2 * nRuns == runs.length) {
+        runs = Arrays.copyOf(runs, Math.max(4, runs.length * 2));
+      }
+      System.arraycopy(runs, 2 * r, runs, 2 * r + 2, 2 * (nRuns - r));
+      runs[2 * r] = (char) start;
+      runs[2 * r + 1] = (char) (end - start);
+      nRuns++;
+    }
+
+    @Override
+    Container remove(char x) {
+      int r = findRun(x);
+      if (r < 0 || x > end(r)) {
+        return this;
+      }
+      n--;
+      int start = start(r);
+      int end = end(r);
+      if (start == end) {
+        System.arraycopy(runs, 2 * r + 2, runs, 2 * r, 2 * (nRuns - r - 1));
+        nRuns--;
+      } else if (x == start) {
+        runs[2 * r] = (char) (start + 1);
+        runs[2 * r + 1]--;
+      } else if (x == end) {
+        runs[2 * r + 1]--;
+      } else {
+        runs[2 * r + 1] = (char) (x - 1 - start);
+        insertRun(r + 1, x + 1, end);
+      }
+      return this;
+    }
+
+    @Override
+    int next(int x) {
+      int r = findRun(x);
+      if (r >= 0 && x <= end(r)) {
+        return x;
+      }
+      return r + 1 < nRuns ? start(r + 1) : -1;
+    }
+
+    @Override
+    int last() {
+      return end(nRuns - 1);
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int r = 0; r < nRuns; r++) {
+        for (int x = start(r), end = end(r); x <= end; x++) {
+          action.act(high | x);
+        }
+      }
+    }
+
+    @Override
+    RunContainer copy() {
+      return new RunContainer(Arrays.copyOf(runs, 2 * nRuns), nRuns, n);
+    }
+
+    @Override
+    Container toArrayOrBitmap() {
+      if (n <= ArrayContainer.MAX_SIZE) {
+        char[] values = new char[n];
+        int k = 0;
+        for (int r = 0; r < nRuns; r++) {
+          for (int x = start(r), end = end(r); x <= end; x++) {
+            values[k++] = (char) x;
+          }
+        }
+        return new ArrayContainer(values, k);
+      }
+      long[] words = new long[BitmapContainer.BYTES / 8];
+      for (int r = 0; r < nRuns; r++) {
+        int start = start(r);
+        int end = end(r);
+        int first = start >>> 6;
+        int last = end >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (end & 63));
+        if (first == last) {
+          words[first] |= startMask & endMask;
+        } else {
+          words[first] |= startMask;
+          Arrays.fill(words, first + 1, last, -1L);
+          words[last] |= endMask;
+        }
+      }
+      return new BitmapContainer(words, n);
+    }
+
+    @Override
+    int countRuns() {
+      return nRuns;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/**
+ * An object that creates {@link RoaringIntSet}s. The sets made from arrays and strings are {@link
+ * RoaringIntSet#runOptimize() run-optimized}; copies keep the containers of a {@link RoaringIntSet}
+ * they are made from, since the copies of points-to sets are soon added to.
+ */
+public class RoaringIntSetFactory implements MutableIntSetFactory<RoaringIntSet> {
+
+  /** @throws IllegalArgumentException if set is null */
+  @Override
+  public RoaringIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    RoaringIntSet result = new RoaringIntSet();
+    for (int element : set) {
+      result.add(element);
+    }
+    result.runOptimize();
+    return result;
+  }
+
+  @Override
+  public RoaringIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  @Override
+  public RoaringIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    RoaringIntSet result;
+    if (x instanceof RoaringIntSet) {
+      result = new RoaringIntSet((RoaringIntSet) x);
+    } else {
+      result = new RoaringIntSet();
+      result.addAll(x);
+    }
+    return result;
+  }
+
+  @Override
+  public RoaringIntSet make() {
+    return new RoaringIntSet();
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2021 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A repository of canonical, immutable {@link SparseIntSet}s: each distinct set of ints is stored
+ * once, so canonical sets with the same value are identical. The union and intersection of two
+ * canonical sets are canonical too, and recent ones are remembered in a cache of fixed size.
+ *
+ * <p>The repository holds its sets weakly; a set nothing else refers to is dropped.
+ *
+ * <p>All operations may be called from several threads. The sets are interned in a number of maps,
+ * chosen by hash code, each with its own lock, and the cache entries are immutable, so unions and
+ * intersections of unrelated sets do not wait for each other.
+ *
+ * @see HashConsedIntSet
+ */
+public class SparseIntSetRepository {
+
+  /** the number of entries in the operation cache; a power of two */
+  private static final int CACHE_SIZE = 1 << 14;
+
+  private static final byte UNION = 1;
+
+  private static final byte INTERSECTION = 2;
+
+  /** the number of maps the sets are interned in; a power of two */
+  private static final int STRIPES = 64;
+
+  /** the interned sets; each map is guarded by its own lock */
+  private static final List<Map<Canonical, WeakReference<Canonical>>> sets = makeStripes();
+
+  private static final Canonical EMPTY = findOrCreateInternal(new int[0]);
+
+  /** the operation cache; a null entry is empty */
+  private static final AtomicReferenceArray<CacheEntry> cache =
+      new AtomicReferenceArray<>(CACHE_SIZE);
+
+  private static final LongAdder queries = new LongAdder();
+
+  private static final LongAdder hits = new LongAdder();
+
+  private static List<Map<Canonical, WeakReference<Canonical>>> makeStripes() {
+    List<Map<Canonical, WeakReference<Canonical>>> result = new ArrayList<>(STRIPES);
+    for (int i = 0; i < STRIPES; i++) {
+      result.add(new WeakHashMap<>());
+    }
+    return result;
+  }
+
+  private static Map<Canonical, WeakReference<Canonical>> stripe(int hash) {
+    return sets.get((hash ^ (hash >>> 16)) & (STRIPES - 1));
+  }
+
+  /** A remembered union or intersection. */
+  private static final class CacheEntry {
+    final byte op;
+
+    final Canonical left;
+
+    final Canonical right;
+
+    final Canonical result;
+
+    CacheEntry(byte op, Canonical left, Canonical right, Canonical result) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+      this.result = result;
+    }
+  }
+
+  /** A canonical set, whose hash code and equality depend on its value. */
+  private static final class Canonical extends SparseIntSet {
+
+    private static final long serialVersionUID = -8437307591287744981L;
+
+    private final int hash;
+
+    Canonical(int[] elements) {
+      super(elements);
+      hash = Arrays.hashCode(elements);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Canonical)) {
+        return false;
+      }
+      Canonical other = (Canonical) obj;
+      return hash == other.hash && Arrays.equals(elements, other.elements);
+    }
+
+    /** keep deserialized sets canonical */
+    private Object readResolve() {
+      return findOrCreateInternal(elements);
+    }
+  }
+
+  /** @return the canonical empty set */
+  public static SparseIntSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @param elements distinct ints in increasing order; if the repository has no set with this
+   *     value, the array becomes the backing store of a new one, so it must not be changed
+   *     afterwards
+   * @return the canonical set with the given elements
+   * @throws IllegalArgumentException if elements is null
+   */
+  public static SparseIntSet findOrCreate(int[] elements) {
+    if (elements == null) {
+      throw new IllegalArgumentException("elements is null");
+    }
+    for (int i = 1; i < elements.length; i++) {
+      if (elements[i - 1] >= elements[i]) {
+        throw new IllegalArgumentException("elements not sorted: " + Arrays.toString(elements));
+      }
+    }
+    return findOrCreateInternal(elements);
+  }
+
+  private static Canonical findOrCreateInternal(int[] elements) {
+    Canonical key = new Canonical(elements);
+    Map<Canonical, WeakReference<Canonical>> stripe = stripe(key.hash);
+    synchronized (stripe) {
+      WeakReference<Canonical> ref = stripe.get(key);
+      Canonical result = ref == null ? null : ref.get();
+      if (result == null) {
+        stripe.put(key, new WeakReference<>(key));
+        result = key;
+      }
+      return result;
+    }
+  }
+
+  /** @return true if s was made by this repository */
+  public static boolean isCanonical(IntSet s) {
+    return s instanceof Canonical;
+  }
+
+  private static Canonical canonical(SparseIntSet s) {
+    if (!(s instanceof Canonical)) {
+      throw new IllegalArgumentException("not a canonical set: " + s);
+    }
+    return (Canonical) s;
+  }
+
+  private static int cacheIndex(byte op, Canonical a, Canonical b) {
+    int h = (a.hash * 31 + b.hash) * 0x9e3779b9 + op;
+    return (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+  }
+
+  /** @return the cached result of op on a and b, or null */
+  private static Canonical lookup(int index, byte op, Canonical a, Canonical b) {
+    queries.increment();
+    CacheEntry e = cache.get(index);
+    if (e != null && e.op == op && e.left == a && e.right == b) {
+      hits.increment();
+      return e.result;
+    }
+    return null;
+  }
+
+  private static void remember(int index, byte op, Canonical a, Canonical b, Canonical result) {
+    cache.set(index, new CacheEntry(op, a, b, result));
+  }
+
+  /**
+   * @param a a canonical set
+   * @param b a canonical set
+   * @return the canonical union of a and b
+   * @throws IllegalArgumentException if a or b is not canonical
+   */
+  public static SparseIntSet union(SparseIntSet a, SparseIntSet b) {
+    Canonical x = canonical(a);
+    Canonical y = canonical(b);
+    if (x == y || y.size == 0) {
+      return x;
+    }
+    if (x.size == 0) {
+      return y;
+    }
+    if (x.hash > y.hash) {
+      Canonical t = x;
+      x = y;
+      y = t;
+    }
+    int index = cacheIndex(UNION, x, y);
+    Canonical result = lookup(index, UNION, x, y);
+    if (result == null) {
+      int[] u = new int[x.size + y.size];
+      int k = 0;
+      int i = 0;
+      int j = 0;
+      while (i < x.size && j < y.size) {
+        int p = x.elements[i];
+        int q = y.elements[j];
+        if (p <= q) {
+          u[k++] = p;
+          i++;
+          if (p == q) {
+            j++;
+          }
+        } else {
+          u[k++] = q;
+          j++;
+        }
+      }
+      while (i < x.size) {
+        u[k++] = x.elements[i++];
+      }
+      while (j < y.size) {
+        u[k++] = y.elements[j++];
+      }
+      if (k == x.size) {
+        result = x;
+      } else if (k == y.size) {
+        result = y;
+      } else {
+        result = findOrCreateInternal(k == u.length ? u : Arrays.copyOf(u, k));
+      }
+      remember(index, UNION, x, y, result);
+    }
+    return result;
+  }
+
+  /**
+   * @param a a canonical set
+   * @param b a canonical set
+   * @return the canonical intersection of a and b
+   * @throws IllegalArgumentException if a or b is not canonical
+   */
+  public static SparseIntSet intersection(SparseIntSet a, SparseIntSet b) {
+    Canonical x = canonical(a);
+    Canonical y = canonical(b);
+    if (x == y || x.size == 0) {
+      return x;
+    }
+    if (y.size == 0) {
+      return y;
+    }
+    if (x.hash > y.hash) {
+      Canonical t = x;
+      x = y;
+      y = t;
+    }
+    int index = cacheIndex(INTERSECTION, x, y);
+    Canonical result = lookup(index, INTERSECTION, x, y);
+    if (result == null) {
+      int[] m = new int[Math.min(x.size, y.size)];
+      int k = 0;
+      for (int i = 0, j = 0; i < x.size && j < y.size; ) {
+        int p = x.elements[i];
+        int q = y.elements[j];
+        if (p < q) {
+          i++;
+        } else if (p > q) {
+          j++;
+        } else {
+          m[k++] = p;
+          i++;
+          j++;
+        }
+      }
+      if (k == x.size) {
+        result = x;
+      } else if (k == y.size) {
+        result = y;
+      } else {
+        result = findOrCreateInternal(k == m.length ? m : Arrays.copyOf(m, k));
+      }
+      remember(index, INTERSECTION, x, y, result);
+    }
+    return result;
+  }
+
+  /** @return the number of distinct sets in the repository */
+  public static int size() {
+    int result = 0;
+    for (Map<Canonical, WeakReference<Canonical>> stripe : sets) {
+      synchronized (stripe) {
+        result += stripe.size();
+      }
+    }
+    return result;
+  }
+
+  /** @return the fraction of unions and intersections found in the cache */
+  public static double getCacheHitRate() {
+    long q = queries.sum();
+    return q == 0 ? 0.0 : (double) hits.sum() / q;
+  }
+
+  /** Forget the remembered unions and intersections, so that the sets they hold may be dropped. */
+  public static void clearCache() {
+    for (int i = 0; i < CACHE_SIZE; i++) {
+      cache.set(i, null);
+    }
+  }
+}